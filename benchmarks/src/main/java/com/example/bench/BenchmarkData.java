@@ -0,0 +1,48 @@
+package com.example.bench;
+
+import com.example.AbstractModpackManager;
+
+/**
+ * Builds synthetic modpack data sets for the benchmarks
+ */
+public final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Fills a manager with packs and mods
+     * Mods are dealt round-robin over the packs, and the j-th mod of every pack has the same
+     * name, so popular mods are shared between packs the way they are in real data
+     * @param manager the manager to fill
+     * @param packs number of modpacks
+     * @param mods total number of mod entries across all packs
+     */
+    public static void populate(AbstractModpackManager manager, int packs, int mods) {
+        for (int p = 0; p < packs; p++) {
+            manager.addModpack(packName(p));
+        }
+        for (int i = 0; i < mods; i++) {
+            manager.addModToModpack(packName(i % packs), modName(i / packs));
+        }
+        manager.clearChanges();
+    }
+
+    /**
+     * Returns the name of a generated pack
+     * @param index the pack number
+     * @return the pack name
+     */
+    public static String packName(int index) {
+        return "Pack " + index;
+    }
+
+    /**
+     * Returns the name of a generated mod
+     * @param index the mod number
+     * @return the mod name
+     */
+    public static String modName(int index) {
+        return "Mod " + index;
+    }
+}
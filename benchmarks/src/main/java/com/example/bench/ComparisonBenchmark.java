@@ -0,0 +1,98 @@
+package com.example.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.example.ModpackComparison;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building a comparison and computing the full overlap matrix
+ * Packs hold 100 to 300 mods drawn from a pool of distinct mods, with a few popular mods
+ * in most packs and a long tail that appears in few, as in real modpack collections.
+ */
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ComparisonBenchmark {
+
+    /**
+     * Generated packs over a pool of distinct mods
+     */
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"500", "5000"})
+        public int packs;
+
+        @Param({"50000"})
+        public int distinctMods;
+
+        public List<String> names;
+        public Map<String, Set<String>> mods;
+        public ModpackComparison comparison;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(42);
+            names = new ArrayList<>();
+            mods = new HashMap<>();
+            for (int p = 0; p < packs; p++) {
+                String name = BenchmarkData.packName(p);
+                Set<String> packMods = new LinkedHashSet<>();
+                int size = 100 + random.nextInt(200);
+                while (packMods.size() < size) {
+                    // Cubing skews the draw towards low numbers, the popular mods
+                    double x = random.nextDouble();
+                    packMods.add(BenchmarkData.modName((int) (distinctMods * x * x * x)));
+                }
+                names.add(name);
+                mods.put(name, packMods);
+            }
+            comparison = new ModpackComparison(names, mods);
+        }
+    }
+
+    /**
+     * Assigns mod ids and builds every pack's bitset
+     */
+    @Benchmark
+    public ModpackComparison build(Data data) {
+        return new ModpackComparison(data.names, data.mods);
+    }
+
+    /**
+     * Counts the shared mods of every pair of packs
+     */
+    @Benchmark
+    public ModpackComparison.OverlapMatrix overlapMatrix(Data data) {
+        return data.comparison.overlapMatrix();
+    }
+
+    /**
+     * Computes the matrix and picks the 100 most similar pairs, as the comparison screen does
+     */
+    @Benchmark
+    public List<ModpackComparison.Overlap> topPairs(Data data) {
+        return data.comparison.overlapMatrix().topPairs(100);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.ConcurrentModpackManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-mod edits by eight threads, each writing its own pack of a ConcurrentModpackManager
+ * Each edit adds a new mod to the thread's pack and removes its oldest, so the pack keeps its
+ * size. With per-pack sets that share storage the time per edit should not grow with the pack
+ * size or the number of other packs.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Threads(8)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConcurrentWriteBenchmark {
+
+    /**
+     * A manager with many packs, shared by all threads
+     */
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"100", "10000"})
+        public int packs;
+
+        @Param({"1000", "100000"})
+        public int packSize;
+
+        public ConcurrentModpackManager manager;
+        // Hands each thread its own pack
+        public final AtomicInteger threads = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            manager = new ConcurrentModpackManager();
+            BenchmarkData.populate(manager, packs, packs * 10);
+        }
+    }
+
+    /**
+     * The pack a thread writes and the range of mods it holds
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+        public String pack;
+        public int oldest;
+        public int next;
+
+        @Setup(Level.Trial)
+        public void setUp(Data data) {
+            pack = "Writer " + data.threads.getAndIncrement();
+            data.manager.addModpack(pack);
+            for (next = 0; next < data.packSize; next++) {
+                data.manager.addModToModpack(pack, BenchmarkData.modName(next));
+            }
+        }
+    }
+
+    @Benchmark
+    public void addAndRemove(Data data, Writer writer) {
+        data.manager.addModToModpack(writer.pack, BenchmarkData.modName(writer.next++));
+        data.manager.removeModFromModpack(writer.pack, BenchmarkData.modName(writer.oldest++));
+    }
+}
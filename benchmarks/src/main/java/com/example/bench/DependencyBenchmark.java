@@ -0,0 +1,111 @@
+package com.example.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.example.DependencyReport;
+import com.example.ModDependency;
+import com.example.ModInfo;
+import com.example.ModpackManager;
+import com.example.VersionRange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dependency checking of a synthetic pack: a full rebuild against one incremental change
+ * Each mod requires up to three earlier mods, optionally loads after one more, and every
+ * hundredth mod is incompatible with another, so the graph is a DAG with a few conflicts.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DependencyBenchmark {
+
+    /**
+     * A manager holding one pack with metadata for all of its mods
+     */
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"2000"})
+        public int mods;
+
+        public ModpackManager manager;
+        // A mod in the middle of the pack, with dependencies and dependents
+        public String middle;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            manager = new ModpackManager();
+            Random random = new Random(42);
+            List<ModInfo> infos = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < mods; i++) {
+                List<ModDependency> dependencies = new ArrayList<>();
+                for (int d = 0; d < 3 && i > 0; d++) {
+                    dependencies.add(new ModDependency("mod" + random.nextInt(i), ModDependency.Kind.REQUIRED,
+                            VersionRange.parse(">=1.0")));
+                }
+                if (i > 0) {
+                    dependencies.add(new ModDependency("mod" + random.nextInt(i), ModDependency.Kind.OPTIONAL,
+                            VersionRange.parse("[1.0,2.0)")));
+                }
+                if (i % 100 == 99) {
+                    dependencies.add(new ModDependency("mod" + random.nextInt(mods), ModDependency.Kind.INCOMPATIBLE,
+                            VersionRange.ANY));
+                }
+                String name = BenchmarkData.modName(i);
+                infos.add(new ModInfo("mod" + i + ".jar", "mod" + i, name, "1." + (i % 10), null, dependencies));
+                names.add(name);
+            }
+            manager.getDependencyResolver().addModInfo(infos);
+            manager.addModpack(BenchmarkData.packName(0));
+            manager.addModsToModpack(BenchmarkData.packName(0), names);
+            manager.clearChanges();
+            middle = BenchmarkData.modName(mods / 2);
+            manager.checkModpackMods(BenchmarkData.packName(0));
+        }
+    }
+
+    /**
+     * Builds the pack's graph from scratch and checks it, as the first check of a pack does
+     */
+    @Benchmark
+    public DependencyReport fullCheck(Data data) {
+        // Dropping the cached graphs makes the next check rebuild them
+        data.manager.getDependencyResolver().dataReplaced();
+        return data.manager.checkModpackMods(BenchmarkData.packName(0));
+    }
+
+    /**
+     * Removes and re-adds one mod; only its neighbourhood is re-evaluated and reordered
+     */
+    @Benchmark
+    public void incrementalChange(Data data) {
+        data.manager.removeModFromModpack(BenchmarkData.packName(0), data.middle);
+        data.manager.addModToModpack(BenchmarkData.packName(0), data.middle);
+    }
+
+    /**
+     * One incremental change followed by a report, as the GUI does after an edit
+     */
+    @Benchmark
+    public DependencyReport incrementalChangeAndCheck(Data data) {
+        incrementalChange(data);
+        return data.manager.checkModpackMods(BenchmarkData.packName(0));
+    }
+}
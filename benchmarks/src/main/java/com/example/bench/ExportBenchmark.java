@@ -0,0 +1,122 @@
+package com.example.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.example.ModpackExporter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Packing a 200 MB instance: 100 incompressible 2 MB jars and 400 text configs
+ * The exporter stores the jars with transferTo and deflates the configs on worker threads;
+ * the baseline is a plain ZipOutputStream deflating every file through the heap, as a
+ * hand-written export script would.
+ */
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExportBenchmark {
+    private static final int JARS = 100;
+    private static final int JAR_BYTES = 2 << 20;
+    private static final int CONFIGS = 400;
+
+    /**
+     * A game instance on disk with a mods and a config folder
+     */
+    @State(Scope.Benchmark)
+    public static class Instance {
+        public Path dir;
+        public Path mods;
+        public List<String> modNames = new ArrayList<>();
+        public Map<String, Path> jars = new LinkedHashMap<>();
+        public List<Path> folders;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("modpack-export-bench");
+            mods = Files.createDirectories(dir.resolve("mods"));
+            Path config = Files.createDirectories(dir.resolve("config"));
+            Random random = new Random(1);
+            byte[] jar = new byte[JAR_BYTES];
+            for (int i = 0; i < JARS; i++) {
+                random.nextBytes(jar);
+                String mod = BenchmarkData.modName(i);
+                Path file = mods.resolve("mod-" + i + ".jar");
+                Files.write(file, jar);
+                modNames.add(mod);
+                jars.put(mod, file);
+            }
+            for (int i = 0; i < CONFIGS; i++) {
+                StringBuilder text = new StringBuilder();
+                for (int line = 0; line < 500; line++) {
+                    text.append("option").append(line).append(" = ").append(random.nextInt(100)).append('\n');
+                }
+                Files.writeString(config.resolve("mod-" + i + ".toml"), text);
+            }
+            folders = ModpackExporter.findConfigFolders(mods);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Writes a .mrpack with stored jars and deflated configs
+     */
+    @Benchmark
+    public long export(Instance instance) throws IOException {
+        return new ModpackExporter().export("Bench", instance.modNames, instance.jars, instance.folders,
+                instance.dir.resolve("bench.mrpack")).getOutputBytes();
+    }
+
+    /**
+     * Deflates every file through a ZipOutputStream
+     */
+    @Benchmark
+    public long zipOutputStream(Instance instance) throws IOException {
+        Path target = instance.dir.resolve("bench.zip");
+        List<Path> files;
+        try (Stream<Path> walk = Stream.concat(Files.list(instance.mods), Files.walk(instance.folders.get(0)))) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        try (OutputStream out = Files.newOutputStream(target); ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Path file : files) {
+                zip.putNextEntry(new ZipEntry(instance.dir.relativize(file).toString()));
+                Files.copy(file, zip);
+                zip.closeEntry();
+            }
+        }
+        return Files.size(target);
+    }
+}
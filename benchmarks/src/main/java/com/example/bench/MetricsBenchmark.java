@@ -0,0 +1,60 @@
+package com.example.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import com.example.ModpackManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of operation metrics on the mutation hot path, with recording off and on
+ * Run with -prof gc to check that neither setting adds allocations per operation.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+
+    /**
+     * A manager with one 1,000-mod pack
+     */
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"false", "true"})
+        public boolean enabled;
+
+        public ModpackManager manager;
+        public String mod;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            manager = new ModpackManager();
+            BenchmarkData.populate(manager, 1, 1000);
+            manager.getMetrics().setEnabled(enabled);
+            mod = BenchmarkData.modName(500);
+        }
+    }
+
+    /**
+     * Removes and re-adds one mod; both mutations are recorded when enabled
+     */
+    @Benchmark
+    public void removeAndAdd(Data data) {
+        data.manager.removeModFromModpack(BenchmarkData.packName(0), data.mod);
+        data.manager.addModToModpack(BenchmarkData.packName(0), data.mod);
+        data.manager.clearChanges();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.bench;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.example.ModpackFileLoader;
+import com.example.ModpackManager;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Heap retained by a loaded data set of 1,000,000 modpack-mod entries
+ * strings rebuilds the layout ModpackManager used before mods were interned: a LinkedHashSet of
+ * loaded names per pack, one String per entry, and a reverse index from each mod to its packs.
+ * interned is ModpackManager.loadFromJson today: one registry entry per distinct mod, an int
+ * per entry and a reference per entry in the registry's reverse index. Both report retainedBytesPerMod; the time includes the garbage collections used
+ * to measure it. JMH adds up event counters over measurement iterations, so each runs once.
+ */
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ModelHeapBenchmark {
+    // Entries across all packs
+    private static final int MODS = 1_000_000;
+
+    /**
+     * A saved data file with 1,000,000 entries over a pool of distinct mods
+     */
+    @State(Scope.Benchmark)
+    public static class Data {
+        // 100 mods per pack on average
+        @Param({"10000"})
+        public int packs;
+
+        @Param({"20000", "200000"})
+        public int distinctMods;
+
+        @Param({"strings", "interned"})
+        public String model;
+
+        public Path dir;
+        public Path file;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("modpack-heap-bench");
+            file = dir.resolve("modpack_data.txt");
+            ModpackManager manager = new ModpackManager();
+            manager.setDataFile(file);
+            Random random = new Random(42);
+            for (int p = 0; p < packs; p++) {
+                manager.addModpack(BenchmarkData.packName(p));
+            }
+            int entries = 0;
+            while (entries < MODS) {
+                // Cubing skews the draw towards low numbers, the popular mods
+                double x = random.nextDouble();
+                String mod = BenchmarkData.modName((int) (distinctMods * x * x * x));
+                String pack = BenchmarkData.packName(random.nextInt(packs));
+                if (manager.getModpackModsView(pack).size() < 2 * MODS / packs) {
+                    int before = manager.getModCount(pack);
+                    manager.addModToModpack(pack, mod);
+                    entries += manager.getModCount(pack) - before;
+                }
+            }
+            manager.saveToJson();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    /**
+     * Heap retained by the loaded data
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+        public long retainedBytesPerMod;
+    }
+
+    /**
+     * Loads the data file into the chosen model and measures what it keeps
+     */
+    @Benchmark
+    public Object load(Data data, Retained retained) throws IOException {
+        long before = usedHeap();
+        Object loaded;
+        if (data.model.equals("interned")) {
+            ModpackManager manager = new ModpackManager();
+            manager.setDataFile(data.file);
+            manager.loadFromJson();
+            loaded = manager;
+        } else {
+            loaded = loadStrings(data.file);
+        }
+        retained.retainedBytesPerMod = (usedHeap() - before) / MODS;
+        return loaded;
+    }
+
+    /**
+     * Loads the data into per-pack sets of strings with a reverse index, as the manager once did
+     */
+    private static Object[] loadStrings(Path file) throws IOException {
+        Map<String, Set<String>> modpackMods = ModpackFileLoader.load(file).getModpackMods();
+        Map<String, Set<String>> modIndex = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : modpackMods.entrySet()) {
+            for (String mod : entry.getValue()) {
+                modIndex.computeIfAbsent(mod, k -> new LinkedHashSet<>()).add(entry.getKey());
+            }
+        }
+        return new Object[] {modpackMods, modIndex};
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
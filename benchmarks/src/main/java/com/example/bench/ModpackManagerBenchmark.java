@@ -0,0 +1,176 @@
+package com.example.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.example.ModpackManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the ModpackManager data layer across data set sizes
+ * Run a subset with, for example: java -jar benchmarks.jar ModpackManagerBenchmark -p mods=1000
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ModpackManagerBenchmark {
+
+    // Mutations per measured batch in the add/remove benchmarks
+    private static final int BATCH = 10_000;
+
+    /**
+     * A populated manager shared by the read benchmarks
+     */
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"10", "1000", "100000", "1000000"})
+        public int mods;
+
+        @Param({"1", "100", "10000"})
+        public int packs;
+
+        public ModpackManager manager;
+        public String target;
+        public Path dir;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("modpack-bench");
+            manager = new ModpackManager();
+            manager.setDataFile(dir.resolve("modpack_data.txt"));
+            BenchmarkData.populate(manager, packs, mods);
+            target = BenchmarkData.packName(0);
+            manager.saveToJson();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Manager whose added mods are removed again after each iteration
+     */
+    @State(Scope.Benchmark)
+    public static class AddData extends Data {
+        public int next;
+
+        @TearDown(Level.Iteration)
+        public void removeAdded() {
+            for (int i = 0; i < next; i++) {
+                manager.removeModFromModpack(target, "Added " + i);
+            }
+            manager.clearChanges();
+            next = 0;
+        }
+    }
+
+    /**
+     * Manager that gets a fresh batch of removable mods before each iteration
+     */
+    @State(Scope.Benchmark)
+    public static class RemoveData extends Data {
+        public int next;
+
+        @Setup(Level.Iteration)
+        public void addRemovable() {
+            for (int i = 0; i < BATCH; i++) {
+                manager.addModToModpack(target, "Removable " + i);
+            }
+            manager.clearChanges();
+            next = 0;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = BATCH)
+    @Measurement(iterations = 5, batchSize = BATCH)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void addModToModpack(AddData data) {
+        data.manager.addModToModpack(data.target, "Added " + data.next++);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = BATCH)
+    @Measurement(iterations = 5, batchSize = BATCH)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void removeModFromModpack(RemoveData data) {
+        data.manager.removeModFromModpack(data.target, "Removable " + data.next++);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<String> getModpackMods(Data data) {
+        return data.manager.getModpackMods(data.target);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String getSummary(Data data) {
+        return data.manager.getSummary();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Set<String> getModpackModsView(Data data) {
+        return data.manager.getModpackModsView(data.target);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<String> getModpackModsSnapshot(Data data) {
+        return data.manager.getModpackModsSnapshot(data.target);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int getDistinctModCount(Data data) {
+        return data.manager.getDistinctModCount();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void saveToJson(Data data) {
+        data.manager.saveToJson();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ModpackManager loadFromJson(Data data) {
+        ModpackManager loaded = new ModpackManager();
+        loaded.setDataFile(data.manager.getDataFile());
+        loaded.loadFromJson();
+        return loaded;
+    }
+}
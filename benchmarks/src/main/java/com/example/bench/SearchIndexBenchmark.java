@@ -0,0 +1,73 @@
+package com.example.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.example.ModpackManager;
+import com.example.ModpackSearchIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Query and update latency of ModpackSearchIndex over a million distinct mod names
+ * Queries cover a rare substring, an exact name, a two-character scan and a miss
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchIndexBenchmark {
+
+    /**
+     * A manager with an attached index
+     */
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"1000000"})
+        public int mods;
+
+        public ModpackManager manager;
+        public ModpackSearchIndex index;
+        public int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            manager = new ModpackManager();
+            BenchmarkData.populate(manager, 1, mods);
+            index = new ModpackSearchIndex(manager);
+        }
+    }
+
+    /**
+     * The index plus a query to run against it
+     */
+    @State(Scope.Benchmark)
+    public static class Query extends Data {
+        @Param({"mod 4242", "Mod 999999", "od", "zzz"})
+        public String query;
+    }
+
+    @Benchmark
+    public List<ModpackSearchIndex.SearchResult> search(Query data) {
+        return data.index.search(data.query);
+    }
+
+    @Benchmark
+    public void addAndRemoveMod(Data data) {
+        String mod = "Indexed " + data.next++;
+        data.manager.addModToModpack(BenchmarkData.packName(0), mod);
+        data.manager.removeModFromModpack(BenchmarkData.packName(0), mod);
+    }
+}
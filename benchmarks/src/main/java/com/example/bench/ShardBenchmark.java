@@ -0,0 +1,106 @@
+package com.example.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.example.ModpackManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving after a one-mod edit, and loading, with a single data file and with sharded storage
+ * With shards, the save rewrites one small file however many packs there are, and the load
+ * reads only the pack list.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShardBenchmark {
+    // Mods in each generated pack
+    private static final int MODS_PER_PACK = 100;
+
+    /**
+     * Saved data of the given size in the given storage
+     */
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"10", "100", "1000"})
+        public int packs;
+
+        @Param({"file", "sharded"})
+        public String storage;
+
+        public ModpackManager manager;
+        public Path dir;
+        public String mod;
+        public boolean present = true;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("modpack-shard-bench");
+            manager = open(this);
+            BenchmarkData.populate(manager, packs, packs * MODS_PER_PACK);
+            manager.saveToJson();
+            mod = BenchmarkData.modName(0);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Removes or re-adds one mod of the first pack, then saves
+     */
+    @Benchmark
+    public void saveOneEdit(Data data) {
+        if (data.present) {
+            data.manager.removeModFromModpack(BenchmarkData.packName(0), data.mod);
+        } else {
+            data.manager.addModToModpack(BenchmarkData.packName(0), data.mod);
+        }
+        data.present = !data.present;
+        data.manager.saveToJson();
+        data.manager.clearChanges();
+    }
+
+    /**
+     * Loads the saved data and opens the first pack
+     */
+    @Benchmark
+    public int loadAndOpenOne(Data data) {
+        ModpackManager manager = open(data);
+        manager.loadFromJson();
+        return manager.getModpackMods(BenchmarkData.packName(0)).size();
+    }
+
+    private static ModpackManager open(Data data) {
+        ModpackManager manager = new ModpackManager();
+        manager.setDataFile(data.dir.resolve("modpack_data.txt"));
+        if (data.storage.equals("sharded")) {
+            manager.enableShards();
+        }
+        return manager;
+    }
+}
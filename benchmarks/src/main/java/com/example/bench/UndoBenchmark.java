@@ -0,0 +1,161 @@
+package com.example.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+import com.example.ModpackManager;
+import com.example.ModpackSnapshot;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of keeping undo history, against copying the data for every snapshot
+ * edit records one undo step per mutation; its gc.alloc.rate.norm under -prof gc is the history
+ * growth per edit. copySnapshot is what a deep-copy undo stack would pay per edit instead.
+ * hundredThousandEdits reports the heap retained per edit by a full 100,000-step history.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class UndoBenchmark {
+    // Mods in the data set, spread over 100 packs
+    private static final int MODS = 100_000;
+    private static final int PACKS = 100;
+    private static final int EDITS = 100_000;
+
+    /**
+     * A 100,000-mod data set, with or without undo history
+     */
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"false", "true"})
+        public boolean undo;
+
+        public ModpackManager manager;
+        public String mod;
+        public boolean present = true;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            manager = new ModpackManager();
+            BenchmarkData.populate(manager, PACKS, MODS);
+            if (undo) {
+                manager.enableUndo(EDITS);
+            }
+            mod = BenchmarkData.modName(MODS / PACKS / 2);
+        }
+    }
+
+    /**
+     * The same data set, for the copying snapshot
+     */
+    @State(Scope.Benchmark)
+    public static class Plain {
+        public ModpackManager manager;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            manager = new ModpackManager();
+            BenchmarkData.populate(manager, PACKS, MODS);
+        }
+    }
+
+    /**
+     * Whether the edit run keeps undo history
+     */
+    @State(Scope.Benchmark)
+    public static class History {
+        @Param({"false", "true"})
+        public boolean undo;
+    }
+
+    /**
+     * Heap retained after a run of edits
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+        public long retainedBytesPerEdit;
+    }
+
+    /**
+     * Removes or re-adds one mod; with undo on, this closes one undo step
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void edit(Data data) {
+        if (data.present) {
+            data.manager.removeModFromModpack(BenchmarkData.packName(0), data.mod);
+        } else {
+            data.manager.addModToModpack(BenchmarkData.packName(0), data.mod);
+        }
+        data.present = !data.present;
+        data.manager.clearChanges();
+    }
+
+    /**
+     * Copies all data, as a deep-copy undo stack would after every edit
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ModpackSnapshot copySnapshot(Plain plain) {
+        return plain.manager.snapshot();
+    }
+
+    /**
+     * Makes 100,000 edits, with a history that keeps all of them when undo is on, and measures the
+     * heap they retain
+     * The measured time includes the garbage collections used for the measurement. JMH adds up
+     * event counters over measurement iterations, so this runs a single one.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 1)
+    public ModpackManager hundredThousandEdits(History history, Retained retained) {
+        ModpackManager manager = new ModpackManager();
+        BenchmarkData.populate(manager, PACKS, MODS);
+        if (history.undo) {
+            manager.enableUndo(EDITS);
+        }
+        manager.clearChanges();
+        long before = usedHeap();
+        for (int i = 0; i < EDITS; i++) {
+            // Each mod is removed and then put back, so only the history grows
+            String pack = BenchmarkData.packName(i / 2 % PACKS);
+            String mod = BenchmarkData.modName(i / 2 / PACKS % (MODS / PACKS));
+            if (i % 2 == 0) {
+                manager.removeModFromModpack(pack, mod);
+            } else {
+                manager.addModToModpack(pack, mod);
+            }
+        }
+        manager.clearChanges();
+        retained.retainedBytesPerEdit = (usedHeap() - before) / EDITS;
+        return manager;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,4 @@
+@echo off
+REM Batch script to run the command-line Modpack Manager
+REM Usage: run-cli.bat [--data file] [--time] command [args]
+java -cp target\classes com.example.ModpackCli %*
@@ -0,0 +1,362 @@
+package com.example;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Modpack data operations shared by ModpackManager and ConcurrentModpackManager
+ * Holds what does not depend on how the data is stored: the data file, change events, metrics
+ * and dependency checks. Storage modes such as the journal, shards and undo belong to
+ * ModpackManager alone, so code written against this type only sees what both support.
+ */
+public abstract class AbstractModpackManager extends ModpackUpdate {
+    private static final String DATA_FILE = "modpack_data.txt";
+    // File that saves and loads use
+    private Path dataFile;
+    // Statistics from the last data file load
+    private String lastLoadReport = "No data loaded";
+    // Subscribers to fine-grained change events
+    private final List<ModpackListener> listeners = new CopyOnWriteArrayList<>();
+    // Dependency graphs of checked packs, updated from change events
+    private final ModDependencyResolver dependencies;
+    // Operation counts and latencies, off until enabled
+    private final ModpackMetrics metrics;
+
+    /**
+     * Constructor sets the default data file
+     */
+    protected AbstractModpackManager() {
+        super();
+        this.dataFile = Paths.get(DATA_FILE);
+        this.dependencies = new ModDependencyResolver(this);
+        this.metrics = new ModpackMetrics(this);
+    }
+
+    /**
+     * Returns the operation counters and latency histograms of this manager
+     * @return the metrics, disabled until setEnabled(true) is called on them
+     */
+    public ModpackMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the resolver behind checkModpackMods, which holds the known mod metadata
+     * @return the dependency resolver
+     */
+    public ModDependencyResolver getDependencyResolver() {
+        return dependencies;
+    }
+
+    /**
+     * Checks the dependencies of a modpack's mods against the known mod metadata
+     * The first check of a pack builds its graph; later checks only see what changed since
+     * @param modpack the name of the modpack to check
+     * @return missing, conflicting and cyclic dependencies, and a load order
+     */
+    @Override
+    public DependencyReport checkModpackMods(String modpack) {
+        return dependencies.check(modpack);
+    }
+
+    /**
+     * Returns the file that data is saved to and loaded from
+     * @return path of the data file
+     */
+    public Path getDataFile() {
+        return dataFile;
+    }
+
+    /**
+     * Sets the file that data is saved to and loaded from
+     * @param dataFile path of the data file
+     */
+    public void setDataFile(Path dataFile) {
+        if (dataFile != null) {
+            this.dataFile = dataFile;
+        }
+    }
+
+    /**
+     * Returns load time and record counts from the last data file load
+     * @return description of the last load
+     */
+    public String getLastLoadReport() {
+        return lastLoadReport;
+    }
+
+    protected void setLastLoadReport(String lastLoadReport) {
+        this.lastLoadReport = lastLoadReport;
+    }
+
+    /**
+     * Registers a listener for change events
+     * @param listener the listener to add
+     */
+    public void addModpackListener(ModpackListener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Unregisters a change listener
+     * @param listener the listener to remove
+     */
+    public void removeModpackListener(ModpackListener listener) {
+        listeners.remove(listener);
+    }
+
+    protected void fireModpackAdded(String modpack) {
+        for (ModpackListener listener : listeners) {
+            listener.modpackAdded(modpack);
+        }
+    }
+
+    protected void fireModpackInserted(String modpack, int index) {
+        for (ModpackListener listener : listeners) {
+            listener.modpackInserted(modpack, index);
+        }
+    }
+
+    protected void fireModpackRemoved(String modpack, int index, Set<String> mods) {
+        for (ModpackListener listener : listeners) {
+            listener.modpackRemoved(modpack, index, mods);
+        }
+    }
+
+    protected void fireModAdded(String modpack, String mod) {
+        for (ModpackListener listener : listeners) {
+            listener.modAdded(modpack, mod);
+        }
+    }
+
+    protected void fireModRemoved(String modpack, String mod) {
+        for (ModpackListener listener : listeners) {
+            listener.modRemoved(modpack, mod);
+        }
+    }
+
+    protected void fireModsAdded(String modpack, List<String> mods) {
+        for (ModpackListener listener : listeners) {
+            listener.modsAdded(modpack, mods);
+        }
+    }
+
+    protected void fireModsRemoved(String modpack, List<String> mods) {
+        for (ModpackListener listener : listeners) {
+            listener.modsRemoved(modpack, mods);
+        }
+    }
+
+    protected void fireModpackLoaded(String modpack, Set<String> mods) {
+        for (ModpackListener listener : listeners) {
+            listener.modpackLoaded(modpack, mods);
+        }
+    }
+
+    protected void fireDataReplaced() {
+        for (ModpackListener listener : listeners) {
+            listener.dataReplaced();
+        }
+    }
+
+    /**
+     * Returns the number of modpacks without copying the list
+     * @return modpack count
+     */
+    public abstract int getModpackCount();
+
+    /**
+     * Returns the number of mods across all modpacks, counting a mod once per modpack that contains it
+     * @return total mod count
+     */
+    public abstract int getTotalModCount();
+
+    /**
+     * Returns the number of mods in a modpack without copying them
+     * @param modpack the name of the modpack
+     * @return mod count, 0 if the modpack does not exist
+     */
+    public abstract int getModCount(String modpack);
+
+    /**
+     * Returns the number of different mods across all modpacks
+     * @return distinct mod count
+     */
+    public abstract int getDistinctModCount();
+
+    /**
+     * Returns a read-only view of the modpack names
+     * @return unmodifiable set of modpack names, in order
+     */
+    public abstract Set<String> getModpacksView();
+
+    /**
+     * Returns a read-only view of a modpack's mods
+     * @param modpack the name of the modpack
+     * @return unmodifiable set of mods in order, empty if the modpack does not exist
+     */
+    public abstract Set<String> getModpackModsView(String modpack);
+
+    /**
+     * Returns an immutable copy of the modpack names that can be kept or handed to another thread
+     * @return immutable list of modpack names
+     */
+    public abstract List<String> getModpacksSnapshot();
+
+    /**
+     * Returns an immutable copy of a modpack's mods that can be kept or handed to another thread
+     * @param modpack the name of the modpack
+     * @return immutable list of mods, empty if the modpack does not exist
+     */
+    public abstract List<String> getModpackModsSnapshot(String modpack);
+
+    /**
+     * Returns all tracked modpacks
+     * @return List of modpack names
+     */
+    public abstract List<String> getModpacks();
+
+    /**
+     * Returns mods in specific pack
+     * @param modpack the name of the modpack
+     * @return List of mod names in the specified modpack
+     */
+    public abstract List<String> getModpackMods(String modpack);
+
+    /**
+     * Returns the modpacks that contain a mod
+     * @param mod the name of the mod
+     * @return List of modpack names containing the mod
+     */
+    public abstract List<String> getModpacksContaining(String mod);
+
+    /**
+     * Sets the modpack list
+     * @param modpacks List of modpack names to set
+     */
+    public abstract void setModpacks(List<String> modpacks);
+
+    /**
+     * Sets mods for a modpack
+     * @param modpack the name of the modpack
+     * @param mods List of mods for the modpack
+     */
+    public abstract void setModpackMods(String modpack, List<String> mods);
+
+    /**
+     * Adds new modpack to tracking
+     * @param name the name of the modpack to add
+     */
+    public abstract void addModpack(String name);
+
+    /**
+     * Removes modpack from tracking
+     * @param name the name of the modpack to remove
+     */
+    public abstract void removeModpack(String name);
+
+    /**
+     * Adds a mod to a specific modpack
+     * @param modpack the name of the modpack
+     * @param mod the name of the mod to add
+     */
+    public abstract void addModToModpack(String modpack, String mod);
+
+    /**
+     * Removes a mod from a specific modpack
+     * @param modpack the name of the modpack
+     * @param mod the name of the mod to remove
+     */
+    public abstract void removeModFromModpack(String modpack, String mod);
+
+    /**
+     * Adds several mods to a modpack as one change
+     * @param modpack the name of the modpack
+     * @param mods the names of the mods to add
+     * @return number of mods that were not already in the modpack
+     */
+    public abstract int addModsToModpack(String modpack, Collection<String> mods);
+
+    /**
+     * Removes several mods from a modpack as one change
+     * @param modpack the name of the modpack
+     * @param mods the names of the mods to remove
+     * @return number of mods that were in the modpack
+     */
+    public abstract int removeModsFromModpack(String modpack, Collection<String> mods);
+
+    /**
+     * Removes a mod from every modpack that contains it
+     * @param mod the name of the mod to remove
+     */
+    public abstract void removeModEverywhere(String mod);
+
+    /**
+     * Runs several changes as one batch
+     * Change listeners receive everything the action changed together when it finishes,
+     * so callers can save once afterwards instead of after every step
+     * @param changes the changes to make
+     */
+    public void batch(Runnable changes) {
+        beginChanges();
+        try {
+            changes.run();
+        } finally {
+            endChanges();
+        }
+    }
+
+    /**
+     * Takes an immutable copy of the current data
+     * @return snapshot of all modpacks and their mods
+     */
+    public abstract ModpackSnapshot snapshot();
+
+    /**
+     * Captures the current modpacks for diffs and overlap counts
+     * The comparison is a copy, so its overlap matrix can be computed on another thread.
+     * @return comparison of all modpacks
+     */
+    public ModpackComparison compareModpacks() {
+        ModpackSnapshot snapshot = snapshot();
+        return new ModpackComparison(snapshot.getModpacks(), snapshot.getModpackMods());
+    }
+
+    /**
+     * Returns a summary of current modpack data
+     * @return String summary of modpacks and mod counts
+     */
+    public abstract String getSummary();
+
+    /**
+     * Saves data to text file
+     */
+    public abstract void saveToJson();
+
+    /**
+     * Loads data from text file
+     * A missing data file counts as empty data. One that exists but cannot be read leaves the
+     * current data in place, and saving then would replace the file, so callers should not.
+     * @return true if the data was loaded or there was none, false if it could not be read
+     */
+    public abstract boolean loadFromJson();
+
+    /**
+     * Saves data as a compact binary snapshot
+     * @param file the binary file to write
+     */
+    public abstract void saveToBinary(Path file);
+
+    /**
+     * Loads data from a binary snapshot
+     * Existing data is only replaced once the whole snapshot has been read and verified
+     * @param file the binary file to read
+     */
+    public abstract void loadFromBinary(Path file);
+}
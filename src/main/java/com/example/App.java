@@ -9,38 +9,39 @@ import javafx.stage.Stage;
  */
 public class App extends Application {
 
+    // Startup phases, from main through the first frame and data load
+    private static final StartupTimer STARTUP = new StartupTimer();
+
     private ModpackGUI modpackGUI;
 
     @Override
     public void start(Stage primaryStage) throws Exception {
-        // Create the ModpackGUI instance
+        STARTUP.mark("toolkit");
+        
+        // Create the ModpackGUI instance; data is loaded once the window is up
         modpackGUI = new ModpackGUI();
         
         // Set up the stage
-        primaryStage.setTitle("Minecraft Modpack Manager");
         primaryStage.setResizable(true);
         primaryStage.setMinWidth(800);
         primaryStage.setMinHeight(600);
         
-        // Create and show the GUI
-        modpackGUI.createGUI(primaryStage);
-        modpackGUI.showMainScreen();
-        
-        // Show the stage
-        primaryStage.show();
-        
         // Handle application close
         primaryStage.setOnCloseRequest(event -> {
             // Save any pending changes before closing
             try {
-                modpackGUI.saveToJson();
+                modpackGUI.closePersistence();
             } catch (Exception e) {
                 System.err.println("Error saving modpack data: " + e.getMessage());
             }
         });
+        
+        // Show the window with a placeholder and load data in the background
+        modpackGUI.createGUI(primaryStage, STARTUP);
     }
 
     public static void main(String[] args) {
+        STARTUP.mark("main");
         launch(args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,1051 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe modpack manager for background workers running alongside UI readers
+ * Each pack's mods are an immutable set held in a concurrent map, and the modpack names are
+ * an immutable list behind their own reference, so readers never lock and every pack they
+ * see is consistent. Writers are serialized per modpack through striped locks and replace
+ * only their own pack's entry, so edits to different packs share nothing. Successive sets of
+ * one pack share their storage, so a single-mod edit costs constant amortized time instead of
+ * a copy of the pack.
+ *
+ * Reads return unmodifiable views instead of copies. A snapshot gathers the current set of
+ * every pack; changes that complete while it is being taken may or may not be in it.
+ * It is not a ModpackManager: journal storage, sharded storage and undo replay edits in one
+ * order on one thread, so they stay with the single-threaded manager.
+ * Change events are fired on the writing thread after its lock is released,
+ * so events from different threads may arrive in any order.
+ */
+public class ConcurrentModpackManager extends AbstractModpackManager {
+    // Number of writer lock stripes
+    private static final int STRIPES = 64;
+
+    // Current data; replaced as a whole only when all data is replaced
+    private volatile Data data = new Data(Names.EMPTY, new LinkedHashMap<>());
+    // Writer locks, one per stripe of modpack names
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    // Guards the inherited change tracking lists
+    private final Object changeLock = new Object();
+
+    /**
+     * Constructor initializes an empty concurrent manager
+     */
+    public ConcurrentModpackManager() {
+        super();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns an immutable view of all modpacks
+     * Taking a snapshot does not copy any mods, and an unchanged data set returns the same one
+     * @return snapshot of the current data
+     */
+    @Override
+    public ModpackSnapshot snapshot() {
+        return view().snapshot();
+    }
+
+    /**
+     * Returns all tracked modpacks
+     * @return unmodifiable list of modpack names
+     */
+    @Override
+    public List<String> getModpacks() {
+        return data.names.get().list;
+    }
+
+    /**
+     * Returns mods in specific pack
+     * @param modpack the name of the modpack
+     * @return unmodifiable list of mod names in the specified modpack
+     */
+    @Override
+    public List<String> getModpackMods(String modpack) {
+        ModSet mods = data.packs.get(modpack);
+        return mods != null ? mods.asList() : Collections.emptyList();
+    }
+
+    /**
+     * Returns the current modpack names
+     * The set is immutable: unlike in ModpackManager, it does not follow later changes.
+     * @return unmodifiable set of modpack names, in order
+     */
+    @Override
+    public Set<String> getModpacksView() {
+        return data.names.get().set;
+    }
+
+    /**
+     * Returns the current mods of a modpack
+     * The set is immutable: unlike in ModpackManager, it does not follow later changes.
+     * @param modpack the name of the modpack
+     * @return unmodifiable set of mods, empty if the modpack does not exist
+     */
+    @Override
+    public Set<String> getModpackModsView(String modpack) {
+        ModSet mods = data.packs.get(modpack);
+        return mods != null ? mods : Collections.emptySet();
+    }
+
+    @Override
+    public List<String> getModpacksSnapshot() {
+        return getModpacks();
+    }
+
+    @Override
+    public List<String> getModpackModsSnapshot(String modpack) {
+        return getModpackMods(modpack);
+    }
+
+    @Override
+    public int getModCount(String modpack) {
+        ModSet mods = data.packs.get(modpack);
+        return mods != null ? mods.size() : 0;
+    }
+
+    /**
+     * Returns the number of different mods
+     * Counted once per snapshot, on first use
+     * @return distinct mod count
+     */
+    @Override
+    public int getDistinctModCount() {
+        return view().distinctMods();
+    }
+
+    /**
+     * Returns the modpacks that contain a mod
+     * Checks the current set of every pack, so this is linear in the number of modpacks
+     * @param mod the name of the mod
+     * @return List of modpack names containing the mod
+     */
+    @Override
+    public List<String> getModpacksContaining(String mod) {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, ModSet> entry : data.packs.entrySet()) {
+            if (entry.getValue().contains(mod)) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of modpacks
+     * @return modpack count
+     */
+    @Override
+    public int getModpackCount() {
+        return data.names.get().list.size();
+    }
+
+    /**
+     * Returns the number of mods across all modpacks
+     * Summed once per snapshot, on first use
+     * @return total mod count
+     */
+    @Override
+    public int getTotalModCount() {
+        return view().totalMods();
+    }
+
+    /**
+     * Sets the modpack list
+     * Holds every writer lock for the swap, so no modpack add or remove is lost to it
+     * @param modpacks List of modpack names to set
+     */
+    @Override
+    public void setModpacks(List<String> modpacks) {
+        if (modpacks == null) {
+            return;
+        }
+        long start = getMetrics().start();
+        Names names = new Names(new LinkedHashSet<>(modpacks));
+        lockAll();
+        try {
+            data.names.set(names);
+        } finally {
+            unlockAll();
+        }
+        fireDataReplaced();
+        getMetrics().record(ModpackMetrics.Operation.REPLACE, start);
+    }
+
+    /**
+     * Sets mods for a modpack
+     * @param modpack the name of the modpack
+     * @param mods List of mods for the modpack
+     */
+    @Override
+    public void setModpackMods(String modpack, List<String> mods) {
+        if (modpack == null || mods == null) {
+            return;
+        }
+        long start = getMetrics().start();
+        ModSet replacement = ModSet.of(mods);
+        ReentrantLock lock = lockFor(modpack);
+        lock.lock();
+        try {
+            data.packs.put(modpack, replacement);
+        } finally {
+            lock.unlock();
+        }
+        fireDataReplaced();
+        getMetrics().record(ModpackMetrics.Operation.REPLACE, start);
+    }
+
+    /**
+     * Adds new modpack to tracking
+     * @param name the name of the modpack to add
+     */
+    @Override
+    public void addModpack(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return;
+        }
+        long start = getMetrics().start();
+        ReentrantLock lock = lockFor(name);
+        lock.lock();
+        try {
+            Data current = data;
+            if (current.names.get().set.contains(name)) {
+                return;
+            }
+            // The pack is in place before it is listed, so a listed pack always has its mods
+            current.packs.put(name, ModSet.EMPTY);
+            Names names;
+            do {
+                names = current.names.get();
+            } while (!current.names.compareAndSet(names, names.with(name)));
+        } finally {
+            lock.unlock();
+        }
+        fireModpackAdded(name);
+        getMetrics().record(ModpackMetrics.Operation.ADD_MODPACK, start);
+    }
+
+    /**
+     * Removes modpack from tracking
+     * @param name the name of the modpack to remove
+     */
+    @Override
+    public void removeModpack(String name) {
+        if (name == null) {
+            return;
+        }
+        long start = getMetrics().start();
+        Set<String> removed;
+        int index;
+        ReentrantLock lock = lockFor(name);
+        lock.lock();
+        try {
+            Data current = data;
+            Names names;
+            boolean listed;
+            do {
+                names = current.names.get();
+                listed = names.set.contains(name);
+            } while (listed && !current.names.compareAndSet(names, names.without(name)));
+            index = listed ? names.list.indexOf(name) : -1;
+            removed = current.packs.remove(name);
+            if (!listed && removed == null) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        clearChanges(name);
+        fireModpackRemoved(name, index, removed != null ? removed : ModSet.EMPTY);
+        getMetrics().record(ModpackMetrics.Operation.REMOVE_MODPACK, start);
+    }
+
+    /**
+     * Adds a mod to a specific modpack
+     * @param modpack the name of the modpack
+     * @param mod the name of the mod to add
+     */
+    @Override
+    public void addModToModpack(String modpack, String mod) {
+        if (modpack == null || mod == null || mod.trim().isEmpty()) {
+            return;
+        }
+        long start = getMetrics().start();
+        ReentrantLock lock = lockFor(modpack);
+        lock.lock();
+        try {
+            // The pack cannot change while its stripe is held, so its new set is built once
+            Data current = data;
+            ModSet mods = current.packs.get(modpack);
+            if (mods != null && mods.contains(mod)) {
+                return;
+            }
+            current.packs.put(modpack, (mods != null ? mods : ModSet.EMPTY).with(mod));
+        } finally {
+            lock.unlock();
+        }
+        addMod(modpack, mod); // Track this change
+        fireModAdded(modpack, mod);
+        getMetrics().record(ModpackMetrics.Operation.ADD_MOD, start);
+    }
+
+    /**
+     * Removes a mod from a specific modpack
+     * @param modpack the name of the modpack
+     * @param mod the name of the mod to remove
+     */
+    @Override
+    public void removeModFromModpack(String modpack, String mod) {
+        if (modpack == null || mod == null) {
+            return;
+        }
+        long start = getMetrics().start();
+        ReentrantLock lock = lockFor(modpack);
+        lock.lock();
+        try {
+            Data current = data;
+            ModSet mods = current.packs.get(modpack);
+            if (mods == null || !mods.contains(mod)) {
+                return;
+            }
+            current.packs.put(modpack, mods.without(mod));
+        } finally {
+            lock.unlock();
+        }
+        removeMod(modpack, mod); // Track this change
+        fireModRemoved(modpack, mod);
+        getMetrics().record(ModpackMetrics.Operation.REMOVE_MOD, start);
+    }
+
+    /**
+     * Adds several mods to a modpack, publishing the pack's new mod set once
+     * @param modpack the name of the modpack
+     * @param mods the names of the mods to add
+     * @return number of mods that were not already in the modpack
+     */
+    @Override
+    public int addModsToModpack(String modpack, Collection<String> mods) {
+        if (modpack == null || mods == null) {
+            return 0;
+        }
+        long start = getMetrics().start();
+        List<String> added = new ArrayList<>();
+        ReentrantLock lock = lockFor(modpack);
+        lock.lock();
+        try {
+            Data current = data;
+            ModSet existing = current.packs.get(modpack);
+            ModSet next = existing != null ? existing : ModSet.EMPTY;
+            for (String mod : mods) {
+                if (mod != null && !mod.trim().isEmpty() && !next.contains(mod)) {
+                    next = next.with(mod);
+                    added.add(mod);
+                }
+            }
+            if (added.isEmpty()) {
+                return 0;
+            }
+            current.packs.put(modpack, next);
+        } finally {
+            lock.unlock();
+        }
+        trackAll(modpack, added, true);
+        fireModsAdded(modpack, added);
+        getMetrics().record(ModpackMetrics.Operation.ADD_MODS, start);
+        return added.size();
+    }
+
+    /**
+     * Removes several mods from a modpack, publishing the pack's new mod set once
+     * @param modpack the name of the modpack
+     * @param mods the names of the mods to remove
+     * @return number of mods that were in the modpack
+     */
+    @Override
+    public int removeModsFromModpack(String modpack, Collection<String> mods) {
+        if (modpack == null || mods == null) {
+            return 0;
+        }
+        long start = getMetrics().start();
+        List<String> removed = new ArrayList<>();
+        ReentrantLock lock = lockFor(modpack);
+        lock.lock();
+        try {
+            Data current = data;
+            ModSet next = current.packs.get(modpack);
+            if (next == null) {
+                return 0;
+            }
+            for (String mod : mods) {
+                if (mod != null && next.contains(mod)) {
+                    next = next.without(mod);
+                    removed.add(mod);
+                }
+            }
+            if (removed.isEmpty()) {
+                return 0;
+            }
+            current.packs.put(modpack, next);
+        } finally {
+            lock.unlock();
+        }
+        trackAll(modpack, removed, false);
+        fireModsRemoved(modpack, removed);
+        getMetrics().record(ModpackMetrics.Operation.REMOVE_MODS, start);
+        return removed.size();
+    }
+
+    /**
+     * Records a group of changes to one pack as a single batch
+     */
+    private void trackAll(String modpack, List<String> mods, boolean added) {
+        synchronized (changeLock) {
+            super.beginChanges();
+            try {
+                for (String mod : mods) {
+                    if (added) {
+                        super.addMod(modpack, mod);
+                    } else {
+                        super.removeMod(modpack, mod);
+                    }
+                }
+            } finally {
+                super.endChanges();
+            }
+        }
+    }
+
+    /**
+     * Removes a mod from every modpack that contains it
+     * Each pack is updated atomically, but not all packs at once
+     * @param mod the name of the mod to remove
+     */
+    @Override
+    public void removeModEverywhere(String mod) {
+        if (mod != null) {
+            for (String modpack : getModpacksContaining(mod)) {
+                removeModFromModpack(modpack, mod);
+            }
+        }
+    }
+
+    /**
+     * Saves data to text file from a snapshot, without blocking writers
+     */
+    @Override
+    public void saveToJson() {
+        long start = getMetrics().start();
+        try {
+            snapshot().writeTo(getDataFile());
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+        }
+        getMetrics().record(ModpackMetrics.Operation.SAVE, start);
+    }
+
+    /**
+     * Saves data as a compact binary snapshot, without blocking writers
+     * @param file the binary file to write
+     */
+    @Override
+    public void saveToBinary(Path file) {
+        long start = getMetrics().start();
+        ModpackSnapshot snapshot = snapshot();
+        try {
+            ModpackBinaryFormat.write(file, snapshot.getModpacks(), snapshot.getModpackMods());
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+        }
+        getMetrics().record(ModpackMetrics.Operation.SAVE, start);
+    }
+
+    /**
+     * Loads data from text file, replacing all data in one step
+     * A missing data file counts as empty data; one that cannot be read leaves the data as it is
+     * @return true if the data was loaded or there was none, false if it could not be read
+     */
+    @Override
+    public boolean loadFromJson() {
+        Path file = getDataFile();
+        if (!Files.exists(file)) {
+            return true;
+        }
+        try {
+            long start = getMetrics().start();
+            ModpackFileLoader.LoadResult result = ModpackFileLoader.load(file);
+            getMetrics().record(ModpackMetrics.Operation.LOAD, start);
+            install(result);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error loading data: " + e.getMessage());
+            setLastLoadReport("Could not read " + file.getFileName() + "; changes will not be saved");
+            return false;
+        }
+    }
+
+    /**
+     * Loads data from a binary snapshot, replacing all data in one step
+     * Existing data is only replaced once the whole snapshot has been read and verified
+     * @param file the binary file to read
+     */
+    @Override
+    public void loadFromBinary(Path file) {
+        try {
+            long start = getMetrics().start();
+            ModpackFileLoader.LoadResult result = ModpackBinaryFormat.read(file);
+            getMetrics().record(ModpackMetrics.Operation.LOAD, start);
+            install(result);
+        } catch (IOException e) {
+            System.err.println("Error loading data: " + e.getMessage());
+        }
+    }
+
+    private void install(ModpackFileLoader.LoadResult result) {
+        long start = getMetrics().start();
+        replaceData(result.getModpacks(), result.getModpackMods());
+        setLastLoadReport(result.toString());
+        getMetrics().record(ModpackMetrics.Operation.REPLACE, start);
+    }
+
+    /**
+     * Replaces all data in one step while holding every writer lock
+     */
+    private void replaceData(Set<String> newModpacks, Map<String, Set<String>> newModpackMods) {
+        Map<String, ModSet> packs = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<String>> entry : newModpackMods.entrySet()) {
+            packs.put(entry.getKey(), ModSet.of(entry.getValue()));
+        }
+        Data loaded = new Data(new Names(new LinkedHashSet<>(newModpacks)), packs);
+
+        lockAll();
+        try {
+            data = loaded;
+        } finally {
+            unlockAll();
+        }
+        fireDataReplaced();
+    }
+
+    /**
+     * Returns a summary of current modpack data
+     * Built once per snapshot, on first use
+     * @return String summary of modpacks and mod counts
+     */
+    @Override
+    public String getSummary() {
+        return view().summary();
+    }
+
+    @Override
+    public List<String> getAddedMods() {
+        synchronized (changeLock) {
+            return super.getAddedMods();
+        }
+    }
+
+    @Override
+    public List<String> getRemovedMods() {
+        synchronized (changeLock) {
+            return super.getRemovedMods();
+        }
+    }
+
+    @Override
+    public List<String> getAddedMods(String modpack) {
+        synchronized (changeLock) {
+            return super.getAddedMods(modpack);
+        }
+    }
+
+    @Override
+    public List<String> getRemovedMods(String modpack) {
+        synchronized (changeLock) {
+            return super.getRemovedMods(modpack);
+        }
+    }
+
+    @Override
+    public List<String> getChangedModpacks() {
+        synchronized (changeLock) {
+            return super.getChangedModpacks();
+        }
+    }
+
+    @Override
+    public void addMod(String modpack, String mod) {
+        synchronized (changeLock) {
+            super.addMod(modpack, mod);
+        }
+    }
+
+    @Override
+    public void removeMod(String modpack, String mod) {
+        synchronized (changeLock) {
+            super.removeMod(modpack, mod);
+        }
+    }
+
+    @Override
+    public void clearChanges() {
+        synchronized (changeLock) {
+            super.clearChanges();
+        }
+    }
+
+    @Override
+    public void clearChanges(String modpack) {
+        synchronized (changeLock) {
+            super.clearChanges(modpack);
+        }
+    }
+
+    @Override
+    public boolean hasChanges() {
+        synchronized (changeLock) {
+            return super.hasChanges();
+        }
+    }
+
+    @Override
+    public boolean hasChanges(String modpack) {
+        synchronized (changeLock) {
+            return super.hasChanges(modpack);
+        }
+    }
+
+    /**
+     * Starts a change batch shared by all threads
+     */
+    @Override
+    public void beginChanges() {
+        synchronized (changeLock) {
+            super.beginChanges();
+        }
+    }
+
+    /**
+     * Ends a change batch; listeners are called while the change lock is held
+     */
+    @Override
+    public void endChanges() {
+        synchronized (changeLock) {
+            super.endChanges();
+        }
+    }
+
+    /**
+     * Returns the view of the current data, reusing the last one while nothing has changed
+     * Checking it costs one reference comparison per pack and copies nothing.
+     */
+    private View view() {
+        Data current = data;
+        Names names = current.names.get();
+        View cached = current.view;
+        if (cached != null && cached.names == names && cached.matches(current.packs)) {
+            return cached;
+        }
+        View fresh = new View(names, current.packs);
+        current.view = fresh;
+        return fresh;
+    }
+
+    /**
+     * Takes every writer lock, always in stripe order so two callers cannot deadlock
+     */
+    private void lockAll() {
+        for (ReentrantLock lock : stripes) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(String modpack) {
+        int hash = modpack.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * The live data: modpack names and the current mod set of every pack
+     * replaceData swaps in a whole new Data, so a load never mixes with the data it replaces
+     */
+    private static final class Data {
+        // Modpack names; changed only when modpacks are added, removed or set
+        private final AtomicReference<Names> names;
+        // Current mods of each pack; an entry is only replaced under its pack's stripe lock
+        private final ConcurrentHashMap<String, ModSet> packs;
+        // Last view taken of this data, or null
+        private volatile View view;
+
+        private Data(Names names, Map<String, ModSet> packs) {
+            this.names = new AtomicReference<>(names);
+            this.packs = new ConcurrentHashMap<>(packs);
+        }
+    }
+
+    /**
+     * Immutable modpack names, in order and as a set for constant-time lookups
+     */
+    private static final class Names {
+        private static final Names EMPTY = new Names(new LinkedHashSet<>());
+
+        private final List<String> list;
+        private final Set<String> set;
+
+        private Names(Set<String> names) {
+            this.list = Collections.unmodifiableList(new ArrayList<>(names));
+            this.set = Collections.unmodifiableSet(names);
+        }
+
+        private Names with(String name) {
+            Set<String> copy = new LinkedHashSet<>(list);
+            copy.add(name);
+            return new Names(copy);
+        }
+
+        private Names without(String name) {
+            Set<String> copy = new LinkedHashSet<>(list);
+            copy.remove(name);
+            return new Names(copy);
+        }
+    }
+
+    /**
+     * Immutable view of all data, holding the set each pack had when it was taken
+     * Aggregates and the snapshot wrapper are computed on first use.
+     */
+    private static final class View {
+        private final Names names;
+        // Mods per pack, listed packs first; never modified once built
+        private final Map<String, ModSet> packs;
+        // Snapshot wrapper, created on first use
+        private volatile ModpackSnapshot snapshot;
+        // Aggregates, computed on first use; -1 and null until then
+        private volatile int totalMods = -1;
+        private volatile int distinctMods = -1;
+        private volatile String summary;
+
+        private View(Names names, Map<String, ModSet> live) {
+            this.names = names;
+            Map<String, ModSet> copy = new LinkedHashMap<>();
+            for (String modpack : names.list) {
+                ModSet mods = live.get(modpack);
+                if (mods != null) {
+                    copy.put(modpack, mods);
+                }
+            }
+            for (Map.Entry<String, ModSet> entry : live.entrySet()) {
+                copy.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            this.packs = copy;
+        }
+
+        /**
+         * Checks whether every pack still has the set this view holds
+         */
+        private boolean matches(Map<String, ModSet> live) {
+            if (live.size() != packs.size()) {
+                return false;
+            }
+            for (Map.Entry<String, ModSet> entry : live.entrySet()) {
+                if (packs.get(entry.getKey()) != entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int totalMods() {
+            int result = totalMods;
+            if (result < 0) {
+                result = 0;
+                for (ModSet mods : packs.values()) {
+                    result += mods.size();
+                }
+                totalMods = result;
+            }
+            return result;
+        }
+
+        private int distinctMods() {
+            int result = distinctMods;
+            if (result < 0) {
+                Set<String> mods = new HashSet<>();
+                for (ModSet pack : packs.values()) {
+                    mods.addAll(pack);
+                }
+                result = mods.size();
+                distinctMods = result;
+            }
+            return result;
+        }
+
+        private String summary() {
+            String result = summary;
+            if (result == null) {
+                StringBuilder text = new StringBuilder();
+                text.append("Modpack Summary:\n");
+                text.append("Total modpacks: ").append(names.list.size()).append("\n");
+
+                for (String modpack : names.list) {
+                    ModSet mods = packs.get(modpack);
+                    text.append("- ").append(modpack).append(": ");
+                    text.append(mods != null ? mods.size() : 0).append(" mods\n");
+                }
+                result = text.toString();
+                summary = result;
+            }
+            return result;
+        }
+
+        private ModpackSnapshot snapshot() {
+            ModpackSnapshot result = snapshot;
+            if (result == null) {
+                Map<String, Set<String>> mods = new LinkedHashMap<>(packs);
+                for (String modpack : names.list) {
+                    // A pack removed while the view was taken still has its listed name
+                    mods.putIfAbsent(modpack, ModSet.EMPTY);
+                }
+                result = new ModpackSnapshot(names.list, Collections.unmodifiableMap(mods));
+                snapshot = result;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Immutable, insertion-ordered set of mods in one pack
+     * Successive sets of a pack share one ModLog and differ only in how much of it they see,
+     * so with and without cost constant amortized time. Caches a list view so repeated
+     * getModpackMods calls do not copy.
+     */
+    private static final class ModSet extends AbstractSet<String> {
+        private static final ModSet EMPTY = new ModSet(new ModLog(0), 0, 0, 0);
+
+        private final ModLog log;
+        // Slots of the log this set can see
+        private final int end;
+        // Version of this set within its log
+        private final int version;
+        private final int size;
+        // List view, created on first use
+        private volatile List<String> list;
+
+        private ModSet(ModLog log, int end, int version, int size) {
+            this.log = log;
+            this.end = end;
+            this.version = version;
+            this.size = size;
+        }
+
+        /**
+         * Creates a set of the given mods in order, skipping nulls and duplicates
+         */
+        private static ModSet of(Collection<String> mods) {
+            ModSet result = new ModSet(new ModLog(mods.size()), 0, 0, 0);
+            for (String mod : mods) {
+                if (mod != null && !result.contains(mod)) {
+                    result = result.append(mod);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int next = skipRemoved(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next < end;
+                }
+
+                @Override
+                public String next() {
+                    if (next >= end) {
+                        throw new NoSuchElementException();
+                    }
+                    String mod = log.mods[next];
+                    next = skipRemoved(next + 1);
+                    return mod;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object mod) {
+            if (!(mod instanceof String)) {
+                return false;
+            }
+            int slot = log.latestSlot((String) mod);
+            // Slots past this set's end were added later; an earlier slot may still be its own
+            while (slot >= end) {
+                slot = log.previous[slot];
+            }
+            return slot >= 0 && log.removedAt[slot] > version;
+        }
+
+        /**
+         * Returns this set with a mod added; the caller checks that it is not already here
+         * Only the newest set of a pack may be extended, by the writer holding its stripe lock.
+         */
+        private ModSet with(String mod) {
+            ModSet base = end < log.mods.length && log.isNewest(this) ? this : rebuilt(size + 1);
+            return base.append(mod);
+        }
+
+        /**
+         * Returns this set with a mod removed; the caller checks that it is here
+         */
+        private ModSet without(String mod) {
+            if (!log.isNewest(this)) {
+                return rebuilt(size).without(mod);
+            }
+            int slot = log.latestSlot(mod);
+            // Sets up to this version still see the mod, and later ones do not
+            log.removedAt[slot] = version + 1;
+            log.version = version + 1;
+            ModSet result = new ModSet(log, end, version + 1, size - 1);
+            // Squeeze out removed slots once they are most of the log, so iteration stays linear
+            return result.size < end / 4 ? result.rebuilt(result.size) : result;
+        }
+
+        /**
+         * Appends a mod to the log, which must have room and end where this set ends
+         */
+        private ModSet append(String mod) {
+            log.add(end, mod);
+            log.version = version + 1;
+            return new ModSet(log, end + 1, version + 1, size + 1);
+        }
+
+        /**
+         * Copies this set's mods into a new log with room for at least the given number
+         */
+        private ModSet rebuilt(int capacity) {
+            ModSet result = new ModSet(new ModLog(Math.max(8, capacity * 2)), 0, 0, 0);
+            for (String mod : this) {
+                result = result.append(mod);
+            }
+            return result;
+        }
+
+        private int skipRemoved(int slot) {
+            while (slot < end && log.removedAt[slot] <= version) {
+                slot++;
+            }
+            return slot;
+        }
+
+        private List<String> asList() {
+            List<String> result = list;
+            if (result == null) {
+                result = Collections.unmodifiableList(new ArrayList<>(this));
+                list = result;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Storage shared by the successive mod sets of one pack
+     * Only the pack's writer changes it, while holding the pack's stripe lock, and only in ways
+     * older sets cannot see: a new mod goes after the end of every published set, and a removal
+     * stamps its slot with a version newer than all of them. The lookup table is the one part
+     * whose entries change under readers, so it is read and written as volatiles.
+     */
+    private static final class ModLog {
+        // Removal version of a slot whose mod is still present
+        private static final int PRESENT = Integer.MAX_VALUE;
+
+        // Mods by slot, in the order they were added
+        private final String[] mods;
+        // Version of the set that first left out each slot's mod
+        private final int[] removedAt;
+        // Slot the same mod had before it was removed and added again, or -1
+        private final int[] previous;
+        // Open-addressing table of each mod's latest slot + 1, 0 for an empty slot
+        private final AtomicIntegerArray table;
+        // Slots in use and the newest set's version; written by the pack's writer only
+        private int used;
+        private int version;
+
+        private ModLog(int capacity) {
+            mods = new String[capacity];
+            removedAt = new int[capacity];
+            previous = new int[capacity];
+            // At most half full, with a power-of-two length
+            table = new AtomicIntegerArray(Math.max(2, Integer.highestOneBit(Math.max(1, capacity) * 2 - 1) * 2));
+            Arrays.fill(removedAt, PRESENT);
+        }
+
+        private boolean isNewest(ModSet set) {
+            return set.end == used && set.version == version;
+        }
+
+        /**
+         * Returns the latest slot that held a mod, or -1 if it was never added
+         */
+        private int latestSlot(String mod) {
+            int mask = table.length() - 1;
+            int index = ModRegistry.spread(mod.hashCode()) & mask;
+            int entry;
+            while ((entry = table.get(index)) != 0) {
+                if (mod.equals(mods[entry - 1])) {
+                    return entry - 1;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Puts a mod in a free slot and points the table at it
+         */
+        private void add(int slot, String mod) {
+            mods[slot] = mod;
+            int mask = table.length() - 1;
+            int index = ModRegistry.spread(mod.hashCode()) & mask;
+            int entry;
+            while ((entry = table.get(index)) != 0 && !mod.equals(mods[entry - 1])) {
+                index = (index + 1) & mask;
+            }
+            previous[slot] = entry - 1;
+            // The volatile write publishes the slot's contents to readers that find it here
+            table.set(index, slot + 1);
+            used = slot + 1;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of checking the dependencies of one modpack
+ */
+public final class DependencyReport {
+    // The modpack checked
+    private final String modpack;
+    // Every problem found, in load order of the mod they belong to
+    private final List<Problem> problems;
+    // Mod names with each mod after the mods it depends on
+    private final List<String> loadOrder;
+
+    DependencyReport(String modpack, List<Problem> problems, List<String> loadOrder) {
+        this.modpack = modpack;
+        this.problems = Collections.unmodifiableList(problems);
+        this.loadOrder = Collections.unmodifiableList(loadOrder);
+    }
+
+    /**
+     * Returns the modpack checked
+     * @return modpack name
+     */
+    public String getModpack() {
+        return modpack;
+    }
+
+    /**
+     * Returns every problem found
+     * @return unmodifiable list of problems
+     */
+    public List<Problem> getProblems() {
+        return problems;
+    }
+
+    /**
+     * Returns the problems of one type
+     * @param type the type of problem
+     * @return list of matching problems
+     */
+    public List<Problem> getProblems(Type type) {
+        List<Problem> matching = new ArrayList<>();
+        for (Problem problem : problems) {
+            if (problem.type == type) {
+                matching.add(problem);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Returns a load order that puts every mod after the mods it depends on
+     * Mods caught in a dependency cycle keep their relative pack order
+     * @return unmodifiable list of mod names
+     */
+    public List<String> getLoadOrder() {
+        return loadOrder;
+    }
+
+    /**
+     * Returns whether no problems were found
+     * @return true if every dependency is satisfied and nothing conflicts
+     */
+    public boolean isSatisfied() {
+        return problems.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(modpack).append(": ").append(loadOrder.size()).append(" mods, ");
+        text.append(problems.isEmpty() ? "no dependency problems" : problems.size() + " dependency problems");
+        for (Problem problem : problems) {
+            text.append("\n  ").append(problem);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Kinds of dependency problem
+     */
+    public enum Type {
+        // A required mod is not in the pack
+        MISSING,
+        // A required or optional mod is in the pack, but in a version outside the accepted range
+        WRONG_VERSION,
+        // A mod declared incompatible is in the pack
+        CONFLICT,
+        // Two mods in the pack provide the same mod ID
+        DUPLICATE,
+        // Mods depend on each other, so no load order satisfies both
+        CYCLE
+    }
+
+    /**
+     * One dependency problem of one mod
+     */
+    public static final class Problem {
+        private final Type type;
+        // Mod whose metadata declares the dependency
+        private final String mod;
+        // Mod ID depended on, or the ID provided twice
+        private final String modId;
+        // Accepted versions, as declared
+        private final String versions;
+        // Mods in the pack involved on the other side, if any
+        private final List<String> others;
+
+        Problem(Type type, String mod, String modId, String versions, List<String> others) {
+            this.type = type;
+            this.mod = mod;
+            this.modId = modId;
+            this.versions = versions;
+            this.others = Collections.unmodifiableList(others);
+        }
+
+        /**
+         * Returns the kind of problem
+         * @return problem type
+         */
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Returns the mod the problem belongs to
+         * @return mod name
+         */
+        public String getMod() {
+            return mod;
+        }
+
+        /**
+         * Returns the mod ID the problem concerns
+         * @return mod ID
+         */
+        public String getModId() {
+            return modId;
+        }
+
+        /**
+         * Returns the other mods involved
+         * @return unmodifiable list of mod names, empty for missing mods
+         */
+        public List<String> getOthers() {
+            return others;
+        }
+
+        @Override
+        public String toString() {
+            String range = versions.isEmpty() || versions.equals("*") ? "" : " " + versions;
+            String names = String.join(", ", others);
+            switch (type) {
+                case MISSING:
+                    return mod + " requires " + modId + range + ", which is missing";
+                case WRONG_VERSION:
+                    return mod + " needs " + modId + range + " but the pack has " + names;
+                case CONFLICT:
+                    return mod + " is incompatible with " + names;
+                case DUPLICATE:
+                    return mod + " and " + names + " both provide " + modId;
+                default:
+                    return mod + " and " + names + " depend on each other";
+            }
+        }
+    }
+}
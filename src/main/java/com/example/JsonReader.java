@@ -0,0 +1,406 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Minimal streaming JSON reader for mod metadata and pack manifests
+ * Values are pulled one token at a time, so large documents are never held in memory
+ * and unneeded parts can be skipped without building them.
+ */
+public final class JsonReader implements Closeable {
+
+    /**
+     * Kinds of token the reader can be positioned at
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    // Nesting scopes
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    // Source of characters
+    private final Reader in;
+    // Read-ahead buffer
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    // Scope stack
+    private int[] stack = new int[32];
+    private int depth = 1;
+    // Token found by peek() but not yet consumed, or null
+    private Token peeked;
+    // Text of the peeked name, string, number or literal
+    private String value;
+
+    /**
+     * Creates a reader over a character stream
+     * @param in the JSON text
+     */
+    public JsonReader(Reader in) {
+        this.in = in;
+        stack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Returns the next token without consuming it
+     * @return the kind of the next token
+     * @throws IOException if the input cannot be read or is not valid JSON
+     */
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        int c;
+        switch (stack[depth - 1]) {
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                return peeked = readValue(nextNonWhitespace());
+            case NONEMPTY_DOCUMENT:
+                c = nextNonWhitespace();
+                if (c != -1) {
+                    throw syntaxError("Unexpected data after document");
+                }
+                return peeked = Token.END_DOCUMENT;
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                return peeked = c == ']' ? Token.END_ARRAY : readValue(c);
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw syntaxError("Expected ',' or ']'");
+                }
+                return peeked = readValue(nextNonWhitespace());
+            case DANGLING_NAME:
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                return peeked = readValue(nextNonWhitespace());
+            default:
+                c = nextNonWhitespace();
+                if (stack[depth - 1] == NONEMPTY_OBJECT && c != '}') {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a name");
+                }
+                value = readString();
+                stack[depth - 1] = DANGLING_NAME;
+                return peeked = Token.NAME;
+        }
+    }
+
+    /**
+     * Returns true if the current array or object has another element
+     * @return false at the end of an array or object
+     * @throws IOException if the input cannot be read
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consumes the start of an object
+     * @throws IOException if the next token is not an object
+     */
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * Consumes the end of an object
+     * @throws IOException if the object has more members
+     */
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    /**
+     * Consumes the start of an array
+     * @throws IOException if the next token is not an array
+     */
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * Consumes the end of an array
+     * @throws IOException if the array has more elements
+     */
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    /**
+     * Consumes an object member name
+     * @return the name
+     * @throws IOException if the next token is not a name
+     */
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return value;
+    }
+
+    /**
+     * Consumes a string, number or boolean value as text
+     * @return the value text
+     * @throws IOException if the next token is not a scalar
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        if (token != Token.STRING && token != Token.NUMBER && token != Token.BOOLEAN) {
+            throw syntaxError("Expected a string but was " + token);
+        }
+        peeked = null;
+        return value;
+    }
+
+    /**
+     * Consumes a number value
+     * @return the value as a long
+     * @throws IOException if the next token is not an integer
+     */
+    public long nextLong() throws IOException {
+        expect(Token.NUMBER);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected an integer but was " + value);
+        }
+    }
+
+    /**
+     * Consumes a boolean value
+     * @return the value
+     * @throws IOException if the next token is not a boolean
+     */
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        return value.equals("true");
+    }
+
+    /**
+     * Consumes the next value, including everything nested inside it
+     * @throws IOException if the input cannot be read
+     */
+    public void skipValue() throws IOException {
+        int nested = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    nested++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    nested++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    nested--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    nested--;
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("Unexpected end of document");
+                default:
+                    peeked = null;
+                    break;
+            }
+        } while (nested > 0);
+    }
+
+    /**
+     * Reads the next value as a string if it is a scalar, skipping it otherwise
+     * @return the value text, or null for null, objects and arrays
+     * @throws IOException if the input cannot be read
+     */
+    public String nextStringOrSkip() throws IOException {
+        Token token = peek();
+        if (token == Token.STRING || token == Token.NUMBER || token == Token.BOOLEAN) {
+            return nextString();
+        }
+        skipValue();
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(Token token) throws IOException {
+        if (peek() != token) {
+            throw syntaxError("Expected " + token + " but was " + peeked);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    private Token readValue(int c) throws IOException {
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                value = readString();
+                return Token.STRING;
+            case 't':
+                readLiteral("rue");
+                value = "true";
+                return Token.BOOLEAN;
+            case 'f':
+                readLiteral("alse");
+                value = "false";
+                return Token.BOOLEAN;
+            case 'n':
+                readLiteral("ull");
+                value = null;
+                return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    value = readNumber((char) c);
+                    return Token.NUMBER;
+                }
+                throw syntaxError(c == -1 ? "Unexpected end of document" : "Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private String readString() throws IOException {
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return text.toString();
+            }
+            if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+            if (c != '\\') {
+                text.append((char) c);
+                continue;
+            }
+            int escaped = read();
+            switch (escaped) {
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw syntaxError("Malformed \\u escape");
+                        }
+                        code = code * 16 + digit;
+                    }
+                    text.append((char) code);
+                    break;
+                case -1:
+                    throw syntaxError("Unterminated string");
+                default:
+                    text.append((char) escaped);
+                    break;
+            }
+        }
+    }
+
+    private String readNumber(char first) throws IOException {
+        StringBuilder text = new StringBuilder().append(first);
+        while (true) {
+            int c = peekChar();
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                text.append((char) read());
+            } else {
+                return text.toString();
+            }
+        }
+    }
+
+    private void readLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw syntaxError("Malformed literal");
+            }
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\uFEFF');
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peekChar() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed JSON: " + message);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example;
+
+/**
+ * One recorded mod addition or removal in a modpack
+ */
+public final class ModChange {
+    // Modpack the change belongs to, empty for changes recorded without one
+    private final String modpack;
+    // Name of the mod that changed
+    private final String mod;
+    // True for an addition, false for a removal
+    private final boolean added;
+
+    /**
+     * Creates a change record
+     * @param modpack the modpack the change belongs to
+     * @param mod the name of the mod
+     * @param added true if the mod was added, false if it was removed
+     */
+    public ModChange(String modpack, String mod, boolean added) {
+        this.modpack = modpack;
+        this.mod = mod;
+        this.added = added;
+    }
+
+    /**
+     * Returns the modpack the change belongs to
+     * @return modpack name, empty for changes recorded without one
+     */
+    public String getModpack() {
+        return modpack;
+    }
+
+    /**
+     * Returns the mod that changed
+     * @return mod name
+     */
+    public String getMod() {
+        return mod;
+    }
+
+    /**
+     * Returns whether the mod was added
+     * @return true for an addition, false for a removal
+     */
+    public boolean isAdded() {
+        return added;
+    }
+
+    @Override
+    public String toString() {
+        return (added ? "+ " : "- ") + modpack + ": " + mod;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example;
+
+import java.util.List;
+
+/**
+ * Receives recorded mod changes in batches
+ * A batch holds every change recorded between the outermost beginChanges() and endChanges(),
+ * or a single change when it was recorded outside a batch
+ */
+public interface ModChangeListener {
+
+    /**
+     * Called once per batch of recorded changes
+     * @param changes the changes in the order they were recorded, never empty
+     */
+    void modsChanged(List<ModChange> changes);
+}
@@ -0,0 +1,65 @@
+package com.example;
+
+/**
+ * A dependency one mod declares on another, by mod ID
+ */
+public final class ModDependency {
+
+    /**
+     * How the dependency constrains the pack
+     */
+    public enum Kind {
+        // Must be present in a matching version
+        REQUIRED,
+        // Loaded first when present, and must then be in a matching version
+        OPTIONAL,
+        // Must not be present in a matching version
+        INCOMPATIBLE
+    }
+
+    // Mod ID depended on
+    private final String modId;
+    private final Kind kind;
+    private final VersionRange versions;
+
+    /**
+     * Creates a dependency
+     * @param modId the mod ID depended on
+     * @param kind whether the mod is required, optional or incompatible
+     * @param versions the accepted versions
+     */
+    public ModDependency(String modId, Kind kind, VersionRange versions) {
+        this.modId = modId;
+        this.kind = kind;
+        this.versions = versions != null ? versions : VersionRange.ANY;
+    }
+
+    /**
+     * Returns the mod ID depended on
+     * @return mod ID
+     */
+    public String getModId() {
+        return modId;
+    }
+
+    /**
+     * Returns the kind of dependency
+     * @return required, optional or incompatible
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the accepted versions
+     * @return version range, VersionRange.ANY if unrestricted
+     */
+    public VersionRange getVersions() {
+        return versions;
+    }
+
+    @Override
+    public String toString() {
+        return kind.name().toLowerCase() + " " + modId + (versions.isAny() ? "" : " " + versions);
+    }
+}
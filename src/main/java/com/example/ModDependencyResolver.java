@@ -0,0 +1,460 @@
+package com.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Dependency graph of each checked modpack, kept up to date as mods come and go
+ * A pack's graph is built the first time the pack is checked. After that the resolver follows
+ * the manager's change events: adding or removing a mod only re-evaluates that mod, the mods
+ * that depend on the IDs it provides and the other providers of those IDs.
+ *
+ * The load order is maintained with the Pearce-Kelly dynamic topological sort. Every mod holds
+ * a position, and a new "load before" edge that contradicts the positions only reorders the
+ * mods between the two ends of the edge. Edges that would close a cycle are kept aside and
+ * reported, and retried when a mod is removed.
+ *
+ * Mod metadata comes from scanned jars and is looked up by mod name. A mod without metadata
+ * provides its lower-cased name as its ID, in an unknown version that satisfies any range.
+ */
+public class ModDependencyResolver implements ModpackListener {
+    // Mod IDs supplied by the game or the loader rather than by mods in the pack
+    private static final Set<String> PLATFORM_IDS = Set.of("minecraft", "java", "forge", "neoforge",
+            "fml", "javafml", "fabricloader", "fabric-loader", "quilt_loader");
+
+    // The manager whose packs are checked
+    private final AbstractModpackManager manager;
+    // Metadata by mod name
+    private final Map<String, ModInfo> metadata = new HashMap<>();
+    // Graphs of the packs checked so far
+    private final Map<String, PackGraph> graphs = new HashMap<>();
+    // Number of mods re-evaluated by the last change
+    private int lastEvaluated;
+
+    /**
+     * Creates a resolver following a manager's changes
+     * @param manager the manager whose packs are checked
+     */
+    public ModDependencyResolver(AbstractModpackManager manager) {
+        this.manager = manager;
+        manager.addModpackListener(this);
+    }
+
+    /**
+     * Records the metadata of mods, keyed by their display name
+     * Mods already in a checked pack are re-evaluated with the new metadata
+     * @param mods metadata read from mod jars
+     */
+    public synchronized void addModInfo(Collection<ModInfo> mods) {
+        for (ModInfo info : mods) {
+            String name = info.getDisplayName();
+            if (metadata.put(name, info) == info) {
+                continue;
+            }
+            for (PackGraph graph : graphs.values()) {
+                if (graph.nodes.containsKey(name)) {
+                    graph.remove(name);
+                    graph.add(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the metadata known for a mod
+     * @param mod the mod name
+     * @return the metadata, or null if none has been recorded
+     */
+    public synchronized ModInfo getModInfo(String mod) {
+        return metadata.get(mod);
+    }
+
+    /**
+     * Checks the dependencies of a modpack
+     * @param modpack the name of the modpack
+     * @return missing, conflicting and cyclic dependencies, and a load order
+     */
+    public synchronized DependencyReport check(String modpack) {
+        PackGraph graph = graphs.get(modpack);
+        if (graph == null) {
+            graph = new PackGraph();
+            graphs.put(modpack, graph);
+            for (String mod : manager.getModpackModsView(modpack)) {
+                graph.add(mod);
+            }
+        }
+        List<DependencyReport.Problem> problems = new ArrayList<>();
+        List<String> loadOrder = new ArrayList<>(graph.order.size());
+        for (Node node : graph.order.values()) {
+            loadOrder.add(node.name);
+            problems.addAll(node.problems);
+            for (Node other : node.cycles) {
+                problems.add(new DependencyReport.Problem(DependencyReport.Type.CYCLE, node.name,
+                        other.ids.get(0), "", Collections.singletonList(other.name)));
+            }
+        }
+        return new DependencyReport(modpack, problems, loadOrder);
+    }
+
+    /**
+     * Returns how many mods the last add or remove re-evaluated
+     * @return count of mods whose dependencies were checked again
+     */
+    public synchronized int getLastEvaluated() {
+        return lastEvaluated;
+    }
+
+    @Override
+    public synchronized void modpackRemoved(String modpack, Set<String> mods) {
+        graphs.remove(modpack);
+    }
+
+    @Override
+    public synchronized void modAdded(String modpack, String mod) {
+        PackGraph graph = graphs.get(modpack);
+        if (graph != null) {
+            graph.add(mod);
+        }
+    }
+
+    @Override
+    public synchronized void modRemoved(String modpack, String mod) {
+        PackGraph graph = graphs.get(modpack);
+        if (graph != null) {
+            graph.remove(mod);
+        }
+    }
+
+    @Override
+    public synchronized void modsAdded(String modpack, List<String> mods) {
+        for (String mod : mods) {
+            modAdded(modpack, mod);
+        }
+    }
+
+    @Override
+    public synchronized void modsRemoved(String modpack, List<String> mods) {
+        for (String mod : mods) {
+            modRemoved(modpack, mod);
+        }
+    }
+
+    @Override
+    public synchronized void dataReplaced() {
+        // Rebuilt on the next check
+        graphs.clear();
+    }
+
+    private static List<ModDependency> dependencies(Node node) {
+        return node.info != null ? node.info.getDependencies() : Collections.<ModDependency>emptyList();
+    }
+
+    private static boolean isPlatform(ModDependency dependency) {
+        return PLATFORM_IDS.contains(dependency.getModId());
+    }
+
+    /**
+     * Returns whether a mod loads after the providers of an ID it depends on
+     */
+    private static boolean loadsAfter(Node node, String modId) {
+        for (ModDependency dependency : dependencies(node)) {
+            if (dependency.getModId().equals(modId) && dependency.getKind() != ModDependency.Kind.INCOMPATIBLE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(Node provider, VersionRange versions) {
+        return versions.contains(provider.info != null ? provider.info.getVersion() : "");
+    }
+
+    /**
+     * One mod in a pack graph
+     */
+    private static final class Node {
+        final String name;
+        final ModInfo info;
+        // Mod IDs this mod answers to
+        final List<String> ids;
+        // Position in the load order
+        int ord;
+        // Mods that must load before and after this one
+        final Set<Node> before = new HashSet<>();
+        final Set<Node> after = new HashSet<>();
+        // Mods that should load before this one but depend on it in turn
+        final Set<Node> cycles = new LinkedHashSet<>();
+        // Problems found the last time this mod was evaluated
+        List<DependencyReport.Problem> problems = Collections.emptyList();
+
+        Node(String name, ModInfo info) {
+            this.name = name;
+            this.info = info;
+            List<String> provided = new ArrayList<>();
+            if (info != null && !info.getModId().isEmpty()) {
+                provided.add(info.getModId());
+                provided.addAll(info.getProvides());
+            } else {
+                provided.add(name.toLowerCase(Locale.ROOT));
+            }
+            this.ids = provided;
+        }
+    }
+
+    /**
+     * Dependency graph and load order of one pack
+     */
+    private final class PackGraph {
+        // Mods by name
+        final Map<String, Node> nodes = new HashMap<>();
+        // Mods by load order position
+        final TreeMap<Integer, Node> order = new TreeMap<>();
+        // Next free position, always after every mod
+        int nextOrd;
+        // Mods providing each mod ID, in the order they were added
+        final Map<String, Set<Node>> providers = new HashMap<>();
+        // Mods declaring any dependency on each mod ID
+        final Map<String, Set<Node>> dependents = new HashMap<>();
+        // Mods with edges held back because they would close a cycle
+        final Set<Node> inCycles = new LinkedHashSet<>();
+
+        void add(String name) {
+            if (nodes.containsKey(name)) {
+                return;
+            }
+            Node node = new Node(name, metadata.get(name));
+            node.ord = nextOrd++;
+            nodes.put(name, node);
+            order.put(node.ord, node);
+
+            Set<Node> affected = new LinkedHashSet<>();
+            affected.add(node);
+            for (String id : node.ids) {
+                Set<Node> same = providers.computeIfAbsent(id, key -> new LinkedHashSet<>());
+                affected.addAll(same);
+                same.add(node);
+                for (Node dependent : dependents.getOrDefault(id, Collections.<Node>emptySet())) {
+                    affected.add(dependent);
+                    if (loadsAfter(dependent, id)) {
+                        addEdge(node, dependent);
+                    }
+                }
+            }
+            for (ModDependency dependency : dependencies(node)) {
+                if (isPlatform(dependency)) {
+                    continue;
+                }
+                dependents.computeIfAbsent(dependency.getModId(), key -> new LinkedHashSet<>()).add(node);
+                if (dependency.getKind() != ModDependency.Kind.INCOMPATIBLE) {
+                    for (Node provider : providers.getOrDefault(dependency.getModId(), Collections.<Node>emptySet())) {
+                        addEdge(provider, node);
+                    }
+                }
+            }
+            evaluate(affected);
+        }
+
+        void remove(String name) {
+            Node node = nodes.remove(name);
+            if (node == null) {
+                return;
+            }
+            order.remove(node.ord);
+            for (Node earlier : node.before) {
+                earlier.after.remove(node);
+            }
+            for (Node later : node.after) {
+                later.before.remove(node);
+            }
+
+            Set<Node> affected = new LinkedHashSet<>();
+            for (String id : node.ids) {
+                Set<Node> same = providers.get(id);
+                same.remove(node);
+                if (same.isEmpty()) {
+                    providers.remove(id);
+                } else {
+                    affected.addAll(same);
+                }
+                affected.addAll(dependents.getOrDefault(id, Collections.<Node>emptySet()));
+            }
+            for (ModDependency dependency : dependencies(node)) {
+                Set<Node> declaring = dependents.get(dependency.getModId());
+                if (declaring != null) {
+                    declaring.remove(node);
+                    if (declaring.isEmpty()) {
+                        dependents.remove(dependency.getModId());
+                    }
+                }
+            }
+            inCycles.remove(node);
+            if (!inCycles.isEmpty()) {
+                retryCycles(node, affected);
+            }
+            evaluate(affected);
+        }
+
+        /**
+         * Requires one mod to load before another, reordering the mods between them if needed
+         */
+        private void addEdge(Node from, Node to) {
+            if (from == to || from.after.contains(to)) {
+                return;
+            }
+            if (from.ord > to.ord && !reorder(from, to)) {
+                to.cycles.add(from);
+                inCycles.add(to);
+                return;
+            }
+            from.after.add(to);
+            to.before.add(from);
+        }
+
+        /**
+         * Pearce-Kelly reordering for a new edge from a later mod to an earlier one
+         * Only mods positioned between the two are visited
+         * @return false if the edge would close a cycle
+         */
+        private boolean reorder(Node from, Node to) {
+            int lower = to.ord;
+            int upper = from.ord;
+            // Mods that must move later: reachable from the target within the window
+            List<Node> forward = new ArrayList<>();
+            Set<Node> seen = new HashSet<>();
+            Deque<Node> stack = new ArrayDeque<>();
+            stack.push(to);
+            seen.add(to);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                forward.add(node);
+                for (Node next : node.after) {
+                    if (next == from) {
+                        return false;
+                    }
+                    if (next.ord < upper && seen.add(next)) {
+                        stack.push(next);
+                    }
+                }
+            }
+            // Mods that must move earlier: reaching the source within the window
+            List<Node> backward = new ArrayList<>();
+            stack.push(from);
+            seen.add(from);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                backward.add(node);
+                for (Node previous : node.before) {
+                    if (previous.ord > lower && seen.add(previous)) {
+                        stack.push(previous);
+                    }
+                }
+            }
+
+            Comparator<Node> byOrd = Comparator.comparingInt(node -> node.ord);
+            backward.sort(byOrd);
+            forward.sort(byOrd);
+            List<Node> moved = new ArrayList<>(backward);
+            moved.addAll(forward);
+            int[] positions = new int[moved.size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = moved.get(i).ord;
+                order.remove(positions[i]);
+            }
+            Arrays.sort(positions);
+            for (int i = 0; i < positions.length; i++) {
+                Node node = moved.get(i);
+                node.ord = positions[i];
+                order.put(node.ord, node);
+            }
+            return true;
+        }
+
+        /**
+         * Retries held-back edges after a removal, since it may have broken their cycle
+         */
+        private void retryCycles(Node removed, Set<Node> affected) {
+            for (Node node : new ArrayList<>(inCycles)) {
+                List<Node> held = new ArrayList<>(node.cycles);
+                node.cycles.clear();
+                inCycles.remove(node);
+                for (Node from : held) {
+                    if (from != removed && nodes.get(from.name) == from) {
+                        addEdge(from, node);
+                    }
+                }
+                affected.add(node);
+            }
+        }
+
+        private void evaluate(Set<Node> affected) {
+            for (Node node : affected) {
+                if (nodes.get(node.name) == node) {
+                    node.problems = problemsOf(node);
+                }
+            }
+            lastEvaluated = affected.size();
+        }
+
+        private List<DependencyReport.Problem> problemsOf(Node node) {
+            List<DependencyReport.Problem> problems = new ArrayList<>();
+            for (ModDependency dependency : dependencies(node)) {
+                if (isPlatform(dependency)) {
+                    continue;
+                }
+                List<String> present = new ArrayList<>();
+                List<String> matching = new ArrayList<>();
+                for (Node provider : providers.getOrDefault(dependency.getModId(), Collections.<Node>emptySet())) {
+                    if (provider != node) {
+                        present.add(provider.name);
+                        if (matches(provider, dependency.getVersions())) {
+                            matching.add(provider.name);
+                        }
+                    }
+                }
+                DependencyReport.Type type = null;
+                List<String> others = present;
+                if (dependency.getKind() == ModDependency.Kind.INCOMPATIBLE) {
+                    type = matching.isEmpty() ? null : DependencyReport.Type.CONFLICT;
+                    others = matching;
+                } else if (present.isEmpty()) {
+                    type = dependency.getKind() == ModDependency.Kind.REQUIRED ? DependencyReport.Type.MISSING : null;
+                } else if (matching.isEmpty()) {
+                    type = DependencyReport.Type.WRONG_VERSION;
+                }
+                if (type != null) {
+                    problems.add(new DependencyReport.Problem(type, node.name, dependency.getModId(),
+                            dependency.getVersions().toString(), others));
+                }
+            }
+            if (node.info != null) {
+                for (String id : node.ids) {
+                    // Reported once, on every provider after the first
+                    Set<Node> same = providers.get(id);
+                    if (same.size() > 1 && same.iterator().next() != node) {
+                        List<String> others = new ArrayList<>();
+                        for (Node other : same) {
+                            if (other != node) {
+                                others.add(other.name);
+                            }
+                        }
+                        problems.add(new DependencyReport.Problem(DependencyReport.Type.DUPLICATE, node.name, id, "", others));
+                    }
+                }
+            }
+            return problems.isEmpty() ? Collections.<DependencyReport.Problem>emptyList() : problems;
+        }
+    }
+}
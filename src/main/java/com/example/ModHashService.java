@@ -0,0 +1,545 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Content hashes of the mod jars behind each modpack
+ * Files are hashed on a fixed pool of worker threads, each streaming its file through a
+ * reused buffer, so memory stays flat however large the jars are. Hashes are cached by
+ * path, size and modification time and kept in a side file, so unchanged files are never
+ * read again.
+ *
+ * Each tracked modpack maps its mod names to jar files, together with the hash each jar
+ * had when it was first tracked; findChanged compares against that baseline.
+ * Removing a mod or modpack from the manager stops tracking it.
+ */
+public class ModHashService implements ModpackListener, Closeable {
+    // First line of the cache file, changed whenever its layout changes
+    private static final String CACHE_HEADER = "MODHASH 1";
+    // Read size per worker
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // File the cache is kept in, or null for an in-memory cache
+    private final Path cacheFile;
+    // Bounded pool of hashing threads
+    private final ExecutorService pool;
+    // Read buffer of each hashing thread
+    private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    // File hashes by absolute path
+    private final Map<String, FileHash> hashes = new ConcurrentHashMap<>();
+    // Tracked jars by modpack, then by mod name; guarded by this
+    private final Map<String, Map<String, TrackedJar>> packs = new LinkedHashMap<>();
+
+    /**
+     * Creates a service with one hashing thread per processor, loading its cache file if it exists
+     * @param cacheFile file to keep hashes in, or null to keep them in memory only
+     */
+    public ModHashService(Path cacheFile) {
+        this(cacheFile, Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Creates a service with a fixed number of hashing threads
+     * @param cacheFile file to keep hashes in, or null to keep them in memory only
+     * @param threads number of files hashed at once
+     */
+    public ModHashService(Path cacheFile, int threads) {
+        this.cacheFile = cacheFile;
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "mod-hasher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (cacheFile != null && Files.exists(cacheFile)) {
+            loadCache();
+        }
+    }
+
+    /**
+     * Returns the hash of a file, reading it only if it changed since it was last hashed
+     * @param file the file to hash
+     * @return the file's hashes
+     * @throws IOException if the file cannot be read
+     */
+    public FileHash hash(Path file) throws IOException {
+        Path path = file.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        String key = path.toString();
+        FileHash cached = hashes.get(key);
+        if (cached != null && cached.size == size && cached.modified == modified) {
+            return cached;
+        }
+        FileHash computed = compute(path, size, modified);
+        hashes.put(key, computed);
+        return computed;
+    }
+
+    /**
+     * Hashes files in parallel on the worker pool
+     * Files that cannot be read are reported and left out of the result; missing files are
+     * left out silently, since callers treat them as changed
+     * @param files the files to hash
+     * @return hashes by file, in the order given
+     */
+    public Map<Path, FileHash> hashAll(Collection<Path> files) {
+        Map<Path, Future<FileHash>> pending = new LinkedHashMap<>();
+        for (Path file : files) {
+            pending.put(file, pool.submit(() -> hash(file)));
+        }
+        Map<Path, FileHash> result = new LinkedHashMap<>();
+        for (Map.Entry<Path, Future<FileHash>> entry : pending.entrySet()) {
+            try {
+                result.put(entry.getKey(), entry.getValue().get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof NoSuchFileException) {
+                    continue;
+                }
+                System.err.println("Error hashing " + entry.getKey() + ": " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records which jar each mod of a modpack comes from
+     * Mods already tracked from the same file keep their baseline hash; others take the current one
+     * @param modpack the name of the modpack
+     * @param modFiles jar file of each mod, by mod name
+     */
+    public void trackPack(String modpack, Map<String, Path> modFiles) {
+        Map<Path, FileHash> current = hashAll(modFiles.values());
+        synchronized (this) {
+            Map<String, TrackedJar> previous = packs.getOrDefault(modpack, Collections.emptyMap());
+            Map<String, TrackedJar> tracked = new LinkedHashMap<>();
+            for (Map.Entry<String, Path> entry : modFiles.entrySet()) {
+                Path path = entry.getValue().toAbsolutePath().normalize();
+                TrackedJar old = previous.get(entry.getKey());
+                FileHash hash = current.get(entry.getValue());
+                if (old != null && old.path.equals(path)) {
+                    tracked.put(entry.getKey(), old);
+                } else if (hash != null) {
+                    tracked.put(entry.getKey(), new TrackedJar(path, hash.sha512));
+                }
+            }
+            packs.put(modpack, tracked);
+        }
+    }
+
+    /**
+     * Returns the modpacks that have jars tracked
+     * @return List of modpack names
+     */
+    public synchronized List<String> getTrackedModpacks() {
+        return new ArrayList<>(packs.keySet());
+    }
+
+    /**
+     * Returns the jar each tracked mod of a modpack comes from
+     * @param modpack the name of the modpack
+     * @return jar file by mod name, empty if the modpack is not tracked
+     */
+    public synchronized Map<String, Path> getTrackedJars(String modpack) {
+        Map<String, Path> jars = new LinkedHashMap<>();
+        for (Map.Entry<String, TrackedJar> jar : packs.getOrDefault(modpack, Collections.emptyMap()).entrySet()) {
+            jars.put(jar.getKey(), jar.getValue().path);
+        }
+        return jars;
+    }
+
+    /**
+     * Finds jars with identical content in more than one place, across all tracked modpacks
+     * A group can hold one jar shipped by several packs, possibly under different mod names,
+     * or two mods of the same pack that are really the same file
+     * @return groups of two or more mods sharing a hash
+     */
+    public List<DuplicateGroup> findDuplicates() {
+        Map<String, List<JarRef>> refs = trackedRefs();
+        Map<Path, FileHash> current = hashAll(uniquePaths(refs));
+        Map<String, DuplicateGroup> groups = new LinkedHashMap<>();
+        for (Map.Entry<String, List<JarRef>> pack : refs.entrySet()) {
+            for (JarRef ref : pack.getValue()) {
+                FileHash hash = current.get(ref.path);
+                if (hash != null) {
+                    groups.computeIfAbsent(hash.sha512, key -> new DuplicateGroup(key)).jars.add(ref);
+                }
+            }
+        }
+        List<DuplicateGroup> duplicates = new ArrayList<>();
+        for (DuplicateGroup group : groups.values()) {
+            if (group.jars.size() > 1) {
+                duplicates.add(group);
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Finds the jars of a modpack whose content differs from their baseline, or that are gone
+     * @param modpack the name of the modpack
+     * @return the changed or missing jars
+     */
+    public List<JarRef> findChanged(String modpack) {
+        List<JarRef> refs = trackedRefs().getOrDefault(modpack, Collections.emptyList());
+        List<Path> paths = new ArrayList<>();
+        for (JarRef ref : refs) {
+            paths.add(ref.path);
+        }
+        Map<Path, FileHash> current = hashAll(paths);
+        List<JarRef> changed = new ArrayList<>();
+        for (JarRef ref : refs) {
+            FileHash hash = current.get(ref.path);
+            if (hash == null || !hash.sha512.equals(ref.baseline)) {
+                changed.add(ref);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Takes the current content of a modpack's jars as their new baseline
+     * @param modpack the name of the modpack
+     */
+    public void acceptChanges(String modpack) {
+        List<JarRef> refs = trackedRefs().getOrDefault(modpack, Collections.emptyList());
+        List<Path> paths = new ArrayList<>();
+        for (JarRef ref : refs) {
+            paths.add(ref.path);
+        }
+        Map<Path, FileHash> current = hashAll(paths);
+        synchronized (this) {
+            Map<String, TrackedJar> tracked = packs.get(modpack);
+            if (tracked == null) {
+                return;
+            }
+            for (JarRef ref : refs) {
+                FileHash hash = current.get(ref.path);
+                if (hash != null && tracked.containsKey(ref.mod)) {
+                    tracked.put(ref.mod, new TrackedJar(ref.path, hash.sha512));
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void modpackRemoved(String modpack, Set<String> mods) {
+        packs.remove(modpack);
+    }
+
+    @Override
+    public synchronized void modRemoved(String modpack, String mod) {
+        Map<String, TrackedJar> tracked = packs.get(modpack);
+        if (tracked != null) {
+            tracked.remove(mod);
+        }
+    }
+
+    /**
+     * Writes the cache file, if the service has one
+     */
+    public void save() {
+        if (cacheFile == null) {
+            return;
+        }
+        Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(CACHE_HEADER);
+                writer.newLine();
+                for (Map.Entry<String, FileHash> entry : hashes.entrySet()) {
+                    FileHash hash = entry.getValue();
+                    writer.write(String.join("\t", "F", TabFields.escape(entry.getKey()), Long.toString(hash.size),
+                            Long.toString(hash.modified), hash.sha1, hash.sha512));
+                    writer.newLine();
+                }
+                synchronized (this) {
+                    for (Map.Entry<String, Map<String, TrackedJar>> pack : packs.entrySet()) {
+                        for (Map.Entry<String, TrackedJar> jar : pack.getValue().entrySet()) {
+                            writer.write(String.join("\t", "P", TabFields.escape(pack.getKey()),
+                                    TabFields.escape(jar.getKey()), TabFields.escape(jar.getValue().path.toString()),
+                                    jar.getValue().baseline));
+                            writer.newLine();
+                        }
+                    }
+                }
+            }
+            ModpackSnapshot.moveIntoPlace(temp, cacheFile);
+        } catch (IOException e) {
+            System.err.println("Error saving hash cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the hashing threads and saves the cache
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        save();
+    }
+
+    /**
+     * Streams a file through both digests
+     */
+    private FileHash compute(Path file, long size, long modified) throws IOException {
+        MessageDigest sha1 = digest("SHA-1");
+        MessageDigest sha512 = digest("SHA-512");
+        byte[] buffer = buffers.get();
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                sha1.update(buffer, 0, read);
+                sha512.update(buffer, 0, read);
+            }
+        }
+        return new FileHash(size, modified, hex(sha1.digest()), hex(sha512.digest()));
+    }
+
+    /**
+     * Copies the tracked jars so they can be hashed without holding the lock
+     */
+    private synchronized Map<String, List<JarRef>> trackedRefs() {
+        Map<String, List<JarRef>> refs = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, TrackedJar>> pack : packs.entrySet()) {
+            List<JarRef> jars = new ArrayList<>();
+            for (Map.Entry<String, TrackedJar> jar : pack.getValue().entrySet()) {
+                jars.add(new JarRef(pack.getKey(), jar.getKey(), jar.getValue().path, jar.getValue().baseline));
+            }
+            refs.put(pack.getKey(), jars);
+        }
+        return refs;
+    }
+
+    private static List<Path> uniquePaths(Map<String, List<JarRef>> refs) {
+        Map<Path, Boolean> paths = new LinkedHashMap<>();
+        for (List<JarRef> jars : refs.values()) {
+            for (JarRef ref : jars) {
+                paths.put(ref.path, Boolean.TRUE);
+            }
+        }
+        return new ArrayList<>(paths.keySet());
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-1 and SHA-512
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] digits = "0123456789abcdef".toCharArray();
+        char[] text = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            text[i * 2] = digits[(bytes[i] >> 4) & 0xF];
+            text[i * 2 + 1] = digits[bytes[i] & 0xF];
+        }
+        return new String(text);
+    }
+
+    private void loadCache() {
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            if (!CACHE_HEADER.equals(reader.readLine())) {
+                // Unknown layout; start with an empty cache
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                try {
+                    if (fields[0].equals("F") && fields.length == 6) {
+                        hashes.put(TabFields.unescape(fields[1]), new FileHash(Long.parseLong(fields[2]),
+                                Long.parseLong(fields[3]), fields[4], fields[5]));
+                    } else if (fields[0].equals("P") && fields.length == 5) {
+                        packs.computeIfAbsent(TabFields.unescape(fields[1]), key -> new LinkedHashMap<>())
+                                .put(TabFields.unescape(fields[2]),
+                                        new TrackedJar(Path.of(TabFields.unescape(fields[3])), fields[4]));
+                    }
+                } catch (NumberFormatException e) {
+                    // Skip the damaged entry; the file is simply hashed again
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading hash cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hashes of one file as it was when read
+     */
+    public static final class FileHash {
+        private final long size;
+        private final long modified;
+        private final String sha1;
+        private final String sha512;
+
+        FileHash(long size, long modified, String sha1, String sha512) {
+            this.size = size;
+            this.modified = modified;
+            this.sha1 = sha1;
+            this.sha512 = sha512;
+        }
+
+        /**
+         * Returns the file size
+         * @return size in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the SHA-1 hash
+         * @return lower-case hex digest
+         */
+        public String getSha1() {
+            return sha1;
+        }
+
+        /**
+         * Returns the SHA-512 hash, used to compare jars
+         * @return lower-case hex digest
+         */
+        public String getSha512() {
+            return sha512;
+        }
+    }
+
+    /**
+     * A tracked jar and the hash it had when tracking started
+     */
+    private static final class TrackedJar {
+        final Path path;
+        final String baseline;
+
+        TrackedJar(Path path, String baseline) {
+            this.path = path;
+            this.baseline = baseline;
+        }
+    }
+
+    /**
+     * One mod of one modpack and the jar it comes from
+     */
+    public static final class JarRef {
+        private final String modpack;
+        private final String mod;
+        private final Path path;
+        private final String baseline;
+
+        JarRef(String modpack, String mod, Path path, String baseline) {
+            this.modpack = modpack;
+            this.mod = mod;
+            this.path = path;
+            this.baseline = baseline;
+        }
+
+        /**
+         * Returns the modpack
+         * @return modpack name
+         */
+        public String getModpack() {
+            return modpack;
+        }
+
+        /**
+         * Returns the mod
+         * @return mod name
+         */
+        public String getMod() {
+            return mod;
+        }
+
+        /**
+         * Returns the jar file
+         * @return absolute path of the jar
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        @Override
+        public String toString() {
+            return modpack + ": " + mod + " (" + path.getFileName() + ")";
+        }
+    }
+
+    /**
+     * Mods whose jars have identical content
+     */
+    public static final class DuplicateGroup {
+        private final String sha512;
+        private final List<JarRef> jars = new ArrayList<>();
+
+        DuplicateGroup(String sha512) {
+            this.sha512 = sha512;
+        }
+
+        /**
+         * Returns the shared SHA-512 hash
+         * @return lower-case hex digest
+         */
+        public String getSha512() {
+            return sha512;
+        }
+
+        /**
+         * Returns the mods sharing the content
+         * @return unmodifiable list of mods, in modpack order
+         */
+        public List<JarRef> getJars() {
+            return Collections.unmodifiableList(jars);
+        }
+
+        /**
+         * Returns whether the same content is listed under more than one mod name
+         * @return true if the names differ
+         */
+        public boolean hasDifferentNames() {
+            for (JarRef jar : jars) {
+                if (!jar.mod.equals(jars.get(0).mod)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            List<String> entries = new ArrayList<>();
+            for (JarRef jar : jars) {
+                entries.add(jar.toString());
+            }
+            return String.join(", ", entries);
+        }
+    }
+}
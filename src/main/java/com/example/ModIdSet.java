@@ -0,0 +1,315 @@
+package com.example;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A modpack's mods as a set of registry IDs in insertion order
+ * Behaves as a Set of names, but holds one int per mod plus a small position table instead of a
+ * hash entry and a name, so memory follows distinct names rather than total entries.
+ * Removals leave a gap that is squeezed out on a later add, which keeps both in constant
+ * amortized time without reordering what is left. Not thread-safe.
+ */
+public final class ModIdSet extends AbstractSet<String> {
+    private static final int NONE = -1;
+    private static final int[] EMPTY = {};
+
+    private final ModRegistry registry;
+    // The modpack the set belongs to, as the registry's reverse index reports it
+    private final String modpack;
+    // IDs in insertion order; removed ones are NONE until the array is compacted
+    private int[] ids = EMPTY;
+    // Open-addressing table of position in ids + 1, 0 for an empty slot; its length is a power of two
+    private int[] slots = EMPTY;
+    // Used length of ids, including gaps
+    private int end;
+    private int size;
+    // Structural changes, so iterators fail fast like the other collections'
+    private int modCount;
+    // True once the set has left its manager; its contents are then fixed
+    private boolean detached;
+
+    /**
+     * Creates an empty set
+     * @param registry the registry that names the IDs
+     * @param modpack the modpack the set belongs to
+     */
+    public ModIdSet(ModRegistry registry, String modpack) {
+        this.registry = registry;
+        this.modpack = modpack;
+    }
+
+    /**
+     * Creates a set of the given names in order, skipping nulls and duplicates
+     * @param registry the registry to intern the names in
+     * @param modpack the modpack the set belongs to
+     * @param mods the mod names
+     */
+    public ModIdSet(ModRegistry registry, String modpack, Collection<String> mods) {
+        this.registry = registry;
+        this.modpack = modpack;
+        if (!mods.isEmpty()) {
+            ids = new int[mods.size()];
+            slots = new int[tableLength(mods.size())];
+        }
+        for (String mod : mods) {
+            if (mod != null) {
+                add(mod);
+            }
+        }
+    }
+
+    /**
+     * Returns the modpack the set belongs to
+     * @return the modpack name
+     */
+    public String modpack() {
+        return modpack;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String && containsId(registry.find((String) o));
+    }
+
+    /**
+     * Checks for a mod by ID
+     * @param id a registry ID
+     * @return true if the set holds it
+     */
+    public boolean containsId(int id) {
+        return id >= 0 && slotOf(id) >= 0;
+    }
+
+    @Override
+    public boolean add(String mod) {
+        if (mod == null) {
+            throw new NullPointerException("mod");
+        }
+        checkAttached();
+        int id = registry.intern(mod);
+        if (slotOf(id) >= 0) {
+            return false;
+        }
+        if (end == ids.length) {
+            // Squeeze out gaps only when there are enough of them to pay for the copy
+            int gaps = end - size;
+            if (gaps > 0 && gaps >= end / 4) {
+                compact();
+            } else {
+                ids = Arrays.copyOf(ids, Math.max(4, end * 2));
+            }
+        }
+        ids[end] = id;
+        end++;
+        size++;
+        modCount++;
+        if (size * 2 > slots.length) {
+            rehash(tableLength(size));
+        } else {
+            insert(end - 1);
+        }
+        registry.retain(id, this);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        checkAttached();
+        int id = registry.find((String) o);
+        int slot = id >= 0 ? slotOf(id) : NONE;
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        checkAttached();
+        releaseAll();
+        ids = EMPTY;
+        slots = EMPTY;
+        end = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next = skipGaps(0);
+            private int last = NONE;
+            private int expected = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public String next() {
+                if (expected != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = skipGaps(next + 1);
+                return registry.name(ids[last]);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (expected != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                checkAttached();
+                // Removal leaves a gap rather than moving anything, so the cursor stays valid
+                removeAt(slotOf(ids[last]));
+                expected = modCount;
+                last = NONE;
+            }
+        };
+    }
+
+    /**
+     * Gives up the set's hold on its IDs, as when its modpack is removed or replaced
+     * The set keeps its contents for anyone still reading it, but can no longer change.
+     */
+    void detach() {
+        if (!detached) {
+            releaseAll();
+            detached = true;
+        }
+    }
+
+    private void checkAttached() {
+        if (detached) {
+            throw new UnsupportedOperationException("Modpack was removed or replaced");
+        }
+    }
+
+    private void releaseAll() {
+        for (int i = 0; i < end; i++) {
+            if (ids[i] != NONE) {
+                registry.release(ids[i], this);
+            }
+        }
+    }
+
+    private int skipGaps(int position) {
+        while (position < end && ids[position] == NONE) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the table slot that points at an ID, or -1 if the set does not hold it
+     */
+    private int slotOf(int id) {
+        if (slots.length == 0) {
+            return NONE;
+        }
+        int mask = slots.length - 1;
+        int slot = ModRegistry.spread(id) & mask;
+        while (slots[slot] != 0) {
+            if (ids[slots[slot] - 1] == id) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    /**
+     * Adds the ID at a position in ids to the table
+     */
+    private void insert(int position) {
+        int mask = slots.length - 1;
+        int slot = ModRegistry.spread(ids[position]) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = position + 1;
+    }
+
+    /**
+     * Removes the ID a table slot points at
+     */
+    private void removeAt(int slot) {
+        int position = slots[slot] - 1;
+        int id = ids[position];
+        ids[position] = NONE;
+        // Shift later entries of the probe run back, so lookups never stop at the emptied slot
+        int mask = slots.length - 1;
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (slots[next] == 0) {
+                break;
+            }
+            int home = ModRegistry.spread(ids[slots[next] - 1]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+        }
+        slots[hole] = 0;
+        while (end > 0 && ids[end - 1] == NONE) {
+            end--;
+        }
+        size--;
+        modCount++;
+        registry.release(id, this);
+    }
+
+    /**
+     * Moves the remaining IDs together, keeping their order
+     */
+    private void compact() {
+        int kept = 0;
+        for (int i = 0; i < end; i++) {
+            if (ids[i] != NONE) {
+                ids[kept++] = ids[i];
+            }
+        }
+        end = kept;
+        rehash(slots.length);
+    }
+
+    private void rehash(int length) {
+        slots = new int[length];
+        for (int i = 0; i < end; i++) {
+            if (ids[i] != NONE) {
+                insert(i);
+            }
+        }
+    }
+
+    /**
+     * Returns a power-of-two table length that keeps the table at most half full
+     */
+    private static int tableLength(int size) {
+        return Math.max(8, Integer.highestOneBit(Math.max(1, size) * 2 - 1) * 2);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Metadata read from a mod jar
+ */
+public final class ModInfo {
+    // Jar file name
+    private final String fileName;
+    // Mod ID declared by the jar, empty if it has no metadata
+    private final String modId;
+    // Display name declared by the jar, empty if none
+    private final String name;
+    // Version declared by the jar, empty if none
+    private final String version;
+    // Other mod IDs the jar also provides
+    private final List<String> provides;
+    // Declared dependencies on other mods
+    private final List<ModDependency> dependencies;
+
+    /**
+     * Creates mod metadata without dependencies
+     * @param fileName the jar file name
+     * @param modId the declared mod ID, or empty
+     * @param name the declared display name, or empty
+     * @param version the declared version, or empty
+     */
+    public ModInfo(String fileName, String modId, String name, String version) {
+        this(fileName, modId, name, version, null, null);
+    }
+
+    /**
+     * Creates mod metadata
+     * @param fileName the jar file name
+     * @param modId the declared mod ID, or empty
+     * @param name the declared display name, or empty
+     * @param version the declared version, or empty
+     * @param provides other mod IDs the jar provides, or null
+     * @param dependencies declared dependencies, or null
+     */
+    public ModInfo(String fileName, String modId, String name, String version,
+            List<String> provides, List<ModDependency> dependencies) {
+        this.fileName = fileName;
+        this.modId = modId != null ? modId : "";
+        this.name = name != null ? name : "";
+        this.version = version != null ? version : "";
+        this.provides = provides != null ? List.copyOf(provides) : Collections.<String>emptyList();
+        this.dependencies = dependencies != null ? List.copyOf(dependencies) : Collections.<ModDependency>emptyList();
+    }
+
+    /**
+     * Returns the jar file name
+     * @return file name including the .jar extension
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the declared mod ID
+     * @return mod ID, empty if the jar has no metadata
+     */
+    public String getModId() {
+        return modId;
+    }
+
+    /**
+     * Returns the declared display name
+     * @return display name, empty if none
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the declared version
+     * @return version, empty if none
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the other mod IDs the jar provides, such as bundled libraries
+     * @return unmodifiable list of mod IDs
+     */
+    public List<String> getProvides() {
+        return provides;
+    }
+
+    /**
+     * Returns the declared dependencies
+     * @return unmodifiable list of dependencies
+     */
+    public List<ModDependency> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Returns the name to list the mod under in a modpack
+     * @return display name, else mod ID, else the file name without .jar
+     */
+    public String getDisplayName() {
+        if (!name.isEmpty()) {
+            return name;
+        }
+        if (!modId.isEmpty()) {
+            return modId;
+        }
+        return fileName.toLowerCase().endsWith(".jar") ? fileName.substring(0, fileName.length() - 4) : fileName;
+    }
+
+    @Override
+    public String toString() {
+        return getDisplayName() + (version.isEmpty() ? "" : " " + version) + " [" + fileName + "]";
+    }
+}
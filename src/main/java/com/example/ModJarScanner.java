@@ -0,0 +1,657 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reads mod metadata from every jar in a mods folder
+ * Jars are opened in parallel through the zip file system and their fabric.mod.json,
+ * META-INF/mods.toml or mcmod.info is read for the mod ID, display name and version.
+ * Results are cached by path, size and modification time, so a rescan only reopens jars
+ * that changed; the cache can be kept in a file between runs.
+ */
+public class ModJarScanner {
+    // First line of the cache file, changed whenever its layout changes
+    private static final String CACHE_HEADER = "MODSCAN 2";
+    // How often a waiting scan checks for cancellation
+    private static final long CANCEL_POLL_MILLIS = 50;
+
+    // File the cache is kept in, or null for an in-memory cache
+    private final Path cacheFile;
+    // Number of jars opened at once
+    private final int threads;
+    // Scanned jars by absolute path
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Progress callback, called from scanning threads
+     */
+    public interface Progress {
+        /**
+         * Reports scan progress
+         * @param done number of jars finished
+         * @param total number of jars in the folder
+         */
+        void update(int done, int total);
+    }
+
+    /**
+     * Creates a scanner, loading its cache file if it exists
+     * @param cacheFile file to keep the cache in, or null to keep it in memory only
+     */
+    public ModJarScanner(Path cacheFile) {
+        this(cacheFile, Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Creates a scanner with a fixed number of scanning threads
+     * @param cacheFile file to keep the cache in, or null to keep it in memory only
+     * @param threads number of jars to open at once
+     */
+    public ModJarScanner(Path cacheFile, int threads) {
+        this.cacheFile = cacheFile;
+        this.threads = Math.max(1, threads);
+        if (cacheFile != null && Files.exists(cacheFile)) {
+            loadCache();
+        }
+    }
+
+    /**
+     * Scans every .jar directly inside a folder
+     * @param modsDir the mods folder
+     * @param progress receives progress updates, or null
+     * @param cancelled polled during the scan; the scan stops early once it returns true
+     * @return the mods found, in file name order
+     * @throws IOException if the folder cannot be listed
+     */
+    public ScanResult scan(Path modsDir, Progress progress, BooleanSupplier cancelled) throws IOException {
+        long start = System.nanoTime();
+        Path dir = modsDir.toAbsolutePath().normalize();
+        List<Path> jars;
+        try (Stream<Path> files = Files.list(dir)) {
+            jars = files.filter(file -> file.getFileName().toString().toLowerCase().endsWith(".jar"))
+                    .filter(Files::isRegularFile)
+                    .sorted(Comparator.comparing(file -> file.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+        forgetMissing(dir, jars);
+
+        ScanResult result = new ScanResult();
+        int total = jars.size();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger reopened = new AtomicInteger();
+        if (progress != null) {
+            progress.update(0, total);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, total)), runnable -> {
+            Thread thread = new Thread(runnable, "mod-scanner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<ModInfo>> futures = new ArrayList<>(total);
+            for (Path jar : jars) {
+                futures.add(pool.submit(() -> {
+                    try {
+                        return scanJar(jar, reopened);
+                    } finally {
+                        int finished = done.incrementAndGet();
+                        if (progress != null) {
+                            progress.update(finished, total);
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < total; i++) {
+                ModInfo info = await(futures.get(i), jars.get(i), result, cancelled);
+                if (result.cancelled) {
+                    break;
+                }
+                if (info != null) {
+                    result.mods.add(info);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        result.reopened = reopened.get();
+        result.cached = result.mods.size() + result.failures.size() - result.reopened;
+        result.millis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    /**
+     * Reads the metadata of one jar, without using the cache
+     * @param jar the jar file
+     * @return the mod metadata, with only the file name set if the jar declares none
+     * @throws IOException if the jar cannot be opened or its metadata is malformed
+     */
+    public static ModInfo readJar(Path jar) throws IOException {
+        String fileName = jar.getFileName().toString();
+        try (FileSystem zip = FileSystems.newFileSystem(jar, (ClassLoader) null)) {
+            Path fabric = zip.getPath("fabric.mod.json");
+            if (Files.exists(fabric)) {
+                return readFabric(fileName, fabric);
+            }
+            for (String toml : new String[] {"META-INF/mods.toml", "META-INF/neoforge.mods.toml"}) {
+                Path modsToml = zip.getPath(toml);
+                if (Files.exists(modsToml)) {
+                    return readModsToml(fileName, modsToml, zip);
+                }
+            }
+            Path mcmod = zip.getPath("mcmod.info");
+            if (Files.exists(mcmod)) {
+                return readMcmodInfo(fileName, mcmod);
+            }
+            return new ModInfo(fileName, "", "", "");
+        }
+    }
+
+    /**
+     * Writes the cache file, if the scanner has one
+     */
+    public void saveCache() {
+        if (cacheFile == null) {
+            return;
+        }
+        Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(CACHE_HEADER);
+                writer.newLine();
+                for (Map.Entry<String, CacheEntry> entry : cache.entrySet()) {
+                    CacheEntry cached = entry.getValue();
+                    ModInfo info = cached.info;
+                    StringBuilder line = new StringBuilder(String.join("\t", TabFields.escape(entry.getKey()),
+                            Long.toString(cached.size), Long.toString(cached.modified),
+                            TabFields.escape(info.getFileName()), TabFields.escape(info.getModId()),
+                            TabFields.escape(info.getName()), TabFields.escape(info.getVersion()),
+                            TabFields.escape(String.join(" ", info.getProvides()))));
+                    // Each dependency adds kind, mod ID and range fields
+                    for (ModDependency dependency : info.getDependencies()) {
+                        line.append('\t').append(dependency.getKind().name())
+                                .append('\t').append(TabFields.escape(dependency.getModId()))
+                                .append('\t').append(TabFields.escape(dependency.getVersions().toString()));
+                    }
+                    writer.write(line.toString());
+                    writer.newLine();
+                }
+            }
+            ModpackSnapshot.moveIntoPlace(temp, cacheFile);
+        } catch (IOException e) {
+            System.err.println("Error saving scan cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the metadata of every cached jar, from this or earlier runs
+     * @return list of cached mod metadata
+     */
+    public List<ModInfo> getCachedMods() {
+        List<ModInfo> mods = new ArrayList<>();
+        for (CacheEntry entry : cache.values()) {
+            mods.add(entry.info);
+        }
+        return mods;
+    }
+
+    /**
+     * Returns the number of cached jars
+     * @return cache entry count
+     */
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Returns cached metadata if the jar is unchanged, otherwise opens it and caches the result
+     */
+    private ModInfo scanJar(Path jar, AtomicInteger reopened) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        String key = jar.toString();
+        CacheEntry cached = cache.get(key);
+        if (cached != null && cached.size == size && cached.modified == modified) {
+            return cached.info;
+        }
+        reopened.incrementAndGet();
+        ModInfo info = readJar(jar);
+        cache.put(key, new CacheEntry(size, modified, info));
+        return info;
+    }
+
+    /**
+     * Waits for one jar, polling for cancellation, and records its failure if it has one
+     */
+    private ModInfo await(Future<ModInfo> future, Path jar, ScanResult result, BooleanSupplier cancelled) {
+        while (true) {
+            if ((cancelled != null && cancelled.getAsBoolean()) || Thread.currentThread().isInterrupted()) {
+                result.cancelled = true;
+                return null;
+            }
+            try {
+                return future.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Still running; check for cancellation again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                result.failures.add(jar.getFileName() + ": " + e.getCause().getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Drops cache entries for jars that are no longer in the scanned folder
+     */
+    private void forgetMissing(Path dir, List<Path> jars) {
+        Set<String> present = new HashSet<>();
+        for (Path jar : jars) {
+            present.add(jar.toString());
+        }
+        cache.keySet().removeIf(key -> !present.contains(key) && dir.equals(Path.of(key).getParent()));
+    }
+
+    private static ModInfo readFabric(String fileName, Path file) throws IOException {
+        String id = "";
+        String name = "";
+        String version = "";
+        List<String> provides = new ArrayList<>();
+        List<ModDependency> dependencies = new ArrayList<>();
+        try (JsonReader json = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "id":
+                        id = json.nextStringOrSkip();
+                        break;
+                    case "name":
+                        name = json.nextStringOrSkip();
+                        break;
+                    case "version":
+                        version = json.nextStringOrSkip();
+                        break;
+                    case "provides":
+                        readStrings(json, provides);
+                        break;
+                    case "depends":
+                        readFabricDependencies(json, ModDependency.Kind.REQUIRED, dependencies);
+                        break;
+                    case "recommends":
+                    case "suggests":
+                        readFabricDependencies(json, ModDependency.Kind.OPTIONAL, dependencies);
+                        break;
+                    case "breaks":
+                    case "conflicts":
+                        readFabricDependencies(json, ModDependency.Kind.INCOMPATIBLE, dependencies);
+                        break;
+                    default:
+                        json.skipValue();
+                        break;
+                }
+            }
+        }
+        return new ModInfo(fileName, id, name, version, provides, dependencies);
+    }
+
+    /**
+     * Reads a Fabric dependency object; each value is a range or an array of alternative ranges
+     */
+    private static void readFabricDependencies(JsonReader json, ModDependency.Kind kind,
+            List<ModDependency> dependencies) throws IOException {
+        if (json.peek() != JsonReader.Token.BEGIN_OBJECT) {
+            json.skipValue();
+            return;
+        }
+        json.beginObject();
+        while (json.hasNext()) {
+            String modId = json.nextName();
+            List<String> ranges = new ArrayList<>();
+            readStrings(json, ranges);
+            dependencies.add(new ModDependency(modId, kind, VersionRange.parse(String.join(" || ", ranges))));
+        }
+        json.endObject();
+    }
+
+    /**
+     * Reads a string, or the strings of an array, skipping anything else
+     */
+    private static void readStrings(JsonReader json, List<String> values) throws IOException {
+        if (json.peek() != JsonReader.Token.BEGIN_ARRAY) {
+            String value = json.nextStringOrSkip();
+            if (value != null) {
+                values.add(value);
+            }
+            return;
+        }
+        json.beginArray();
+        while (json.hasNext()) {
+            String value = json.nextStringOrSkip();
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        json.endArray();
+    }
+
+    /**
+     * Reads the first [[mods]] table of a Forge or NeoForge mods.toml, and that mod's
+     * [[dependencies.modId]] tables
+     * Only the simple key = "value" lines this needs are understood
+     */
+    private static ModInfo readModsToml(String fileName, Path file, FileSystem zip) throws IOException {
+        String id = "";
+        String name = "";
+        String version = "";
+        // 0 outside the tables read here, 1 in the first [[mods]], 2 in a [[dependencies.x]]
+        int table = 0;
+        boolean seenMods = false;
+        // Dependency tables as owner, modId, kind and range, resolved once the mod ID is known
+        List<String[]> dependencyTables = new ArrayList<>();
+        String[] dependency = null;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.startsWith("[")) {
+                    String header = line.replace(" ", "");
+                    table = 0;
+                    if (header.equals("[[mods]]") && !seenMods) {
+                        table = 1;
+                        seenMods = true;
+                    } else if (header.startsWith("[[dependencies.") && header.endsWith("]]")) {
+                        String owner = header.substring("[[dependencies.".length(), header.length() - 2);
+                        dependency = new String[] {owner.replace("\"", ""), "", "required", ""};
+                        dependencyTables.add(dependency);
+                        table = 2;
+                    }
+                    continue;
+                }
+                int equals = line.indexOf('=');
+                if (table == 0 || equals < 0 || line.startsWith("#")) {
+                    continue;
+                }
+                String key = line.substring(0, equals).trim();
+                String value = tomlString(line.substring(equals + 1).trim());
+                if (table == 2) {
+                    if (key.equals("modId")) {
+                        dependency[1] = value;
+                    } else if (key.equals("mandatory")) {
+                        dependency[2] = value.equals("true") ? "required" : "optional";
+                    } else if (key.equals("type")) {
+                        dependency[2] = value.toLowerCase();
+                    } else if (key.equals("versionRange")) {
+                        dependency[3] = value;
+                    }
+                } else if (key.equals("modId")) {
+                    id = value;
+                } else if (key.equals("displayName")) {
+                    name = value;
+                } else if (key.equals("version")) {
+                    version = value;
+                }
+            }
+        }
+        if (version.equals("${file.jarVersion}")) {
+            version = manifestVersion(zip);
+        }
+        List<ModDependency> dependencies = new ArrayList<>();
+        for (String[] fields : dependencyTables) {
+            if (fields[0].equals(id) && !fields[1].isEmpty()) {
+                // "discouraged" only warns in the loader, so it is treated as optional
+                ModDependency.Kind kind = fields[2].equals("incompatible") ? ModDependency.Kind.INCOMPATIBLE
+                        : fields[2].equals("required") ? ModDependency.Kind.REQUIRED : ModDependency.Kind.OPTIONAL;
+                dependencies.add(new ModDependency(fields[1], kind, VersionRange.parse(fields[3])));
+            }
+        }
+        return new ModInfo(fileName, id, name, version, null, dependencies);
+    }
+
+    private static ModInfo readMcmodInfo(String fileName, Path file) throws IOException {
+        try (JsonReader json = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            if (json.peek() == JsonReader.Token.BEGIN_OBJECT) {
+                // Version 2 wraps the list in {"modListVersion": 2, "modList": [...]}
+                json.beginObject();
+                while (json.hasNext()) {
+                    if (json.nextName().equals("modList")) {
+                        return readFirstMcmodEntry(fileName, json);
+                    }
+                    json.skipValue();
+                }
+                return new ModInfo(fileName, "", "", "");
+            }
+            return readFirstMcmodEntry(fileName, json);
+        }
+    }
+
+    private static ModInfo readFirstMcmodEntry(String fileName, JsonReader json) throws IOException {
+        String id = "";
+        String name = "";
+        String version = "";
+        List<String> required = new ArrayList<>();
+        List<String> loadAfter = new ArrayList<>();
+        json.beginArray();
+        if (json.hasNext()) {
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "modid":
+                        id = json.nextStringOrSkip();
+                        break;
+                    case "name":
+                        name = json.nextStringOrSkip();
+                        break;
+                    case "version":
+                        version = json.nextStringOrSkip();
+                        break;
+                    case "requiredMods":
+                        readStrings(json, required);
+                        break;
+                    case "dependencies":
+                        readStrings(json, loadAfter);
+                        break;
+                    default:
+                        json.skipValue();
+                        break;
+                }
+            }
+        }
+        List<ModDependency> dependencies = new ArrayList<>();
+        for (String entry : required) {
+            dependencies.add(mcmodDependency(entry, ModDependency.Kind.REQUIRED));
+        }
+        for (String entry : loadAfter) {
+            if (!required.contains(entry)) {
+                dependencies.add(mcmodDependency(entry, ModDependency.Kind.OPTIONAL));
+            }
+        }
+        return new ModInfo(fileName, id, name, version, null, dependencies);
+    }
+
+    /**
+     * Parses an mcmod.info dependency such as "forge@[10.13,)"
+     */
+    private static ModDependency mcmodDependency(String entry, ModDependency.Kind kind) {
+        int at = entry.indexOf('@');
+        return at < 0 ? new ModDependency(entry.trim(), kind, VersionRange.ANY)
+                : new ModDependency(entry.substring(0, at).trim(), kind, VersionRange.parse(entry.substring(at + 1)));
+    }
+
+    /**
+     * Returns the value of a quoted TOML string, or the bare text up to any comment
+     */
+    private static String tomlString(String value) {
+        if (value.startsWith("\"\"\"") || value.startsWith("'''")) {
+            // Multi-line strings are not needed for the keys read here
+            return "";
+        }
+        if (value.startsWith("\"") || value.startsWith("'")) {
+            char quote = value.charAt(0);
+            StringBuilder text = new StringBuilder();
+            for (int i = 1; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == quote) {
+                    break;
+                }
+                if (c == '\\' && quote == '"' && i + 1 < value.length()) {
+                    c = value.charAt(++i);
+                }
+                text.append(c);
+            }
+            return text.toString();
+        }
+        int comment = value.indexOf('#');
+        return (comment >= 0 ? value.substring(0, comment) : value).trim();
+    }
+
+    private static String manifestVersion(FileSystem zip) throws IOException {
+        try (InputStream in = Files.newInputStream(zip.getPath("META-INF/MANIFEST.MF"))) {
+            String version = new Manifest(in).getMainAttributes().getValue("Implementation-Version");
+            return version != null ? version : "";
+        } catch (NoSuchFileException e) {
+            return "";
+        }
+    }
+
+    private void loadCache() {
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            if (!CACHE_HEADER.equals(reader.readLine())) {
+                // Unknown layout; start with an empty cache
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length < 8 || (fields.length - 8) % 3 != 0) {
+                    continue;
+                }
+                try {
+                    String provided = TabFields.unescape(fields[7]);
+                    List<ModDependency> dependencies = new ArrayList<>();
+                    for (int i = 8; i < fields.length; i += 3) {
+                        dependencies.add(new ModDependency(TabFields.unescape(fields[i + 1]),
+                                ModDependency.Kind.valueOf(fields[i]), VersionRange.parse(TabFields.unescape(fields[i + 2]))));
+                    }
+                    ModInfo info = new ModInfo(TabFields.unescape(fields[3]), TabFields.unescape(fields[4]),
+                            TabFields.unescape(fields[5]), TabFields.unescape(fields[6]),
+                            provided.isEmpty() ? null : Arrays.asList(provided.split(" ")), dependencies);
+                    cache.put(TabFields.unescape(fields[0]),
+                            new CacheEntry(Long.parseLong(fields[1]), Long.parseLong(fields[2]), info));
+                } catch (IllegalArgumentException e) {
+                    // Skip the damaged entry; the jar is simply reopened
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading scan cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Metadata of a jar as it was when last opened
+     */
+    private static final class CacheEntry {
+        final long size;
+        final long modified;
+        final ModInfo info;
+
+        CacheEntry(long size, long modified, ModInfo info) {
+            this.size = size;
+            this.modified = modified;
+            this.info = info;
+        }
+    }
+
+    /**
+     * Outcome of scanning a mods folder
+     */
+    public static final class ScanResult {
+        // Mods found, in file name order
+        private final List<ModInfo> mods = new ArrayList<>();
+        // Jars that could not be read, as "file: reason"
+        private final List<String> failures = new ArrayList<>();
+        private int reopened;
+        private int cached;
+        private boolean cancelled;
+        private long millis;
+
+        /**
+         * Returns the mods found
+         * @return unmodifiable list of mod metadata, in file name order
+         */
+        public List<ModInfo> getMods() {
+            return Collections.unmodifiableList(mods);
+        }
+
+        /**
+         * Returns the jars that could not be read
+         * @return unmodifiable list of "file: reason" entries
+         */
+        public List<String> getFailures() {
+            return Collections.unmodifiableList(failures);
+        }
+
+        /**
+         * Returns the number of jars that were opened because they were new or changed
+         * @return reopened jar count
+         */
+        public int getReopened() {
+            return reopened;
+        }
+
+        /**
+         * Returns the number of jars answered from the cache
+         * @return cached jar count
+         */
+        public int getCached() {
+            return cached;
+        }
+
+        /**
+         * Returns whether the scan was cancelled before it finished
+         * @return true if cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public String toString() {
+            return "Scanned " + (mods.size() + failures.size()) + " jars in " + millis + " ms ("
+                    + reopened + " opened, " + cached + " from cache"
+                    + (failures.isEmpty() ? "" : ", " + failures.size() + " unreadable") + ")";
+        }
+    }
+}
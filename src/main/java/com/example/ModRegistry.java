@@ -0,0 +1,187 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Interned mod names, each with a dense int ID
+ * Modpacks store the IDs in ModIdSets instead of their own copies of the names, so a mod in a
+ * thousand packs is kept once. Each ID also lists the sets that hold it, so finding the modpacks
+ * that contain a mod does not scan them all. Names stay registered until the registry is dropped,
+ * which ModpackManager does whenever all data is replaced; a name that was removed and added
+ * again gets its old ID back. Not thread-safe: use it from the thread that edits the data.
+ */
+public final class ModRegistry {
+    private static final int NONE = -1;
+
+    // Names by ID
+    private String[] names = new String[16];
+    // Number of modpacks that hold each ID
+    private int[] packs = new int[16];
+    // Reverse index: the sets that hold each ID, in the order they added it; the first packs[id]
+    // entries are used, and null once the registry is retired
+    private ModIdSet[][] holders = new ModIdSet[16][];
+    // Open-addressing table of ID + 1, 0 for an empty slot; its length is a power of two
+    private int[] table = new int[32];
+    // Number of IDs handed out
+    private int count;
+    // Number of IDs held by at least one modpack
+    private int live;
+
+    /**
+     * Returns the ID of a name, registering it if it is new
+     * @param name the mod name
+     * @return its ID
+     */
+    public int intern(String name) {
+        int slot = slot(name);
+        if (table[slot] != 0) {
+            return table[slot] - 1;
+        }
+        if (count == names.length) {
+            names = Arrays.copyOf(names, count * 2);
+            packs = Arrays.copyOf(packs, count * 2);
+            if (holders != null) {
+                holders = Arrays.copyOf(holders, count * 2);
+            }
+        }
+        int id = count++;
+        names[id] = name;
+        table[slot] = id + 1;
+        if (count * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the ID of a name without registering it
+     * @param name the mod name
+     * @return its ID, or -1 if it was never registered
+     */
+    public int find(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        return table[slot(name)] - 1;
+    }
+
+    /**
+     * Returns the name behind an ID
+     * @param id an ID returned by intern
+     * @return the registered name, the same instance for every pack that holds it
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns the number of different mods held by at least one modpack
+     * @return live mod count
+     */
+    public int size() {
+        return live;
+    }
+
+    /**
+     * Returns the modpacks that hold an ID
+     * @param id an ID returned by intern or find
+     * @return the modpack names, in the order their sets added the ID
+     */
+    public List<String> modpacks(int id) {
+        int held = id >= 0 && holders != null ? packs[id] : 0;
+        List<String> modpacks = new ArrayList<>(held);
+        for (int i = 0; i < held; i++) {
+            modpacks.add(holders[id][i].modpack());
+        }
+        return modpacks;
+    }
+
+    /**
+     * Records that a modpack's set now holds an ID
+     */
+    void retain(int id, ModIdSet set) {
+        if (holders == null) {
+            return;
+        }
+        int held = packs[id];
+        ModIdSet[] sets = holders[id];
+        if (sets == null) {
+            sets = holders[id] = new ModIdSet[2];
+        } else if (held == sets.length) {
+            sets = holders[id] = Arrays.copyOf(sets, held + (held >> 1));
+        }
+        sets[held] = set;
+        if (packs[id]++ == 0) {
+            live++;
+        }
+    }
+
+    /**
+     * Records that a modpack's set no longer holds an ID
+     */
+    void release(int id, ModIdSet set) {
+        if (holders == null) {
+            return;
+        }
+        ModIdSet[] sets = holders[id];
+        int held = packs[id];
+        int position = held - 1;
+        while (position >= 0 && sets[position] != set) {
+            position--;
+        }
+        if (position < 0) {
+            return;
+        }
+        // Shift the later holders down so the rest keep their order
+        System.arraycopy(sets, position + 1, sets, position, held - position - 1);
+        sets[held - 1] = null;
+        if (--packs[id] == 0) {
+            holders[id] = null;
+            live--;
+        }
+    }
+
+    /**
+     * Stops tracking holders once the registry is replaced
+     * Sets detached afterwards release nothing, so dropping a whole data set costs one pass over
+     * its mods, and the sets still read their names without keeping each other reachable.
+     */
+    void retire() {
+        holders = null;
+    }
+
+    /**
+     * Returns the table slot that holds a name, or the empty slot where it belongs
+     */
+    private int slot(String name) {
+        int mask = table.length - 1;
+        int slot = spread(name.hashCode()) & mask;
+        while (table[slot] != 0 && !names[table[slot] - 1].equals(name)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int length) {
+        int[] rehashed = new int[length];
+        int mask = length - 1;
+        for (int id = 0; id < count; id++) {
+            int slot = spread(names[id].hashCode()) & mask;
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rehashed[slot] = id + 1;
+        }
+        table = rehashed;
+    }
+
+    /**
+     * Mixes the high bits of a hash into the low bits that pick a slot
+     */
+    static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,293 @@
+package com.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary snapshot format for modpack data
+ * Every distinct name is stored once in a string dictionary and packs refer to it by index,
+ * so popular mods shared by many packs cost a few bytes per occurrence instead of their full name.
+ * Loading shares one String instance per distinct name across all packs.
+ *
+ * Layout (all integers are unsigned LEB128 varints):
+ *   magic "MPKB", version,
+ *   dictionary: count, then per entry byte length and UTF-8 bytes,
+ *   modpacks: count, then dictionary index per pack,
+ *   mod mappings: count, then per pack its dictionary index, mod count and mod indices,
+ *   CRC32 of everything above as 4 big-endian bytes
+ *
+ * Counts and lengths are checked against the bytes left in the file before anything is sized
+ * from them, so a damaged file fails with an IOException rather than exhausting memory.
+ */
+public class ModpackBinaryFormat {
+    // File signature
+    private static final byte[] MAGIC = {'M', 'P', 'K', 'B'};
+    // Format version written by this class
+    static final int VERSION = 1;
+
+    private ModpackBinaryFormat() {
+    }
+
+    /**
+     * Writes modpack data as a binary snapshot, replacing the target atomically
+     * @param target the binary file to write
+     * @param modpacks the modpack names
+     * @param modpackMods map of modpack name to its mods
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path target, Collection<String> modpacks,
+                             Map<String, ? extends Collection<String>> modpackMods) throws IOException {
+        // Assign dictionary indices in order of first appearance
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        for (String modpack : modpacks) {
+            intern(modpack, dictionary, entries);
+        }
+        for (Map.Entry<String, ? extends Collection<String>> entry : modpackMods.entrySet()) {
+            intern(entry.getKey(), dictionary, entries);
+            for (String mod : entry.getValue()) {
+                intern(mod, dictionary, entries);
+            }
+        }
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+            OutputStream out = new CheckedOutputStream(file, crc);
+            out.write(MAGIC);
+            writeVarint(out, VERSION);
+
+            writeVarint(out, entries.size());
+            for (String entry : entries) {
+                byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, bytes.length);
+                out.write(bytes);
+            }
+
+            writeVarint(out, modpacks.size());
+            for (String modpack : modpacks) {
+                writeVarint(out, dictionary.get(modpack));
+            }
+
+            writeVarint(out, modpackMods.size());
+            for (Map.Entry<String, ? extends Collection<String>> entry : modpackMods.entrySet()) {
+                writeVarint(out, dictionary.get(entry.getKey()));
+                writeVarint(out, entry.getValue().size());
+                for (String mod : entry.getValue()) {
+                    writeVarint(out, dictionary.get(mod));
+                }
+            }
+
+            long checksum = crc.getValue();
+            file.write((int) (checksum >>> 24));
+            file.write((int) (checksum >>> 16));
+            file.write((int) (checksum >>> 8));
+            file.write((int) checksum);
+        }
+        ModpackSnapshot.moveIntoPlace(temp, target);
+    }
+
+    /**
+     * Reads a binary snapshot
+     * @param file the binary file to read
+     * @return the modpacks and mods, with one String instance per distinct name
+     * @throws IOException if the file cannot be read, has an unknown version or fails its checksum
+     */
+    public static ModpackFileLoader.LoadResult read(Path file) throws IOException {
+        long start = System.nanoTime();
+        ModpackFileLoader.LoadResult result = new ModpackFileLoader.LoadResult();
+        CRC32 crc = new CRC32();
+        String[] dictionary;
+        long size = Files.size(file);
+        try (CountingInputStream raw = new CountingInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            InputStream in = new CheckedInputStream(raw, crc);
+            for (byte expected : MAGIC) {
+                if (readByte(in) != expected) {
+                    throw new IOException("Not a binary modpack snapshot: " + file);
+                }
+            }
+            int version = readVarint(in);
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary snapshot version " + version);
+            }
+
+            dictionary = new String[readCount(in, raw, size)];
+            byte[] buffer = new byte[256];
+            for (int i = 0; i < dictionary.length; i++) {
+                int length = readCount(in, raw, size);
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                readFully(in, buffer, length);
+                dictionary[i] = new String(buffer, 0, length, StandardCharsets.UTF_8);
+            }
+
+            int packCount = readCount(in, raw, size);
+            for (int i = 0; i < packCount; i++) {
+                result.modpacks.add(lookup(dictionary, readVarint(in)));
+            }
+
+            int mappingCount = readCount(in, raw, size);
+            for (int i = 0; i < mappingCount; i++) {
+                String modpack = lookup(dictionary, readVarint(in));
+                int modCount = readCount(in, raw, size);
+                Set<String> mods = new LinkedHashSet<>(Math.max(16, (int) (modCount / 0.75f) + 1));
+                for (int j = 0; j < modCount; j++) {
+                    mods.add(lookup(dictionary, readVarint(in)));
+                }
+                result.modpackMods.put(modpack, mods);
+            }
+
+            long expected = crc.getValue();
+            long actual = ((long) readByte(raw) << 24) | (readByte(raw) << 16) | (readByte(raw) << 8) | readByte(raw);
+            if (actual != expected) {
+                throw new IOException("Binary snapshot checksum mismatch: " + file);
+            }
+        }
+        result.finish(Files.size(file), "binary v" + VERSION + ", " + dictionary.length + " distinct names", start);
+        return result;
+    }
+
+    /**
+     * Converts a text data file into a binary snapshot
+     * @param textFile the MODPACKS: / MODPACK_MODS: file to read
+     * @param binaryFile the binary file to write
+     * @throws IOException if either file cannot be accessed
+     */
+    public static void textToBinary(Path textFile, Path binaryFile) throws IOException {
+        ModpackFileLoader.LoadResult data = ModpackFileLoader.load(textFile);
+        write(binaryFile, data.getModpacks(), data.getModpackMods());
+    }
+
+    /**
+     * Converts a binary snapshot into a text data file
+     * @param binaryFile the binary file to read
+     * @param textFile the MODPACKS: / MODPACK_MODS: file to write
+     * @throws IOException if either file cannot be accessed
+     */
+    public static void binaryToText(Path binaryFile, Path textFile) throws IOException {
+        ModpackFileLoader.LoadResult data = read(binaryFile);
+        ModpackSnapshot.write(textFile, data.getModpacks(), data.getModpackMods());
+    }
+
+    private static void intern(String value, Map<String, Integer> dictionary, List<String> entries) {
+        if (!dictionary.containsKey(value)) {
+            dictionary.put(value, entries.size());
+            entries.add(value);
+        }
+    }
+
+    private static String lookup(String[] dictionary, int index) throws IOException {
+        if (index < 0 || index >= dictionary.length) {
+            throw new IOException("Dictionary index out of range: " + index);
+        }
+        return dictionary[index];
+    }
+
+    /**
+     * Reads a count or length, rejecting one that the rest of the file is too short to hold
+     * Every counted item takes at least one byte, so a valid count never exceeds what is left.
+     */
+    private static int readCount(InputStream in, CountingInputStream raw, long size) throws IOException {
+        int count = readVarint(in);
+        if (count < 0 || count > size - raw.position) {
+            throw new IOException("Binary snapshot count out of range: " + Integer.toUnsignedString(count));
+        }
+        return count;
+    }
+
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte(in);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Binary snapshot is truncated");
+        }
+        return b;
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(buffer, offset, length - offset);
+            if (read < 0) {
+                throw new EOFException("Binary snapshot is truncated");
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * Counts the bytes read from the file
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        // Bytes read so far
+        private long position;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                position++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+    }
+}
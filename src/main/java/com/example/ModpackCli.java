@@ -0,0 +1,438 @@
+package com.example;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Headless command-line front end over ModpackManager
+ * Only data classes are used, never App or anything from JavaFX, so the tool runs on the
+ * class path without the toolkit or a display:
+ *
+ *   java -cp target/classes com.example.ModpackCli [--data file] [--time] command [args]
+ *
+ * Commands: list [pack], add pack [mod...], remove pack [mod...], summary,
+ * import file [name], export file [pack...], pack pack file mods-folder, and batch [file] to run one command per line
+ * from a file or standard input against a single load. Changes are saved once, after the
+ * last command. When the data file has a journal, changes are appended to it as the GUI does,
+ * and when it has been moved into shards, only the modpacks a command touches are read and saved.
+ */
+public final class ModpackCli {
+    // Journal size in bytes that triggers compaction, shared with the GUI setting
+    private static final long JOURNAL_COMPACT_BYTES = Long.getLong("modpack.journalCompactBytes", 1L << 20);
+
+    private final ModpackManager manager;
+    private final PrintStream out;
+    private final PrintStream err;
+    // True once any command changed the data
+    private boolean changed;
+    // Wall-clock time of the first line written, or 0
+    private long firstOutputMillis;
+
+    private ModpackCli(ModpackManager manager, PrintStream out, PrintStream err) {
+        this.manager = manager;
+        this.out = out;
+        this.err = err;
+        manager.addModpackListener(new ModpackListener() {
+            @Override
+            public void modpackAdded(String modpack) {
+                changed = true;
+            }
+
+            @Override
+            public void modpackRemoved(String modpack, Set<String> mods) {
+                changed = true;
+            }
+
+            @Override
+            public void modAdded(String modpack, String mod) {
+                changed = true;
+            }
+
+            @Override
+            public void modRemoved(String modpack, String mod) {
+                changed = true;
+            }
+
+            @Override
+            public void modsAdded(String modpack, List<String> mods) {
+                changed = true;
+            }
+
+            @Override
+            public void modsRemoved(String modpack, List<String> mods) {
+                changed = true;
+            }
+        });
+    }
+
+    public static void main(String[] args) {
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                false, StandardCharsets.UTF_8);
+        int status = run(args, System.in, out, System.err);
+        out.flush();
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Runs one invocation of the tool
+     * @param args options and command
+     * @param in source of batch commands
+     * @param out receives command output
+     * @param err receives errors and timing
+     * @return 0 on success, 1 if a command failed, 2 for usage errors
+     */
+    static int run(String[] args, InputStream in, PrintStream out, PrintStream err) {
+        Path dataFile = null;
+        boolean time = false;
+        int next = 0;
+        while (next < args.length && args[next].startsWith("--")) {
+            if (args[next].equals("--time")) {
+                time = true;
+                next++;
+            } else if (args[next].equals("--data") && next + 1 < args.length) {
+                dataFile = Paths.get(args[next + 1]);
+                next += 2;
+            } else {
+                err.println("Unknown option: " + args[next]);
+                return 2;
+            }
+        }
+        if (next == args.length) {
+            printUsage(err);
+            return 2;
+        }
+
+        ModpackManager manager = new ModpackManager();
+        manager.setDataFile(dataFile);
+        Path journal = manager.getDataFile().resolveSibling(manager.getDataFile().getFileName() + ".journal");
+        if (Files.exists(journal) || Files.exists(journal.resolveSibling(journal.getFileName() + ".old"))) {
+            // Keep appending to the GUI's journal rather than rewriting around it
+            manager.enableJournal(JOURNAL_COMPACT_BYTES);
+        } else if (ModpackShardStore.exists(manager.getDataFile())) {
+            // Modpacks are read as commands need them and only changed ones are rewritten
+            manager.enableShards();
+        }
+        if (!manager.loadFromJson()) {
+            // Any save would replace the unreadable file with whatever the commands left behind
+            err.println(manager.getLastLoadReport());
+            manager.closeJournal();
+            return 1;
+        }
+
+        ModpackCli cli = new ModpackCli(manager, out, err);
+        List<String> command = Arrays.asList(args).subList(next, args.length);
+        int status = command.get(0).equals("batch") ? cli.batch(command, in) : cli.execute(command);
+        cli.save();
+        out.flush();
+        if (time) {
+            cli.reportTiming();
+        }
+        return status;
+    }
+
+    /**
+     * Runs commands read one per line; blank lines and lines starting with # are skipped
+     */
+    private int batch(List<String> command, InputStream in) {
+        if (command.size() > 2) {
+            return usage("batch [file]");
+        }
+        int status = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = command.size() == 2 && !command.get(1).equals("-")
+                ? Files.newBufferedReader(Paths.get(command.get(1)), StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                List<String> words = tokenize(line);
+                if (words.isEmpty() || words.get(0).startsWith("#")) {
+                    continue;
+                }
+                if (words.get(0).equals("batch")) {
+                    err.println("Line " + lineNumber + ": batch cannot be nested");
+                    status = 1;
+                    continue;
+                }
+                int result = execute(words);
+                if (result != 0) {
+                    err.println("  at line " + lineNumber);
+                    status = 1;
+                }
+            }
+        } catch (IOException e) {
+            err.println("Error reading commands: " + e.getMessage());
+            return 1;
+        }
+        return status;
+    }
+
+    /**
+     * Runs a single command
+     * @return 0 on success, non-zero on failure
+     */
+    private int execute(List<String> command) {
+        String name = command.get(0);
+        List<String> args = command.subList(1, command.size());
+        manager.beginChanges();
+        try {
+            switch (name) {
+                case "list":
+                    return list(args);
+                case "add":
+                    return add(args);
+                case "remove":
+                    return remove(args);
+                case "summary":
+                    // Counts every modpack, reading any shards not read yet
+                    manager.loadAllModpacks();
+                    line(manager.getSummary().trim());
+                    return 0;
+                case "import":
+                    return importFile(args);
+                case "export":
+                    return export(args);
+                case "pack":
+                    return pack(args);
+                case "help":
+                    printUsage(out);
+                    return 0;
+                default:
+                    err.println("Unknown command: " + name);
+                    return 2;
+            }
+        } finally {
+            manager.endChanges();
+        }
+    }
+
+    private int list(List<String> args) {
+        if (args.isEmpty()) {
+            for (String modpack : manager.getModpacksView()) {
+                line(modpack + " (" + manager.getModCount(modpack) + " mods)");
+            }
+            return 0;
+        }
+        if (args.size() > 1) {
+            return usage("list [pack]");
+        }
+        if (!manager.getModpacksView().contains(args.get(0))) {
+            err.println("No such modpack: " + args.get(0));
+            return 1;
+        }
+        for (String mod : manager.getModpackModsView(args.get(0))) {
+            line(mod);
+        }
+        return 0;
+    }
+
+    private int add(List<String> args) {
+        if (args.isEmpty() || args.get(0).trim().isEmpty()) {
+            return usage("add pack [mod...]");
+        }
+        String modpack = args.get(0);
+        boolean created = !manager.getModpacksView().contains(modpack);
+        manager.addModpack(modpack);
+        int added = manager.addModsToModpack(modpack, args.subList(1, args.size()));
+        line((created ? "Created " + modpack + ", " : modpack + ": ") + "added " + added + " mods");
+        return 0;
+    }
+
+    private int remove(List<String> args) {
+        if (args.isEmpty()) {
+            return usage("remove pack [mod...]");
+        }
+        String modpack = args.get(0);
+        if (!manager.getModpacksView().contains(modpack)) {
+            err.println("No such modpack: " + modpack);
+            return 1;
+        }
+        if (args.size() == 1) {
+            manager.removeModpack(modpack);
+            line("Removed " + modpack);
+        } else {
+            int removed = manager.removeModsFromModpack(modpack, args.subList(1, args.size()));
+            line(modpack + ": removed " + removed + " mods");
+        }
+        return 0;
+    }
+
+    private int importFile(List<String> args) {
+        if (args.isEmpty() || args.size() > 2) {
+            return usage("import file [name]");
+        }
+        try {
+            ModpackImporter.Manifest manifest = ModpackImporter.read(Paths.get(args.get(0)));
+            String modpack = args.size() == 2 ? args.get(1) : manifest.getName();
+            int added = manifest.addTo(manager, modpack);
+            line("Imported " + added + " mods into " + modpack + " from " + manifest);
+            return 0;
+        } catch (IOException e) {
+            err.println("Error importing modpack: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Writes all modpacks, or the named ones, to a data file; .bin files use the binary format
+     */
+    private int export(List<String> args) {
+        if (args.isEmpty()) {
+            return usage("export file [pack...]");
+        }
+        Path target = Paths.get(args.get(0));
+        List<String> modpacks = args.size() > 1 ? args.subList(1, args.size()) : manager.getModpacksSnapshot();
+        Map<String, List<String>> mods = new LinkedHashMap<>();
+        for (String modpack : modpacks) {
+            if (!manager.getModpacksView().contains(modpack)) {
+                err.println("No such modpack: " + modpack);
+                return 1;
+            }
+            mods.put(modpack, manager.getModpackModsSnapshot(modpack));
+        }
+        try {
+            if (target.getFileName().toString().endsWith(".bin")) {
+                ModpackBinaryFormat.write(target, modpacks, mods);
+            } else {
+                new ModpackSnapshot(modpacks, mods).writeTo(target);
+            }
+        } catch (IOException e) {
+            err.println("Error exporting data: " + e.getMessage());
+            return 1;
+        }
+        line("Exported " + modpacks.size() + " modpacks to " + target);
+        return 0;
+    }
+
+    /**
+     * Writes a modpack archive from the jars of a mods folder and the config folders beside it
+     */
+    private int pack(List<String> args) {
+        if (args.size() != 3) {
+            return usage("pack pack file mods-folder");
+        }
+        String modpack = args.get(0);
+        if (!manager.getModpacksView().contains(modpack)) {
+            err.println("No such modpack: " + modpack);
+            return 1;
+        }
+        Path modsFolder = Paths.get(args.get(2));
+        try {
+            Map<String, Path> jars = new LinkedHashMap<>();
+            for (ModInfo mod : new ModJarScanner(null).scan(modsFolder, null, () -> false).getMods()) {
+                jars.put(mod.getDisplayName(), modsFolder.resolve(mod.getFileName()));
+            }
+            ModpackExporter.ExportResult result = new ModpackExporter().export(modpack,
+                    manager.getModpackModsSnapshot(modpack), jars, ModpackExporter.findConfigFolders(modsFolder),
+                    Paths.get(args.get(1)));
+            line(result.toString());
+            for (String mod : result.getMissing()) {
+                line("  no jar: " + mod);
+            }
+            return 0;
+        } catch (IOException e) {
+            err.println("Error exporting modpack: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Saves once if anything changed, and waits for the journal if there is one
+     */
+    private void save() {
+        if (changed) {
+            manager.saveToJson();
+        }
+        manager.closeJournal();
+    }
+
+    private void line(String text) {
+        out.println(text);
+        if (firstOutputMillis == 0) {
+            out.flush();
+            firstOutputMillis = System.currentTimeMillis();
+        }
+    }
+
+    private int usage(String syntax) {
+        err.println("Usage: " + syntax);
+        return 2;
+    }
+
+    /**
+     * Prints how long the JVM took to produce the first line and to finish
+     * The JVM start time is only looked up afterwards, so measuring does not delay the output
+     */
+    private void reportTiming() {
+        long end = System.currentTimeMillis();
+        long start = ManagementFactory.getRuntimeMXBean().getStartTime();
+        err.println("Time: first output " + (firstOutputMillis != 0 ? (firstOutputMillis - start) + " ms" : "none")
+                + ", total " + (end - start) + " ms after JVM start");
+    }
+
+    private static void printUsage(PrintStream stream) {
+        stream.println("Usage: ModpackCli [--data file] [--time] command [args]");
+        stream.println("  list [pack]              list modpacks, or the mods of one modpack");
+        stream.println("  add pack [mod...]        create a modpack and add mods to it");
+        stream.println("  remove pack [mod...]     remove mods, or the whole modpack");
+        stream.println("  summary                  print modpack and mod counts");
+        stream.println("  import file [name]       import a CurseForge or Modrinth export");
+        stream.println("  export file [pack...]    write modpacks to a data file (.bin for binary)");
+        stream.println("  pack pack file mods-dir  write a modpack's jars and configs to a .mrpack or .zip");
+        stream.println("  batch [file]             run one command per line from a file or stdin");
+    }
+
+    /**
+     * Splits a command line into words; double quotes group words and backslash escapes a character
+     * @param line the command line
+     * @return the words
+     */
+    static List<String> tokenize(String line) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean inWord = false;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < line.length()) {
+                word.append(line.charAt(++i));
+                inWord = true;
+            } else if (c == '"') {
+                quoted = !quoted;
+                inWord = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inWord) {
+                    words.add(word.toString());
+                    word.setLength(0);
+                    inWord = false;
+                }
+            } else {
+                word.append(c);
+                inWord = true;
+            }
+        }
+        if (inWord) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
@@ -0,0 +1,489 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Differences and overlap between modpacks
+ * Every distinct mod gets a dense integer id and every modpack becomes a bitset over those ids,
+ * so a diff is a pass over two word arrays. The overlap matrix counts the mods shared by every
+ * pair of modpacks, one row per modpack, with rows spread over a fork-join pool. Each row picks
+ * the cheaper of two kernels: ANDing its bitset with every later modpack's and counting bits,
+ * which suits large modpacks, or walking the modpacks that contain each of its mods, which
+ * suits the usual modpack that holds a small share of all known mods.
+ *
+ * The comparison copies what it needs when built and never changes afterwards, so it can be
+ * used from any thread while the data it came from keeps changing.
+ */
+public final class ModpackComparison {
+    // Rows per fork-join task below which a task stops splitting
+    private static final int ROWS_PER_TASK = 16;
+
+    // Modpack names, in order; a modpack's index is its position here
+    private final List<String> modpacks;
+    private final Map<String, Integer> modpackIndex = new HashMap<>();
+    // Mod name of each id
+    private final String[] modNames;
+    // Each modpack's mods as a bitset over mod ids
+    private final long[][] bits;
+    // Each modpack's mod ids in the modpack's own order
+    private final int[][] order;
+    // For each mod id, the ascending indexes of the modpacks containing it
+    private final int[][] containing;
+    // Number of modpack entries the containing lists of each modpack's mods add up to
+    private final long[] postingWork;
+
+    /**
+     * Builds the bitsets of the given modpacks
+     * @param modpacks the modpack names, in order
+     * @param modpackMods map of modpack name to its mods, each listed once
+     */
+    public ModpackComparison(Collection<String> modpacks, Map<String, ? extends Collection<String>> modpackMods) {
+        this.modpacks = Collections.unmodifiableList(new ArrayList<>(modpacks));
+        int n = this.modpacks.size();
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        this.order = new int[n][];
+        for (int p = 0; p < n; p++) {
+            String modpack = this.modpacks.get(p);
+            modpackIndex.put(modpack, p);
+            Collection<String> mods = modpackMods.get(modpack);
+            int[] packOrder = new int[mods != null ? mods.size() : 0];
+            int size = 0;
+            if (mods != null) {
+                for (String mod : mods) {
+                    Integer id = ids.get(mod);
+                    if (id == null) {
+                        id = names.size();
+                        ids.put(mod, id);
+                        names.add(mod);
+                    }
+                    packOrder[size++] = id;
+                }
+            }
+            order[p] = packOrder;
+        }
+        this.modNames = names.toArray(new String[0]);
+
+        this.bits = new long[n][];
+        int[] counts = new int[modNames.length];
+        for (int p = 0; p < n; p++) {
+            int highest = -1;
+            for (int id : order[p]) {
+                highest = Math.max(highest, id);
+                counts[id]++;
+            }
+            long[] words = new long[(highest >> 6) + 1];
+            for (int id : order[p]) {
+                words[id >> 6] |= 1L << id;
+            }
+            bits[p] = words;
+        }
+
+        // Filled in modpack order, so each list is ascending
+        this.containing = new int[modNames.length][];
+        for (int id = 0; id < counts.length; id++) {
+            containing[id] = new int[counts[id]];
+            counts[id] = 0;
+        }
+        this.postingWork = new long[n];
+        for (int p = 0; p < n; p++) {
+            for (int id : order[p]) {
+                containing[id][counts[id]++] = p;
+            }
+        }
+        for (int p = 0; p < n; p++) {
+            long work = 0;
+            for (int id : order[p]) {
+                work += containing[id].length;
+            }
+            postingWork[p] = work;
+        }
+    }
+
+    /**
+     * Returns the compared modpacks
+     * @return unmodifiable list of modpack names, in order
+     */
+    public List<String> getModpacks() {
+        return modpacks;
+    }
+
+    /**
+     * Returns the number of distinct mods across all modpacks
+     * @return distinct mod count
+     */
+    public int getDistinctModCount() {
+        return modNames.length;
+    }
+
+    /**
+     * Compares two modpacks
+     * @param first the name of the first modpack
+     * @param second the name of the second modpack
+     * @return the mods only in each and the mods they share
+     * @throws IllegalArgumentException if either modpack is not part of this comparison
+     */
+    public Diff diff(String first, String second) {
+        int a = indexOf(first);
+        int b = indexOf(second);
+        return new Diff(first, second, select(a, b, false), select(b, a, false), select(a, b, true));
+    }
+
+    /**
+     * Counts the mods every pair of modpacks shares, using the common fork-join pool
+     * @return the overlap of every pair
+     */
+    public OverlapMatrix overlapMatrix() {
+        return overlapMatrix(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Counts the mods every pair of modpacks shares
+     * @param pool the pool to run the rows on
+     * @return the overlap of every pair
+     */
+    public OverlapMatrix overlapMatrix(ForkJoinPool pool) {
+        long start = System.nanoTime();
+        int[][] shared = new int[modpacks.size()][];
+        pool.invoke(new Rows(shared, 0, modpacks.size()));
+        int[] sizes = new int[modpacks.size()];
+        for (int p = 0; p < sizes.length; p++) {
+            sizes[p] = order[p].length;
+        }
+        return new OverlapMatrix(modpacks, sizes, shared, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int indexOf(String modpack) {
+        Integer index = modpackIndex.get(modpack);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown modpack: " + modpack);
+        }
+        return index;
+    }
+
+    /**
+     * Lists the mods of one modpack, in its order, that are or are not in another
+     */
+    private List<String> select(int from, int other, boolean inOther) {
+        long[] otherBits = bits[other];
+        List<String> result = new ArrayList<>();
+        for (int id : order[from]) {
+            int word = id >> 6;
+            boolean present = word < otherBits.length && (otherBits[word] & (1L << id)) != 0;
+            if (present == inOther) {
+                result.add(modNames[id]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the mods a modpack shares with each later modpack
+     * @return shared counts, where entry k is for modpack row + 1 + k
+     */
+    private int[] row(int row) {
+        int n = modpacks.size();
+        int[] shared = new int[n - row - 1];
+        long[] words = bits[row];
+        if (postingWork[row] <= (long) shared.length * words.length) {
+            for (int id : order[row]) {
+                int[] packs = containing[id];
+                for (int k = firstAfter(packs, row); k < packs.length; k++) {
+                    shared[packs[k] - row - 1]++;
+                }
+            }
+        } else {
+            for (int other = row + 1; other < n; other++) {
+                long[] otherWords = bits[other];
+                int length = Math.min(words.length, otherWords.length);
+                int count = 0;
+                for (int w = 0; w < length; w++) {
+                    count += Long.bitCount(words[w] & otherWords[w]);
+                }
+                shared[other - row - 1] = count;
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Returns the position of the first entry above a value in an ascending array
+     */
+    private static int firstAfter(int[] sorted, int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Computes a range of rows, splitting it in half until it is small
+     */
+    private final class Rows extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[][] shared;
+        private final int from;
+        private final int to;
+
+        private Rows(int[][] shared, int from, int to) {
+            this.shared = shared;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                for (int row = from; row < to; row++) {
+                    shared[row] = row(row);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Rows(shared, from, middle), new Rows(shared, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Mods two modpacks do and do not have in common
+     */
+    public static final class Diff {
+        private final String first;
+        private final String second;
+        private final List<String> onlyInFirst;
+        private final List<String> onlyInSecond;
+        private final List<String> shared;
+
+        private Diff(String first, String second, List<String> onlyInFirst, List<String> onlyInSecond,
+                     List<String> shared) {
+            this.first = first;
+            this.second = second;
+            this.onlyInFirst = Collections.unmodifiableList(onlyInFirst);
+            this.onlyInSecond = Collections.unmodifiableList(onlyInSecond);
+            this.shared = Collections.unmodifiableList(shared);
+        }
+
+        public String getFirst() {
+            return first;
+        }
+
+        public String getSecond() {
+            return second;
+        }
+
+        /**
+         * Returns the mods of the first modpack that the second lacks
+         * @return mods in the first modpack's order
+         */
+        public List<String> getOnlyInFirst() {
+            return onlyInFirst;
+        }
+
+        /**
+         * Returns the mods of the second modpack that the first lacks
+         * @return mods in the second modpack's order
+         */
+        public List<String> getOnlyInSecond() {
+            return onlyInSecond;
+        }
+
+        /**
+         * Returns the mods both modpacks contain
+         * @return mods in the first modpack's order
+         */
+        public List<String> getShared() {
+            return shared;
+        }
+
+        /**
+         * Returns the shared mods as a share of all mods in either modpack
+         * @return Jaccard similarity between 0 and 1, 0 if both modpacks are empty
+         */
+        public double getJaccard() {
+            int union = onlyInFirst.size() + onlyInSecond.size() + shared.size();
+            return union == 0 ? 0 : (double) shared.size() / union;
+        }
+
+        @Override
+        public String toString() {
+            return first + " vs " + second + ": " + shared.size() + " shared, " + onlyInFirst.size()
+                    + " only in " + first + ", " + onlyInSecond.size() + " only in " + second;
+        }
+    }
+
+    /**
+     * Number of mods shared by every pair of modpacks
+     * Only the upper triangle is stored, one row per modpack.
+     */
+    public static final class OverlapMatrix {
+        private final List<String> modpacks;
+        private final int[] sizes;
+        // Row i, entry k: mods shared by modpacks i and i + 1 + k
+        private final int[][] shared;
+        private final long millis;
+
+        private OverlapMatrix(List<String> modpacks, int[] sizes, int[][] shared, long millis) {
+            this.modpacks = modpacks;
+            this.sizes = sizes;
+            this.shared = shared;
+            this.millis = millis;
+        }
+
+        /**
+         * Returns the compared modpacks; indexes into the matrix are positions in this list
+         * @return unmodifiable list of modpack names
+         */
+        public List<String> getModpacks() {
+            return modpacks;
+        }
+
+        /**
+         * Returns how long the matrix took to compute
+         * @return elapsed milliseconds
+         */
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * Returns the number of mods two modpacks share
+         * @param first index of the first modpack
+         * @param second index of the second modpack
+         * @return shared mod count; a modpack shares all its mods with itself
+         */
+        public int getShared(int first, int second) {
+            if (first == second) {
+                return sizes[first];
+            }
+            int low = Math.min(first, second);
+            int high = Math.max(first, second);
+            return shared[low][high - low - 1];
+        }
+
+        /**
+         * Returns the Jaccard similarity of two modpacks
+         * @param first index of the first modpack
+         * @param second index of the second modpack
+         * @return shared mods over mods in either, between 0 and 1, 0 if both are empty
+         */
+        public double getJaccard(int first, int second) {
+            int both = getShared(first, second);
+            int union = sizes[first] + sizes[second] - both;
+            return union == 0 ? 0 : (double) both / union;
+        }
+
+        /**
+         * Returns the most similar pairs of different modpacks
+         * @param limit most pairs to return
+         * @return pairs by descending Jaccard similarity, then by more shared mods
+         */
+        public List<Overlap> topPairs(int limit) {
+            PriorityQueue<Overlap> best = new PriorityQueue<>(Math.max(1, limit), Overlap.ORDER.reversed());
+            for (int i = 0; i < shared.length; i++) {
+                for (int j = i + 1; j < shared.length; j++) {
+                    offer(best, limit, i, j);
+                }
+            }
+            return sorted(best);
+        }
+
+        /**
+         * Returns the modpacks most similar to one modpack
+         * @param modpack index of the modpack
+         * @param limit most modpacks to return
+         * @return pairs with the given modpack first, by descending Jaccard similarity
+         */
+        public List<Overlap> mostSimilarTo(int modpack, int limit) {
+            PriorityQueue<Overlap> best = new PriorityQueue<>(Math.max(1, limit), Overlap.ORDER.reversed());
+            for (int other = 0; other < shared.length; other++) {
+                if (other != modpack) {
+                    offer(best, limit, modpack, other);
+                }
+            }
+            return sorted(best);
+        }
+
+        private void offer(PriorityQueue<Overlap> best, int limit, int first, int second) {
+            if (limit <= 0) {
+                return;
+            }
+            int both = getShared(first, second);
+            if (best.size() == limit) {
+                Overlap worst = best.peek();
+                double jaccard = getJaccard(first, second);
+                if (jaccard < worst.jaccard || (jaccard == worst.jaccard && both <= worst.shared)) {
+                    return;
+                }
+                best.poll();
+            }
+            best.add(new Overlap(modpacks.get(first), modpacks.get(second), both, getJaccard(first, second)));
+        }
+
+        private static List<Overlap> sorted(PriorityQueue<Overlap> best) {
+            List<Overlap> result = new ArrayList<>(best);
+            result.sort(Overlap.ORDER);
+            return result;
+        }
+    }
+
+    /**
+     * Overlap of one pair of modpacks
+     */
+    public static final class Overlap {
+        // Most similar first
+        private static final Comparator<Overlap> ORDER = Comparator.comparingDouble((Overlap o) -> -o.jaccard)
+                .thenComparingInt(o -> -o.shared);
+
+        private final String first;
+        private final String second;
+        private final int shared;
+        private final double jaccard;
+
+        private Overlap(String first, String second, int shared, double jaccard) {
+            this.first = first;
+            this.second = second;
+            this.shared = shared;
+            this.jaccard = jaccard;
+        }
+
+        public String getFirst() {
+            return first;
+        }
+
+        public String getSecond() {
+            return second;
+        }
+
+        public int getShared() {
+            return shared;
+        }
+
+        public double getJaccard() {
+            return jaccard;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s ~ %s: %.0f%% similar, %d shared mods",
+                    first, second, jaccard * 100, shared);
+        }
+    }
+}
@@ -0,0 +1,616 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a modpack with its mod jars and config folders as a distributable archive
+ * A .mrpack target gets a Modrinth modrinth.index.json with every file bundled under
+ * overrides/, which ModpackImporter reads back; any other target gets the plain instance
+ * layout (mods/, config/, ...) to unpack into a game folder.
+ *
+ * The archive is written straight to a FileChannel. Files that are already compressed, such
+ * as jars, are stored as they are and copied with FileChannel.transferTo, so their bytes never
+ * pass through the Java heap; their checksums are taken from a memory map. Text and config
+ * files are deflated on a pool of worker threads a bounded number of entries ahead of the
+ * writer, and files too large to buffer are deflated while they are written, so memory use
+ * does not depend on the size of the pack. Archives are limited to the classic zip format:
+ * at most 65,535 entries and 4 GB.
+ */
+public final class ModpackExporter {
+    // Folders next to the mods folder that hold a pack's configuration and scripts
+    private static final List<String> CONFIG_FOLDERS = Arrays.asList("config", "defaultconfigs", "kubejs", "scripts");
+    // Extensions of files whose content is already compressed
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "jar", "zip", "mrpack", "png", "jpg", "jpeg", "gif", "ogg", "mp3", "gz", "xz", "7z", "bz2"));
+    // Index entry of a Modrinth .mrpack
+    private static final String MODRINTH_INDEX = "modrinth.index.json";
+    // Largest file deflated on a worker; larger ones are deflated by the writer as they are written
+    private static final int MAX_BUFFERED = 1 << 20;
+    // Size of each memory-mapped window used to checksum stored files
+    private static final long MAP_WINDOW = 64L << 20;
+    private static final long ZIP_LIMIT = 0xFFFFFFFFL;
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL = 0x06054b50;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    // General purpose flag marking names as UTF-8
+    private static final int UTF8_NAMES = 0x0800;
+
+    // Number of files compressed or checksummed at once
+    private final int threads;
+
+    /**
+     * Creates an exporter with one worker per processor
+     */
+    public ModpackExporter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an exporter with a fixed number of workers
+     * @param threads number of files prepared at once
+     */
+    public ModpackExporter(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Lists the config folders that sit next to a mods folder, as in a game instance
+     * @param modsFolder the instance's mods folder
+     * @return existing folders such as config/ and kubejs/, in a fixed order
+     */
+    public static List<Path> findConfigFolders(Path modsFolder) {
+        List<Path> folders = new ArrayList<>();
+        Path instance = modsFolder.toAbsolutePath().normalize().getParent();
+        if (instance != null) {
+            for (String name : CONFIG_FOLDERS) {
+                Path folder = instance.resolve(name);
+                if (Files.isDirectory(folder)) {
+                    folders.add(folder);
+                }
+            }
+        }
+        return folders;
+    }
+
+    /**
+     * Writes a modpack archive
+     * The archive is written to a temporary file and renamed over the target once complete.
+     * @param modpack the name of the modpack
+     * @param mods the modpack's mods, in order
+     * @param jars jar file by mod name; mods without one are reported as missing
+     * @param folders folders to include under their own names, such as config/
+     * @param target the .mrpack or .zip file to write
+     * @return what was written and how fast
+     * @throws IOException if a file cannot be read or the archive cannot be written
+     */
+    public ExportResult export(String modpack, Collection<String> mods, Map<String, Path> jars,
+                               Collection<Path> folders, Path target) throws IOException {
+        long start = System.nanoTime();
+        boolean modrinth = target.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".mrpack");
+        String prefix = modrinth ? "overrides/" : "";
+        ExportResult result = new ExportResult(target);
+
+        // Archive name to source, in archive order; a jar shared by two mods is written once
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        if (modrinth) {
+            byte[] index = modrinthIndex(modpack).getBytes(StandardCharsets.UTF_8);
+            entries.put(MODRINTH_INDEX, new Entry(MODRINTH_INDEX, null, index, System.currentTimeMillis()));
+        }
+        for (String mod : mods) {
+            Path jar = jars.get(mod);
+            if (jar == null || !Files.isRegularFile(jar)) {
+                result.missing.add(mod);
+                continue;
+            }
+            String name = prefix + "mods/" + jar.getFileName();
+            entries.putIfAbsent(name, Entry.of(name, jar));
+        }
+        for (Path folder : folders) {
+            Path root = folder.toAbsolutePath().normalize();
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(root)) {
+                files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                String relative = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                String name = prefix + root.getFileName() + "/" + relative;
+                entries.putIfAbsent(name, Entry.of(name, file));
+            }
+        }
+        if (entries.size() > 0xFFFF) {
+            throw new IOException("Too many files for a zip archive: " + entries.size());
+        }
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "modpack-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                write(out, new ArrayList<>(entries.values()), pool, result);
+            }
+            ModpackSnapshot.moveIntoPlace(temp, target);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+        result.outputBytes = Files.size(target);
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Writes all entries and the central directory
+     * Workers prepare entries at most twice the worker count ahead of the writer, which
+     * writes them strictly in order.
+     */
+    private void write(FileChannel out, List<Entry> entries, ExecutorService pool, ExportResult result)
+            throws IOException {
+        Deque<Future<Entry>> ahead = new ArrayDeque<>();
+        int submitted = 0;
+        List<Entry> written = new ArrayList<>(entries.size());
+        try {
+            while (written.size() < entries.size()) {
+                while (submitted < entries.size() && ahead.size() < threads * 2) {
+                    Entry entry = entries.get(submitted++);
+                    ahead.add(pool.submit(() -> entry.prepare()));
+                }
+                Entry entry = await(ahead.poll());
+                writeEntry(out, entry, result);
+                written.add(entry);
+            }
+        } finally {
+            for (Future<Entry> pending : ahead) {
+                pending.cancel(true);
+            }
+        }
+        writeCentralDirectory(out, written);
+    }
+
+    private static Entry await(Future<Entry> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted");
+        }
+    }
+
+    private void writeEntry(FileChannel out, Entry entry, ExportResult result) throws IOException {
+        entry.offset = out.position();
+        writeFully(out, entry.localHeader());
+        long dataStart = out.position();
+        if (entry.data != null) {
+            writeFully(out, ByteBuffer.wrap(entry.data, 0, entry.dataLength));
+        } else if (entry.method == STORED) {
+            try (FileChannel in = FileChannel.open(entry.source, StandardOpenOption.READ)) {
+                long copied = 0;
+                while (copied < entry.size) {
+                    long count = in.transferTo(copied, entry.size - copied, out);
+                    if (count <= 0) {
+                        throw new IOException(entry.source + " changed while exporting");
+                    }
+                    copied += count;
+                }
+            }
+        } else {
+            // Too large to buffer: deflate while writing, then fill in the header
+            CRC32 crc = new CRC32();
+            long size = 0;
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try (InputStream in = Files.newInputStream(entry.source)) {
+                OutputStream channel = Channels.newOutputStream(out);
+                DeflaterOutputStream deflating = new DeflaterOutputStream(channel, deflater, 1 << 16);
+                byte[] buffer = new byte[1 << 16];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    crc.update(buffer, 0, read);
+                    deflating.write(buffer, 0, read);
+                    size += read;
+                }
+                deflating.finish();
+            } finally {
+                deflater.end();
+            }
+            entry.crc = crc.getValue();
+            entry.size = size;
+            entry.compressedSize = out.position() - dataStart;
+            checkLimit(entry.size, entry.name);
+            checkLimit(entry.compressedSize, entry.name);
+            ByteBuffer sizes = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            sizes.putInt((int) entry.crc).putInt((int) entry.compressedSize).putInt((int) entry.size).flip();
+            long position = entry.offset + 14;
+            while (sizes.hasRemaining()) {
+                position += out.write(sizes, position);
+            }
+        }
+        checkLimit(entry.offset, entry.name);
+        result.files++;
+        result.inputBytes += entry.size;
+        if (entry.method == STORED) {
+            result.stored++;
+        } else {
+            result.compressed++;
+        }
+    }
+
+    private static void writeCentralDirectory(FileChannel out, List<Entry> entries) throws IOException {
+        long start = out.position();
+        checkLimit(start, "central directory");
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        for (Entry entry : entries) {
+            if (buffer.remaining() < 46 + entry.nameBytes.length) {
+                buffer.flip();
+                writeFully(out, buffer);
+                buffer.clear();
+            }
+            buffer.putInt(CENTRAL_HEADER)
+                  .putShort((short) 20)
+                  .putShort((short) entry.version())
+                  .putShort((short) UTF8_NAMES)
+                  .putShort((short) entry.method)
+                  .putInt(entry.dosTime)
+                  .putInt((int) entry.crc)
+                  .putInt((int) entry.compressedSize)
+                  .putInt((int) entry.size)
+                  .putShort((short) entry.nameBytes.length)
+                  .putShort((short) 0)
+                  .putShort((short) 0)
+                  .putShort((short) 0)
+                  .putShort((short) 0)
+                  .putInt(0)
+                  .putInt((int) entry.offset)
+                  .put(entry.nameBytes);
+        }
+        long size = out.position() + buffer.position() - start;
+        checkLimit(size, "central directory");
+        buffer.flip();
+        writeFully(out, buffer);
+        ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+        end.putInt(END_OF_CENTRAL)
+           .putShort((short) 0)
+           .putShort((short) 0)
+           .putShort((short) entries.size())
+           .putShort((short) entries.size())
+           .putInt((int) size)
+           .putInt((int) start)
+           .putShort((short) 0)
+           .flip();
+        writeFully(out, end);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static void checkLimit(long value, String what) throws IOException {
+        if (value > ZIP_LIMIT) {
+            throw new IOException("Archive too large at " + what + ": zip files are limited to 4 GB");
+        }
+    }
+
+    /**
+     * Builds a modrinth.index.json that lists no downloads, since every file is bundled
+     */
+    private static String modrinthIndex(String modpack) {
+        return "{\n"
+                + "  \"formatVersion\": 1,\n"
+                + "  \"game\": \"minecraft\",\n"
+                + "  \"versionId\": \"1.0.0\",\n"
+                + "  \"name\": " + jsonString(modpack) + ",\n"
+                + "  \"files\": [],\n"
+                + "  \"dependencies\": {}\n"
+                + "}\n";
+    }
+
+    private static String jsonString(String text) {
+        StringBuilder json = new StringBuilder("\"");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    /**
+     * MS-DOS date and time of a file, as zip headers store it
+     */
+    private static int dosTime(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+                | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    /**
+     * One archive entry: where it comes from and, once prepared, how it is written
+     */
+    private static final class Entry {
+        private final String name;
+        private final byte[] nameBytes;
+        // File to read, or null for generated content
+        private final Path source;
+        private final int dosTime;
+        private int method;
+        private long crc;
+        private long size;
+        private long compressedSize;
+        // Bytes to write as the entry's data, or null to read the source while writing
+        private byte[] data;
+        private int dataLength;
+        // Position of the local header in the archive
+        private long offset;
+
+        private Entry(String name, Path source, byte[] data, long modified) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.source = source;
+            this.data = data;
+            this.dataLength = data != null ? data.length : 0;
+            this.size = dataLength;
+            this.dosTime = dosTime(modified);
+        }
+
+        private static Entry of(String name, Path file) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            Entry entry = new Entry(name, file, null, attributes.lastModifiedTime().toMillis());
+            entry.size = attributes.size();
+            return entry;
+        }
+
+        /**
+         * Computes the checksum and, for small compressible files, the deflated data
+         * Runs on a worker thread.
+         */
+        private Entry prepare() throws IOException {
+            if (source == null) {
+                deflate(data, dataLength);
+                return this;
+            }
+            String fileName = source.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            String extension = dot >= 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                size = in.size();
+                checkLimit(size, name);
+                if (COMPRESSED_EXTENSIONS.contains(extension)) {
+                    method = STORED;
+                    compressedSize = size;
+                    CRC32 checksum = new CRC32();
+                    for (long position = 0; position < size; position += MAP_WINDOW) {
+                        MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position,
+                                Math.min(MAP_WINDOW, size - position));
+                        checksum.update(window);
+                    }
+                    crc = checksum.getValue();
+                } else if (size <= MAX_BUFFERED) {
+                    ByteBuffer content = ByteBuffer.allocate((int) size);
+                    while (content.hasRemaining() && in.read(content) > 0) {
+                        // Keep reading until full or the file ends early
+                    }
+                    deflate(content.array(), content.position());
+                } else {
+                    // Deflated by the writer; sizes and checksum are filled in afterwards
+                    method = DEFLATED;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Deflates buffered content, keeping it stored if deflating does not make it smaller
+         */
+        private void deflate(byte[] content, int length) {
+            CRC32 checksum = new CRC32();
+            checksum.update(content, 0, length);
+            crc = checksum.getValue();
+            size = length;
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                deflater.setInput(content, 0, length);
+                deflater.finish();
+                byte[] deflated = new byte[Math.max(64, length + length / 8 + 64)];
+                int total = 0;
+                while (!deflater.finished()) {
+                    if (total == deflated.length) {
+                        deflated = Arrays.copyOf(deflated, deflated.length * 2);
+                    }
+                    total += deflater.deflate(deflated, total, deflated.length - total);
+                }
+                if (total < length) {
+                    method = DEFLATED;
+                    data = deflated;
+                    dataLength = total;
+                } else {
+                    method = STORED;
+                    data = content;
+                    dataLength = length;
+                }
+                compressedSize = dataLength;
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private int version() {
+            return method == DEFLATED ? 20 : 10;
+        }
+
+        private ByteBuffer localHeader() {
+            ByteBuffer header = ByteBuffer.allocate(30 + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(LOCAL_HEADER)
+                  .putShort((short) version())
+                  .putShort((short) UTF8_NAMES)
+                  .putShort((short) method)
+                  .putInt(dosTime)
+                  .putInt((int) crc)
+                  .putInt((int) compressedSize)
+                  .putInt((int) size)
+                  .putShort((short) nameBytes.length)
+                  .putShort((short) 0)
+                  .put(nameBytes)
+                  .flip();
+            return header;
+        }
+    }
+
+    /**
+     * Outcome of one export
+     */
+    public static final class ExportResult {
+        private final Path target;
+        // Mods of the pack that had no jar to include
+        private final List<String> missing = new ArrayList<>();
+        private int files;
+        private int stored;
+        private int compressed;
+        private long inputBytes;
+        private long outputBytes;
+        private long nanos;
+
+        private ExportResult(Path target) {
+            this.target = target;
+        }
+
+        /**
+         * Returns the archive written
+         * @return target file
+         */
+        public Path getTarget() {
+            return target;
+        }
+
+        /**
+         * Returns the number of files in the archive
+         * @return entry count
+         */
+        public int getFiles() {
+            return files;
+        }
+
+        /**
+         * Returns the number of files copied without compression
+         * @return stored entry count
+         */
+        public int getStored() {
+            return stored;
+        }
+
+        /**
+         * Returns the number of files deflated
+         * @return compressed entry count
+         */
+        public int getCompressed() {
+            return compressed;
+        }
+
+        /**
+         * Returns the mods that were left out because they had no jar
+         * @return unmodifiable list of mod names
+         */
+        public List<String> getMissing() {
+            return Collections.unmodifiableList(missing);
+        }
+
+        /**
+         * Returns the total size of the files packed
+         * @return uncompressed bytes
+         */
+        public long getInputBytes() {
+            return inputBytes;
+        }
+
+        /**
+         * Returns the size of the archive
+         * @return archive bytes
+         */
+        public long getOutputBytes() {
+            return outputBytes;
+        }
+
+        /**
+         * Returns the time the export took
+         * @return elapsed milliseconds
+         */
+        public long getMillis() {
+            return nanos / 1_000_000;
+        }
+
+        /**
+         * Returns the export speed
+         * @return megabytes of input packed per second
+         */
+        public double getMegabytesPerSecond() {
+            return nanos > 0 ? inputBytes / 1e6 / (nanos / 1e9) : 0;
+        }
+
+        @Override
+        public String toString() {
+            String text = String.format(Locale.ROOT,
+                    "Exported %d files (%d stored, %d compressed) to %s: %.1f MB into %.1f MB in %d ms, %.1f MB/s",
+                    files, stored, compressed, target.getFileName(), inputBytes / 1e6, outputBytes / 1e6,
+                    getMillis(), getMegabytesPerSecond());
+            return missing.isEmpty() ? text : text + ", " + missing.size() + " mods without a jar left out";
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Fast loader for the MODPACKS: / MODPACK_MODS: data file
+ * Reads newline-aligned chunks through positional channel reads, decodes and splits them
+ * in parallel, then applies the same line rules as the original line-by-line parser.
+ * The file is read rather than memory-mapped so it is not left locked on Windows,
+ * where a live mapping would make the next save's rename fail. Saves write UTF-8, but older
+ * versions wrote the platform charset, so a file that is not valid UTF-8 is read again in the
+ * platform charset with bad bytes replaced, as the original FileReader-based parser did.
+ */
+public class ModpackFileLoader {
+    // Files smaller than this are parsed as a single chunk on the calling thread
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    // Upper bound on a chunk so each one fits in a single buffer
+    private static final long MAX_CHUNK_BYTES = 64L << 20;
+
+    private ModpackFileLoader() {
+    }
+
+    /**
+     * Loads a data file
+     * @param file the data file to read
+     * @return the parsed modpacks, mods and load statistics
+     * @throws IOException if the file cannot be read
+     */
+    public static LoadResult load(Path file) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<long[]> ranges = splitRanges(channel, size);
+
+            List<Chunk> chunks;
+            String format;
+            try {
+                chunks = readChunks(channel, ranges, StandardCharsets.UTF_8, CodingErrorAction.REPORT);
+                format = "text, ";
+            } catch (CharacterCodingException e) {
+                // A legacy file in the platform charset; one bad byte must not reject the whole file
+                Charset legacy = Charset.defaultCharset();
+                chunks = readChunks(channel, ranges, legacy, CodingErrorAction.REPLACE);
+                format = "text in " + legacy.name() + ", ";
+            }
+
+            LoadResult result = apply(chunks);
+            result.finish(size, format + chunks.size() + " chunks", start);
+            return result;
+        }
+    }
+
+    /**
+     * Decodes and splits the ranges in parallel
+     */
+    private static List<Chunk> readChunks(FileChannel channel, List<long[]> ranges, Charset charset,
+            CodingErrorAction onError) throws IOException {
+        try {
+            return (ranges.size() == 1 ? ranges.stream() : ranges.parallelStream())
+                    .map(range -> readChunk(channel, range[0], range[1], charset, onError))
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Splits the file into byte ranges that each end just after a newline
+     */
+    private static List<long[]> splitRanges(FileChannel channel, long size) throws IOException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long target = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, size / (cores * 4L) + 1));
+        List<long[]> ranges = new ArrayList<>();
+        long from = 0;
+        while (from < size) {
+            long to = Math.min(size, from + target);
+            if (to < size) {
+                to = nextLineStart(channel, to, size);
+            }
+            ranges.add(new long[] {from, to});
+            from = to;
+        }
+        if (ranges.isEmpty()) {
+            ranges.add(new long[] {0, 0});
+        }
+        return ranges;
+    }
+
+    /**
+     * Returns the offset just past the first newline at or after a position
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Decodes one range and splits it into trimmed lines
+     */
+    private static Chunk readChunk(FileChannel channel, long from, long to, Charset charset,
+            CodingErrorAction onError) {
+        try {
+            CharsetDecoder decoder = charset.newDecoder()
+                    .onMalformedInput(onError)
+                    .onUnmappableCharacter(onError);
+            ByteBuffer bytes = ByteBuffer.allocate((int) (to - from));
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, from + bytes.position()) < 0) {
+                    break;
+                }
+            }
+            bytes.flip();
+            return splitLines(decoder.decode(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Splits decoded text into lines the way BufferedReader.readLine does
+     * Each line is kept trimmed, with a flag for lines indented by two spaces
+     */
+    private static Chunk splitLines(CharBuffer chars) {
+        Chunk chunk = new Chunk();
+        int length = chars.limit();
+        int lineStart = 0;
+        int i = 0;
+        while (i < length) {
+            char c = chars.get(i);
+            if (c == '\n' || c == '\r') {
+                chunk.add(chars, lineStart, i);
+                i++;
+                if (c == '\r' && i < length && chars.get(i) == '\n') {
+                    i++;
+                }
+                lineStart = i;
+            } else {
+                i++;
+            }
+        }
+        if (lineStart < length) {
+            chunk.add(chars, lineStart, length);
+        }
+        return chunk;
+    }
+
+    /**
+     * Applies the parser's section rules to the lines in file order
+     */
+    private static LoadResult apply(List<Chunk> chunks) {
+        LoadResult result = new LoadResult();
+        List<String> headers = new ArrayList<>();
+        List<List<String>> sections = new ArrayList<>();
+        String currentSection = "";
+        String currentModpack = "";
+        List<String> currentMods = null;
+
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.lines.size(); i++) {
+                String trimmedLine = chunk.lines.get(i);
+
+                if (trimmedLine.equals("MODPACKS:")) {
+                    currentSection = "MODPACKS";
+                } else if (trimmedLine.equals("MODPACK_MODS:")) {
+                    currentSection = "MODPACK_MODS";
+                } else if (currentSection.equals("MODPACKS") && !trimmedLine.isEmpty()) {
+                    result.modpacks.add(trimmedLine);
+                } else if (currentSection.equals("MODPACK_MODS")) {
+                    if (trimmedLine.endsWith(":")) {
+                        currentModpack = trimmedLine.substring(0, trimmedLine.length() - 1);
+                        currentMods = new ArrayList<>();
+                        headers.add(currentModpack);
+                        sections.add(currentMods);
+                    } else if (chunk.indented.get(i) && !currentModpack.isEmpty()) {
+                        // substring(2).trim() of an indented line equals the trimmed line
+                        currentMods.add(trimmedLine);
+                    }
+                }
+            }
+        }
+
+        // Build each pack's set in parallel; a repeated header replaces the earlier section
+        List<Set<String>> sets = sections.parallelStream()
+                .map(mods -> (Set<String>) new LinkedHashSet<>(mods))
+                .collect(Collectors.toList());
+        for (int i = 0; i < headers.size(); i++) {
+            result.modpackMods.remove(headers.get(i));
+            result.modpackMods.put(headers.get(i), sets.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Trimmed lines of one chunk
+     */
+    private static final class Chunk {
+        private final List<String> lines = new ArrayList<>();
+        // Lines that started with two spaces before trimming
+        private final BitSet indented = new BitSet();
+
+        private void add(CharBuffer chars, int start, int end) {
+            if (end - start >= 2 && chars.get(start) == ' ' && chars.get(start + 1) == ' ') {
+                indented.set(lines.size());
+            }
+            while (start < end && chars.get(start) <= ' ') {
+                start++;
+            }
+            while (end > start && chars.get(end - 1) <= ' ') {
+                end--;
+            }
+            lines.add(chars.subSequence(start, end).toString());
+        }
+    }
+
+    /**
+     * Parsed data file plus statistics about the load
+     */
+    public static final class LoadResult {
+        final Set<String> modpacks = new LinkedHashSet<>();
+        final Map<String, Set<String>> modpackMods = new LinkedHashMap<>();
+        // Modpacks whose mods are stored separately and were not read
+        final Set<String> unloaded = new HashSet<>();
+        private long modCount;
+        private long bytes;
+        private String format;
+        private long millis;
+
+        LoadResult() {
+        }
+
+        /**
+         * Counts the loaded mods and records the load statistics
+         * @param bytes size of the file read
+         * @param format description of the file format
+         * @param startNanos System.nanoTime() when the load started
+         */
+        void finish(long bytes, String format, long startNanos) {
+            this.modCount = 0;
+            for (Set<String> mods : modpackMods.values()) {
+                this.modCount += mods.size();
+            }
+            this.bytes = bytes;
+            this.format = format;
+            this.millis = (System.nanoTime() - startNanos) / 1_000_000;
+        }
+
+        /**
+         * Returns the modpack names in file order
+         * @return set of modpack names
+         */
+        public Set<String> getModpacks() {
+            return modpacks;
+        }
+
+        /**
+         * Returns each listed modpack's mods, including packs with no mods
+         * @return map of modpack name to its mods
+         */
+        public Map<String, Set<String>> getModpackMods() {
+            return modpackMods;
+        }
+
+        /**
+         * Returns the modpacks whose mods were left to be read on first use
+         * @return names of unloaded modpacks, empty for a full load
+         */
+        public Set<String> getUnloadedModpacks() {
+            return unloaded;
+        }
+
+        /**
+         * Returns the total number of mod entries loaded
+         * @return sum of all pack sizes
+         */
+        public long getModCount() {
+            return modCount;
+        }
+
+        /**
+         * Returns the size of the file read
+         * @return file size in bytes
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Returns how long the load took
+         * @return elapsed milliseconds
+         */
+        public long getMillis() {
+            return millis;
+        }
+
+        @Override
+        public String toString() {
+            String mods = unloaded.isEmpty() ? " and " + modCount + " mods" : ", mods read on first use";
+            return "Loaded " + modpacks.size() + " modpacks" + mods + " ("
+                    + bytes + " bytes, " + format + ") in " + millis + " ms";
+        }
+    }
+}
@@ -1,21 +1,45 @@
 package com.example;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.collections.transformation.FilteredList;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
 import javafx.scene.control.TextInputDialog;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 /**
  * User interface layer using JavaFX
@@ -29,50 +53,368 @@ public class ModpackGUI extends ModpackManager {
     // GUI list showing mods
     private ListView<String> modListView;
     
+    // Screens, built once and reused across navigation
     private VBox mainLayout;
+    private VBox modpackLayout;
+    private Label modpackTitleLabel;
+    private Button changesButton;
+    private TextField searchField;
+    private ListView<ModpackSearchIndex.SearchResult> searchResultsView;
+    private TextField modFilterField;
+    // Mods of the current modpack, narrowed by the filter box
+    private FilteredList<String> visibleMods;
+    private Button scanButton;
+    private HBox scanBox;
+    private ProgressBar scanProgress;
+    // Mods folder scan in progress, or null
+    private Task<ModJarScanner.ScanResult> scanTask;
+    private VBox comparisonLayout;
+    private ComboBox<String> compareFirst;
+    private ComboBox<String> compareSecond;
+    private Label diffLabel;
+    private ListView<String> onlyInFirstView;
+    private ListView<String> onlyInSecondView;
+    private ListView<String> sharedModsView;
+    private Label similarLabel;
+    private ListView<ModpackComparison.Overlap> similarPairsView;
+    // Modpacks as they were when the comparison screen was opened
+    private ModpackComparison comparison;
+    private Scene scene;
     private final Label statusLabel;
+    // Bottom row shared by all screens: undo and redo, the status label and, if enabled, the metrics overlay
+    private final HBox statusBar;
+    private final Button undoButton;
+    private final Button redoButton;
+    // Observable lists kept in step with the data through change events
+    private final ModpackListModel model;
+    // Name index behind the search box, updated on every change
+    private final ModpackSearchIndex searchIndex;
+    // Reads mod jars, remembering unchanged ones between scans; set once data has loaded
+    private ModJarScanner jarScanner;
+    // Content hashes of scanned jars, for change and duplicate checks; set once data has loaded
+    private ModHashService hashService;
+    // Startup phase times, reported once the first frame is up and data has loaded
+    private StartupTimer startup;
+    private boolean startupReported;
+    // Writes changes in the background, batching rapid edits into one save
+    private final PersistenceScheduler persistence;
+    // True once loaded data is installed; until then, or if the data file could not be read,
+    // there is nothing that may be saved
+    private boolean loaded;
+    // Applies outside edits of the data file and scanned mods folders; set once data has loaded
+    private ModpackWatcher watcher;
+    
+    // Milliseconds to wait for further edits before auto-saving
+    private static final long SAVE_WINDOW_MILLIS = Long.getLong("modpack.saveWindowMillis", 500L);
+    // Storage mode: "file" rewrites the data file, "journal" appends each change to a journal,
+    // "sharded" keeps one file per modpack and rewrites only changed ones
+    private static final String STORAGE_MODE = System.getProperty("modpack.storage", "file");
+    // Journal size in bytes that triggers compaction into the data file
+    private static final long JOURNAL_COMPACT_BYTES = Long.getLong("modpack.journalCompactBytes", 1L << 20);
+    // Milliseconds to wait after the last keystroke before searching
+    private static final double SEARCH_DELAY_MILLIS = 150;
+    // Quit as soon as startup is reported, for timing runs and class data sharing archives
+    private static final boolean STARTUP_EXIT = Boolean.getBoolean("modpack.startupExit");
+    // Record operation metrics and publish them over JMX
+    private static final boolean METRICS = Boolean.getBoolean("modpack.metrics");
+    // Seconds between metrics log lines, 0 for none
+    private static final long METRICS_LOG_SECONDS = Long.getLong("modpack.metricsLogSeconds", 0L);
+    // Show the last save and load times in the status bar
+    private static final boolean DEV_OVERLAY = Boolean.getBoolean("modpack.devOverlay");
+    // Most changes that can be undone
+    private static final int UNDO_LIMIT = Integer.getInteger("modpack.undoLimit", 1000);
+    // Milliseconds files must be quiet after an outside edit before it is read; 0 turns watching off
+    private static final long WATCH_DEBOUNCE_MILLIS = Long.getLong("modpack.watchDebounceMillis", 300L);
 
     /**
      * Constructor initializes GUI components
+     * Saved data is not read here; createGUI loads it in the background once the window is up
      */
     public ModpackGUI() {
         super();
         this.currentModpack = "";
         this.modListView = new ListView<>();
-        this.statusLabel = new Label("Ready");
+        this.statusLabel = new Label("Loading...");
+        this.undoButton = new Button("Undo");
+        this.redoButton = new Button("Redo");
+        undoButton.setOnAction(e -> undoLastChange());
+        redoButton.setOnAction(e -> redoLastChange());
+        this.statusBar = new HBox(20, new HBox(5, undoButton, redoButton), statusLabel);
+        statusBar.setAlignment(Pos.CENTER_LEFT);
+        
+        if (STORAGE_MODE.equals("journal")) {
+            enableJournal(JOURNAL_COMPACT_BYTES);
+        } else if (STORAGE_MODE.equals("sharded") || ModpackShardStore.exists(getDataFile())) {
+            // Once data is in shards the single data file is gone, so keep using them
+            enableShards();
+        }
+        
+        // Both start empty and fill in from the dataReplaced event when the load is installed
+        this.model = new ModpackListModel(this);
+        this.searchIndex = new ModpackSearchIndex(this);
+        addChangeListener(changes -> updateChangesButton());
+        enableUndo(UNDO_LIMIT);
+        getHistory().setOnChange(this::updateUndoButtons);
+        updateUndoButtons();
         
-        // Load saved data once at startup
-        loadFromJson();
+        this.persistence = new PersistenceScheduler(this::prepareWatchedSave, Platform::runLater, SAVE_WINDOW_MILLIS);
+        persistence.setMetrics(getMetrics());
+        if (METRICS || DEV_OVERLAY || METRICS_LOG_SECONDS > 0) {
+            getMetrics().setEnabled(true);
+        }
+        if (METRICS) {
+            getMetrics().registerMBean();
+        }
+        getMetrics().startLogging(METRICS_LOG_SECONDS);
+        if (DEV_OVERLAY) {
+            addMetricsOverlay();
+        }
+        persistence.setOnSaved(time -> Platform.runLater(() ->
+                statusLabel.setText("Auto-saved at " + time.toString().substring(0, 8))));
     }
     
     /**
      * Auto-saves data whenever changes are made
+     * The write happens in the background once edits settle
      */
     private void autoSave() {
-        saveToJson();
-        statusLabel.setText("Auto-saved at " + java.time.LocalTime.now().toString().substring(0, 8));
+        if (!loaded) {
+            return;
+        }
+        if (isJournalEnabled()) {
+            // The change is already journaled; nothing to rewrite
+            return;
+        }
+        persistence.markDirty();
+    }
+    
+    /**
+     * Captures a save, letting the watcher tell its write apart from edits by other programs
+     */
+    private PersistenceScheduler.Write prepareWatchedSave() {
+        PersistenceScheduler.Write write = prepareSave();
+        return watcher != null ? watcher.ownWrite(write) : write;
+    }
+    
+    /**
+     * Writes any pending changes and stops background saving
+     * Called when the application closes. Closing while data is still loading, or after the data
+     * file could not be read, writes nothing, since the data in memory would otherwise replace
+     * the saved file.
+     */
+    public void closePersistence() {
+        getMetrics().close();
+        if (watcher != null) {
+            watcher.close();
+        }
+        if (hashService != null) {
+            hashService.close();
+        }
+        if (isJournalEnabled()) {
+            closeJournal();
+        } else if (loaded) {
+            persistence.close();
+        } else {
+            persistence.discard();
+        }
     }
 
     /**
      * Initializes the main interface
      */
     public void createGUI(Stage stage) {
+        createGUI(stage, new StartupTimer());
+    }
+    
+    /**
+     * Shows the window with a loading placeholder, then loads saved data in the background
+     * The main screen replaces the placeholder in the same scene once the data is installed.
+     * @param stage the window to use
+     * @param startup startup timer to mark and report the first frame and data load on
+     */
+    public void createGUI(Stage stage, StartupTimer startup) {
         this.primaryStage = stage;
+        this.startup = startup;
         
         primaryStage.setTitle("Minecraft Modpack Manager");
         primaryStage.setWidth(800);
         primaryStage.setHeight(600);
         
-        showMainScreen();
+        show(buildLoadingScreen());
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN), this::undoLastChange);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN), this::redoLastChange);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN,
+                KeyCombination.SHIFT_DOWN), this::redoLastChange);
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                startup.mark("first frame");
+                // Removing a pulse listener while listeners are running is not allowed
+                Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+                reportStartup();
+            }
+        });
         primaryStage.show();
+        loadData();
+    }
+    
+    /**
+     * Builds the placeholder shown while data loads
+     */
+    private VBox buildLoadingScreen() {
+        VBox layout = new VBox(10);
+        layout.setPadding(new Insets(20));
+        Label titleLabel = new Label("Minecraft Modpack Manager");
+        titleLabel.setStyle("-fx-font-size: 24px; -fx-font-weight: bold;");
+        ProgressIndicator progress = new ProgressIndicator();
+        progress.setMaxSize(40, 40);
+        layout.getChildren().addAll(titleLabel, new Label("Loading modpacks..."), progress);
+        return layout;
+    }
+    
+    /**
+     * Reads the data file and the jar caches on a background thread, then installs them here
+     */
+    private void loadData() {
+        Path dataFile = getDataFile();
+        Task<ModpackFileLoader.LoadResult> task = new Task<ModpackFileLoader.LoadResult>() {
+            @Override
+            protected ModpackFileLoader.LoadResult call() {
+                ModpackFileLoader.LoadResult result = null;
+                try {
+                    result = readData();
+                } catch (IOException e) {
+                    System.err.println("Error loading data: " + e.getMessage());
+                }
+                // The caches are only read by their own constructors, so they can be built here
+                jarScanner = new ModJarScanner(dataFile.resolveSibling("mod_scan_cache.txt"));
+                hashService = new ModHashService(dataFile.resolveSibling("mod_hash_cache.txt"));
+                startup.mark("data read");
+                return result;
+            }
+        };
+        task.setOnSucceeded(e -> finishLoading(task.getValue()));
+        task.setOnFailed(e -> {
+            System.err.println("Error loading data: " + task.getException().getMessage());
+            finishLoading(null);
+        });
+        Thread thread = new Thread(task, "modpack-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Installs loaded data and opens the main screen
+     */
+    private void finishLoading(ModpackFileLoader.LoadResult result) {
+        loaded = installData(result);
+        if (!loaded && isJournalEnabled()) {
+            // Edits must not reach a journal that is replayed over the unread file
+            closeJournal();
+        }
+        statusLabel.setText(getLastLoadReport());
+        if (jarScanner == null || hashService == null) {
+            // The caches could not be read; keep them in memory only
+            jarScanner = new ModJarScanner(null);
+            hashService = new ModHashService(null);
+        }
+        // Jars scanned in earlier runs supply the metadata for dependency checks
+        getDependencyResolver().addModInfo(jarScanner.getCachedMods());
+        addModpackListener(hashService);
+        showMainScreen();
+        startup.mark("data loaded");
+        reportStartup();
+        loadRemainingModpacks();
+        startWatching();
+    }
+    
+    /**
+     * Watches the data file and the scanned mods folders for edits made by other programs
+     * Journal and sharded storage are not watched, nor is a data file that could not be read.
+     */
+    private void startWatching() {
+        if (WATCH_DEBOUNCE_MILLIS <= 0 || !loaded || isJournalEnabled() || isShardStorageEnabled()) {
+            return;
+        }
+        ModpackWatcher started = null;
+        try {
+            started = new ModpackWatcher(this, Platform::runLater, WATCH_DEBOUNCE_MILLIS);
+            started.setHashService(hashService);
+            started.setOnReload(report -> {
+                statusLabel.setText(report);
+                // Usually the file already holds the change, but a save may have raced it
+                autoSave();
+            });
+            started.watchDataFile();
+            for (String modpack : hashService.getTrackedModpacks()) {
+                started.watchModsFolder(modpack, hashService.getTrackedJars(modpack));
+            }
+            started.start();
+            watcher = started;
+        } catch (IOException e) {
+            System.err.println("Error watching data file: " + e.getMessage());
+            if (started != null) {
+                started.close();
+            }
+        }
+    }
+    
+    /**
+     * Reads the modpacks left in sharded storage on a background thread, so search covers them
+     * Opening a modpack still reads it at once; a modpack read that way is skipped here.
+     */
+    private void loadRemainingModpacks() {
+        List<String> modpacks = getUnloadedModpacks();
+        if (modpacks.isEmpty()) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            for (String modpack : modpacks) {
+                try {
+                    Set<String> mods = readModpack(modpack);
+                    Platform.runLater(() -> installModpack(modpack, mods));
+                } catch (IOException e) {
+                    System.err.println("Error loading modpack: " + e.getMessage());
+                }
+            }
+        }, "modpack-shard-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Prints the startup report once both the first frame and the data are in
+     */
+    private void reportStartup() {
+        if (startupReported || !startup.isMarked("first frame", "data loaded")) {
+            return;
+        }
+        startupReported = true;
+        System.out.println(startup.report());
+        if (STARTUP_EXIT) {
+            closePersistence();
+            Platform.exit();
+        }
     }
 
     /**
      * Displays modpack selection screen
      */
     public void showMainScreen() {
-        mainLayout = new VBox(10);
-        mainLayout.setPadding(new Insets(20));
+        if (mainLayout == null) {
+            mainLayout = buildMainScreen();
+        }
+        // Results may be stale after edits on the modpack screen
+        runSearch();
+        show(mainLayout);
+    }
+
+    /**
+     * Builds the modpack selection screen, bound to the live modpack list
+     */
+    private VBox buildMainScreen() {
+        VBox layout = new VBox(10);
+        layout.setPadding(new Insets(20));
         
         // Title
         Label titleLabel = new Label("Minecraft Modpack Manager");
@@ -82,22 +424,34 @@ public class ModpackGUI extends ModpackManager {
         Label selectLabel = new Label("Select or Create a Modpack:");
         selectLabel.setStyle("-fx-font-size: 16px;");
         
-        ListView<String> modpackListView = new ListView<>();
-        ObservableList<String> modpackItems = FXCollections.observableArrayList(getModpacks());
-        modpackListView.setItems(modpackItems);
+        ListView<String> modpackListView = new ListView<>(model.getModpacks());
         modpackListView.setPrefHeight(200);
         
-        // Refresh the list to show loaded data
-        refreshModpackList(modpackItems);
+        // Search across all modpacks and mods; double-click a result to open its modpack
+        searchField = new TextField();
+        searchField.setPromptText("Search modpacks and mods");
+        searchResultsView = new ListView<>();
+        searchResultsView.setPrefHeight(150);
+        searchResultsView.setVisible(false);
+        searchResultsView.setManaged(false);
+        searchResultsView.setOnMouseClicked(e -> {
+            ModpackSearchIndex.SearchResult result = searchResultsView.getSelectionModel().getSelectedItem();
+            if (e.getClickCount() == 2 && result != null) {
+                openSearchResult(result);
+            }
+        });
+        debounce(searchField, this::runSearch);
         
         // Buttons
         HBox buttonBox = new HBox(10);
         Button selectButton = new Button("Select Modpack");
         Button createButton = new Button("Create New Modpack");
         Button deleteButton = new Button("Delete Modpack");
+        Button importButton = new Button("Import Modpack");
+        Button compareButton = new Button("Compare Modpacks");
         Button saveButton = new Button("Manual Save");
         
-        buttonBox.getChildren().addAll(selectButton, createButton, deleteButton, saveButton);
+        buttonBox.getChildren().addAll(selectButton, createButton, deleteButton, importButton, compareButton, saveButton);
         
         // Event handlers
         selectButton.setOnAction(e -> {
@@ -109,17 +463,259 @@ public class ModpackGUI extends ModpackManager {
             }
         });
         
-        createButton.setOnAction(e -> createNewModpack(modpackItems));
-        deleteButton.setOnAction(e -> deleteSelectedModpack(modpackListView, modpackItems));
+        createButton.setOnAction(e -> createNewModpack());
+        importButton.setOnAction(e -> importModpack());
+        compareButton.setOnAction(e -> showComparisonScreen());
+        deleteButton.setOnAction(e -> deleteSelectedModpack(modpackListView));
         saveButton.setOnAction(e -> {
-            saveToJson();
+            if (!loaded) {
+                statusLabel.setText(getLastLoadReport());
+                return;
+            }
+            if (isJournalEnabled()) {
+                compactJournal();
+            } else {
+                persistence.flush();
+            }
             statusLabel.setText("Data manually saved");
         });
         
-        mainLayout.getChildren().addAll(titleLabel, selectLabel, modpackListView, buttonBox, statusLabel);
+        layout.getChildren().addAll(titleLabel, searchField, searchResultsView,
+                selectLabel, modpackListView, buttonBox);
+        return layout;
+    }
+
+    /**
+     * Shows the comparison screen for the current modpacks
+     * The diff of the chosen pair is shown at once; the most similar pairs fill in once the
+     * overlap matrix has been computed in the background.
+     */
+    public void showComparisonScreen() {
+        if (comparisonLayout == null) {
+            comparisonLayout = buildComparisonScreen();
+        }
+        comparison = compareModpacks();
+        List<String> modpacks = comparison.getModpacks();
+        compareFirst.getItems().setAll(modpacks);
+        compareSecond.getItems().setAll(modpacks);
+        if (modpacks.size() >= 2) {
+            compareFirst.setValue(modpacks.get(0));
+            compareSecond.setValue(modpacks.get(1));
+        }
+        showDiff();
+        similarPairsView.getItems().clear();
+        show(comparisonLayout);
+        
+        ModpackComparison current = comparison;
+        if (modpacks.size() < 2) {
+            similarLabel.setText("Add at least two modpacks to compare them.");
+            return;
+        }
+        similarLabel.setText("Comparing " + modpacks.size() + " modpacks...");
+        Task<List<ModpackComparison.Overlap>> task = new Task<List<ModpackComparison.Overlap>>() {
+            @Override
+            protected List<ModpackComparison.Overlap> call() {
+                ModpackComparison.OverlapMatrix matrix = current.overlapMatrix();
+                updateMessage(modpacks.size() + " modpacks, " + current.getDistinctModCount()
+                        + " distinct mods, compared in " + matrix.getMillis() + " ms. Most similar pairs:");
+                return matrix.topPairs(100);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            // A newer comparison may have replaced this one meanwhile
+            if (comparison == current) {
+                similarLabel.setText(task.getMessage());
+                similarPairsView.getItems().setAll(task.getValue());
+            }
+        });
+        task.setOnFailed(e -> similarLabel.setText("Error comparing modpacks: " + task.getException().getMessage()));
+        Thread thread = new Thread(task, "modpack-compare");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Builds the comparison screen: a diff of two chosen modpacks above the most similar pairs
+     */
+    private VBox buildComparisonScreen() {
+        VBox layout = new VBox(10);
+        layout.setPadding(new Insets(20));
+        
+        Label titleLabel = new Label("Compare Modpacks");
+        titleLabel.setStyle("-fx-font-size: 20px; -fx-font-weight: bold;");
+        
+        compareFirst = new ComboBox<>();
+        compareSecond = new ComboBox<>();
+        compareFirst.setOnAction(e -> showDiff());
+        compareSecond.setOnAction(e -> showDiff());
+        HBox pickers = new HBox(10, compareFirst, new Label("vs"), compareSecond);
+        pickers.setAlignment(Pos.CENTER_LEFT);
+        diffLabel = new Label();
+        
+        onlyInFirstView = new ListView<>();
+        onlyInSecondView = new ListView<>();
+        sharedModsView = new ListView<>();
+        HBox diffBox = new HBox(10);
+        for (ListView<String> view : List.of(onlyInFirstView, sharedModsView, onlyInSecondView)) {
+            view.setPrefHeight(180);
+        }
+        diffBox.getChildren().addAll(new VBox(5, new Label("Only in first:"), onlyInFirstView),
+                new VBox(5, new Label("In both:"), sharedModsView),
+                new VBox(5, new Label("Only in second:"), onlyInSecondView));
+        
+        // Double-click a pair to diff it above
+        similarLabel = new Label();
+        similarPairsView = new ListView<>();
+        similarPairsView.setPrefHeight(150);
+        similarPairsView.setOnMouseClicked(e -> {
+            ModpackComparison.Overlap pair = similarPairsView.getSelectionModel().getSelectedItem();
+            if (e.getClickCount() == 2 && pair != null) {
+                compareFirst.setValue(pair.getFirst());
+                compareSecond.setValue(pair.getSecond());
+            }
+        });
         
-        Scene scene = new Scene(mainLayout);
-        primaryStage.setScene(scene);
+        Button backButton = new Button("Back to Main");
+        backButton.setOnAction(e -> showMainScreen());
+        
+        layout.getChildren().addAll(titleLabel, pickers, diffLabel, diffBox, similarLabel, similarPairsView, backButton);
+        return layout;
+    }
+
+    /**
+     * Lists the differences between the two chosen modpacks
+     */
+    private void showDiff() {
+        String first = compareFirst.getValue();
+        String second = compareSecond.getValue();
+        if (comparison == null || first == null || second == null) {
+            diffLabel.setText("Choose two modpacks.");
+            onlyInFirstView.getItems().clear();
+            sharedModsView.getItems().clear();
+            onlyInSecondView.getItems().clear();
+            return;
+        }
+        ModpackComparison.Diff diff = comparison.diff(first, second);
+        diffLabel.setText(diff + " (" + Math.round(diff.getJaccard() * 100) + "% similar)");
+        onlyInFirstView.getItems().setAll(diff.getOnlyInFirst());
+        sharedModsView.getItems().setAll(diff.getShared());
+        onlyInSecondView.getItems().setAll(diff.getOnlyInSecond());
+    }
+
+    /**
+     * Runs an action once the field's text has stopped changing for a moment
+     */
+    private void debounce(TextField field, Runnable action) {
+        PauseTransition pause = new PauseTransition(Duration.millis(SEARCH_DELAY_MILLIS));
+        pause.setOnFinished(e -> action.run());
+        field.textProperty().addListener((observable, oldText, newText) -> pause.playFromStart());
+    }
+
+    /**
+     * Shows the search results for the search box text, or hides them when it is empty
+     */
+    private void runSearch() {
+        if (searchField == null) {
+            return;
+        }
+        boolean searching = !searchField.getText().trim().isEmpty();
+        searchResultsView.getItems().setAll(searchIndex.search(searchField.getText()));
+        searchResultsView.setVisible(searching);
+        searchResultsView.setManaged(searching);
+    }
+
+    /**
+     * Opens the modpack a search result refers to, or the first modpack containing the mod
+     */
+    private void openSearchResult(ModpackSearchIndex.SearchResult result) {
+        if (result.isModpack()) {
+            selectModpack(result.getName());
+        } else if (!result.getModpacks().isEmpty()) {
+            selectModpack(result.getModpacks().get(0));
+        }
+    }
+
+    /**
+     * Reverts the last change and saves
+     */
+    private void undoLastChange() {
+        String description = undo();
+        if (description != null) {
+            autoSave();
+            statusLabel.setText("Undid: " + description);
+            refreshCurrentScreen();
+        }
+    }
+
+    /**
+     * Repeats the last undone change and saves
+     */
+    private void redoLastChange() {
+        String description = redo();
+        if (description != null) {
+            autoSave();
+            statusLabel.setText("Redid: " + description);
+            refreshCurrentScreen();
+        }
+    }
+
+    /**
+     * Enables the undo and redo buttons when there is something to undo or redo
+     */
+    private void updateUndoButtons() {
+        ModpackHistory history = getHistory();
+        undoButton.setDisable(!history.canUndo());
+        redoButton.setDisable(!history.canRedo());
+        undoButton.setTooltip(history.canUndo() ? new Tooltip("Undo " + history.getUndoDescription() + " (Ctrl+Z)") : null);
+        redoButton.setTooltip(history.canRedo() ? new Tooltip("Redo " + history.getRedoDescription() + " (Ctrl+Y)") : null);
+    }
+
+    /**
+     * Re-shows the modpack screen after an undo, or leaves it if its modpack is gone
+     */
+    private void refreshCurrentScreen() {
+        if (scene == null || modpackLayout == null || scene.getRoot() != modpackLayout) {
+            return;
+        }
+        if (getModpacksView().contains(currentModpack)) {
+            // A modpack that was deleted and restored has a new mod list
+            showModpackScreen(currentModpack);
+        } else {
+            showMainScreen();
+        }
+    }
+
+    /**
+     * Adds a label to the status bar with the latest save and load times, refreshed every second
+     */
+    private void addMetricsOverlay() {
+        Label overlay = new Label();
+        overlay.setStyle("-fx-text-fill: gray; -fx-font-family: monospace;");
+        statusBar.getChildren().add(overlay);
+        Timeline refresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> {
+            LatencyHistogram save = getMetrics().getLatency(ModpackMetrics.Operation.SAVE);
+            LatencyHistogram load = getMetrics().getLatency(ModpackMetrics.Operation.LOAD);
+            overlay.setText("save " + (save.getCount() == 0 ? "-" : ModpackMetrics.formatNanos(save.getLastNanos()))
+                    + " | load " + (load.getCount() == 0 ? "-" : ModpackMetrics.formatNanos(load.getLastNanos()))
+                    + " | " + getModpackCount() + " packs, " + getTotalModCount() + " mods");
+        }));
+        refresh.setCycleCount(Timeline.INDEFINITE);
+        refresh.play();
+    }
+
+    /**
+     * Shows a screen in the window's single scene, moving the shared status bar into it
+     */
+    private void show(VBox layout) {
+        if (statusBar.getParent() != layout) {
+            layout.getChildren().add(statusBar);
+        }
+        if (scene == null) {
+            scene = new Scene(layout);
+            primaryStage.setScene(scene);
+        } else {
+            scene.setRoot(layout);
+        }
     }
 
     /**
@@ -139,39 +735,277 @@ public class ModpackGUI extends ModpackManager {
      * @param modpack the name of the modpack to manage
      */
     public void showModpackScreen(String modpack) {
-        VBox modpackLayout = new VBox(10);
-        modpackLayout.setPadding(new Insets(20));
+        // In sharded storage a modpack's mods are read when it is first opened
+        loadModpack(modpack);
+        if (modpackLayout == null) {
+            modpackLayout = buildModpackScreen();
+        }
+        modpackTitleLabel.setText("Managing: " + modpack);
+        visibleMods = new FilteredList<>(model.getMods(modpack));
+        modFilterField.clear();
+        modListView.setItems(visibleMods);
+        updateChangesButton();
+        show(modpackLayout);
+    }
+
+    /**
+     * Builds the mod management screen; its list is pointed at a modpack when shown
+     */
+    private VBox buildModpackScreen() {
+        VBox layout = new VBox(10);
+        layout.setPadding(new Insets(20));
         
         // Title
-        Label titleLabel = new Label("Managing: " + modpack);
-        titleLabel.setStyle("-fx-font-size: 20px; -fx-font-weight: bold;");
+        modpackTitleLabel = new Label();
+        modpackTitleLabel.setStyle("-fx-font-size: 20px; -fx-font-weight: bold;");
         
         // Mod list
         Label modListLabel = new Label("Current Mods:");
-        modListView = new ListView<>();
-        ObservableList<String> modItems = FXCollections.observableArrayList(getModpackMods(modpack));
-        modListView.setItems(modItems);
         modListView.setPrefHeight(300);
+        modFilterField = new TextField();
+        modFilterField.setPromptText("Filter mods");
+        debounce(modFilterField, () -> {
+            String filter = modFilterField.getText().trim().toLowerCase();
+            visibleMods.setPredicate(filter.isEmpty() ? null : mod -> mod.toLowerCase().contains(filter));
+        });
         
         // Buttons
         HBox buttonBox = new HBox(10);
         Button addButton = new Button("Add Mod");
         Button removeButton = new Button("Remove Mod");
-        Button changesButton = new Button("View Changes");
+        scanButton = new Button("Scan Mods Folder");
+        changesButton = new Button("View Changes");
+        Button checkJarsButton = new Button("Check Jars");
+        Button dependenciesButton = new Button("Check Dependencies");
+        Button exportButton = new Button("Export Pack");
         Button backButton = new Button("Back to Main");
         
-        buttonBox.getChildren().addAll(addButton, removeButton, changesButton, backButton);
+        buttonBox.getChildren().addAll(addButton, removeButton, scanButton, changesButton, checkJarsButton, dependenciesButton, exportButton, backButton);
+        
+        // Scan progress, shown while a scan runs
+        scanProgress = new ProgressBar();
+        scanProgress.setPrefWidth(300);
+        Button cancelScanButton = new Button("Cancel");
+        cancelScanButton.setOnAction(e -> {
+            if (scanTask != null) {
+                scanTask.cancel();
+            }
+        });
+        scanBox = new HBox(10, scanProgress, cancelScanButton);
+        scanBox.setVisible(false);
+        scanBox.setManaged(false);
         
         // Event handlers
-        addButton.setOnAction(e -> addModButton(modItems));
-        removeButton.setOnAction(e -> removeModButton(modItems));
+        addButton.setOnAction(e -> addModToCurrent());
+        removeButton.setOnAction(e -> removeSelectedMod());
+        scanButton.setOnAction(e -> scanModsFolder());
         changesButton.setOnAction(e -> showChangesDialog());
+        checkJarsButton.setOnAction(e -> checkJars());
+        dependenciesButton.setOnAction(e -> showDependencyReport());
+        exportButton.setOnAction(e -> exportModpackArchive());
         backButton.setOnAction(e -> showMainScreen());
         
-        modpackLayout.getChildren().addAll(titleLabel, modListLabel, modListView, buttonBox, statusLabel);
+        layout.getChildren().addAll(modpackTitleLabel, modListLabel, modFilterField, modListView, buttonBox, scanBox);
+        return layout;
+    }
+
+    /**
+     * Scans a mods folder in the background and adds every mod found to the current modpack
+     */
+    private void scanModsFolder() {
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("Select the mods folder for " + currentModpack);
+        File folder = chooser.showDialog(primaryStage);
+        if (folder == null) {
+            return;
+        }
+        String modpack = currentModpack;
+        
+        Task<ModJarScanner.ScanResult> task = new Task<ModJarScanner.ScanResult>() {
+            @Override
+            protected ModJarScanner.ScanResult call() throws Exception {
+                ModJarScanner.ScanResult result = jarScanner.scan(folder.toPath(),
+                        (done, total) -> updateProgress(done, total), this::isCancelled);
+                jarScanner.saveCache();
+                if (!result.isCancelled()) {
+                    // Hash the jars now so later checks have a baseline to compare against
+                    updateProgress(-1, 1);
+                    Map<String, Path> files = new LinkedHashMap<>();
+                    for (ModInfo mod : result.getMods()) {
+                        files.put(mod.getDisplayName(), folder.toPath().resolve(mod.getFileName()));
+                    }
+                    hashService.trackPack(modpack, files);
+                    hashService.save();
+                }
+                return result;
+            }
+        };
+        scanTask = task;
+        scanProgress.progressProperty().bind(task.progressProperty());
+        setScanning(true);
+        statusLabel.setText("Scanning " + folder.getName() + "...");
         
-        Scene scene = new Scene(modpackLayout);
-        primaryStage.setScene(scene);
+        task.setOnSucceeded(e -> {
+            setScanning(false);
+            ModJarScanner.ScanResult result = task.getValue();
+            if (result.isCancelled()) {
+                statusLabel.setText("Scan cancelled");
+                return;
+            }
+            // Deliver the whole folder to listeners as one change
+            List<String> names = new ArrayList<>();
+            for (ModInfo mod : result.getMods()) {
+                names.add(mod.getDisplayName());
+            }
+            getDependencyResolver().addModInfo(result.getMods());
+            addModsToModpack(modpack, names);
+            autoSave();
+            if (watcher != null) {
+                try {
+                    watcher.watchModsFolder(modpack, hashService.getTrackedJars(modpack));
+                } catch (IOException ex) {
+                    System.err.println("Error watching mods folder: " + ex.getMessage());
+                }
+            }
+            statusLabel.setText(result.toString());
+            if (!result.getFailures().isEmpty()) {
+                showAlert("Some jars could not be read:\n" + String.join("\n", result.getFailures()));
+            }
+        });
+        task.setOnCancelled(e -> {
+            setScanning(false);
+            statusLabel.setText("Scan cancelled");
+        });
+        task.setOnFailed(e -> {
+            setScanning(false);
+            statusLabel.setText("Error scanning mods folder: " + task.getException().getMessage());
+        });
+        
+        Thread thread = new Thread(task, "mod-scan");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Rehashes the current modpack's jars in the background and reports changed and duplicate ones
+     */
+    private void checkJars() {
+        String modpack = currentModpack;
+        if (!hashService.getTrackedModpacks().contains(modpack)) {
+            showAlert("Scan a mods folder for " + modpack + " first.");
+            return;
+        }
+        Task<String> task = new Task<String>() {
+            @Override
+            protected String call() {
+                StringBuilder report = new StringBuilder();
+                List<ModHashService.JarRef> changed = hashService.findChanged(modpack);
+                report.append(changed.isEmpty() ? "No jars changed since the scan." : "Changed or missing jars:");
+                for (ModHashService.JarRef jar : changed) {
+                    report.append("\n  ").append(jar.getMod()).append(" (").append(jar.getPath().getFileName()).append(')');
+                }
+                for (ModHashService.DuplicateGroup group : hashService.findDuplicates()) {
+                    boolean involved = false;
+                    for (ModHashService.JarRef jar : group.getJars()) {
+                        involved |= jar.getModpack().equals(modpack);
+                    }
+                    if (involved) {
+                        report.append("\n\nSame jar: ").append(group);
+                    }
+                }
+                hashService.save();
+                return report.toString();
+            }
+        };
+        statusLabel.setText("Checking jars of " + modpack + "...");
+        task.setOnSucceeded(e -> {
+            statusLabel.setText("Checked jars of " + modpack);
+            Alert dialog = new Alert(Alert.AlertType.INFORMATION);
+            dialog.setTitle("Jar Check");
+            dialog.setHeaderText("Jars of " + modpack);
+            dialog.setContentText(task.getValue());
+            dialog.showAndWait();
+        });
+        task.setOnFailed(e -> statusLabel.setText("Error checking jars: " + task.getException().getMessage()));
+        Thread thread = new Thread(task, "jar-check");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Writes the current modpack, its scanned jars and the config folders beside them to an archive
+     */
+    private void exportModpackArchive() {
+        String modpack = currentModpack;
+        Map<String, Path> jars = hashService.getTrackedJars(modpack);
+        if (jars.isEmpty()) {
+            showAlert("Scan a mods folder for " + modpack + " first.");
+            return;
+        }
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export " + modpack);
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Modrinth pack", "*.mrpack"),
+                new FileChooser.ExtensionFilter("Zip archive", "*.zip"));
+        chooser.setInitialFileName(modpack + ".mrpack");
+        File file = chooser.showSaveDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        List<String> mods = getModpackModsSnapshot(modpack);
+        List<Path> folders = ModpackExporter.findConfigFolders(jars.values().iterator().next().getParent());
+        
+        Task<ModpackExporter.ExportResult> task = new Task<ModpackExporter.ExportResult>() {
+            @Override
+            protected ModpackExporter.ExportResult call() throws Exception {
+                return new ModpackExporter().export(modpack, mods, jars, folders, file.toPath());
+            }
+        };
+        statusLabel.setText("Exporting " + modpack + "...");
+        task.setOnSucceeded(e -> {
+            ModpackExporter.ExportResult result = task.getValue();
+            statusLabel.setText(result.toString());
+            if (!result.getMissing().isEmpty()) {
+                showAlert("These mods have no jar and were left out:\n" + String.join("\n", result.getMissing()));
+            }
+        });
+        task.setOnFailed(e -> statusLabel.setText("Error exporting modpack: " + task.getException().getMessage()));
+        Thread thread = new Thread(task, "modpack-archive");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Shows missing and conflicting dependencies of the current modpack, and its load order
+     */
+    private void showDependencyReport() {
+        DependencyReport report = checkModpackMods(currentModpack);
+        Alert dialog = new Alert(report.isSatisfied() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+        dialog.setTitle("Dependencies");
+        dialog.setHeaderText("Dependencies of " + currentModpack);
+        StringBuilder content = new StringBuilder();
+        if (report.isSatisfied()) {
+            content.append("All dependencies are satisfied.");
+        }
+        for (DependencyReport.Problem problem : report.getProblems()) {
+            content.append(problem).append("\n");
+        }
+        dialog.setContentText(content.toString());
+        
+        TextArea loadOrder = new TextArea(String.join("\n", report.getLoadOrder()));
+        loadOrder.setEditable(false);
+        dialog.getDialogPane().setExpandableContent(new VBox(5, new Label("Load order:"), loadOrder));
+        dialog.showAndWait();
+    }
+    
+    private void setScanning(boolean scanning) {
+        scanBox.setVisible(scanning);
+        scanBox.setManaged(scanning);
+        scanButton.setDisable(scanning);
+        if (!scanning) {
+            scanProgress.progressProperty().unbind();
+            scanTask = null;
+        }
     }
 
     /**
@@ -181,7 +1015,7 @@ public class ModpackGUI extends ModpackManager {
         // This method is called from showModpackScreen with the mod list
     }
     
-    private void addModButton(ObservableList<String> modItems) {
+    private void addModToCurrent() {
         TextInputDialog dialog = new TextInputDialog();
         dialog.setTitle("Add Mod");
         dialog.setHeaderText("Add a new mod to " + currentModpack);
@@ -191,7 +1025,6 @@ public class ModpackGUI extends ModpackManager {
         result.ifPresent(modName -> {
             if (!modName.trim().isEmpty()) {
                 addModToModpack(currentModpack, modName);
-                modItems.add(modName);
                 autoSave(); // Auto-save after adding mod
                 statusLabel.setText("Added mod: " + modName);
             }
@@ -205,7 +1038,7 @@ public class ModpackGUI extends ModpackManager {
         // This method is called from showModpackScreen with the mod list
     }
     
-    private void removeModButton(ObservableList<String> modItems) {
+    private void removeSelectedMod() {
         String selectedMod = modListView.getSelectionModel().getSelectedItem();
         if (selectedMod != null) {
             Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
@@ -216,7 +1049,6 @@ public class ModpackGUI extends ModpackManager {
             Optional<ButtonType> result = confirmDialog.showAndWait();
             if (result.isPresent() && result.get() == ButtonType.OK) {
                 removeModFromModpack(currentModpack, selectedMod);
-                modItems.remove(selectedMod);
                 autoSave(); // Auto-save after removing mod
                 statusLabel.setText("Removed mod: " + selectedMod);
             }
@@ -233,7 +1065,7 @@ public class ModpackGUI extends ModpackManager {
     }
 
     /**
-     * Displays log of all changes
+     * Displays the changes made to the current modpack
      */
     public void showChangesDialog() {
         Alert dialog = new Alert(Alert.AlertType.INFORMATION);
@@ -242,8 +1074,8 @@ public class ModpackGUI extends ModpackManager {
         
         StringBuilder content = new StringBuilder();
         
-        List<String> added = getAddedMods();
-        List<String> removed = getRemovedMods();
+        List<String> added = getAddedMods(currentModpack);
+        List<String> removed = getRemovedMods(currentModpack);
         
         if (added.isEmpty() && removed.isEmpty()) {
             content.append("No changes recorded.");
@@ -268,11 +1100,65 @@ public class ModpackGUI extends ModpackManager {
         dialog.showAndWait();
         
         // Clear changes after viewing
-        clearChanges();
+        clearChanges(currentModpack);
+        updateChangesButton();
+    }
+
+    /**
+     * Shows how many changes the current modpack has on the View Changes button
+     */
+    private void updateChangesButton() {
+        if (changesButton == null) {
+            return;
+        }
+        int count = getAddedMods(currentModpack).size() + getRemovedMods(currentModpack).size();
+        changesButton.setText(count == 0 ? "View Changes" : "View Changes (" + count + ")");
     }
     
     // Helper methods
-    private void createNewModpack(ObservableList<String> modpackItems) {
+    /**
+     * Reads a CurseForge or Modrinth export in the background and adds it as a modpack
+     */
+    private void importModpack() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Modpack");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Modpack exports", "*.mrpack", "*.zip", "*.json"),
+                new FileChooser.ExtensionFilter("All files", "*.*"));
+        File file = chooser.showOpenDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        
+        Task<ModpackImporter.Manifest> task = new Task<ModpackImporter.Manifest>() {
+            @Override
+            protected ModpackImporter.Manifest call() throws Exception {
+                return ModpackImporter.read(file.toPath());
+            }
+        };
+        statusLabel.setText("Reading " + file.getName() + "...");
+        task.setOnSucceeded(e -> {
+            ModpackImporter.Manifest manifest = task.getValue();
+            TextInputDialog dialog = new TextInputDialog(manifest.getName());
+            dialog.setTitle("Import Modpack");
+            dialog.setHeaderText(manifest.toString());
+            dialog.setContentText("Modpack name:");
+            Optional<String> name = dialog.showAndWait();
+            if (!name.isPresent() || name.get().trim().isEmpty()) {
+                statusLabel.setText("Import cancelled");
+                return;
+            }
+            int added = manifest.addTo(this, name.get());
+            autoSave(); // One save for the whole import
+            statusLabel.setText("Imported " + added + " mods into " + name.get());
+        });
+        task.setOnFailed(e -> statusLabel.setText("Error importing modpack: " + task.getException().getMessage()));
+        Thread thread = new Thread(task, "modpack-import");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void createNewModpack() {
         TextInputDialog dialog = new TextInputDialog();
         dialog.setTitle("Create Modpack");
         dialog.setHeaderText("Create a new modpack");
@@ -282,14 +1168,13 @@ public class ModpackGUI extends ModpackManager {
         result.ifPresent(name -> {
             if (!name.trim().isEmpty()) {
                 addModpack(name);
-                modpackItems.add(name);
                 autoSave(); // Auto-save after creating modpack
                 statusLabel.setText("Created modpack: " + name);
             }
         });
     }
     
-    private void deleteSelectedModpack(ListView<String> listView, ObservableList<String> items) {
+    private void deleteSelectedModpack(ListView<String> listView) {
         String selected = listView.getSelectionModel().getSelectedItem();
         if (selected != null) {
             Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
@@ -300,7 +1185,6 @@ public class ModpackGUI extends ModpackManager {
             Optional<ButtonType> result = confirmDialog.showAndWait();
             if (result.isPresent() && result.get() == ButtonType.OK) {
                 removeModpack(selected);
-                items.remove(selected);
                 autoSave(); // Auto-save after deleting modpack
                 statusLabel.setText("Deleted modpack: " + selected);
             }
@@ -309,11 +1193,6 @@ public class ModpackGUI extends ModpackManager {
         }
     }
     
-    private void refreshModpackList(ObservableList<String> items) {
-        items.clear();
-        items.addAll(getModpacks());
-    }
-    
     private void showAlert(String message) {
         Alert alert = new Alert(Alert.AlertType.WARNING);
         alert.setTitle("Warning");
@@ -0,0 +1,351 @@
+package com.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Undo and redo history of a ModpackManager
+ * Each step keeps only what changed, taken from the manager's change events: the mods added or
+ * removed, and for a deleted modpack the set of mods it held, which is shared with the removed
+ * data rather than copied. Closing a step is constant time and the history grows with the size
+ * of each change, never with the size of the data.
+ *
+ * A step is one change, or everything changed inside one outermost beginChanges()/endChanges()
+ * batch, so an import or a folder scan is undone as a whole. Undoing applies the inverse changes
+ * through the manager's normal methods, so listeners, the journal and saving see them like any
+ * other edit; a restored mod goes to the end of its modpack, and a restored modpack back to its
+ * place in the list. Bulk replacements such as loads cannot be undone and clear the history.
+ * Changes made through ModpackManager.withoutUndo, such as those the watcher reads from disk,
+ * are not recorded.
+ * Use from the thread that edits the data.
+ */
+public final class ModpackHistory implements ModpackListener {
+
+    /**
+     * Kinds of recorded change
+     */
+    private enum Kind {
+        ADD_MODPACK,
+        REMOVE_MODPACK,
+        ADD_MODS,
+        REMOVE_MODS
+    }
+
+    /**
+     * Where a step goes when it closes
+     */
+    private enum Mode {
+        // A new edit: undoable, and it invalidates the redo steps
+        EDIT,
+        // The inverse of an undone step, to redo later
+        UNDO,
+        // A redone step, undoable again without touching the other redo steps
+        REDO
+    }
+
+    // Manager whose changes are recorded and reverted
+    private final ModpackManager manager;
+    // Most steps kept for undo; older ones are dropped
+    private final int limit;
+    // Most recent step first
+    private final Deque<Step> undoSteps = new ArrayDeque<>();
+    private final Deque<Step> redoSteps = new ArrayDeque<>();
+    // Changes of the step being recorded
+    private final List<Change> pending = new ArrayList<>();
+    private Mode mode = Mode.EDIT;
+    // Depth of ignore calls; changes made inside them are not recorded
+    private int ignoring;
+    // Called whenever the undo or redo steps change
+    private Runnable onChange;
+
+    /**
+     * Creates a history and subscribes it to the manager's changes
+     * @param manager the manager to record
+     * @param limit most steps to keep for undo
+     */
+    ModpackHistory(ModpackManager manager, int limit) {
+        this.manager = manager;
+        this.limit = Math.max(1, limit);
+        manager.addModpackListener(this);
+    }
+
+    /**
+     * Sets a callback run whenever steps are added, undone, redone or cleared
+     * @param onChange the callback, or null
+     */
+    public void setOnChange(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    /**
+     * Returns whether there is a step to undo
+     * @return true if undo would change something
+     */
+    public boolean canUndo() {
+        return !undoSteps.isEmpty();
+    }
+
+    /**
+     * Returns whether there is a step to redo
+     * @return true if redo would change something
+     */
+    public boolean canRedo() {
+        return !redoSteps.isEmpty();
+    }
+
+    /**
+     * Describes the step undo would revert
+     * @return description such as "remove JEI from Skyblock", or null if there is none
+     */
+    public String getUndoDescription() {
+        Step step = undoSteps.peek();
+        return step != null ? step.describe() : null;
+    }
+
+    /**
+     * Describes the step redo would repeat
+     * @return description of the originally made change, or null if there is none
+     */
+    public String getRedoDescription() {
+        Step step = redoSteps.peek();
+        return step != null ? step.describe() : null;
+    }
+
+    /**
+     * Returns the number of steps that can be undone
+     * @return undo step count
+     */
+    public int getUndoCount() {
+        return undoSteps.size();
+    }
+
+    /**
+     * Reverts the most recent step
+     * @return description of the reverted step, or null if there was nothing to undo
+     */
+    public String undo() {
+        return revert(undoSteps, Mode.UNDO);
+    }
+
+    /**
+     * Repeats the most recently undone step
+     * @return description of the repeated step, or null if there was nothing to redo
+     */
+    public String redo() {
+        return revert(redoSteps, Mode.REDO);
+    }
+
+    /**
+     * Forgets all steps
+     */
+    public void clear() {
+        pending.clear();
+        undoSteps.clear();
+        redoSteps.clear();
+        changed();
+    }
+
+    /**
+     * Applies the inverse of the top step of a stack as one batch
+     * The batch's own events form the opposite step, so redoing an undo replays exactly what the
+     * undo changed.
+     */
+    private String revert(Deque<Step> steps, Mode revertMode) {
+        if (manager.isBatching()) {
+            throw new IllegalStateException("Cannot undo or redo inside a batch");
+        }
+        Step step = steps.poll();
+        if (step == null) {
+            return null;
+        }
+        // The description travels with the step so a redo reads like the original edit
+        String description = step.describe();
+        mode = revertMode;
+        try {
+            manager.batch(() -> {
+                for (int i = step.changes.length - 1; i >= 0; i--) {
+                    step.changes[i].revert(manager);
+                }
+            });
+        } finally {
+            mode = Mode.EDIT;
+            // Only present if the batch changed nothing and so never closed a step
+            pending.clear();
+        }
+        Step opposite = revertMode == Mode.UNDO ? redoSteps.peek() : undoSteps.peek();
+        if (opposite != null && opposite.description == null) {
+            opposite.description = description;
+        }
+        changed();
+        return description;
+    }
+
+    /**
+     * Closes the step being recorded; called by the manager when its outermost batch ends
+     */
+    void endStep() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Step step = new Step(pending.toArray(new Change[0]));
+        pending.clear();
+        if (mode == Mode.UNDO) {
+            redoSteps.push(step);
+        } else {
+            undoSteps.push(step);
+            if (undoSteps.size() > limit) {
+                undoSteps.removeLast();
+            }
+            if (mode == Mode.EDIT) {
+                redoSteps.clear();
+            }
+        }
+        if (mode == Mode.EDIT) {
+            changed();
+        }
+    }
+
+    /**
+     * Runs changes without recording them; called by ModpackManager.withoutUndo
+     */
+    void ignore(Runnable changes) {
+        ignoring++;
+        try {
+            changes.run();
+        } finally {
+            ignoring--;
+        }
+    }
+
+    private void record(Change change) {
+        if (ignoring > 0) {
+            return;
+        }
+        pending.add(change);
+        if (!manager.isBatching()) {
+            endStep();
+        }
+    }
+
+    private void changed() {
+        Runnable callback = onChange;
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    @Override
+    public void modpackAdded(String modpack) {
+        record(new Change(Kind.ADD_MODPACK, modpack, -1, Collections.emptySet()));
+    }
+
+    @Override
+    public void modpackRemoved(String modpack, int index, Set<String> mods) {
+        // The removed set is no longer part of the data, so it is kept as is
+        record(new Change(Kind.REMOVE_MODPACK, modpack, index, mods));
+    }
+
+    @Override
+    public void modAdded(String modpack, String mod) {
+        record(new Change(Kind.ADD_MODS, modpack, -1, Collections.singletonList(mod)));
+    }
+
+    @Override
+    public void modRemoved(String modpack, String mod) {
+        record(new Change(Kind.REMOVE_MODS, modpack, -1, Collections.singletonList(mod)));
+    }
+
+    @Override
+    public void modsAdded(String modpack, List<String> mods) {
+        record(new Change(Kind.ADD_MODS, modpack, -1, mods));
+    }
+
+    @Override
+    public void modsRemoved(String modpack, List<String> mods) {
+        record(new Change(Kind.REMOVE_MODS, modpack, -1, mods));
+    }
+
+    @Override
+    public void dataReplaced() {
+        clear();
+    }
+
+    /**
+     * One recorded change
+     */
+    private static final class Change {
+        private final Kind kind;
+        private final String modpack;
+        // Position a removed modpack had in the modpack list, -1 if unlisted or another kind
+        private final int index;
+        // Mods added or removed; for a removed modpack, all the mods it held
+        private final Collection<String> mods;
+
+        private Change(Kind kind, String modpack, int index, Collection<String> mods) {
+            this.kind = kind;
+            this.modpack = modpack;
+            this.index = index;
+            this.mods = mods;
+        }
+
+        private void revert(ModpackManager manager) {
+            switch (kind) {
+                case ADD_MODPACK:
+                    manager.removeModpack(modpack);
+                    break;
+                case REMOVE_MODPACK:
+                    manager.addModpack(modpack, index);
+                    if (!mods.isEmpty()) {
+                        manager.addModsToModpack(modpack, mods);
+                    }
+                    break;
+                case ADD_MODS:
+                    manager.removeModsFromModpack(modpack, mods);
+                    break;
+                default:
+                    manager.addModsToModpack(modpack, mods);
+                    break;
+            }
+        }
+
+        private String describe() {
+            String what = mods.size() == 1 ? mods.iterator().next() : mods.size() + " mods";
+            switch (kind) {
+                case ADD_MODPACK:
+                    return "create " + modpack;
+                case REMOVE_MODPACK:
+                    return "delete " + modpack;
+                case ADD_MODS:
+                    return "add " + what + " to " + modpack;
+                default:
+                    return "remove " + what + " from " + modpack;
+            }
+        }
+    }
+
+    /**
+     * Changes undone or redone together
+     */
+    private static final class Step {
+        private final Change[] changes;
+        // Description of the edit this step came from, once it has been undone or redone
+        private String description;
+
+        private Step(Change[] changes) {
+            this.changes = changes;
+        }
+
+        private String describe() {
+            if (description != null) {
+                return description;
+            }
+            String first = changes[0].describe();
+            return changes.length == 1 ? first : first + " and " + (changes.length - 1) + " more changes";
+        }
+    }
+}
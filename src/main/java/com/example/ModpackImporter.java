@@ -0,0 +1,373 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the mod list of CurseForge and Modrinth modpack exports
+ * Accepts a CurseForge manifest.json or export zip, and a Modrinth .mrpack or its
+ * modrinth.index.json. Manifests are parsed with the streaming JsonReader, one file entry
+ * at a time, and archives are opened through their central directory, so only the manifest
+ * entry is ever read and pack size does not affect memory use.
+ *
+ * CurseForge manifests only identify mods by project ID, so their mods are named
+ * "curseforge:" followed by the ID. Modrinth mods are named after their jar file.
+ */
+public final class ModpackImporter {
+    // Manifest entry of a CurseForge export
+    private static final String CURSEFORGE_MANIFEST = "manifest.json";
+    // Manifest entry of a Modrinth .mrpack
+    private static final String MODRINTH_INDEX = "modrinth.index.json";
+    // Prefix of mod names read from CurseForge manifests
+    static final String CURSEFORGE_PREFIX = "curseforge:";
+
+    private ModpackImporter() {
+    }
+
+    /**
+     * Reads the manifest of a modpack export
+     * @param file a .mrpack, .zip or manifest .json file
+     * @return the pack's name, versions and mods
+     * @throws IOException if the file cannot be read or holds no known manifest
+     */
+    public static Manifest read(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        Manifest manifest;
+        if (fileName.toLowerCase(Locale.ROOT).endsWith(".json")) {
+            try (JsonReader json = open(Files.newInputStream(file))) {
+                manifest = fileName.equals(MODRINTH_INDEX) ? readModrinth(json) : readCurseForge(json);
+            }
+        } else {
+            try (ZipFile zip = new ZipFile(file.toFile(), StandardCharsets.UTF_8)) {
+                ZipEntry index = zip.getEntry(MODRINTH_INDEX);
+                if (index != null) {
+                    try (JsonReader json = open(zip.getInputStream(index))) {
+                        manifest = readModrinth(json);
+                    }
+                    addOverrideJars(zip, manifest, "overrides/mods/", "client-overrides/mods/", "server-overrides/mods/");
+                } else {
+                    ZipEntry entry = zip.getEntry(CURSEFORGE_MANIFEST);
+                    if (entry == null) {
+                        throw new IOException("No " + CURSEFORGE_MANIFEST + " or " + MODRINTH_INDEX + " in " + fileName);
+                    }
+                    try (JsonReader json = open(zip.getInputStream(entry))) {
+                        manifest = readCurseForge(json);
+                    }
+                    addOverrideJars(zip, manifest, manifest.overrides + "/mods/");
+                }
+            }
+        }
+        if (manifest.name == null || manifest.name.trim().isEmpty()) {
+            int dot = fileName.lastIndexOf('.');
+            manifest.name = dot > 0 ? fileName.substring(0, dot) : fileName;
+        }
+        return manifest;
+    }
+
+    private static JsonReader open(InputStream in) {
+        return new JsonReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Reads a CurseForge manifest.json
+     */
+    static Manifest readCurseForge(JsonReader json) throws IOException {
+        Manifest manifest = new Manifest("CurseForge");
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":
+                    manifest.name = json.nextStringOrSkip();
+                    break;
+                case "version":
+                    manifest.version = json.nextStringOrSkip();
+                    break;
+                case "overrides":
+                    String overrides = json.nextStringOrSkip();
+                    if (overrides != null) {
+                        manifest.overrides = overrides;
+                    }
+                    break;
+                case "minecraft":
+                    readCurseForgeGame(json, manifest);
+                    break;
+                case "files":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        readCurseForgeFile(json, manifest);
+                    }
+                    json.endArray();
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+        return manifest;
+    }
+
+    /**
+     * Reads the "minecraft" object: game version and mod loaders, the primary one preferred
+     */
+    private static void readCurseForgeGame(JsonReader json, Manifest manifest) throws IOException {
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("version")) {
+                manifest.minecraftVersion = json.nextStringOrSkip();
+            } else if (name.equals("modLoaders") && json.peek() == JsonReader.Token.BEGIN_ARRAY) {
+                json.beginArray();
+                while (json.hasNext()) {
+                    String id = null;
+                    boolean primary = false;
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        String field = json.nextName();
+                        if (field.equals("id")) {
+                            id = json.nextStringOrSkip();
+                        } else if (field.equals("primary")) {
+                            primary = "true".equals(json.nextStringOrSkip());
+                        } else {
+                            json.skipValue();
+                        }
+                    }
+                    json.endObject();
+                    if (id != null && (primary || manifest.loader == null)) {
+                        manifest.loader = id;
+                    }
+                }
+                json.endArray();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    private static void readCurseForgeFile(JsonReader json, Manifest manifest) throws IOException {
+        String projectId = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            if (json.nextName().equals("projectID")) {
+                projectId = json.nextStringOrSkip();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        if (projectId != null) {
+            manifest.mods.add(CURSEFORGE_PREFIX + projectId);
+        } else {
+            manifest.skipped++;
+        }
+    }
+
+    /**
+     * Reads a Modrinth modrinth.index.json
+     * Files outside mods/, such as resource packs and shaders, are counted as skipped
+     */
+    static Manifest readModrinth(JsonReader json) throws IOException {
+        Manifest manifest = new Manifest("Modrinth");
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":
+                    manifest.name = json.nextStringOrSkip();
+                    break;
+                case "versionId":
+                    manifest.version = json.nextStringOrSkip();
+                    break;
+                case "dependencies":
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        String dependency = json.nextName();
+                        String version = json.nextStringOrSkip();
+                        if (dependency.equals("minecraft")) {
+                            manifest.minecraftVersion = version;
+                        } else if (manifest.loader == null) {
+                            manifest.loader = dependency + " " + version;
+                        }
+                    }
+                    json.endObject();
+                    break;
+                case "files":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        readModrinthFile(json, manifest);
+                    }
+                    json.endArray();
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+        return manifest;
+    }
+
+    private static void readModrinthFile(JsonReader json, Manifest manifest) throws IOException {
+        String path = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            if (json.nextName().equals("path")) {
+                path = json.nextStringOrSkip();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        if (path != null && path.startsWith("mods/") && path.indexOf('/', 5) < 0) {
+            manifest.mods.add(jarName(path.substring(5)));
+        } else {
+            manifest.skipped++;
+        }
+    }
+
+    /**
+     * Adds the jars bundled directly in the archive, listed from its central directory
+     */
+    private static void addOverrideJars(ZipFile zip, Manifest manifest, String... folders) {
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            String name = entries.nextElement().getName();
+            for (String folder : folders) {
+                if (name.startsWith(folder) && name.endsWith(".jar") && name.indexOf('/', folder.length()) < 0) {
+                    manifest.mods.add(jarName(name.substring(folder.length())));
+                }
+            }
+        }
+    }
+
+    private static String jarName(String fileName) {
+        return fileName.endsWith(".jar") ? fileName.substring(0, fileName.length() - 4) : fileName;
+    }
+
+    /**
+     * The parts of a modpack manifest the manager keeps
+     */
+    public static final class Manifest {
+        // "CurseForge" or "Modrinth"
+        private final String format;
+        // Mod names, without duplicates, in manifest order
+        private final Set<String> mods = new LinkedHashSet<>();
+        private String name;
+        private String version;
+        private String minecraftVersion;
+        private String loader;
+        // Entries that are not mods or could not be identified
+        private int skipped;
+        // Folder of bundled files in a CurseForge export
+        private String overrides = "overrides";
+
+        Manifest(String format) {
+            this.format = format;
+        }
+
+        /**
+         * Returns the platform the pack was exported from
+         * @return "CurseForge" or "Modrinth"
+         */
+        public String getFormat() {
+            return format;
+        }
+
+        /**
+         * Returns the pack name, or the file name if the manifest has none
+         * @return pack name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the pack version
+         * @return version text, or null if not given
+         */
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the Minecraft version the pack targets
+         * @return version text, or null if not given
+         */
+        public String getMinecraftVersion() {
+            return minecraftVersion;
+        }
+
+        /**
+         * Returns the mod loader the pack uses
+         * @return loader and version, or null if not given
+         */
+        public String getLoader() {
+            return loader;
+        }
+
+        /**
+         * Returns the mod names found
+         * @return unmodifiable list of mod names, in manifest order
+         */
+        public List<String> getMods() {
+            return Collections.unmodifiableList(new ArrayList<>(mods));
+        }
+
+        /**
+         * Returns the number of manifest entries that were not mods
+         * @return count of skipped entries
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Adds the pack and its mods to a manager as one batch
+         * Change listeners receive one batch, so callers can save once afterwards
+         * @param manager the manager to add to
+         * @param modpack the name to give the modpack; an existing pack of that name is extended
+         * @return number of mods that were not already in the modpack
+         */
+        public int addTo(ModpackManager manager, String modpack) {
+            int[] added = new int[1];
+            manager.batch(() -> {
+                manager.addModpack(modpack);
+                added[0] = manager.addModsToModpack(modpack, mods);
+            });
+            return added[0];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(format).append(" pack ").append(name);
+            if (version != null) {
+                text.append(' ').append(version);
+            }
+            if (minecraftVersion != null) {
+                text.append(" for Minecraft ").append(minecraftVersion);
+            }
+            if (loader != null) {
+                text.append(" (").append(loader).append(')');
+            }
+            text.append(", ").append(mods.size()).append(" mods");
+            if (skipped > 0) {
+                text.append(", ").append(skipped).append(" other files");
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of modpack changes
+ * Each mutation is written as one small record instead of rewriting the whole data file.
+ * The data file acts as the last snapshot; loading replays the journal on top of it.
+ *
+ * Record format, one per line: crc32-hex TAB op TAB modpack [TAB mod]
+ * A modpack added at a position has that position in place of the mod.
+ * A last record without its newline or with a bad checksum is treated as a torn write and ignored.
+ */
+public class ModpackJournal {
+    // Record operation codes
+    static final String ADD_MODPACK = "+P";
+    static final String INSERT_MODPACK = "+I";
+    static final String REMOVE_MODPACK = "-P";
+    static final String ADD_MOD = "+M";
+    static final String REMOVE_MOD = "-M";
+
+    // Snapshot file the journal is folded into
+    private final Path dataFile;
+    // Journal receiving new records
+    private final Path journalFile;
+    // Journal segment being folded into a new snapshot
+    private final Path compactingFile;
+    // Journal size in bytes that triggers compaction
+    private final long compactThreshold;
+    // Background thread that writes compacted snapshots
+    private final ExecutorService compactor;
+
+    // Open journal channel, or null before the first append
+    private FileChannel channel;
+    // Current journal size in bytes
+    private long size;
+    // In-flight compaction, or null
+    private Future<?> compaction;
+
+    /**
+     * Creates a journal stored next to the given data file
+     * @param dataFile the snapshot data file
+     * @param compactThreshold journal size in bytes that triggers compaction
+     */
+    public ModpackJournal(Path dataFile, long compactThreshold) {
+        this.dataFile = dataFile;
+        this.journalFile = dataFile.resolveSibling(dataFile.getFileName() + ".journal");
+        this.compactingFile = dataFile.resolveSibling(dataFile.getFileName() + ".journal.old");
+        this.compactThreshold = compactThreshold;
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "modpack-journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns true if there is anything to replay
+     * @return true if a journal file exists
+     */
+    public boolean exists() {
+        return Files.exists(journalFile) || Files.exists(compactingFile);
+    }
+
+    /**
+     * Replays journal records onto a manager
+     * Records from an interrupted compaction are replayed first; replaying a record twice is harmless
+     * @param manager the manager to apply records to
+     * @return number of records replayed
+     * @throws IOException if the journal cannot be read
+     */
+    public int replay(ModpackManager manager) throws IOException {
+        int records = 0;
+        if (Files.exists(compactingFile)) {
+            records += replayFile(compactingFile, manager)[1];
+        }
+        if (Files.exists(journalFile)) {
+            long[] result = replayFile(journalFile, manager);
+            records += result[1];
+            // Drop a torn tail so new records start on a clean line
+            if (result[0] < Files.size(journalFile)) {
+                try (FileChannel truncate = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+                    truncate.truncate(result[0]);
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Replays one journal file
+     * @return valid length in bytes and number of records replayed
+     */
+    private long[] replayFile(Path file, ModpackManager manager) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        int start = 0;
+        int records = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            String line = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+            if (!applyRecord(line, manager)) {
+                break;
+            }
+            records++;
+            start = i + 1;
+        }
+        return new long[] {start, records};
+    }
+
+    /**
+     * Verifies and applies a single record
+     * @return false if the record is damaged
+     */
+    private boolean applyRecord(String line, ModpackManager manager) {
+        int tab = line.indexOf('\t');
+        if (tab < 0) {
+            return false;
+        }
+        String body = line.substring(tab + 1);
+        if (!line.substring(0, tab).equals(checksum(body))) {
+            return false;
+        }
+        String[] fields = body.split("\t", -1);
+        if (fields.length < 2) {
+            return false;
+        }
+        String modpack = TabFields.unescape(fields[1]);
+        String mod = fields.length > 2 ? TabFields.unescape(fields[2]) : null;
+        switch (fields[0]) {
+            case ADD_MODPACK:
+                manager.addModpack(modpack);
+                return true;
+            case INSERT_MODPACK:
+                try {
+                    manager.addModpack(modpack, Integer.parseInt(mod));
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+                return true;
+            case REMOVE_MODPACK:
+                manager.removeModpack(modpack);
+                return true;
+            case ADD_MOD:
+                manager.addModToModpack(modpack, mod);
+                return true;
+            case REMOVE_MOD:
+                manager.removeModFromModpack(modpack, mod);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Appends one record to the journal
+     * @param op the operation code
+     * @param modpack the modpack the operation applies to
+     * @param mod the mod, or null for modpack operations
+     * @throws IOException if the record cannot be written
+     */
+    public void append(String op, String modpack, String mod) throws IOException {
+        StringBuilder body = new StringBuilder(op).append('\t').append(TabFields.escape(modpack));
+        if (mod != null) {
+            body.append('\t').append(TabFields.escape(mod));
+        }
+        String record = checksum(body.toString()) + "\t" + body + "\n";
+        ByteBuffer buffer = ByteBuffer.wrap(record.getBytes(StandardCharsets.UTF_8));
+
+        if (channel == null) {
+            channel = FileChannel.open(journalFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            size = channel.size();
+        }
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer);
+        }
+    }
+
+    /**
+     * Returns true once the journal has grown past the compaction threshold
+     * and no compaction is already running, or once it has grown to twice the threshold
+     * so that writers wait for a slow compaction instead of growing the journal without bound
+     * @return true if compact should be called
+     */
+    public boolean needsCompaction() {
+        return size >= compactThreshold && (!isCompacting() || size >= 2 * compactThreshold);
+    }
+
+    /**
+     * Returns true while a compacted snapshot is being written
+     * @return true if a compaction is in flight
+     */
+    public boolean isCompacting() {
+        return compaction != null && !compaction.isDone();
+    }
+
+    /**
+     * Folds the journal into a new snapshot
+     * The current journal is set aside and a fresh one started; the snapshot is then
+     * written in the background and the old journal deleted once the snapshot is in place
+     * @param snapshot the data as of the last journal record
+     * @throws IOException if the journal cannot be rotated
+     */
+    public void compact(ModpackSnapshot snapshot) throws IOException {
+        awaitCompaction();
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        if (Files.exists(journalFile)) {
+            if (Files.exists(compactingFile)) {
+                // Left over from an interrupted compaction; keep its records ahead of ours
+                Files.write(compactingFile, Files.readAllBytes(journalFile), StandardOpenOption.APPEND);
+                Files.delete(journalFile);
+            } else {
+                Files.move(journalFile, compactingFile);
+            }
+        }
+        size = 0;
+        compaction = compactor.submit(() -> {
+            try {
+                snapshot.writeTo(dataFile);
+                Files.deleteIfExists(compactingFile);
+            } catch (IOException e) {
+                System.err.println("Error compacting journal: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Forces written records to disk
+     * @throws IOException if the journal cannot be synced
+     */
+    public void sync() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Waits for any compaction, syncs and closes the journal
+     * @throws IOException if the journal cannot be closed
+     */
+    public void close() throws IOException {
+        awaitCompaction();
+        compactor.shutdown();
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Blocks until the in-flight compaction, if any, has finished
+     */
+    private void awaitCompaction() {
+        if (compaction == null) {
+            return;
+        }
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Error compacting journal: " + e.getCause().getMessage());
+        }
+        compaction = null;
+    }
+
+    private static String checksum(String body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+}
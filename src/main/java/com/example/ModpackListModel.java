@@ -0,0 +1,157 @@
+package com.example;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Observable view of a ModpackManager for JavaFX controls
+ * Keeps one list of modpacks and one list per opened modpack, and updates them
+ * in place from the manager's change events instead of rebuilding them.
+ * Reopening a modpack reuses its list, so no names are copied on navigation.
+ * Controls should treat the lists as read-only and change data through the manager.
+ */
+public class ModpackListModel implements ModpackListener {
+    // The manager this model mirrors
+    private final ModpackManager manager;
+    // Modpack names, in manager order
+    private final ObservableList<String> modpacks;
+    // Mod lists for modpacks that have been opened, created on first use
+    private final Map<String, ObservableList<String>> modLists = new HashMap<>();
+
+    /**
+     * Creates a model and subscribes it to the manager's changes
+     * @param manager the manager to mirror
+     */
+    public ModpackListModel(ModpackManager manager) {
+        this.manager = manager;
+        this.modpacks = FXCollections.observableArrayList(manager.getModpacksView());
+        manager.addModpackListener(this);
+    }
+
+    /**
+     * Returns the live modpack list
+     * @return observable list of modpack names
+     */
+    public ObservableList<String> getModpacks() {
+        return modpacks;
+    }
+
+    /**
+     * Returns the live mod list of a modpack, reading it from the manager on first use
+     * @param modpack the name of the modpack
+     * @return observable list of the modpack's mods
+     */
+    public ObservableList<String> getMods(String modpack) {
+        return modLists.computeIfAbsent(modpack,
+                name -> FXCollections.observableArrayList(manager.getModpackModsView(name)));
+    }
+
+    /**
+     * Stops mirroring the manager
+     */
+    public void dispose() {
+        manager.removeModpackListener(this);
+    }
+
+    @Override
+    public void modpackAdded(String modpack) {
+        onFxThread(() -> modpacks.add(modpack));
+    }
+
+    @Override
+    public void modpackInserted(String modpack, int index) {
+        onFxThread(() -> modpacks.add(Math.min(index, modpacks.size()), modpack));
+    }
+
+    @Override
+    public void modpackRemoved(String modpack, Set<String> removedMods) {
+        onFxThread(() -> {
+            modpacks.remove(modpack);
+            ObservableList<String> mods = modLists.remove(modpack);
+            if (mods != null) {
+                // Clear it in case a control is still showing it
+                mods.clear();
+            }
+        });
+    }
+
+    @Override
+    public void modAdded(String modpack, String mod) {
+        onFxThread(() -> {
+            ObservableList<String> mods = modLists.get(modpack);
+            if (mods != null) {
+                mods.add(mod);
+            }
+        });
+    }
+
+    @Override
+    public void modRemoved(String modpack, String mod) {
+        onFxThread(() -> {
+            ObservableList<String> mods = modLists.get(modpack);
+            if (mods != null) {
+                mods.remove(mod);
+            }
+        });
+    }
+
+    @Override
+    public void modsAdded(String modpack, List<String> added) {
+        onFxThread(() -> {
+            ObservableList<String> mods = modLists.get(modpack);
+            if (mods != null) {
+                mods.addAll(added);
+            }
+        });
+    }
+
+    @Override
+    public void modsRemoved(String modpack, List<String> removed) {
+        onFxThread(() -> {
+            ObservableList<String> mods = modLists.get(modpack);
+            if (mods != null) {
+                mods.removeAll(new HashSet<>(removed));
+            }
+        });
+    }
+
+    @Override
+    public void dataReplaced() {
+        onFxThread(this::reload);
+    }
+
+    /**
+     * Re-reads everything after a bulk change, keeping the existing list instances
+     */
+    private void reload() {
+        modpacks.setAll(manager.getModpacksView());
+        Iterator<Map.Entry<String, ObservableList<String>>> entries = modLists.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, ObservableList<String>> entry = entries.next();
+            Set<String> mods = manager.getModpackModsView(entry.getKey());
+            entry.getValue().setAll(mods);
+            if (mods.isEmpty() && !modpacks.contains(entry.getKey())) {
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * Applies an update on the JavaFX thread, where the lists' listeners expect it
+     */
+    private void onFxThread(Runnable update) {
+        if (Platform.isFxApplicationThread()) {
+            update.run();
+        } else {
+            Platform.runLater(update);
+        }
+    }
+}
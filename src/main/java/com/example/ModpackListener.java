@@ -0,0 +1,103 @@
+package com.example;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Receives fine-grained notifications when modpack data changes
+ * Methods are called on the thread that made the change, after the change is applied
+ */
+public interface ModpackListener {
+
+    /**
+     * Called when a modpack is added to the end of the modpack list
+     * @param modpack the name of the new modpack
+     */
+    default void modpackAdded(String modpack) {
+    }
+
+    /**
+     * Called when a modpack is added at a position before the end of the modpack list
+     * By default it is passed to modpackAdded, for listeners that do not keep the order
+     * @param modpack the name of the new modpack
+     * @param index its position in the modpack list
+     */
+    default void modpackInserted(String modpack, int index) {
+        modpackAdded(modpack);
+    }
+
+    /**
+     * Called when a modpack and its mods are removed
+     * @param modpack the name of the removed modpack
+     * @param mods the mods the modpack held, no longer part of the data
+     */
+    default void modpackRemoved(String modpack, Set<String> mods) {
+    }
+
+    /**
+     * Called when a modpack and its mods are removed, with the position the modpack had
+     * By default it is passed to modpackRemoved without the position
+     * @param modpack the name of the removed modpack
+     * @param index its former position in the modpack list, or -1 if it was not listed
+     * @param mods the mods the modpack held, no longer part of the data
+     */
+    default void modpackRemoved(String modpack, int index, Set<String> mods) {
+        modpackRemoved(modpack, mods);
+    }
+
+    /**
+     * Called when a mod is appended to a modpack
+     * @param modpack the name of the modpack
+     * @param mod the name of the added mod
+     */
+    default void modAdded(String modpack, String mod) {
+    }
+
+    /**
+     * Called when a mod is removed from a modpack
+     * @param modpack the name of the modpack
+     * @param mod the name of the removed mod
+     */
+    default void modRemoved(String modpack, String mod) {
+    }
+
+    /**
+     * Called when several mods are appended to a modpack in one operation
+     * By default each mod is passed to modAdded in turn
+     * @param modpack the name of the modpack
+     * @param mods the added mods, in order
+     */
+    default void modsAdded(String modpack, List<String> mods) {
+        for (String mod : mods) {
+            modAdded(modpack, mod);
+        }
+    }
+
+    /**
+     * Called when several mods are removed from a modpack in one operation
+     * By default each mod is passed to modRemoved in turn
+     * @param modpack the name of the modpack
+     * @param mods the removed mods
+     */
+    default void modsRemoved(String modpack, List<String> mods) {
+        for (String mod : mods) {
+            modRemoved(modpack, mod);
+        }
+    }
+
+    /**
+     * Called when a modpack in sharded storage has its mods read for the first time
+     * The mods were part of the data all along, so this is not a change; listeners that skipped
+     * the modpack while it was unloaded should take its mods in now
+     * @param modpack the name of the modpack
+     * @param mods the modpack's mods, in order
+     */
+    default void modpackLoaded(String modpack, Set<String> mods) {
+    }
+
+    /**
+     * Called after a bulk change such as a load, after which any cached state should be re-read
+     */
+    default void dataReplaced() {
+    }
+}
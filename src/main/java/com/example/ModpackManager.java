@@ -1,54 +1,444 @@
 package com.example;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Core data management for modpacks and their mods
- *     public void saveToJson() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(DATA_FILE))) {
-            // Save modpacks
-            writer.println("MODPACKS:");
-            for (String modpack : modpacks) {
-                writer.println(modpack);
-            }
-            
-            // Save modpack-mod mappings
-            writer.println("MODPACK_MODS:");
-            for (Map.Entry<String, List<String>> entry : modpackMods.entrySet()) {
-                writer.println(entry.getKey() + ":");
-                for (String mod : entry.getValue()) {
-                    writer.println("  " + mod);
-                }
-            }pdate to inherit change tracking functionality
+ * Extends AbstractModpackManager for change events and tracking, and adds the journal,
+ * sharded storage and undo on top of single-threaded data
  */
-public class ModpackManager extends ModpackUpdate {
-    // List of all modpack names
-    private final List<String> modpacks;
-    // Maps modpack name to its mods
-    private final Map<String, List<String>> modpackMods;
+public class ModpackManager extends AbstractModpackManager {
+    // All modpack names, in insertion order
+    private final Set<String> modpacks;
+    // Maps modpack name to its mods, each set in insertion order
+    private final Map<String, ModIdSet> modpackMods;
+    // Interned mod names; the sets above hold their IDs
+    private ModRegistry registry = new ModRegistry();
     
-    private static final String DATA_FILE = "modpack_data.txt";
+    // Change journal when journal storage is enabled, otherwise null
+    private ModpackJournal journal;
+    // True while journal records are being replayed, so they are not journaled again
+    private boolean replaying;
+    // Number of modpack-mod entries
+    private int totalMods;
+    // Undo and redo steps when undo is enabled, otherwise null
+    private ModpackHistory history;
+    // Per-modpack files when sharded storage is enabled, otherwise null
+    private ModpackShardStore shards;
+    // Modpacks in sharded storage whose mods have not been read yet
+    private final Set<String> unloaded = new HashSet<>();
+    // Mods removed everywhere while modpacks were unread; removed from those as they are read
+    private final Set<String> removedWhileUnloaded = new HashSet<>();
+
+    // Read-only view of the modpack names
+    private final Set<String> modpacksView;
+    // Views and snapshots of each modpack's mods, created on first read
+    private final Map<String, PackView> packViews = new HashMap<>();
+    // Cached read results, dropped whenever the data they describe changes
+    private List<String> modpacksSnapshot;
+    private String summary;
+    private ModpackSnapshot cachedSnapshot;
 
     /**
      * Constructor initializes empty collections for modpack management
      */
     public ModpackManager() {
         super();
-        this.modpacks = new ArrayList<>();
+        this.modpacks = new LinkedHashSet<>();
+        this.modpacksView = Collections.unmodifiableSet(modpacks);
         this.modpackMods = new HashMap<>();
     }
 
+    /**
+     * Switches to journal storage
+     * Every change is appended to a journal next to the data file instead of rewriting it,
+     * and the journal is folded into the data file in the background once it grows past the threshold.
+     * Call before loadFromJson so the existing journal is replayed.
+     * @param compactThreshold journal size in bytes that triggers compaction
+     */
+    public void enableJournal(long compactThreshold) {
+        if (shards != null) {
+            throw new IllegalStateException("Sharded storage is enabled");
+        }
+        if (journal == null) {
+            journal = new ModpackJournal(getDataFile(), compactThreshold);
+        }
+    }
+
+    /**
+     * Switches to sharded storage
+     * Each modpack is kept in its own file in a folder next to the data file, and a save only
+     * rewrites the modpacks changed since the last one. Loading reads just the modpack list; each
+     * modpack's mods are read the first time they are needed. An existing data file is moved into
+     * shards on the first load and kept beside it with a .migrated suffix.
+     * Call before loadFromJson.
+     */
+    public void enableShards() {
+        if (journal != null) {
+            throw new IllegalStateException("Journal storage is enabled");
+        }
+        if (shards == null) {
+            shards = new ModpackShardStore(this);
+        }
+    }
+
+    /**
+     * Returns true if modpacks are stored in separate files
+     * @return true when sharded storage is enabled
+     */
+    public boolean isShardStorageEnabled() {
+        return shards != null;
+    }
+
+    /**
+     * Returns whether a modpack's mods are in memory
+     * @param modpack the name of the modpack
+     * @return false only for a modpack in sharded storage that has not been read yet
+     */
+    public boolean isModpackLoaded(String modpack) {
+        return !unloaded.contains(modpack);
+    }
+
+    /**
+     * Returns the modpacks whose mods have not been read yet
+     * @return names of unloaded modpacks, empty unless sharded storage is enabled
+     */
+    public List<String> getUnloadedModpacks() {
+        List<String> names = new ArrayList<>();
+        for (String modpack : modpacks) {
+            if (unloaded.contains(modpack)) {
+                names.add(modpack);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Reads a modpack's mods now if they have not been read yet
+     * Methods that need a modpack's mods call this themselves.
+     * @param modpack the name of the modpack
+     */
+    public void loadModpack(String modpack) {
+        if (unloaded.isEmpty() || !unloaded.contains(modpack)) {
+            return;
+        }
+        Set<String> mods = null;
+        try {
+            mods = readModpack(modpack);
+        } catch (IOException e) {
+            System.err.println("Error loading modpack: " + e.getMessage());
+        }
+        installModpack(modpack, mods);
+    }
+
+    /**
+     * Reads a modpack's mods from its shard without touching the current data
+     * Safe to call from any thread; pass the result to installModpack on the owning thread.
+     * @param modpack the name of the modpack
+     * @return its mods, or null if it has no shard
+     * @throws IOException if the shard cannot be read
+     */
+    public Set<String> readModpack(String modpack) throws IOException {
+        if (shards == null) {
+            return null;
+        }
+        long start = getMetrics().start();
+        Set<String> mods = shards.readModpack(modpack);
+        getMetrics().record(ModpackMetrics.Operation.LOAD, start);
+        return mods;
+    }
+
+    /**
+     * Puts the mods read by readModpack in place, unless the modpack was loaded or removed meanwhile
+     * @param modpack the name of the modpack
+     * @param mods its mods, or null for none
+     */
+    public void installModpack(String modpack, Set<String> mods) {
+        if (!unloaded.remove(modpack)) {
+            return;
+        }
+        ModIdSet loaded = new ModIdSet(registry, modpack, mods != null ? mods : Collections.emptySet());
+        modpackMods.put(modpack, loaded);
+        totalMods += loaded.size();
+        // Even an empty modpack changes the summary, which listed it as not loaded
+        modsChanged(modpack);
+        fireModpackLoaded(modpack, Collections.unmodifiableSet(loaded));
+        if (!removedWhileUnloaded.isEmpty()) {
+            // Finish removeModEverywhere calls made before this modpack was read
+            List<String> removed = new ArrayList<>();
+            for (String mod : removedWhileUnloaded) {
+                if (loaded.contains(mod)) {
+                    removed.add(mod);
+                }
+            }
+            // Part of the earlier removal, so not a step of its own
+            withoutUndo(() -> removeModsFromModpack(modpack, removed));
+            if (unloaded.isEmpty()) {
+                removedWhileUnloaded.clear();
+            }
+        }
+    }
+
+    /**
+     * Reads every modpack that has not been read yet, for operations that need all the data
+     * In sharded storage this reads every remaining shard, so avoid it on the UI thread.
+     */
+    public void loadAllModpacks() {
+        if (!unloaded.isEmpty()) {
+            for (String modpack : getUnloadedModpacks()) {
+                loadModpack(modpack);
+            }
+        }
+    }
+
+    /**
+     * Starts recording changes so they can be undone and redone
+     * Each step stores only what it changed, so recording costs constant time per change.
+     * @param maxSteps most steps to keep; older ones are dropped
+     */
+    public void enableUndo(int maxSteps) {
+        if (history == null) {
+            history = new ModpackHistory(this, maxSteps);
+        }
+    }
+
+    /**
+     * Returns the undo history
+     * @return the history, or null if undo is not enabled
+     */
+    public ModpackHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Reverts the most recent change, or batch of changes
+     * @return description of what was reverted, or null if there was nothing to undo
+     */
+    public String undo() {
+        return history != null ? history.undo() : null;
+    }
+
+    /**
+     * Repeats the most recently undone change
+     * @return description of what was repeated, or null if there was nothing to redo
+     */
+    public String redo() {
+        return history != null ? history.redo() : null;
+    }
+
+    /**
+     * Makes changes that undo does not record, such as edits read back from disk
+     * Steps recorded before stay, and undoing them still applies their inverse to the data as it is then.
+     * @param changes the changes to make
+     */
+    public void withoutUndo(Runnable changes) {
+        if (history == null) {
+            changes.run();
+        } else {
+            history.ignore(changes);
+        }
+    }
+
+    @Override
+    protected void batchEnded() {
+        if (history != null) {
+            history.endStep();
+        }
+    }
+
+    /**
+     * Returns true if changes are stored in a journal
+     * @return true when journal storage is enabled
+     */
+    public boolean isJournalEnabled() {
+        return journal != null;
+    }
+
+    /**
+     * Folds the journal into the data file now
+     */
+    public void compactJournal() {
+        if (journal != null) {
+            try {
+                journal.compact(snapshot());
+            } catch (IOException e) {
+                System.err.println("Error compacting journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Syncs and closes the journal, waiting for any compaction to finish
+     */
+    public void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing journal: " + e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    /**
+     * Appends a change to the journal when journal storage is enabled
+     */
+    private void journal(String op, String modpack, String mod) {
+        if (journal == null || replaying) {
+            return;
+        }
+        try {
+            journal.append(op, modpack, mod);
+            if (journal.needsCompaction()) {
+                journal.compact(snapshot());
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the number of modpacks without copying the list
+     * @return modpack count
+     */
+    public int getModpackCount() {
+        return modpacks.size();
+    }
+
+    /**
+     * Returns the number of mods across all modpacks, counting a mod once per modpack that contains it
+     * In sharded storage, modpacks that have not been read yet are not counted.
+     * @return total mod count
+     */
+    public int getTotalModCount() {
+        return totalMods;
+    }
+
+    /**
+     * Returns the number of mods in a modpack without copying them
+     * @param modpack the name of the modpack
+     * @return mod count, 0 if the modpack does not exist
+     */
+    public int getModCount(String modpack) {
+        loadModpack(modpack);
+        Set<String> mods = modpackMods.get(modpack);
+        return mods != null ? mods.size() : 0;
+    }
+
+    /**
+     * Returns the number of different mods across all modpacks
+     * In sharded storage, modpacks that have not been read yet are not counted.
+     * @return distinct mod count
+     */
+    public int getDistinctModCount() {
+        return registry.size();
+    }
+
+    /**
+     * Returns a read-only view of the modpack names that follows later changes
+     * Nothing is copied; iterate it only on the thread that edits the data.
+     * @return unmodifiable live set of modpack names, in order
+     */
+    public Set<String> getModpacksView() {
+        return modpacksView;
+    }
+
+    /**
+     * Returns a read-only view of a modpack's mods that follows later changes
+     * Nothing is copied; iterate it only on the thread that edits the data.
+     * @param modpack the name of the modpack
+     * @return unmodifiable live set of mods in order, empty if the modpack does not exist
+     */
+    public Set<String> getModpackModsView(String modpack) {
+        PackView view = packView(modpack);
+        return view != null ? view.view : Collections.emptySet();
+    }
+
+    /**
+     * Returns an immutable copy of the modpack names
+     * The copy is made once and shared until the modpack list changes, so it can be kept or
+     * handed to another thread.
+     * @return immutable list of modpack names
+     */
+    public List<String> getModpacksSnapshot() {
+        if (modpacksSnapshot == null) {
+            modpacksSnapshot = List.copyOf(modpacks);
+        }
+        return modpacksSnapshot;
+    }
+
+    /**
+     * Returns an immutable copy of a modpack's mods
+     * The copy is made once and shared until the modpack changes, so it can be kept or
+     * handed to another thread.
+     * @param modpack the name of the modpack
+     * @return immutable list of mods, empty if the modpack does not exist
+     */
+    public List<String> getModpackModsSnapshot(String modpack) {
+        PackView view = packView(modpack);
+        if (view == null) {
+            return Collections.emptyList();
+        }
+        if (view.snapshot == null) {
+            view.snapshot = List.copyOf(view.mods);
+        }
+        return view.snapshot;
+    }
+
+    /**
+     * Returns the cached view of a modpack, replacing it if the modpack's set was replaced
+     */
+    private PackView packView(String modpack) {
+        loadModpack(modpack);
+        Set<String> mods = modpackMods.get(modpack);
+        if (mods == null) {
+            return null;
+        }
+        PackView view = packViews.get(modpack);
+        if (view == null || view.mods != mods) {
+            view = new PackView(mods);
+            packViews.put(modpack, view);
+        }
+        return view;
+    }
+
+    /**
+     * Drops cached results that depend on a modpack's mods
+     */
+    private void modsChanged(String modpack) {
+        summary = null;
+        cachedSnapshot = null;
+        PackView view = packViews.get(modpack);
+        if (view != null) {
+            view.snapshot = null;
+        }
+    }
+
+    /**
+     * Drops cached results that depend on the modpack list
+     */
+    private void modpacksChanged() {
+        modpacksSnapshot = null;
+        summary = null;
+        cachedSnapshot = null;
+    }
+
     /**
      * Returns all tracked modpacks
+     * Prefer getModpacksView or getModpacksSnapshot, which do not copy.
      * @return List of modpack names
      */
     public List<String> getModpacks() {
@@ -57,11 +447,24 @@ public class ModpackManager extends ModpackUpdate {
 
     /**
      * Returns mods in specific pack
+     * Prefer getModpackModsView or getModpackModsSnapshot, which do not copy.
      * @param modpack the name of the modpack
      * @return List of mod names in the specified modpack
      */
     public List<String> getModpackMods(String modpack) {
-        return new ArrayList<>(modpackMods.getOrDefault(modpack, new ArrayList<>()));
+        loadModpack(modpack);
+        Set<String> mods = modpackMods.get(modpack);
+        return mods != null ? new ArrayList<>(mods) : new ArrayList<>();
+    }
+
+    /**
+     * Returns the modpacks that contain a mod
+     * In sharded storage, modpacks that have not been read yet are not included.
+     * @param mod the name of the mod
+     * @return List of modpack names containing the mod
+     */
+    public List<String> getModpacksContaining(String mod) {
+        return registry.modpacks(registry.find(mod));
     }
 
     /**
@@ -70,8 +473,16 @@ public class ModpackManager extends ModpackUpdate {
      */
     public void setModpacks(List<String> modpacks) {
         if (modpacks != null) {
+            long start = getMetrics().start();
             this.modpacks.clear();
             this.modpacks.addAll(modpacks);
+            modpacksChanged();
+            // Bulk replacements have no journal record, so fold them straight into a snapshot
+            if (!replaying) {
+                compactJournal();
+            }
+            fireDataReplaced();
+            getMetrics().record(ModpackMetrics.Operation.REPLACE, start);
         }
     }
 
@@ -82,7 +493,16 @@ public class ModpackManager extends ModpackUpdate {
      */
     public void setModpackMods(String modpack, List<String> mods) {
         if (modpack != null && mods != null) {
-            this.modpackMods.put(modpack, new ArrayList<>(mods));
+            long start = getMetrics().start();
+            loadModpack(modpack);
+            ModIdSet replacement = new ModIdSet(registry, modpack, mods);
+            dropMods(modpack, this.modpackMods.put(modpack, replacement));
+            countMods(modpack, replacement.size());
+            if (!replaying) {
+                compactJournal();
+            }
+            fireDataReplaced();
+            getMetrics().record(ModpackMetrics.Operation.REPLACE, start);
         }
     }
 
@@ -91,9 +511,39 @@ public class ModpackManager extends ModpackUpdate {
      * @param name the name of the modpack to add
      */
     public void addModpack(String name) {
+        long start = getMetrics().start();
+        if (name != null && !name.trim().isEmpty() && modpacks.add(name)) {
+            modpacksChanged();
+            dropMods(name, modpackMods.put(name, new ModIdSet(registry, name)));
+            journal(ModpackJournal.ADD_MODPACK, name, null);
+            fireModpackAdded(name);
+            getMetrics().record(ModpackMetrics.Operation.ADD_MODPACK, start);
+        }
+    }
+
+    /**
+     * Adds new modpack to tracking at a position in the modpack list
+     * Undo uses this to put a deleted modpack back where it was. The list is rebuilt, so this
+     * takes time linear in the number of modpacks.
+     * @param name the name of the modpack to add
+     * @param index its position; -1, or the end of the list or beyond, appends it
+     */
+    public void addModpack(String name, int index) {
+        if (index < 0 || index >= modpacks.size()) {
+            addModpack(name);
+            return;
+        }
+        long start = getMetrics().start();
         if (name != null && !name.trim().isEmpty() && !modpacks.contains(name)) {
-            modpacks.add(name);
-            modpackMods.put(name, new ArrayList<>());
+            List<String> order = new ArrayList<>(modpacks);
+            order.add(index, name);
+            modpacks.clear();
+            modpacks.addAll(order);
+            modpacksChanged();
+            dropMods(name, modpackMods.put(name, new ModIdSet(registry, name)));
+            journal(ModpackJournal.INSERT_MODPACK, name, Integer.toString(index));
+            fireModpackInserted(name, index);
+            getMetrics().record(ModpackMetrics.Operation.ADD_MODPACK, start);
         }
     }
 
@@ -103,11 +553,41 @@ public class ModpackManager extends ModpackUpdate {
      */
     public void removeModpack(String name) {
         if (name != null) {
-            modpacks.remove(name);
-            modpackMods.remove(name);
+            long start = getMetrics().start();
+            // The removal event carries the mods, so they are read first
+            loadModpack(name);
+            int index = indexOf(name);
+            boolean listed = index >= 0 && modpacks.remove(name);
+            ModIdSet mods = modpackMods.remove(name);
+            packViews.remove(name);
+            modpacksChanged();
+            dropMods(name, mods);
+            journal(ModpackJournal.REMOVE_MODPACK, name, null);
+            clearChanges(name);
+            if (listed || mods != null) {
+                fireModpackRemoved(name, index, mods != null ? mods : Collections.emptySet());
+                getMetrics().record(ModpackMetrics.Operation.REMOVE_MODPACK, start);
+            }
         }
     }
 
+    /**
+     * Returns the position of a modpack in the modpack list, or -1 if it is not listed
+     */
+    private int indexOf(String name) {
+        if (!modpacks.contains(name)) {
+            return -1;
+        }
+        int index = 0;
+        for (String modpack : modpacks) {
+            if (modpack.equals(name)) {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
     /**
      * Adds a mod to a specific modpack
      * @param modpack the name of the modpack
@@ -115,10 +595,15 @@ public class ModpackManager extends ModpackUpdate {
      */
     public void addModToModpack(String modpack, String mod) {
         if (modpack != null && mod != null && !mod.trim().isEmpty()) {
-            List<String> mods = modpackMods.computeIfAbsent(modpack, k -> new ArrayList<>());
-            if (!mods.contains(mod)) {
-                mods.add(mod);
-                addMod(mod); // Track this change
+            long start = getMetrics().start();
+            loadModpack(modpack);
+            Set<String> mods = modpackMods.computeIfAbsent(modpack, k -> new ModIdSet(registry, k));
+            if (mods.add(mod)) {
+                countMods(modpack, 1);
+                journal(ModpackJournal.ADD_MOD, modpack, mod);
+                addMod(modpack, mod); // Track this change
+                fireModAdded(modpack, mod);
+                getMetrics().record(ModpackMetrics.Operation.ADD_MOD, start);
             }
         }
     }
@@ -130,96 +615,408 @@ public class ModpackManager extends ModpackUpdate {
      */
     public void removeModFromModpack(String modpack, String mod) {
         if (modpack != null && mod != null) {
-            List<String> mods = modpackMods.get(modpack);
+            long start = getMetrics().start();
+            loadModpack(modpack);
+            Set<String> mods = modpackMods.get(modpack);
             if (mods != null && mods.remove(mod)) {
-                removeMod(mod); // Track this change
+                countMods(modpack, -1);
+                journal(ModpackJournal.REMOVE_MOD, modpack, mod);
+                removeMod(modpack, mod); // Track this change
+                fireModRemoved(modpack, mod);
+                getMetrics().record(ModpackMetrics.Operation.REMOVE_MOD, start);
             }
         }
     }
 
+    /**
+     * Adds several mods to a modpack as one change
+     * Change listeners receive them as a single batch and modpack listeners as a single modsAdded event
+     * @param modpack the name of the modpack
+     * @param mods the names of the mods to add
+     * @return number of mods that were not already in the modpack
+     */
+    public int addModsToModpack(String modpack, Collection<String> mods) {
+        if (modpack == null || mods == null) {
+            return 0;
+        }
+        long start = getMetrics().start();
+        loadModpack(modpack);
+        List<String> added = new ArrayList<>();
+        beginChanges();
+        try {
+            Set<String> packMods = modpackMods.computeIfAbsent(modpack, k -> new ModIdSet(registry, k));
+            for (String mod : mods) {
+                if (mod != null && !mod.trim().isEmpty() && packMods.add(mod)) {
+                    countMods(modpack, 1);
+                    journal(ModpackJournal.ADD_MOD, modpack, mod);
+                    addMod(modpack, mod); // Track this change
+                    added.add(mod);
+                }
+            }
+        } finally {
+            endChanges();
+        }
+        if (!added.isEmpty()) {
+            fireModsAdded(modpack, added);
+            getMetrics().record(ModpackMetrics.Operation.ADD_MODS, start);
+        }
+        return added.size();
+    }
+
+    /**
+     * Removes several mods from a modpack as one change
+     * @param modpack the name of the modpack
+     * @param mods the names of the mods to remove
+     * @return number of mods that were in the modpack
+     */
+    public int removeModsFromModpack(String modpack, Collection<String> mods) {
+        if (modpack != null) {
+            loadModpack(modpack);
+        }
+        Set<String> packMods = modpack != null ? modpackMods.get(modpack) : null;
+        if (packMods == null || mods == null) {
+            return 0;
+        }
+        long start = getMetrics().start();
+        List<String> removed = new ArrayList<>();
+        beginChanges();
+        try {
+            for (String mod : mods) {
+                if (mod != null && packMods.remove(mod)) {
+                    countMods(modpack, -1);
+                    journal(ModpackJournal.REMOVE_MOD, modpack, mod);
+                    removeMod(modpack, mod); // Track this change
+                    removed.add(mod);
+                }
+            }
+        } finally {
+            endChanges();
+        }
+        if (!removed.isEmpty()) {
+            fireModsRemoved(modpack, removed);
+            getMetrics().record(ModpackMetrics.Operation.REMOVE_MODS, start);
+        }
+        return removed.size();
+    }
+
+    /**
+     * Removes a mod from every modpack that contains it
+     * In sharded storage, modpacks that have not been read yet are not read for this; the mod
+     * is removed from each of them when it is read.
+     * @param mod the name of the mod to remove
+     */
+    public void removeModEverywhere(String mod) {
+        if (mod != null) {
+            for (String modpack : getModpacksContaining(mod)) {
+                removeModFromModpack(modpack, mod);
+            }
+            if (!unloaded.isEmpty()) {
+                removedWhileUnloaded.add(mod);
+            }
+        }
+    }
+
+    /**
+     * Adjusts the entry count after mods were added to or removed from a modpack
+     */
+    private void countMods(String modpack, int delta) {
+        if (delta != 0) {
+            totalMods += delta;
+            modsChanged(modpack);
+        }
+    }
+
+    /**
+     * Stops counting a modpack's former mods once its set was removed or replaced
+     * The set keeps its contents for listeners and views that still hold it.
+     */
+    private void dropMods(String modpack, ModIdSet mods) {
+        if (mods != null) {
+            countMods(modpack, -mods.size());
+            mods.detach();
+        }
+    }
+
     /**
      * Saves data to text file
      */
     public void saveToJson() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(DATA_FILE))) {
-            // Save modpacks
-            writer.println("MODPACKS:");
-            for (String modpack : modpacks) {
-                writer.println(modpack);
-            }
-            
-            // Save modpack-mod mappings
-            writer.println("MODPACK_MODS:");
-            for (Map.Entry<String, List<String>> entry : modpackMods.entrySet()) {
-                writer.println(entry.getKey() + ":");
-                for (String mod : entry.getValue()) {
-                    writer.println("  " + mod);
-                }
+        long start = getMetrics().start();
+        if (journal != null) {
+            // Changes are already in the journal; just make sure they reach the disk
+            try {
+                journal.sync();
+            } catch (IOException e) {
+                System.err.println("Error saving data: " + e.getMessage());
             }
-        } catch (IOException e) {
-            System.err.println("Error saving data: " + e.getMessage());
+        } else if (shards != null) {
+            try {
+                shards.prepare(modpacks, modpackMods).write();
+            } catch (IOException e) {
+                System.err.println("Error saving data: " + e.getMessage());
+            }
+        } else {
+            try {
+                ModpackSnapshot.write(getDataFile(), modpacks, modpackMods);
+            } catch (IOException e) {
+                System.err.println("Error saving data: " + e.getMessage());
+            }
+        }
+        getMetrics().record(ModpackMetrics.Operation.SAVE, start);
+    }
+
+    /**
+     * Captures what a save has to write, so the write can run on another thread
+     * In sharded storage only the modpacks changed since the last save are copied;
+     * otherwise this is a snapshot of all data bound for the data file.
+     * @return the write to perform
+     */
+    public PersistenceScheduler.Write prepareSave() {
+        if (shards != null) {
+            return shards.prepare(modpacks, modpackMods);
         }
+        ModpackSnapshot snapshot = snapshot();
+        Path target = getDataFile();
+        return () -> snapshot.writeTo(target);
+    }
+
+    /**
+     * Takes an immutable copy of the current data
+     * The copy is shared by later calls until the data changes.
+     * @return snapshot of all modpacks and their mods
+     */
+    public ModpackSnapshot snapshot() {
+        loadAllModpacks();
+        if (cachedSnapshot == null) {
+            cachedSnapshot = new ModpackSnapshot(modpacks, modpackMods);
+        }
+        return cachedSnapshot;
     }
 
     /**
      * Loads data from text file
+     * A missing data file counts as empty data. One that exists but cannot be read leaves the
+     * current data in place, and saving then would replace the file, so callers should not.
+     * @return true if the data was loaded or there was none, false if it could not be read
+     */
+    public boolean loadFromJson() {
+        ModpackFileLoader.LoadResult result = null;
+        try {
+            result = readData();
+        } catch (IOException e) {
+            System.err.println("Error loading data: " + e.getMessage());
+        }
+        return installData(result);
+    }
+
+    /**
+     * Parses the data file, or in sharded storage the shard index, without touching the current data
+     * Safe to call from any thread, so the parse can run while the owning thread does other work;
+     * pass the result to installData on the owning thread to finish loading.
+     * @return the parsed data file, or null if there is none
+     * @throws IOException if the data file cannot be read
+     */
+    public ModpackFileLoader.LoadResult readData() throws IOException {
+        boolean sharded = shards != null && shards.hasIndex();
+        if (!sharded && !Files.exists(getDataFile())) {
+            return null;
+        }
+        long start = getMetrics().start();
+        ModpackFileLoader.LoadResult result = sharded ? shards.readIndex() : ModpackFileLoader.load(getDataFile());
+        getMetrics().record(ModpackMetrics.Operation.LOAD, start);
+        return result;
+    }
+
+    /**
+     * Replaces all data with a parsed data file and replays the journal on top of it
+     * @param result the output of readData, or null if there was no data file or it could not be read
+     * @return true if the data was installed or there was none, false if the data file exists but
+     *         could not be read; the current data and the journal are then left untouched
+     */
+    public boolean installData(ModpackFileLoader.LoadResult result) {
+        boolean hasJournal = journal != null && journal.exists();
+        if (result == null && (Files.exists(getDataFile()) || shards != null && shards.hasIndex())) {
+            // Clearing here would let the next save replace the unreadable file with nothing
+            setLastLoadReport("Could not read " + getDataFile().getFileName() + "; changes will not be saved");
+            return false;
+        }
+        if (result == null && !hasJournal) {
+            return true; // No existing data file found, start with empty data
+        }
+
+        long start = getMetrics().start();
+        if (result != null) {
+            install(result);
+        } else {
+            // Clear existing data before replaying
+            replaceData(Collections.emptySet(), Collections.emptyMap());
+        }
+        if (hasJournal) {
+            replayJournal();
+        }
+        if (shards != null && result != null) {
+            if (!result.getUnloadedModpacks().isEmpty() || shards.hasIndex()) {
+                // What was just read is what the shards hold
+                shards.markSaved();
+            } else {
+                migrateToShards();
+            }
+        }
+        if (history != null) {
+            // Loaded data is the starting point, not an edit to undo
+            history.clear();
+        }
+        getMetrics().record(ModpackMetrics.Operation.REPLACE, start);
+        return true;
+    }
+
+    /**
+     * Moves data loaded from the single data file into shards, once
+     * The data file is kept as a backup under a new name so later loads read the shards.
      */
-    public void loadFromJson() {
-        File file = new File(DATA_FILE);
-        if (!file.exists()) {
-            return; // No existing data file found, start with empty data
+    private void migrateToShards() {
+        try {
+            shards.markAllChanged();
+            shards.prepare(modpacks, modpackMods).write();
+            Path dataFile = getDataFile();
+            Path backup = dataFile.resolveSibling(dataFile.getFileName() + ".migrated");
+            Files.move(dataFile, backup, StandardCopyOption.REPLACE_EXISTING);
+            setLastLoadReport(getLastLoadReport() + ", moved into " + shards.getFolder().getFileName());
+        } catch (IOException e) {
+            System.err.println("Error migrating data: " + e.getMessage());
         }
+    }
+
+    /**
+     * Replaces all data with freshly loaded data
+     */
+    private void install(ModpackFileLoader.LoadResult result) {
+        unloaded.clear();
+        removedWhileUnloaded.clear();
+        unloaded.addAll(result.getUnloadedModpacks());
+        replaceData(result.getModpacks(), result.getModpackMods());
+        setLastLoadReport(result.toString());
+    }
 
-        // Clear existing data before loading
+    /**
+     * Replaces all data in one step
+     * Used by the loaders; the names are interned into a fresh registry, so each distinct mod is
+     * kept once however many modpacks list it
+     * @param newModpacks the modpack names
+     * @param newModpackMods map of modpack name to its mods
+     */
+    protected void replaceData(Set<String> newModpacks, Map<String, Set<String>> newModpackMods) {
         modpacks.clear();
+        registry.retire();
+        for (ModIdSet mods : modpackMods.values()) {
+            // Views handed out earlier keep reading the old registry
+            mods.detach();
+        }
         modpackMods.clear();
+        registry = new ModRegistry();
+        totalMods = 0;
+        packViews.clear();
+        modpacksChanged();
+        modpacks.addAll(newModpacks);
+        // Only modpacks that are listed and came without mods can still be read later
+        unloaded.retainAll(newModpacks);
+        unloaded.removeAll(newModpackMods.keySet());
+        for (Map.Entry<String, Set<String>> entry : newModpackMods.entrySet()) {
+            ModIdSet mods = new ModIdSet(registry, entry.getKey(), entry.getValue());
+            modpackMods.put(entry.getKey(), mods);
+            totalMods += mods.size();
+        }
+        fireDataReplaced();
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(DATA_FILE))) {
-            String line;
-            String currentSection = "";
-            String currentModpack = "";
-            
-            while ((line = reader.readLine()) != null) {
-                String trimmedLine = line.trim();
-                
-                if (trimmedLine.equals("MODPACKS:")) {
-                    currentSection = "MODPACKS";
-                } else if (trimmedLine.equals("MODPACK_MODS:")) {
-                    currentSection = "MODPACK_MODS";
-                } else if (currentSection.equals("MODPACKS") && !trimmedLine.isEmpty()) {
-                    modpacks.add(trimmedLine);
-                } else if (currentSection.equals("MODPACK_MODS")) {
-                    if (trimmedLine.endsWith(":")) {
-                        currentModpack = trimmedLine.substring(0, trimmedLine.length() - 1);
-                        modpackMods.put(currentModpack, new ArrayList<>());
-                    } else if (line.startsWith("  ") && !currentModpack.isEmpty()) {
-                        String mod = line.substring(2).trim();
-                        modpackMods.get(currentModpack).add(mod);
-                    }
-                }
-            }
-            
-            // Data loaded successfully
+    /**
+     * Saves data as a compact binary snapshot
+     * @param file the binary file to write
+     */
+    public void saveToBinary(Path file) {
+        loadAllModpacks();
+        long start = getMetrics().start();
+        try {
+            ModpackBinaryFormat.write(file, modpacks, modpackMods);
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+        }
+        getMetrics().record(ModpackMetrics.Operation.SAVE, start);
+    }
+
+    /**
+     * Loads data from a binary snapshot
+     * Existing data is only replaced once the whole snapshot has been read and verified
+     * @param file the binary file to read
+     */
+    public void loadFromBinary(Path file) {
+        try {
+            long start = getMetrics().start();
+            ModpackFileLoader.LoadResult result = ModpackBinaryFormat.read(file);
+            getMetrics().record(ModpackMetrics.Operation.LOAD, start);
+            install(result);
         } catch (IOException e) {
             System.err.println("Error loading data: " + e.getMessage());
         }
     }
 
+    /**
+     * Applies journaled changes on top of the loaded snapshot
+     */
+    private void replayJournal() {
+        replaying = true;
+        try {
+            journal.replay(this);
+        } catch (IOException e) {
+            System.err.println("Error loading journal: " + e.getMessage());
+        } finally {
+            replaying = false;
+        }
+        // Replayed records are already saved, not new changes
+        clearChanges();
+    }
+
     /**
      * Returns a summary of current modpack data
+     * The text is built once and reused until the data changes. In sharded storage, modpacks
+     * that have not been read yet are listed as not loaded rather than read for their counts.
      * @return String summary of modpacks and mod counts
      */
     public String getSummary() {
+        if (summary != null) {
+            return summary;
+        }
         StringBuilder summary = new StringBuilder();
         summary.append("Modpack Summary:\n");
         summary.append("Total modpacks: ").append(modpacks.size()).append("\n");
         
         for (String modpack : modpacks) {
-            List<String> mods = modpackMods.get(modpack);
+            Set<String> mods = modpackMods.get(modpack);
             summary.append("- ").append(modpack).append(": ");
-            summary.append(mods != null ? mods.size() : 0).append(" mods\n");
+            if (unloaded.contains(modpack)) {
+                summary.append("not loaded\n");
+            } else {
+                summary.append(mods != null ? mods.size() : 0).append(" mods\n");
+            }
         }
         
-        return summary.toString();
+        this.summary = summary.toString();
+        return this.summary;
+    }
+
+    /**
+     * Read-only view and, once taken, immutable copy of one modpack's mods
+     */
+    private static final class PackView {
+        // The modpack's own set; a new set means a new view
+        private final Set<String> mods;
+        private final Set<String> view;
+        // Copy shared until the modpack changes, or null
+        private List<String> snapshot;
+
+        private PackView(Set<String> mods) {
+            this.mods = mods;
+            this.view = Collections.unmodifiableSet(mods);
+        }
     }
 }
\ No newline at end of file
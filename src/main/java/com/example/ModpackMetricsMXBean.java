@@ -0,0 +1,56 @@
+package com.example;
+
+import java.util.List;
+
+/**
+ * Management interface of ModpackMetrics, as seen from JConsole or any other JMX client
+ */
+public interface ModpackMetricsMXBean {
+
+    /**
+     * Returns whether operations are being timed
+     * @return true while recording
+     */
+    boolean isEnabled();
+
+    /**
+     * Starts or stops timing operations; counts recorded so far are kept
+     * @param enabled true to record
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns the number of modpacks
+     * @return modpack count
+     */
+    int getModpackCount();
+
+    /**
+     * Returns the number of mod entries across all modpacks
+     * @return mod count, counting a mod once per modpack that contains it
+     */
+    int getModCount();
+
+    /**
+     * Returns the size of the data file
+     * @return size in bytes, or -1 if it does not exist
+     */
+    long getDataFileSize();
+
+    /**
+     * Returns counts and latencies of every operation recorded so far
+     * @return one entry per operation
+     */
+    List<ModpackMetrics.OperationStats> getOperations();
+
+    /**
+     * Returns a one-line summary of the gauges and operations
+     * @return report text
+     */
+    String getReport();
+
+    /**
+     * Clears all recorded counts and latencies
+     */
+    void reset();
+}
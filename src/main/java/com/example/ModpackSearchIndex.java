@@ -0,0 +1,392 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incremental substring search over modpack and mod names
+ * Every distinct name gets an integer id, and each lower-cased three-character
+ * sequence (trigram) of a name maps to the ascending ids of the names containing it.
+ * The index follows the manager's change events, so adds and removes update it in place
+ * and it is only rebuilt after bulk loads.
+ *
+ * Queries of three or more characters only check the names on the shortest posting list
+ * of their trigrams. Shorter queries scan the name table until enough matches are found.
+ * Matching is case-insensitive and prefix matches are listed first.
+ */
+public class ModpackSearchIndex implements ModpackListener {
+    // Number of results returned by search(String)
+    public static final int DEFAULT_LIMIT = 100;
+    // Length of the indexed character sequences
+    private static final int GRAM = 3;
+
+    // The manager whose names are indexed
+    private final ModpackManager manager;
+    // Names by id; null marks a deleted entry
+    private String[] names = new String[1024];
+    // Number of modpacks holding each mod name, by id
+    private int[] modRefs = new int[1024];
+    // Ids that are also modpack names
+    private BitSet modpackIds = new BitSet();
+    // Ids assigned so far, including deleted ones
+    private int size;
+    // Deleted ids still present in the posting lists
+    private int deleted;
+    // Live name to id
+    private final Map<String, Integer> ids = new HashMap<>();
+    // Trigram to ascending ids of the names containing it
+    private final Map<Long, IdList> postings = new HashMap<>();
+
+    /**
+     * Indexes the manager's current data and follows its changes
+     * @param manager the manager to index
+     */
+    public ModpackSearchIndex(ModpackManager manager) {
+        this.manager = manager;
+        rebuild();
+        manager.addModpackListener(this);
+    }
+
+    /**
+     * Finds names containing the query, up to the default limit
+     * @param query the text to search for
+     * @return matching modpacks and mods, prefix matches first
+     */
+    public List<SearchResult> search(String query) {
+        return search(query, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Finds names containing the query
+     * @param query the text to search for
+     * @param limit the maximum number of results
+     * @return matching modpacks and mods, prefix matches first
+     */
+    public synchronized List<SearchResult> search(String query, int limit) {
+        String needle = query != null ? query.trim() : "";
+        List<SearchResult> results = new ArrayList<>();
+        if (needle.isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        List<Integer> matches = new ArrayList<>();
+        if (needle.length() < GRAM) {
+            for (int id = 0; id < size && matches.size() < limit; id++) {
+                if (names[id] != null && containsIgnoreCase(names[id], needle)) {
+                    matches.add(id);
+                }
+            }
+        } else {
+            IdList shortest = null;
+            for (int i = 0; i + GRAM <= needle.length(); i++) {
+                IdList list = postings.get(gram(needle, i));
+                if (list == null) {
+                    return results;
+                }
+                if (shortest == null || list.size < shortest.size) {
+                    shortest = list;
+                }
+            }
+            for (int k = 0; k < shortest.size && matches.size() < limit; k++) {
+                int id = shortest.ids[k];
+                if (names[id] != null && containsIgnoreCase(names[id], needle)) {
+                    matches.add(id);
+                }
+            }
+        }
+
+        for (int id : matches) {
+            String name = names[id];
+            List<String> packs = modRefs[id] > 0
+                    ? manager.getModpacksContaining(name) : Collections.<String>emptyList();
+            results.add(new SearchResult(name, modpackIds.get(id), modRefs[id] > 0, packs));
+        }
+        results.sort(Comparator.comparing(result -> !startsWithIgnoreCase(result.getName(), needle)));
+        return results;
+    }
+
+    /**
+     * Returns the number of distinct names in the index
+     * @return count of live modpack and mod names
+     */
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    /**
+     * Stops following the manager's changes
+     */
+    public void dispose() {
+        manager.removeModpackListener(this);
+    }
+
+    @Override
+    public synchronized void modpackAdded(String modpack) {
+        modpackIds.set(idFor(modpack));
+    }
+
+    @Override
+    public synchronized void modpackRemoved(String modpack, Set<String> mods) {
+        Integer id = ids.get(modpack);
+        if (id != null) {
+            modpackIds.clear(id);
+            releaseIfUnused(id);
+        }
+        for (String mod : mods) {
+            unrefMod(mod);
+        }
+    }
+
+    @Override
+    public synchronized void modAdded(String modpack, String mod) {
+        addModRef(mod);
+    }
+
+    @Override
+    public synchronized void modRemoved(String modpack, String mod) {
+        unrefMod(mod);
+    }
+
+    @Override
+    public synchronized void modsAdded(String modpack, List<String> mods) {
+        for (String mod : mods) {
+            addModRef(mod);
+        }
+    }
+
+    @Override
+    public synchronized void modsRemoved(String modpack, List<String> mods) {
+        for (String mod : mods) {
+            unrefMod(mod);
+        }
+    }
+
+    @Override
+    public synchronized void modpackLoaded(String modpack, Set<String> mods) {
+        for (String mod : mods) {
+            addModRef(mod);
+        }
+    }
+
+    @Override
+    public synchronized void dataReplaced() {
+        rebuild();
+    }
+
+    /**
+     * Re-reads every name from the manager
+     */
+    private void rebuild() {
+        names = new String[1024];
+        modRefs = new int[1024];
+        modpackIds = new BitSet();
+        size = 0;
+        deleted = 0;
+        ids.clear();
+        postings.clear();
+        Set<String> modpacks = manager.getModpacksView();
+        for (String modpack : modpacks) {
+            modpackIds.set(idFor(modpack));
+        }
+        for (String modpack : modpacks) {
+            // Modpacks still on disk are indexed by modpackLoaded once read, not read here
+            if (manager.isModpackLoaded(modpack)) {
+                for (String mod : manager.getModpackModsView(modpack)) {
+                    addModRef(mod);
+                }
+            }
+        }
+    }
+
+    private int idFor(String name) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            modRefs = Arrays.copyOf(modRefs, size * 2);
+        }
+        int id = size++;
+        names[id] = name;
+        ids.put(name, id);
+        addGrams(name, id);
+        return id;
+    }
+
+    private void addModRef(String mod) {
+        // idFor may grow modRefs, so it must run before the array is read
+        int id = idFor(mod);
+        modRefs[id]++;
+    }
+
+    private void unrefMod(String mod) {
+        Integer id = ids.get(mod);
+        if (id != null && modRefs[id] > 0) {
+            modRefs[id]--;
+            releaseIfUnused(id);
+        }
+    }
+
+    /**
+     * Deletes a name nothing refers to any more, compacting once deleted ids dominate
+     */
+    private void releaseIfUnused(int id) {
+        if (modRefs[id] > 0 || modpackIds.get(id)) {
+            return;
+        }
+        ids.remove(names[id]);
+        names[id] = null;
+        deleted++;
+        if (deleted > 1024 && deleted > size / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Renumbers the live names densely and rebuilds the posting lists without deleted ids
+     */
+    private void compact() {
+        String[] oldNames = names;
+        int[] oldRefs = modRefs;
+        BitSet oldPacks = modpackIds;
+        int oldSize = size;
+        names = new String[Math.max(1024, ids.size() * 2)];
+        modRefs = new int[names.length];
+        modpackIds = new BitSet();
+        size = 0;
+        deleted = 0;
+        ids.clear();
+        postings.clear();
+        for (int old = 0; old < oldSize; old++) {
+            if (oldNames[old] != null) {
+                int id = idFor(oldNames[old]);
+                modRefs[id] = oldRefs[old];
+                if (oldPacks.get(old)) {
+                    modpackIds.set(id);
+                }
+            }
+        }
+    }
+
+    private void addGrams(String name, int id) {
+        for (int i = 0; i + GRAM <= name.length(); i++) {
+            postings.computeIfAbsent(gram(name, i), key -> new IdList()).add(id);
+        }
+    }
+
+    private static long gram(String text, int start) {
+        long key = 0;
+        for (int i = start; i < start + GRAM; i++) {
+            key = (key << 16) | Character.toLowerCase(text.charAt(i));
+        }
+        return key;
+    }
+
+    private static boolean containsIgnoreCase(String name, String needle) {
+        for (int i = 0; i + needle.length() <= name.length(); i++) {
+            if (name.regionMatches(true, i, needle, 0, needle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWithIgnoreCase(String name, String prefix) {
+        return name.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    /**
+     * One matching name and where it is used
+     */
+    public static final class SearchResult {
+        // The matching name
+        private final String name;
+        // Whether the name is a modpack
+        private final boolean modpack;
+        // Whether the name is a mod in at least one modpack
+        private final boolean mod;
+        // Modpacks containing the name as a mod
+        private final List<String> modpacks;
+
+        SearchResult(String name, boolean modpack, boolean mod, List<String> modpacks) {
+            this.name = name;
+            this.modpack = modpack;
+            this.mod = mod;
+            this.modpacks = Collections.unmodifiableList(modpacks);
+        }
+
+        /**
+         * Returns the matching name
+         * @return modpack or mod name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns whether the name is a modpack
+         * @return true if a modpack has this name
+         */
+        public boolean isModpack() {
+            return modpack;
+        }
+
+        /**
+         * Returns whether the name is a mod
+         * @return true if at least one modpack contains a mod with this name
+         */
+        public boolean isMod() {
+            return mod;
+        }
+
+        /**
+         * Returns the modpacks containing this mod
+         * @return unmodifiable list of modpack names, empty if the name is not a mod
+         */
+        public List<String> getModpacks() {
+            return modpacks;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            if (modpack) {
+                text.append("[Modpack] ").append(name);
+            }
+            if (mod) {
+                if (modpack) {
+                    text.append(" / ");
+                }
+                text.append(name).append(" (in ").append(String.join(", ", modpacks)).append(')');
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Growable list of ascending ids
+     */
+    private static final class IdList {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            // A name containing the same trigram twice is listed once
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sharded storage: an index of modpacks plus one file per modpack
+ * The files live in a folder next to the data file, e.g. modpack_data.txt.shards/. The index
+ * lists the modpacks in order with the number of the file holding each one's mods, one escaped
+ * mod per line. Saves write only the modpacks changed since the last save, and the index only
+ * when modpacks were added or removed, so save time follows the number of changed modpacks.
+ *
+ * A save writes the changed shards first, then the index, then deletes the shards of removed
+ * modpacks, each file through a temporary file and a rename. A crash at any point leaves the
+ * index pointing at complete shards; at worst an unreferenced shard is left behind. A save that
+ * fails leaves its deletions to the next one.
+ * Changes are tracked on the thread that edits the data; shards may be read from any thread.
+ */
+public class ModpackShardStore implements ModpackListener {
+    // First line of the index file
+    private static final String INDEX_HEADER = "MODPACK_SHARDS 1";
+
+    // Manager whose modpacks are stored
+    private final ModpackManager manager;
+    // Folder holding the index and the shards
+    private final Path folder;
+    private final Path indexFile;
+    // Maps each stored modpack to its shard number
+    private final Map<String, Integer> shards = new ConcurrentHashMap<>();
+    // Shards of removed modpacks, until a save that deletes them succeeds; their numbers are not reused
+    private final Set<Integer> unreferenced = ConcurrentHashMap.newKeySet();
+    // Shard number the next new modpack gets
+    private int nextShard = 1;
+
+    // Number of changes seen so far; every change gets the next version
+    private long version;
+    // Version of each modpack's latest change, until a save at or past it is written
+    private final Map<String, Long> changed = new HashMap<>();
+    // Version of the latest change to the modpack list
+    private long indexChanged;
+    // Version of the newest save written to disk, set by the writing thread
+    private volatile long savedVersion;
+
+    /**
+     * Creates a store next to the manager's data file and subscribes it to the manager's changes
+     * @param manager the manager to store
+     */
+    ModpackShardStore(ModpackManager manager) {
+        this.manager = manager;
+        Path dataFile = manager.getDataFile();
+        this.folder = dataFile.resolveSibling(dataFile.getFileName() + ".shards");
+        this.indexFile = folder.resolve("index.txt");
+        manager.addModpackListener(this);
+    }
+
+    /**
+     * Returns whether a data file has been stored in shards
+     * @param dataFile the data file the shards replace
+     * @return true if its shard index exists
+     */
+    public static boolean exists(Path dataFile) {
+        return Files.exists(dataFile.resolveSibling(dataFile.getFileName() + ".shards").resolve("index.txt"));
+    }
+
+    /**
+     * Returns the folder holding the index and the shards
+     * @return shard folder
+     */
+    public Path getFolder() {
+        return folder;
+    }
+
+    /**
+     * Returns whether the index exists
+     * @return true once data has been saved in shards
+     */
+    public boolean hasIndex() {
+        return Files.exists(indexFile);
+    }
+
+    /**
+     * Reads the index without reading any shard
+     * Every listed modpack is reported as unloaded; read its mods with readModpack.
+     * @return the modpack list, with no mods loaded
+     * @throws IOException if the index cannot be read
+     */
+    ModpackFileLoader.LoadResult readIndex() throws IOException {
+        long start = System.nanoTime();
+        ModpackFileLoader.LoadResult result = new ModpackFileLoader.LoadResult();
+        List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(INDEX_HEADER)) {
+            throw new IOException("Not a shard index: " + indexFile);
+        }
+        Map<String, Integer> read = new HashMap<>();
+        int highest = 0;
+        for (String line : lines.subList(1, lines.size())) {
+            int tab = line.indexOf('\t');
+            if (tab < 0) {
+                continue;
+            }
+            int shard;
+            try {
+                shard = Integer.parseInt(line.substring(0, tab));
+            } catch (NumberFormatException e) {
+                throw new IOException("Bad shard index line: " + line);
+            }
+            String modpack = TabFields.unescape(line.substring(tab + 1));
+            if (result.modpacks.add(modpack)) {
+                read.put(modpack, shard);
+                highest = Math.max(highest, shard);
+            }
+        }
+        shards.clear();
+        shards.putAll(read);
+        // Numbers from before the reload may be handed out again, so they must not be deleted later
+        unreferenced.clear();
+        nextShard = highest + 1;
+        result.unloaded.addAll(result.modpacks);
+        result.finish(Files.size(indexFile), "shard index", start);
+        return result;
+    }
+
+    /**
+     * Reads one modpack's shard
+     * Safe to call from any thread.
+     * @param modpack the name of the modpack
+     * @return its mods in order, or null if the modpack has no shard
+     * @throws IOException if the shard cannot be read
+     */
+    Set<String> readModpack(String modpack) throws IOException {
+        Integer shard = shards.get(modpack);
+        if (shard == null) {
+            return null;
+        }
+        Path file = shardFile(shard);
+        Set<String> mods = new LinkedHashSet<>();
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.isEmpty()) {
+                    mods.add(TabFields.unescape(line));
+                }
+            }
+        }
+        return mods;
+    }
+
+    /**
+     * Forgets all changes, as the data now matches what is on disk
+     */
+    synchronized void markSaved() {
+        changed.clear();
+        indexChanged = 0;
+        savedVersion = version;
+    }
+
+    /**
+     * Marks every modpack as changed, so the next save writes all of them
+     */
+    void markAllChanged() {
+        version++;
+        indexChanged = version;
+        for (String modpack : manager.getModpacksView()) {
+            if (manager.isModpackLoaded(modpack)) {
+                changed.put(modpack, version);
+            }
+        }
+    }
+
+    /**
+     * Captures what the next save has to write: the changed shards and, if needed, the index
+     * Runs on the thread that edits the data. A save includes everything changed since the last
+     * save that reached the disk, so a save skipped in favour of a newer one loses nothing.
+     * @param modpacks the modpack names, in order
+     * @param modpackMods map of modpack name to its mods
+     * @return the write to perform, possibly on another thread
+     */
+    ShardWrite prepare(Collection<String> modpacks, Map<String, ? extends Collection<String>> modpackMods) {
+        long saved = savedVersion;
+        List<String> index = null;
+        List<Integer> deleted = new ArrayList<>();
+        if (indexChanged > saved) {
+            index = new ArrayList<>(modpacks.size());
+            for (String modpack : modpacks) {
+                index.add(shardOf(modpack) + "\t" + TabFields.escape(modpack));
+            }
+            Iterator<Map.Entry<String, Integer>> entries = shards.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Integer> entry = entries.next();
+                if (!modpacks.contains(entry.getKey())) {
+                    unreferenced.add(entry.getValue());
+                    entries.remove();
+                }
+            }
+            // Includes shards whose deletion an earlier, failed save left behind
+            deleted.addAll(unreferenced);
+        }
+        Map<Integer, List<String>> contents = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, Long>> entries = changed.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Long> entry = entries.next();
+            if (entry.getValue() <= saved) {
+                entries.remove();
+            } else if (modpacks.contains(entry.getKey())) {
+                Collection<String> mods = modpackMods.get(entry.getKey());
+                contents.put(shardOf(entry.getKey()), mods != null ? new ArrayList<>(mods) : new ArrayList<>());
+            }
+        }
+        return new ShardWrite(version, contents, index, deleted);
+    }
+
+    private int shardOf(String modpack) {
+        return shards.computeIfAbsent(modpack, name -> nextShard++);
+    }
+
+    private Path shardFile(int shard) {
+        return folder.resolve(shard + ".txt");
+    }
+
+    private void change(String modpack) {
+        changed.put(modpack, ++version);
+    }
+
+    @Override
+    public void modpackAdded(String modpack) {
+        change(modpack);
+        indexChanged = version;
+    }
+
+    @Override
+    public void modpackRemoved(String modpack, Set<String> mods) {
+        changed.remove(modpack);
+        indexChanged = ++version;
+    }
+
+    @Override
+    public void modAdded(String modpack, String mod) {
+        change(modpack);
+    }
+
+    @Override
+    public void modRemoved(String modpack, String mod) {
+        change(modpack);
+    }
+
+    @Override
+    public void modsAdded(String modpack, List<String> mods) {
+        change(modpack);
+    }
+
+    @Override
+    public void modsRemoved(String modpack, List<String> mods) {
+        change(modpack);
+    }
+
+    @Override
+    public void dataReplaced() {
+        markAllChanged();
+    }
+
+    /**
+     * Changed shards and index captured for one save
+     */
+    final class ShardWrite implements PersistenceScheduler.Write {
+        private final long version;
+        // Shard number to the full mod list to write into it
+        private final Map<Integer, List<String>> contents;
+        // Index lines to write, or null if the modpack list did not change
+        private final List<String> index;
+        // Shards of removed modpacks, deleted once the index no longer lists them
+        private final List<Integer> deleted;
+
+        private ShardWrite(long version, Map<Integer, List<String>> contents, List<String> index, List<Integer> deleted) {
+            this.version = version;
+            this.contents = contents;
+            this.index = index;
+            this.deleted = deleted;
+        }
+
+        /**
+         * Returns the number of shards this save rewrites
+         * @return changed shard count
+         */
+        int getShardCount() {
+            return contents.size();
+        }
+
+        @Override
+        public void write() throws IOException {
+            Files.createDirectories(folder);
+            for (Map.Entry<Integer, List<String>> shard : contents.entrySet()) {
+                writeLines(shardFile(shard.getKey()), shard.getValue(), true);
+            }
+            if (index != null) {
+                List<String> lines = new ArrayList<>(index.size() + 1);
+                lines.add(INDEX_HEADER);
+                lines.addAll(index);
+                writeLines(indexFile, lines, false);
+            }
+            for (int shard : deleted) {
+                Files.deleteIfExists(shardFile(shard));
+            }
+            unreferenced.removeAll(deleted);
+            synchronized (ModpackShardStore.this) {
+                savedVersion = Math.max(savedVersion, version);
+            }
+        }
+
+        private void writeLines(Path target, List<String> lines, boolean escape) throws IOException {
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    writer.write(escape ? TabFields.escape(line) : line);
+                    writer.newLine();
+                }
+            }
+            ModpackSnapshot.moveIntoPlace(temp, target);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable copy of modpack data taken at a point in time
+ * Lets the data be written out on another thread while the original keeps changing
+ */
+public class ModpackSnapshot {
+    // Modpack names, in order
+    private final List<String> modpacks;
+    // Maps modpack name to its mods, in the order they are written
+    private final Map<String, Set<String>> modpackMods;
+
+    /**
+     * Copies the given modpack data
+     * @param modpacks the modpack names
+     * @param modpackMods map of modpack name to its mods
+     */
+    public ModpackSnapshot(Collection<String> modpacks, Map<String, ? extends Collection<String>> modpackMods) {
+        this.modpacks = Collections.unmodifiableList(new ArrayList<>(modpacks));
+        Map<String, Set<String>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, ? extends Collection<String>> entry : modpackMods.entrySet()) {
+            copy.put(entry.getKey(), Collections.unmodifiableSet(new LinkedHashSet<>(entry.getValue())));
+        }
+        this.modpackMods = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Wraps data that is already immutable without copying it
+     * @param modpacks unmodifiable list of modpack names
+     * @param modpackMods unmodifiable map of modpack name to unmodifiable mod sets
+     */
+    ModpackSnapshot(List<String> modpacks, Map<String, Set<String>> modpackMods) {
+        this.modpacks = modpacks;
+        this.modpackMods = modpackMods;
+    }
+
+    /**
+     * Returns the modpack names
+     * @return unmodifiable list of modpack names
+     */
+    public List<String> getModpacks() {
+        return modpacks;
+    }
+
+    /**
+     * Returns the mod mappings
+     * @return unmodifiable map of modpack name to its mods
+     */
+    public Map<String, Set<String>> getModpackMods() {
+        return modpackMods;
+    }
+
+    /**
+     * Returns the mods in one modpack
+     * @param modpack the name of the modpack
+     * @return unmodifiable set of mods, empty if the modpack has none
+     */
+    public Set<String> getMods(String modpack) {
+        Set<String> mods = modpackMods.get(modpack);
+        return mods != null ? mods : Collections.emptySet();
+    }
+
+    /**
+     * Writes this snapshot to a data file
+     * @param target the data file to replace
+     * @throws IOException if the file cannot be written
+     */
+    public void writeTo(Path target) throws IOException {
+        write(target, modpacks, modpackMods);
+    }
+
+    /**
+     * Writes modpack data in the MODPACKS: / MODPACK_MODS: text format
+     * The data goes to a temporary file first, which is then renamed over the target
+     * so a crash mid-write never leaves a half-written data file behind
+     * @param target the data file to replace
+     * @param modpacks the modpack names
+     * @param modpackMods map of modpack name to its mods
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path target, Collection<String> modpacks,
+                      Map<String, ? extends Collection<String>> modpackMods) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            // Save modpacks
+            writer.write("MODPACKS:");
+            writer.newLine();
+            for (String modpack : modpacks) {
+                writer.write(modpack);
+                writer.newLine();
+            }
+
+            // Save modpack-mod mappings
+            writer.write("MODPACK_MODS:");
+            writer.newLine();
+            for (Map.Entry<String, ? extends Collection<String>> entry : modpackMods.entrySet()) {
+                writer.write(entry.getKey());
+                writer.write(':');
+                writer.newLine();
+                for (String mod : entry.getValue()) {
+                    writer.write("  ");
+                    writer.write(mod);
+                    writer.newLine();
+                }
+            }
+        }
+
+        moveIntoPlace(temp, target);
+    }
+
+    /**
+     * Renames a fully written temporary file over its target, atomically where supported
+     * @param temp the finished temporary file
+     * @param target the file to replace
+     * @throws IOException if the file cannot be moved
+     */
+    static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
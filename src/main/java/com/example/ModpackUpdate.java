@@ -1,81 +1,153 @@
 package com.example;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Base class for tracking modpack changes
- * Manages lists of recently added and removed mods
+ * Keeps the net added and removed mods of each modpack in insertion-ordered sets,
+ * so a removal cancels an earlier addition of the same mod in constant time and vice versa.
+ * Subscribers are told about recorded changes in batches instead of polling.
  */
 public class ModpackUpdate {
-    // List of mods recently added
-    private final List<String> addedMods;
-    // List of mods recently removed
-    private final List<String> removedMods;
+    // Modpack key for changes recorded without a modpack
+    public static final String NO_MODPACK = "";
+
+    // Net changes per modpack, in order of first change
+    private final Map<String, PackChanges> changes;
+    // Subscribers to recorded changes
+    private final List<ModChangeListener> changeListeners;
+    // Changes recorded in the current batch, waiting to be delivered
+    private final List<ModChange> pendingChanges;
+    // Nesting depth of beginChanges() calls
+    private int batchDepth;
 
     /**
-     * Constructor initializes empty lists for tracking changes
+     * Constructor initializes empty change tracking
      */
     public ModpackUpdate() {
-        this.addedMods = new ArrayList<>();
-        this.removedMods = new ArrayList<>();
+        this.changes = new LinkedHashMap<>();
+        this.changeListeners = new CopyOnWriteArrayList<>();
+        this.pendingChanges = new ArrayList<>();
     }
 
     /**
-     * Checks for changes in modpack
+     * Checks the dependencies of a modpack's mods
+     * ModpackUpdate holds no mods itself, so its report is empty; ModpackManager checks real packs
      * @param modpack the name of the modpack to check
+     * @return missing, conflicting and cyclic dependencies, and a load order
      */
-    public void checkModpackMods(String modpack) {
-        // Implementation would compare current state with previous state
-        // For now, this is a placeholder for future implementation
+    public DependencyReport checkModpackMods(String modpack) {
+        return new DependencyReport(modpack, new ArrayList<>(), new ArrayList<>());
     }
 
     /**
-     * Returns list of added mods
-     * @return List of recently added mod names
+     * Returns list of added mods across all modpacks
+     * @return List of net added mod names, each listed once
      */
     public List<String> getAddedMods() {
-        return new ArrayList<>(addedMods);
+        Set<String> added = new LinkedHashSet<>();
+        for (PackChanges pack : changes.values()) {
+            added.addAll(pack.added);
+        }
+        return new ArrayList<>(added);
     }
 
     /**
-     * Returns list of removed mods
-     * @return List of recently removed mod names
+     * Returns list of removed mods across all modpacks
+     * @return List of net removed mod names, each listed once
      */
     public List<String> getRemovedMods() {
-        return new ArrayList<>(removedMods);
+        Set<String> removed = new LinkedHashSet<>();
+        for (PackChanges pack : changes.values()) {
+            removed.addAll(pack.removed);
+        }
+        return new ArrayList<>(removed);
+    }
+
+    /**
+     * Returns list of added mods in one modpack
+     * @param modpack the name of the modpack
+     * @return List of net added mod names, in the order they were added
+     */
+    public List<String> getAddedMods(String modpack) {
+        PackChanges pack = changes.get(modpack);
+        return pack != null ? new ArrayList<>(pack.added) : new ArrayList<>();
+    }
+
+    /**
+     * Returns list of removed mods in one modpack
+     * @param modpack the name of the modpack
+     * @return List of net removed mod names, in the order they were removed
+     */
+    public List<String> getRemovedMods(String modpack) {
+        PackChanges pack = changes.get(modpack);
+        return pack != null ? new ArrayList<>(pack.removed) : new ArrayList<>();
+    }
+
+    /**
+     * Returns the modpacks that have tracked changes
+     * @return List of modpack names, in order of their first change
+     */
+    public List<String> getChangedModpacks() {
+        return new ArrayList<>(changes.keySet());
     }
 
     /**
-     * Adds mod to added list
+     * Records a mod addition without a modpack
      * @param mod the name of the mod that was added
      */
     public void addMod(String mod) {
-        if (mod != null && !mod.trim().isEmpty()) {
-            addedMods.add(mod);
-            // Remove from removed list if it was previously removed
-            removedMods.remove(mod);
-        }
+        addMod(NO_MODPACK, mod);
     }
 
     /**
-     * Adds mod to removed list
+     * Records a mod removal without a modpack
      * @param mod the name of the mod that was removed
      */
     public void removeMod(String mod) {
-        if (mod != null && !mod.trim().isEmpty()) {
-            removedMods.add(mod);
-            // Remove from added list if it was previously added
-            addedMods.remove(mod);
-        }
+        removeMod(NO_MODPACK, mod);
+    }
+
+    /**
+     * Records a mod addition in a modpack
+     * Cancels an earlier tracked removal of the same mod instead of recording both
+     * @param modpack the name of the modpack
+     * @param mod the name of the mod that was added
+     */
+    public void addMod(String modpack, String mod) {
+        record(modpack, mod, true);
+    }
+
+    /**
+     * Records a mod removal from a modpack
+     * Cancels an earlier tracked addition of the same mod instead of recording both
+     * @param modpack the name of the modpack
+     * @param mod the name of the mod that was removed
+     */
+    public void removeMod(String modpack, String mod) {
+        record(modpack, mod, false);
     }
 
     /**
      * Clears all tracked changes
      */
     public void clearChanges() {
-        addedMods.clear();
-        removedMods.clear();
+        changes.clear();
+    }
+
+    /**
+     * Clears the tracked changes of one modpack
+     * @param modpack the name of the modpack
+     */
+    public void clearChanges(String modpack) {
+        changes.remove(modpack);
     }
 
     /**
@@ -83,6 +155,117 @@ public class ModpackUpdate {
      * @return true if there are added or removed mods
      */
     public boolean hasChanges() {
-        return !addedMods.isEmpty() || !removedMods.isEmpty();
+        return !changes.isEmpty();
+    }
+
+    /**
+     * Returns true if a modpack has tracked changes
+     * @param modpack the name of the modpack
+     * @return true if the modpack has added or removed mods
+     */
+    public boolean hasChanges(String modpack) {
+        return changes.containsKey(modpack);
+    }
+
+    /**
+     * Registers a listener for recorded changes
+     * @param listener the listener to add
+     */
+    public void addChangeListener(ModChangeListener listener) {
+        if (listener != null) {
+            changeListeners.add(listener);
+        }
+    }
+
+    /**
+     * Unregisters a change listener
+     * @param listener the listener to remove
+     */
+    public void removeChangeListener(ModChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Starts a batch; changes are delivered to listeners together when the outermost batch ends
+     * Calls may nest, and each must be matched by endChanges()
+     */
+    public void beginChanges() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch, delivering its changes if it was the outermost one
+     */
+    public void endChanges() {
+        if (batchDepth == 0) {
+            throw new IllegalStateException("endChanges() without beginChanges()");
+        }
+        batchDepth--;
+        if (batchDepth == 0) {
+            deliverChanges();
+            batchEnded();
+        }
+    }
+
+    /**
+     * Returns whether a batch is open
+     * @return true between the outermost beginChanges() and its endChanges()
+     */
+    public boolean isBatching() {
+        return batchDepth > 0;
+    }
+
+    /**
+     * Called when the outermost batch ends, after its changes are delivered
+     */
+    protected void batchEnded() {
+    }
+
+    private void record(String modpack, String mod, boolean added) {
+        if (modpack == null || mod == null || mod.trim().isEmpty()) {
+            return;
+        }
+        PackChanges pack = changes.get(modpack);
+        if (pack == null) {
+            pack = new PackChanges();
+            changes.put(modpack, pack);
+        }
+        if (added) {
+            // A re-added mod cancels its removal; otherwise it is a new addition
+            if (!pack.removed.remove(mod)) {
+                pack.added.add(mod);
+            }
+        } else if (!pack.added.remove(mod)) {
+            pack.removed.add(mod);
+        }
+        if (pack.added.isEmpty() && pack.removed.isEmpty()) {
+            changes.remove(modpack);
+        }
+
+        if (!changeListeners.isEmpty()) {
+            pendingChanges.add(new ModChange(modpack, mod, added));
+            if (batchDepth == 0) {
+                deliverChanges();
+            }
+        }
+    }
+
+    private void deliverChanges() {
+        if (pendingChanges.isEmpty()) {
+            return;
+        }
+        List<ModChange> batch = Collections.unmodifiableList(new ArrayList<>(pendingChanges));
+        pendingChanges.clear();
+        for (ModChangeListener listener : changeListeners) {
+            listener.modsChanged(batch);
+        }
+    }
+
+    /**
+     * Net added and removed mods of one modpack
+     */
+    private static final class PackChanges {
+        final Set<String> added = new LinkedHashSet<>();
+        final Set<String> removed = new LinkedHashSet<>();
     }
-}
\ No newline at end of file
+}
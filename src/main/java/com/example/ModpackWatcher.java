@@ -0,0 +1,657 @@
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Picks up edits other programs make to the data file and to scanned mods folders
+ * A single background thread waits on a WatchService and reads a change once the files have been
+ * quiet for the debounce window, so an editor's burst of writes is handled once. The data file
+ * is split into sections whose checksums are compared with the last version seen; only
+ * modpacks whose sections changed are parsed, and their differences are applied on the owning
+ * thread as ordinary adds and removes, so views, lists and the search index update in place
+ * instead of being rebuilt. Mods folders are compared by listing, and only new or changed jars
+ * are opened. New mods go to the end of a modpack; a change in order alone is not applied. Changes
+ * read from disk are not undo steps: undo only reverts edits made in this program.
+ *
+ * Saves made by this program go through ownWrite, which records what was written so the
+ * resulting file events are not mistaken for outside edits. Only the single data file is
+ * watched; journal and sharded storage write files this watcher does not follow.
+ */
+public final class ModpackWatcher implements Closeable {
+    private static final String MODPACKS = "MODPACKS:";
+    private static final String MODPACK_MODS = "MODPACK_MODS:";
+
+    private final ModpackManager manager;
+    // Runs changes to the data on the thread that owns it
+    private final Executor ownerExecutor;
+    // Quiet time after the last event before files are read
+    private final long debounceNanos;
+    private final WatchService watchService;
+    private final Thread thread;
+    // Directory behind each registration
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    // Serializes reading the data file with our own writes to it
+    private final Object lock = new Object();
+
+    // Absolute data file, or null until watchDataFile is called
+    private volatile Path dataFile;
+    // Sections of the data file as last written or read, guarded by lock
+    private Sections baseline = new Sections();
+    // Watched mods folder of each modpack
+    private final Map<String, Folder> folders = new ConcurrentHashMap<>();
+    // Re-hashes jars of changed folders when set
+    private volatile ModHashService hashService;
+    // Called on the owning thread with a description of each change applied
+    private volatile Consumer<String> onReload;
+    private volatile boolean closed;
+
+    /**
+     * Creates a watcher; call start once the data has loaded and the files to watch are added
+     * @param manager the data to keep in step with the files
+     * @param ownerExecutor runs changes on the thread that owns the data
+     * @param debounceMillis how long files must be quiet before a change is read
+     * @throws IOException if the file system cannot be watched
+     */
+    public ModpackWatcher(ModpackManager manager, Executor ownerExecutor, long debounceMillis) throws IOException {
+        this.manager = manager;
+        this.ownerExecutor = ownerExecutor;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.thread = new Thread(this::run, "modpack-watch");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Sets the hash service that learns the jars of changed mods folders
+     * @param hashService the service to update, or null for none
+     */
+    public void setHashService(ModHashService hashService) {
+        this.hashService = hashService;
+    }
+
+    /**
+     * Sets the callback run on the owning thread after a change on disk has been applied
+     * @param onReload receives a short description of the change
+     */
+    public void setOnReload(Consumer<String> onReload) {
+        this.onReload = onReload;
+    }
+
+    /**
+     * Starts watching the manager's data file, taking its current content as already loaded
+     * Call on the owning thread right after the data is loaded.
+     * @throws IOException if the file's folder cannot be watched
+     */
+    public void watchDataFile() throws IOException {
+        Path file = manager.getDataFile().toAbsolutePath().normalize();
+        register(file.getParent());
+        synchronized (lock) {
+            dataFile = file;
+            baseline = readSections(file);
+        }
+    }
+
+    /**
+     * Starts watching the mods folder of a modpack
+     * Jars added to the folder later are added to the modpack, and mods whose jars are deleted
+     * are removed from it. Watching a modpack again replaces its folder.
+     * @param modpack the name of the modpack
+     * @param jars the modpack's mods and the jar each was read from, as a scan tracks them
+     * @throws IOException if the folder cannot be listed or watched
+     */
+    public void watchModsFolder(String modpack, Map<String, Path> jars) throws IOException {
+        if (jars.isEmpty()) {
+            return;
+        }
+        Path dir = jars.values().iterator().next().toAbsolutePath().normalize().getParent();
+        Folder folder = new Folder(dir, list(dir));
+        for (Map.Entry<String, Path> jar : jars.entrySet()) {
+            folder.names.put(jar.getValue().getFileName().toString(), jar.getKey());
+        }
+        register(dir);
+        folders.put(modpack, folder);
+    }
+
+    /**
+     * Starts the watch thread
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Wraps a save of the data file so the watcher knows the result is its own
+     * Outside edits that reached the file before the save are read first, so the save cannot
+     * silently overwrite them; they are applied to the data and saved again afterwards.
+     * @param write the save captured by prepareSave
+     * @return the same save, recording what it wrote
+     */
+    public PersistenceScheduler.Write ownWrite(PersistenceScheduler.Write write) {
+        return () -> {
+            synchronized (lock) {
+                Path file = dataFile;
+                if (file == null || closed) {
+                    write.write();
+                    return;
+                }
+                checkDataFile(file);
+                write.write();
+                baseline = readSections(file);
+            }
+        };
+    }
+
+    /**
+     * Stops watching
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Error closing file watcher: " + e.getMessage());
+        }
+    }
+
+    private void register(Path dir) throws IOException {
+        if (!directories.containsValue(dir)) {
+            WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            directories.put(key, dir);
+        }
+    }
+
+    /**
+     * Collects events until they stop for the debounce window, then reads what changed
+     */
+    private void run() {
+        Set<Path> changed = new HashSet<>();
+        long deadline = 0;
+        try {
+            while (!closed) {
+                WatchKey key = changed.isEmpty() ? watchService.take()
+                        : watchService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (key != null) {
+                    Path dir = directories.get(key);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (dir != null) {
+                            // An overflow lost the file names, so the whole folder is checked
+                            changed.add(event.kind() == StandardWatchEventKinds.OVERFLOW
+                                    ? dir : dir.resolve((Path) event.context()));
+                        }
+                    }
+                    key.reset();
+                    deadline = System.nanoTime() + debounceNanos;
+                } else if (System.nanoTime() - deadline >= 0) {
+                    process(changed);
+                    changed.clear();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private void process(Set<Path> changed) {
+        synchronized (lock) {
+            Path file = dataFile;
+            if (file != null && (changed.contains(file) || changed.contains(file.getParent()))) {
+                checkDataFile(file);
+            }
+        }
+        // Jars are read outside the lock, so saves never wait for them
+        for (Map.Entry<String, Folder> entry : folders.entrySet()) {
+            Path dir = entry.getValue().dir;
+            for (Path path : changed) {
+                if (path.equals(dir) || dir.equals(path.getParent())) {
+                    checkFolder(entry.getKey(), entry.getValue());
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares the data file with the last version seen and hands any difference to the owner
+     */
+    private void checkDataFile(Path file) {
+        byte[] bytes;
+        Sections current;
+        try {
+            bytes = Files.readAllBytes(file);
+            current = Sections.scan(bytes);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            // Most likely caught mid-write; the write's own event brings us back
+            System.err.println("Error reading data file: " + e.getMessage());
+            return;
+        }
+        Sections previous = baseline;
+        baseline = current;
+        if (current.equals(previous)) {
+            return;
+        }
+
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        if (current.listChecksum != previous.listChecksum) {
+            for (String modpack : current.modpacks) {
+                if (!previous.modpacks.contains(modpack)) {
+                    added.add(modpack);
+                }
+            }
+            for (String modpack : previous.modpacks) {
+                if (!current.modpacks.contains(modpack)) {
+                    removed.add(modpack);
+                }
+            }
+        }
+        Map<String, List<String>> modpackMods = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Section> entry : current.packs.entrySet()) {
+                Section before = previous.packs.get(entry.getKey());
+                if (before == null || before.checksum != entry.getValue().checksum) {
+                    modpackMods.put(entry.getKey(), entry.getValue().mods(bytes));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading data file: " + e.getMessage());
+            baseline = previous;
+            return;
+        }
+        for (String modpack : previous.packs.keySet()) {
+            if (!current.packs.containsKey(modpack) && !removed.contains(modpack)) {
+                modpackMods.put(modpack, new ArrayList<>());
+            }
+        }
+        if (!added.isEmpty() || !removed.isEmpty() || !modpackMods.isEmpty()) {
+            ownerExecutor.execute(() -> applyDataFile(added, removed, modpackMods));
+        }
+    }
+
+    /**
+     * Applies changes read from the data file, on the owning thread
+     */
+    private void applyDataFile(List<String> added, List<String> removed, Map<String, List<String>> modpackMods) {
+        manager.withoutUndo(() -> manager.batch(() -> {
+            for (String modpack : removed) {
+                manager.removeModpack(modpack);
+            }
+            for (String modpack : added) {
+                manager.addModpack(modpack);
+            }
+            for (Map.Entry<String, List<String>> entry : modpackMods.entrySet()) {
+                setMods(entry.getKey(), entry.getValue());
+            }
+        }));
+        Set<String> changed = new LinkedHashSet<>(added);
+        changed.addAll(removed);
+        changed.addAll(modpackMods.keySet());
+        report("Reloaded " + changed.size() + (changed.size() == 1 ? " modpack" : " modpacks")
+                + " changed on disk");
+    }
+
+    /**
+     * Brings a modpack's mods in line with a list through adds and removes
+     */
+    private void setMods(String modpack, List<String> mods) {
+        Set<String> wanted = new LinkedHashSet<>(mods);
+        List<String> removed = new ArrayList<>();
+        for (String mod : manager.getModpackModsView(modpack)) {
+            if (!wanted.contains(mod)) {
+                removed.add(mod);
+            }
+        }
+        wanted.removeAll(manager.getModpackModsView(modpack));
+        manager.removeModsFromModpack(modpack, removed);
+        manager.addModsToModpack(modpack, wanted);
+    }
+
+    /**
+     * Compares a mods folder with its last listing, reading only new and changed jars
+     */
+    private void checkFolder(String modpack, Folder folder) {
+        Map<String, Stamp> listing;
+        try {
+            listing = list(folder.dir);
+        } catch (IOException e) {
+            System.err.println("Error listing mods folder: " + e.getMessage());
+            return;
+        }
+        List<ModInfo> added = new ArrayList<>();
+        Set<String> removed = new LinkedHashSet<>();
+        for (Map.Entry<String, Stamp> file : listing.entrySet()) {
+            if (file.getValue().equals(folder.listing.get(file.getKey()))) {
+                continue;
+            }
+            try {
+                ModInfo mod = ModJarScanner.readJar(folder.dir.resolve(file.getKey()));
+                String previous = folder.names.put(file.getKey(), mod.getDisplayName());
+                if (previous != null && !previous.equals(mod.getDisplayName())) {
+                    removed.add(previous);
+                }
+                added.add(mod);
+            } catch (IOException e) {
+                // Possibly still being copied; its next event retries it
+                System.err.println("Error reading jar " + file.getKey() + ": " + e.getMessage());
+                listing.remove(file.getKey());
+            }
+        }
+        for (String file : folder.listing.keySet()) {
+            if (!listing.containsKey(file)) {
+                String name = folder.names.remove(file);
+                if (name != null) {
+                    removed.add(name);
+                }
+            }
+        }
+        folder.listing = listing;
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        ModHashService hashes = hashService;
+        if (hashes != null) {
+            Map<String, Path> jars = new LinkedHashMap<>();
+            for (Map.Entry<String, String> name : folder.names.entrySet()) {
+                jars.put(name.getValue(), folder.dir.resolve(name.getKey()));
+            }
+            hashes.trackPack(modpack, jars);
+            hashes.save();
+        }
+        ownerExecutor.execute(() -> applyFolder(modpack, added, removed));
+    }
+
+    /**
+     * Applies a mods folder change, on the owning thread
+     */
+    private void applyFolder(String modpack, List<ModInfo> added, Set<String> removed) {
+        if (!manager.getModpacksView().contains(modpack)) {
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        for (ModInfo mod : added) {
+            names.add(mod.getDisplayName());
+            removed.remove(mod.getDisplayName());
+        }
+        manager.getDependencyResolver().addModInfo(added);
+        manager.withoutUndo(() -> manager.batch(() -> {
+            manager.removeModsFromModpack(modpack, removed);
+            manager.addModsToModpack(modpack, names);
+        }));
+        report("Mods folder of " + modpack + " changed: " + added.size() + " jars read, "
+                + removed.size() + " mods removed");
+    }
+
+    private void report(String message) {
+        Consumer<String> callback = onReload;
+        if (callback != null) {
+            callback.accept(message);
+        }
+    }
+
+    private static Sections readSections(Path file) throws IOException {
+        try {
+            return Sections.scan(Files.readAllBytes(file));
+        } catch (NoSuchFileException e) {
+            return new Sections();
+        }
+    }
+
+    /**
+     * Lists the jars in a folder with their sizes and modification times
+     */
+    private static Map<String, Stamp> list(Path dir) throws IOException {
+        Map<String, Stamp> listing = new HashMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.toLowerCase().endsWith(".jar")) {
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                        if (attributes.isRegularFile()) {
+                            listing.put(name, new Stamp(attributes.size(), attributes.lastModifiedTime().toMillis()));
+                        }
+                    } catch (NoSuchFileException e) {
+                        // Deleted while listing
+                    }
+                }
+            }
+        }
+        return listing;
+    }
+
+    /**
+     * A watched mods folder and what it held when last checked
+     */
+    private static final class Folder {
+        private final Path dir;
+        // Jar file name to size and modification time
+        private Map<String, Stamp> listing;
+        // Jar file name to the name of the mod it holds
+        private final Map<String, String> names = new HashMap<>();
+
+        private Folder(Path dir, Map<String, Stamp> listing) {
+            this.dir = dir;
+            this.listing = listing;
+        }
+    }
+
+    /**
+     * Size and modification time of a jar
+     */
+    private static final class Stamp {
+        private final long size;
+        private final long modified;
+
+        private Stamp(long size, long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Stamp && ((Stamp) o).size == size && ((Stamp) o).modified == modified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(modified);
+        }
+    }
+
+    /**
+     * The modpack list and a checksum of each modpack's section of a data file
+     * Lines are split and trimmed by the same rules as ModpackFileLoader, but only the modpack
+     * list and section headers are decoded.
+     */
+    static final class Sections {
+        // Listed modpacks, in order
+        final Set<String> modpacks = new LinkedHashSet<>();
+        long listChecksum;
+        // Section of each modpack; a repeated header replaces the earlier section, as when loading
+        final Map<String, Section> packs = new LinkedHashMap<>();
+
+        /**
+         * Splits a data file into sections
+         * @param bytes the file content
+         * @return its sections
+         * @throws IOException if a name is not valid UTF-8
+         */
+        static Sections scan(byte[] bytes) throws IOException {
+            Sections sections = new Sections();
+            CRC32 list = new CRC32();
+            String section = "";
+            String modpack = null;
+            int sectionStart = 0;
+            int position = 0;
+            while (position < bytes.length) {
+                int end = position;
+                while (end < bytes.length && bytes[end] != '\n' && bytes[end] != '\r') {
+                    end++;
+                }
+                int next = end < bytes.length && bytes[end] == '\r' && end + 1 < bytes.length
+                        && bytes[end + 1] == '\n' ? end + 2 : Math.min(bytes.length, end + 1);
+                int from = trimStart(bytes, position, end);
+                int to = trimEnd(bytes, from, end);
+
+                if (matches(bytes, from, to, MODPACKS) || matches(bytes, from, to, MODPACK_MODS)) {
+                    sections.close(bytes, modpack, sectionStart, position);
+                    modpack = null;
+                    section = matches(bytes, from, to, MODPACKS) ? MODPACKS : MODPACK_MODS;
+                } else if (section.equals(MODPACKS) && to > from) {
+                    sections.modpacks.add(decode(bytes, from, to));
+                    list.update(bytes, from, to - from);
+                    list.update('\n');
+                } else if (section.equals(MODPACK_MODS) && to > from && bytes[to - 1] == ':') {
+                    sections.close(bytes, modpack, sectionStart, position);
+                    modpack = decode(bytes, from, to - 1);
+                    sectionStart = position;
+                }
+                position = next;
+            }
+            sections.close(bytes, modpack, sectionStart, bytes.length);
+            sections.listChecksum = list.getValue();
+            return sections;
+        }
+
+        private void close(byte[] bytes, String modpack, int from, int to) {
+            if (modpack != null) {
+                CRC32 crc = new CRC32();
+                crc.update(bytes, from, to - from);
+                packs.remove(modpack);
+                packs.put(modpack, new Section(from, to, crc.getValue()));
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Sections)) {
+                return false;
+            }
+            Sections other = (Sections) o;
+            if (listChecksum != other.listChecksum || !modpacks.equals(other.modpacks)
+                    || packs.size() != other.packs.size()) {
+                return false;
+            }
+            for (Map.Entry<String, Section> entry : packs.entrySet()) {
+                Section section = other.packs.get(entry.getKey());
+                if (section == null || section.checksum != entry.getValue().checksum) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(listChecksum);
+        }
+    }
+
+    /**
+     * Where one modpack's section lies in a data file, and its checksum
+     */
+    static final class Section {
+        private final int from;
+        private final int to;
+        final long checksum;
+
+        private Section(int from, int to, long checksum) {
+            this.from = from;
+            this.to = to;
+            this.checksum = checksum;
+        }
+
+        /**
+         * Decodes the mods of this section
+         * @param bytes the file content the section was found in
+         * @return the mods in file order
+         * @throws IOException if a name is not valid UTF-8
+         */
+        List<String> mods(byte[] bytes) throws IOException {
+            List<String> mods = new ArrayList<>();
+            int position = from;
+            boolean header = true;
+            while (position < to) {
+                int end = position;
+                while (end < to && bytes[end] != '\n' && bytes[end] != '\r') {
+                    end++;
+                }
+                boolean indented = end - position >= 2 && bytes[position] == ' ' && bytes[position + 1] == ' ';
+                int start = trimStart(bytes, position, end);
+                int stop = trimEnd(bytes, start, end);
+                if (!header && indented && stop > start) {
+                    mods.add(decode(bytes, start, stop));
+                }
+                header = false;
+                position = end < to && bytes[end] == '\r' && end + 1 < to && bytes[end + 1] == '\n'
+                        ? end + 2 : end + 1;
+            }
+            return mods;
+        }
+    }
+
+    private static int trimStart(byte[] bytes, int from, int to) {
+        while (from < to && (bytes[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(byte[] bytes, int from, int to) {
+        while (to > from && (bytes[to - 1] & 0xFF) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean matches(byte[] bytes, int from, int to, String text) {
+        if (to - from != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (bytes[from + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(byte[] bytes, int from, int to) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        return decoder.decode(ByteBuffer.wrap(bytes, from, to - from)).toString();
+    }
+}
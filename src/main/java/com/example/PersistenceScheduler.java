@@ -0,0 +1,255 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind saving for modpack data
+ * Coalesces save requests made within a time window into a single write,
+ * which runs on a dedicated background thread. Closing only writes when changes were
+ * marked since the last snapshot, so data that was never loaded is never written back.
+ */
+public class PersistenceScheduler {
+
+    /**
+     * Data captured on the owning thread, ready to be written from another
+     */
+    public interface Write {
+
+        /**
+         * Writes the captured data to disk
+         * @throws IOException if it cannot be written
+         */
+        void write() throws IOException;
+    }
+
+    // Captures the data to save
+    private final Supplier<? extends Write> snapshotSource;
+    // Runs the snapshot source on the thread that owns the data
+    private final Executor ownerExecutor;
+    // How long to wait for more changes before writing
+    private final long windowMillis;
+    // Background thread that performs the writes
+    private final ScheduledExecutorService writer;
+    // Serializes file writes without blocking callers of markDirty
+    private final Object writeLock = new Object();
+
+    // Pending coalesced save, or null when nothing is scheduled
+    private ScheduledFuture<?> pending;
+    // True when changes were marked since the last snapshot, or its write failed
+    private boolean dirty;
+    // Sequence number of the newest snapshot taken
+    private long lastSnapshot;
+    // Sequence number of the newest snapshot written to disk, guarded by writeLock
+    private long lastWritten;
+    // Called with the finish time after each successful write
+    private volatile Consumer<LocalTime> onSaved;
+    // Times each write when set
+    private volatile ModpackMetrics metrics;
+
+    /**
+     * Creates a scheduler writing to the given data file
+     * @param snapshotSource supplies a snapshot of the current data
+     * @param ownerExecutor runs the snapshot source on the thread that owns the data
+     * @param target the data file to write
+     * @param windowMillis how long to coalesce save requests before writing
+     */
+    public PersistenceScheduler(Supplier<ModpackSnapshot> snapshotSource, Executor ownerExecutor,
+                                Path target, long windowMillis) {
+        this(() -> {
+            ModpackSnapshot snapshot = snapshotSource.get();
+            return () -> snapshot.writeTo(target);
+        }, ownerExecutor, windowMillis);
+    }
+
+    /**
+     * Creates a scheduler for saves that know their own targets, such as sharded saves
+     * A newer save must include everything an older one would write, as older ones may be skipped.
+     * @param snapshotSource captures the data to save
+     * @param ownerExecutor runs the snapshot source on the thread that owns the data
+     * @param windowMillis how long to coalesce save requests before writing
+     */
+    public PersistenceScheduler(Supplier<? extends Write> snapshotSource, Executor ownerExecutor,
+                                long windowMillis) {
+        this.snapshotSource = snapshotSource;
+        this.ownerExecutor = ownerExecutor;
+        this.windowMillis = windowMillis;
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "modpack-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the callback run after each successful write
+     * The callback runs on the writer thread
+     * @param onSaved receives the time the write finished
+     */
+    public void setOnSaved(Consumer<LocalTime> onSaved) {
+        this.onSaved = onSaved;
+    }
+
+    /**
+     * Sets the metrics that writes are recorded in as saves
+     * @param metrics the metrics to record in, or null for none
+     */
+    public void setMetrics(ModpackMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Marks the data as changed so it is written once the window elapses
+     * Further calls within the window are folded into the same write
+     */
+    public synchronized void markDirty() {
+        dirty = true;
+        if (pending == null && !writer.isShutdown()) {
+            pending = writer.schedule(this::saveInBackground, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes the current data immediately on the calling thread
+     * Must be called from the thread that owns the data
+     */
+    public void flush() {
+        synchronized (this) {
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+        }
+        write(takeSnapshot());
+    }
+
+    /**
+     * Returns whether changes were marked that no finished write has saved yet
+     * @return true if changes may be unsaved
+     */
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Writes changes marked since the last snapshot, waits for writes in progress and stops
+     * the writer thread
+     * Nothing is written if markDirty was not called since the last snapshot.
+     * Must be called from the thread that owns the data
+     */
+    public void close() {
+        if (isDirty()) {
+            flush();
+        }
+        stop();
+    }
+
+    /**
+     * Drops any pending save without writing and stops the writer thread
+     * For closing before the data has been loaded, when a write would replace the saved data.
+     */
+    public void discard() {
+        synchronized (this) {
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+            dirty = false;
+        }
+        stop();
+    }
+
+    /**
+     * Stops the writer thread once the writes already handed to it have finished
+     */
+    private void stop() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("Error saving data: background write did not finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs on the writer thread when the coalescing window elapses
+     */
+    private void saveInBackground() {
+        synchronized (this) {
+            pending = null;
+        }
+        CompletableFuture.supplyAsync(this::takeSnapshot, ownerExecutor)
+                .thenAcceptAsync(this::write, writer)
+                .exceptionally(e -> {
+                    System.err.println("Error saving data: " + e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Takes a numbered snapshot of the current data
+     */
+    private Numbered takeSnapshot() {
+        Write snapshot = snapshotSource.get();
+        synchronized (this) {
+            // The snapshot holds every change marked so far
+            dirty = false;
+            return new Numbered(++lastSnapshot, snapshot);
+        }
+    }
+
+    /**
+     * Writes a snapshot unless a newer one has already been written
+     */
+    private void write(Numbered numbered) {
+        synchronized (writeLock) {
+            if (numbered.sequence <= lastWritten) {
+                return;
+            }
+            ModpackMetrics recorder = metrics;
+            long start = recorder != null ? recorder.start() : 0;
+            try {
+                numbered.snapshot.write();
+                lastWritten = numbered.sequence;
+                if (recorder != null) {
+                    recorder.record(ModpackMetrics.Operation.SAVE, start);
+                }
+            } catch (IOException e) {
+                System.err.println("Error saving data: " + e.getMessage());
+                synchronized (this) {
+                    // Keep the changes marked, so the next write or close tries again
+                    dirty = true;
+                }
+                return;
+            }
+        }
+        Consumer<LocalTime> callback = onSaved;
+        if (callback != null) {
+            callback.accept(LocalTime.now());
+        }
+    }
+
+    /**
+     * Snapshot tagged with the order it was taken in
+     */
+    private static final class Numbered {
+        private final long sequence;
+        private final Write snapshot;
+
+        private Numbered(long sequence, Write snapshot) {
+            this.sequence = sequence;
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records when each startup phase finished, measured from JVM start
+ * Phases are marked with the wall clock and only compared with the JVM start time when
+ * the report is built, so marking costs no more than a clock read.
+ */
+public final class StartupTimer {
+    // Finish time of each phase in epoch milliseconds, in the order marked
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+
+    /**
+     * Records that a phase has just finished; later marks of the same phase are ignored
+     * @param phase name of the phase
+     */
+    public synchronized void mark(String phase) {
+        marks.putIfAbsent(phase, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns whether every given phase has been marked
+     * @param phases names of the phases
+     * @return true if all of them are marked
+     */
+    public synchronized boolean isMarked(String... phases) {
+        for (String phase : phases) {
+            if (!marks.containsKey(phase)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a one-line report of the marked phases
+     * @return phases in order with their time since JVM start, and the time each took
+     */
+    public synchronized String report() {
+        long start = ManagementFactory.getRuntimeMXBean().getStartTime();
+        StringBuilder report = new StringBuilder("Startup:");
+        String separator = " ";
+        long previous = start;
+        for (Map.Entry<String, Long> mark : marks.entrySet()) {
+            long time = mark.getValue();
+            report.append(separator).append(mark.getKey()).append(' ').append(time - start)
+                  .append(" ms (+").append(time - previous).append(')');
+            previous = time;
+            separator = ", ";
+        }
+        return report.append(" after JVM start").toString();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example;
+
+/**
+ * Escaping for the tab-separated side files (journal and caches)
+ * Backslashes, tabs and newlines inside a field are written as \\, \t and \n
+ * so every record stays on one line with one tab between fields
+ */
+final class TabFields {
+
+    private TabFields() {
+    }
+
+    /**
+     * Escapes a field value
+     * @param value the raw value
+     * @return the value with no tabs or newlines
+     */
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    /**
+     * Reverses escape
+     * @param value the escaped value
+     * @return the raw value
+     */
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                result.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
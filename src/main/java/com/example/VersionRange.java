@@ -0,0 +1,303 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Set of mod versions a dependency accepts
+ * Understands the two notations found in mod metadata: Maven-style intervals used by
+ * Forge and NeoForge, such as "[47.1,)" or "[1.0,2.0),[3.0]", and the comparator lists
+ * used by Fabric, such as ">=0.5.0 <0.6", "~1.2", "^2.1.0" or "1.20.x". Alternatives
+ * may be joined with "||". An empty range or "*" accepts every version.
+ *
+ * Versions are compared piece by piece, numerically where both pieces are numbers.
+ * A pre-release ("1.0.0-beta") sorts before its release and build metadata ("+mc1.20") is ignored.
+ */
+public final class VersionRange {
+    // Accepts every version
+    public static final VersionRange ANY = new VersionRange("*", new ArrayList<>());
+
+    // Text the range was parsed from
+    private final String text;
+    // Alternatives; a version matches if every bound of any alternative holds. Empty means any.
+    private final List<List<Bound>> alternatives;
+
+    private VersionRange(String text, List<List<Bound>> alternatives) {
+        this.text = text;
+        this.alternatives = alternatives;
+    }
+
+    /**
+     * Parses a version range
+     * Text that cannot be understood is treated as an exact version
+     * @param text the range, or null
+     * @return the parsed range
+     */
+    public static VersionRange parse(String text) {
+        String range = text != null ? text.trim() : "";
+        if (range.isEmpty() || range.equals("*")) {
+            return ANY;
+        }
+        List<List<Bound>> alternatives = new ArrayList<>();
+        if (range.startsWith("[") || range.startsWith("(")) {
+            parseIntervals(range, alternatives);
+        } else {
+            for (String alternative : range.split("\\|\\|")) {
+                List<Bound> bounds = new ArrayList<>();
+                for (String comparator : alternative.trim().split("\\s+")) {
+                    if (!comparator.isEmpty()) {
+                        parseComparator(comparator, bounds);
+                    }
+                }
+                alternatives.add(bounds);
+            }
+        }
+        return new VersionRange(range, alternatives);
+    }
+
+    /**
+     * Returns whether a version is in the range
+     * An unknown (empty) version is assumed to match
+     * @param version the version to test
+     * @return true if the range accepts it
+     */
+    public boolean contains(String version) {
+        if (alternatives.isEmpty() || version == null || version.isEmpty()) {
+            return true;
+        }
+        for (List<Bound> bounds : alternatives) {
+            boolean all = true;
+            for (Bound bound : bounds) {
+                all &= bound.accepts(version);
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the range accepts every version
+     * @return true for "*" and empty ranges
+     */
+    public boolean isAny() {
+        return alternatives.isEmpty();
+    }
+
+    /**
+     * Compares two version strings
+     * @param a the first version
+     * @param b the second version
+     * @return negative, zero or positive as a is older than, equal to or newer than b
+     */
+    public static int compare(String a, String b) {
+        String[] left = splitRelease(a);
+        String[] right = splitRelease(b);
+        int result = comparePieces(left[0], right[0]);
+        if (result != 0) {
+            return result;
+        }
+        // A release is newer than any of its pre-releases
+        if (left[1].isEmpty() || right[1].isEmpty()) {
+            return left[1].isEmpty() ? (right[1].isEmpty() ? 0 : 1) : -1;
+        }
+        return comparePieces(left[1], right[1]);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    private static void parseIntervals(String range, List<List<Bound>> alternatives) {
+        int start = 0;
+        while (start < range.length()) {
+            char open = range.charAt(start);
+            int end = start + 1;
+            while (end < range.length() && range.charAt(end) != ']' && range.charAt(end) != ')') {
+                end++;
+            }
+            if ((open != '[' && open != '(') || end == range.length()) {
+                alternatives.add(exact(range.substring(start)));
+                return;
+            }
+            String body = range.substring(start + 1, end);
+            boolean inclusiveLow = open == '[';
+            boolean inclusiveHigh = range.charAt(end) == ']';
+            List<Bound> bounds = new ArrayList<>();
+            int comma = body.indexOf(',');
+            if (comma < 0) {
+                bounds.add(new Bound(body.trim(), 0, true));
+            } else {
+                String low = body.substring(0, comma).trim();
+                String high = body.substring(comma + 1).trim();
+                if (!low.isEmpty()) {
+                    bounds.add(new Bound(low, 1, inclusiveLow));
+                }
+                if (!high.isEmpty()) {
+                    bounds.add(new Bound(high, -1, inclusiveHigh));
+                }
+            }
+            alternatives.add(bounds);
+            start = end + 1;
+            while (start < range.length() && (range.charAt(start) == ',' || range.charAt(start) == ' ')) {
+                start++;
+            }
+        }
+    }
+
+    private static void parseComparator(String comparator, List<Bound> bounds) {
+        if (comparator.equals("*") || comparator.equals("x") || comparator.equals("X")) {
+            return;
+        }
+        if (comparator.startsWith(">=")) {
+            bounds.add(new Bound(comparator.substring(2), 1, true));
+        } else if (comparator.startsWith("<=")) {
+            bounds.add(new Bound(comparator.substring(2), -1, true));
+        } else if (comparator.startsWith(">")) {
+            bounds.add(new Bound(comparator.substring(1), 1, false));
+        } else if (comparator.startsWith("<")) {
+            bounds.add(new Bound(comparator.substring(1), -1, false));
+        } else if (comparator.startsWith("~")) {
+            String version = comparator.substring(1);
+            bounds.add(new Bound(version, 1, true));
+            bounds.add(new Bound(bump(version, 1), -1, false));
+        } else if (comparator.startsWith("^")) {
+            String version = comparator.substring(1);
+            bounds.add(new Bound(version, 1, true));
+            bounds.add(new Bound(bump(version, 0), -1, false));
+        } else {
+            String version = comparator.startsWith("=") ? comparator.substring(1) : comparator;
+            int wildcard = wildcardIndex(version);
+            if (wildcard < 0) {
+                bounds.add(new Bound(version, 0, true));
+            } else if (wildcard > 0) {
+                // "1.20.x" accepts 1.20 up to, not including, 1.21
+                String prefix = version.substring(0, wildcard - 1);
+                bounds.add(new Bound(prefix, 1, true));
+                bounds.add(new Bound(bump(prefix, prefix.split("\\.").length - 1), -1, false));
+            }
+        }
+    }
+
+    private static List<Bound> exact(String version) {
+        List<Bound> bounds = new ArrayList<>();
+        bounds.add(new Bound(version, 0, true));
+        return bounds;
+    }
+
+    /**
+     * Returns the index of the first "x" or "*" piece, or -1
+     */
+    private static int wildcardIndex(String version) {
+        String[] pieces = version.split("\\.");
+        int index = 0;
+        for (String piece : pieces) {
+            if (piece.equals("x") || piece.equals("X") || piece.equals("*")) {
+                return index;
+            }
+            index += piece.length() + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Increments the given piece of a version and drops the ones after it: bump("1.2.3", 1) is "1.3"
+     */
+    private static String bump(String version, int piece) {
+        String[] pieces = splitRelease(version)[0].split("\\.");
+        int keep = Math.min(piece, pieces.length - 1);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < keep; i++) {
+            text.append(pieces[i]).append('.');
+        }
+        try {
+            text.append(Long.parseLong(pieces[keep]) + 1);
+        } catch (NumberFormatException e) {
+            text.append(pieces[keep]).append('~');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Splits a version into its release and pre-release parts, dropping build metadata
+     */
+    private static String[] splitRelease(String version) {
+        String text = version.trim();
+        int plus = text.indexOf('+');
+        if (plus >= 0) {
+            text = text.substring(0, plus);
+        }
+        int dash = text.indexOf('-');
+        return dash >= 0
+                ? new String[] {text.substring(0, dash), text.substring(dash + 1)}
+                : new String[] {text, ""};
+    }
+
+    private static int comparePieces(String a, String b) {
+        String[] left = a.split("[.\\-_]");
+        String[] right = b.split("[.\\-_]");
+        for (int i = 0; i < Math.max(left.length, right.length); i++) {
+            String l = i < left.length ? left[i] : "0";
+            String r = i < right.length ? right[i] : "0";
+            int result;
+            if (isNumber(l) && isNumber(r)) {
+                // Compare as digit strings so pieces longer than a long still order correctly
+                String x = stripZeros(l);
+                String y = stripZeros(r);
+                result = x.length() != y.length() ? Integer.compare(x.length(), y.length()) : x.compareTo(y);
+            } else {
+                result = l.compareTo(r);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isNumber(String piece) {
+        if (piece.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < piece.length(); i++) {
+            if (!Character.isDigit(piece.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String stripZeros(String number) {
+        int start = 0;
+        while (start < number.length() - 1 && number.charAt(start) == '0') {
+            start++;
+        }
+        return number.substring(start);
+    }
+
+    /**
+     * One comparison against a version
+     */
+    private static final class Bound {
+        final String version;
+        // 1 for a lower bound, -1 for an upper bound, 0 for an exact match
+        final int direction;
+        final boolean inclusive;
+
+        Bound(String version, int direction, boolean inclusive) {
+            this.version = version;
+            this.direction = direction;
+            this.inclusive = inclusive;
+        }
+
+        boolean accepts(String candidate) {
+            int result = compare(candidate, version);
+            if (direction == 0) {
+                return result == 0;
+            }
+            return result * direction > 0 || (inclusive && result == 0);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 module com.example {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.management;
 
     opens com.example to javafx.fxml;
     exports com.example;
@@ -0,0 +1,301 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Stress test for ConcurrentModpackManager
+ * Many mutator threads edit their own packs while reader threads check that every
+ * snapshot they see is internally consistent and never changes underneath them
+ */
+public class ConcurrentModpackManagerStressTest {
+
+    private static final int WRITERS = 8;
+    private static final int PACKS_PER_WRITER = 6;
+    private static final int OPERATIONS_PER_WRITER = 10_000;
+    private static final int READERS = 4;
+    // Packs each writer owns in the many-packs test
+    private static final int MANY_PACKS_PER_WRITER = 250;
+    // Mods added one at a time to each writer's large pack
+    private static final int LARGE_PACK_MODS = 50_000;
+
+    @Test
+    public void concurrentMutatorsAndReadersKeepInvariants() throws Exception {
+        ConcurrentModpackManager manager = new ConcurrentModpackManager();
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<String> violations = new ConcurrentLinkedQueue<>();
+
+        List<Future<Map<String, Set<String>>>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(pool.submit(() -> {
+                start.await();
+                return mutate(manager, writer);
+            }));
+        }
+
+        List<Future<Integer>> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            readers.add(pool.submit(() -> {
+                start.await();
+                int snapshots = 0;
+                while (writing.get()) {
+                    checkSnapshot(manager.snapshot(), violations);
+                    snapshots++;
+                    Thread.yield();
+                }
+                return snapshots;
+            }));
+        }
+
+        start.countDown();
+        Map<String, Set<String>> expected = new HashMap<>();
+        for (Future<Map<String, Set<String>>> writer : writers) {
+            expected.putAll(writer.get(2, TimeUnit.MINUTES));
+        }
+        writing.set(false);
+        int snapshotsChecked = 0;
+        for (Future<Integer> reader : readers) {
+            snapshotsChecked += reader.get(1, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        assertTrue(violations.isEmpty(), () -> "Inconsistent snapshots: " + violations.peek());
+        assertTrue(snapshotsChecked > 0, "Readers should have checked snapshots");
+        assertEquals(expected.keySet(), new LinkedHashSet<>(manager.getModpacks()));
+        for (Map.Entry<String, Set<String>> entry : expected.entrySet()) {
+            assertEquals(new ArrayList<>(entry.getValue()), manager.getModpackMods(entry.getKey()),
+                    "Final contents of " + entry.getKey());
+        }
+    }
+
+    @Test
+    public void writersToManyDifferentPacksStayLinear() throws Exception {
+        ConcurrentModpackManager manager = new ConcurrentModpackManager();
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<String> violations = new ConcurrentLinkedQueue<>();
+
+        List<Future<Map<String, Set<String>>>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(pool.submit(() -> {
+                start.await();
+                return fill(manager, writer);
+            }));
+        }
+
+        List<Future<Integer>> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            Random random = new Random(r);
+            readers.add(pool.submit(() -> {
+                start.await();
+                int checked = 0;
+                while (writing.get()) {
+                    String pack = random.nextBoolean()
+                            ? large(random.nextInt(WRITERS))
+                            : pack(random.nextInt(WRITERS), random.nextInt(MANY_PACKS_PER_WRITER));
+                    checkStable(pack, manager.getModpackModsView(pack), violations);
+                    checked++;
+                }
+                return checked;
+            }));
+        }
+
+        start.countDown();
+        Map<String, Set<String>> expected = new HashMap<>();
+        for (Future<Map<String, Set<String>>> writer : writers) {
+            // Copying the whole pack on every add would take many minutes here
+            expected.putAll(writer.get(1, TimeUnit.MINUTES));
+        }
+        writing.set(false);
+        int checked = 0;
+        for (Future<Integer> reader : readers) {
+            checked += reader.get(1, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        assertTrue(violations.isEmpty(), () -> "Inconsistent pack views: " + violations.peek());
+        assertTrue(checked > 0, "Readers should have checked packs");
+        assertEquals(WRITERS * (MANY_PACKS_PER_WRITER + 1), manager.getModpackCount());
+        for (Map.Entry<String, Set<String>> entry : expected.entrySet()) {
+            assertEquals(new ArrayList<>(entry.getValue()), manager.getModpackMods(entry.getKey()),
+                    "Final contents of " + entry.getKey());
+        }
+    }
+
+    @Test
+    public void readsAreImmutableViews() {
+        ConcurrentModpackManager manager = new ConcurrentModpackManager();
+        manager.addModpack("Pack");
+        manager.addModToModpack("Pack", "JEI");
+        ModpackSnapshot before = manager.snapshot();
+
+        manager.addModToModpack("Pack", "Create");
+        manager.addModpack("Other");
+
+        assertEquals(List.of("Pack"), before.getModpacks());
+        assertEquals(Set.of("JEI"), before.getMods("Pack"));
+        assertEquals(List.of("JEI", "Create"), manager.getModpackMods("Pack"));
+        assertEquals(List.of("Pack"), manager.getModpacksContaining("Create"));
+        assertTrue(manager.getModpackMods("Pack") == manager.getModpackMods("Pack"),
+                "Repeated reads of an unchanged pack should not copy");
+        assertThrows(UnsupportedOperationException.class, () -> manager.getModpacks().add("X"));
+        assertThrows(UnsupportedOperationException.class, () -> manager.getModpackMods("Pack").add("X"));
+    }
+
+    /**
+     * Randomly edits the writer's own packs and returns their expected final contents
+     * Mods are always added in increasing order, so every pack must look sorted to readers
+     */
+    private static Map<String, Set<String>> mutate(ConcurrentModpackManager manager, int writer) {
+        Random random = new Random(writer);
+        Map<String, Set<String>> expected = new HashMap<>();
+        int[] next = new int[PACKS_PER_WRITER];
+        for (int p = 0; p < PACKS_PER_WRITER; p++) {
+            String pack = pack(writer, p);
+            manager.addModpack(pack);
+            expected.put(pack, new LinkedHashSet<>());
+        }
+        for (int op = 0; op < OPERATIONS_PER_WRITER; op++) {
+            int p = random.nextInt(PACKS_PER_WRITER);
+            String pack = pack(writer, p);
+            Set<String> mods = expected.get(pack);
+            int choice = random.nextInt(10);
+            if (choice < 5 || mods.isEmpty()) {
+                String mod = mod(next[p]++);
+                manager.addModToModpack(pack, mod);
+                mods.add(mod);
+            } else if (choice < 9) {
+                String mod = mods.iterator().next();
+                manager.removeModFromModpack(pack, mod);
+                mods.remove(mod);
+            } else {
+                manager.removeModpack(pack);
+                manager.addModpack(pack);
+                mods.clear();
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Adds mods one at a time to the writer's large pack and edits its many small packs,
+     * removing and re-adding mods along the way, and returns their expected final contents
+     */
+    private static Map<String, Set<String>> fill(ConcurrentModpackManager manager, int writer) {
+        Random random = new Random(writer);
+        Map<String, Set<String>> expected = new HashMap<>();
+        String large = large(writer);
+        manager.addModpack(large);
+        Set<String> largeMods = new LinkedHashSet<>();
+        expected.put(large, largeMods);
+        for (int p = 0; p < MANY_PACKS_PER_WRITER; p++) {
+            manager.addModpack(pack(writer, p));
+            expected.put(pack(writer, p), new LinkedHashSet<>());
+        }
+        for (int i = 0; i < LARGE_PACK_MODS; i++) {
+            String mod = mod(i);
+            manager.addModToModpack(large, mod);
+            largeMods.add(mod);
+            if (i % 10 == 9) {
+                // Remove an earlier mod and add it back at the end
+                String again = mod(random.nextInt(i));
+                manager.removeModFromModpack(large, again);
+                largeMods.remove(again);
+                manager.addModToModpack(large, again);
+                largeMods.add(again);
+            }
+            String pack = pack(writer, random.nextInt(MANY_PACKS_PER_WRITER));
+            Set<String> mods = expected.get(pack);
+            String small = mod(random.nextInt(40));
+            if (mods.remove(small)) {
+                manager.removeModFromModpack(pack, small);
+            } else {
+                manager.addModToModpack(pack, small);
+                mods.add(small);
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Checks that a pack's set agrees with itself and does not change while later edits land
+     */
+    private static void checkStable(String pack, Set<String> mods, ConcurrentLinkedQueue<String> violations) {
+        List<String> first = new ArrayList<>(mods);
+        if (first.size() != mods.size()) {
+            violations.add("Size of " + pack + " disagrees with its contents");
+        }
+        for (String mod : first) {
+            if (!mods.contains(mod)) {
+                violations.add("Listed mod missing from " + pack + ": " + mod);
+            }
+        }
+        Thread.yield();
+        if (!first.equals(new ArrayList<>(mods))) {
+            violations.add("Set of " + pack + " changed after it was read");
+        }
+    }
+
+    /**
+     * Checks one snapshot for internal consistency
+     */
+    private static void checkSnapshot(ModpackSnapshot snapshot, ConcurrentLinkedQueue<String> violations) {
+        int totalBefore = 0;
+        for (String pack : snapshot.getModpacks()) {
+            Set<String> mods = snapshot.getMods(pack);
+            if (!snapshot.getModpackMods().containsKey(pack)) {
+                violations.add("Listed pack without mod entry: " + pack);
+            }
+            String previous = null;
+            for (String mod : mods) {
+                if (previous != null && previous.compareTo(mod) >= 0) {
+                    violations.add("Mods out of order in " + pack + ": " + previous + " then " + mod);
+                }
+                previous = mod;
+            }
+            totalBefore += mods.size();
+        }
+        int totalAfter = 0;
+        for (String pack : snapshot.getModpacks()) {
+            totalAfter += snapshot.getMods(pack).size();
+        }
+        if (totalBefore != totalAfter) {
+            violations.add("Snapshot changed while being read");
+        }
+    }
+
+    private static String pack(int writer, int index) {
+        return "Writer " + writer + " Pack " + index;
+    }
+
+    private static String large(int writer) {
+        return "Writer " + writer + " Large Pack";
+    }
+
+    private static String mod(int index) {
+        return String.format("Mod %08d", index);
+    }
+}
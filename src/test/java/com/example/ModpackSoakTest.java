@@ -0,0 +1,422 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Soak and stress suite for ModpackManager
+ * Fuzzes random mutation sequences against a plain model and checks every save and load
+ * round trip in each storage mode, packs a large synthetic data set under a heap ceiling and
+ * throughput floors, and runs background saves alongside continuous edits.
+ *
+ * Sizes, limits and the random seed come from system properties, so the default build runs a
+ * short pass and the soak profile (mvn -Psoak test) a long one with millions of mods:
+ *
+ *   modpack.soak.seed                 random seed (default 1)
+ *   modpack.soak.operations           mutations per fuzz run (default 20000)
+ *   modpack.soak.mods                 mods in the large data set (default 200000)
+ *   modpack.soak.seconds              duration of the background save soak (default 3)
+ *   modpack.soak.maxHeapBytesPerMod   retained heap per loaded mod (default 80)
+ *   modpack.soak.minMutationsPerSec   mutation throughput floor (default 100000)
+ *   modpack.soak.minSaveModsPerSec    save throughput floor (default 200000)
+ *   modpack.soak.minLoadModsPerSec    load throughput floor (default 200000)
+ *
+ * Nothing here touches JavaFX, so the suite runs headless.
+ */
+public class ModpackSoakTest {
+
+    private static final long SEED = Long.getLong("modpack.soak.seed", 1);
+    private static final int OPERATIONS = Integer.getInteger("modpack.soak.operations", 20_000);
+    private static final int LARGE_MODS = Integer.getInteger("modpack.soak.mods", 200_000);
+    private static final int SOAK_SECONDS = Integer.getInteger("modpack.soak.seconds", 3);
+    private static final long MAX_HEAP_BYTES_PER_MOD = Long.getLong("modpack.soak.maxHeapBytesPerMod", 80);
+    private static final long MIN_MUTATIONS_PER_SEC = Long.getLong("modpack.soak.minMutationsPerSec", 100_000);
+    private static final long MIN_SAVE_MODS_PER_SEC = Long.getLong("modpack.soak.minSaveModsPerSec", 200_000);
+    private static final long MIN_LOAD_MODS_PER_SEC = Long.getLong("modpack.soak.minLoadModsPerSec", 200_000);
+
+    // Mods in each pack of the large data set
+    private static final int LARGE_PACK_SIZE = 100;
+    // Words that names are built from, including spaces, punctuation and non-ASCII text
+    private static final String[] WORDS = {
+        "JEI", "Iron Chests", "Create", "Ars Nouveau", "Tinkers' Construct", "Café", "日本語",
+        "A&B", "Mod #", "x: y", "[Beta]", "100%", "back\\slash", "Ünïcödé"
+    };
+
+    /**
+     * How data is saved and read back
+     */
+    enum Storage {
+        FILE,
+        JOURNAL,
+        SHARDS,
+        BINARY
+    }
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @EnumSource(Storage.class)
+    public void fuzzedMutationsRoundTrip(Storage storage) throws IOException {
+        Path dataFile = dir.resolve("modpack_data.txt");
+        ModpackManager manager = open(storage, dataFile);
+        Fuzzer fuzzer = new Fuzzer(manager, new Random(SEED + storage.ordinal()));
+        int checks = 0;
+        for (int i = 1; i <= OPERATIONS; i++) {
+            fuzzer.step();
+            if (i % 97 == 0) {
+                assertAggregates(manager, fuzzer.model, "after " + i + " operations");
+            }
+            if (i % 1000 == 0 || i == OPERATIONS) {
+                assertRoundTrip(manager, storage, dataFile, fuzzer.model, "after " + i + " operations");
+                checks++;
+            }
+        }
+        manager.closeJournal();
+        assertTrue(checks > 0, "No round trip was checked");
+    }
+
+    @Test
+    public void largeDataSetStaysWithinHeapAndThroughputLimits() throws Exception {
+        int packs = Math.max(1, LARGE_MODS / LARGE_PACK_SIZE);
+        Path dataFile = dir.resolve("modpack_data.txt");
+
+        ModpackManager manager = new ModpackManager();
+        manager.setDataFile(dataFile);
+        long start = System.nanoTime();
+        for (int p = 0; p < packs; p++) {
+            String modpack = "Pack " + p;
+            manager.addModpack(modpack);
+            for (String mod : largePackMods(p)) {
+                manager.addModToModpack(modpack, mod);
+            }
+        }
+        double mutationsPerSec = perSecond(LARGE_MODS + packs, start);
+        assertEquals(LARGE_MODS, manager.getTotalModCount());
+
+        start = System.nanoTime();
+        manager.saveToJson();
+        double savePerSec = perSecond(LARGE_MODS, start);
+        manager = null;
+
+        long before = usedHeapAfterGc();
+        start = System.nanoTime();
+        ModpackManager loaded = new ModpackManager();
+        loaded.setDataFile(dataFile);
+        loaded.loadFromJson();
+        double loadPerSec = perSecond(LARGE_MODS, start);
+        long bytesPerMod = (usedHeapAfterGc() - before) / LARGE_MODS;
+
+        System.out.printf(Locale.ROOT, "Large data set: %d mods in %d packs, %.0f mutations/s, save %.0f mods/s, "
+                + "load %.0f mods/s, %d heap bytes per mod%n", LARGE_MODS, packs, mutationsPerSec, savePerSec,
+                loadPerSec, bytesPerMod);
+        assertEquals(packs, loaded.getModpackCount());
+        for (int p = 0; p < packs; p++) {
+            assertEquals(largePackMods(p), loaded.getModpackModsSnapshot("Pack " + p), "Pack " + p);
+        }
+        assertTrue(bytesPerMod <= MAX_HEAP_BYTES_PER_MOD,
+                "Heap per mod " + bytesPerMod + " B exceeds the ceiling of " + MAX_HEAP_BYTES_PER_MOD + " B");
+        assertTrue(mutationsPerSec >= MIN_MUTATIONS_PER_SEC,
+                "Mutations ran at " + (long) mutationsPerSec + "/s, below the floor of " + MIN_MUTATIONS_PER_SEC);
+        assertTrue(savePerSec >= MIN_SAVE_MODS_PER_SEC,
+                "Save ran at " + (long) savePerSec + " mods/s, below the floor of " + MIN_SAVE_MODS_PER_SEC);
+        assertTrue(loadPerSec >= MIN_LOAD_MODS_PER_SEC,
+                "Load ran at " + (long) loadPerSec + " mods/s, below the floor of " + MIN_LOAD_MODS_PER_SEC);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Storage.class, names = {"FILE", "SHARDS"})
+    public void backgroundSavesKeepUpWithEdits(Storage storage) throws Exception {
+        Path dataFile = dir.resolve("modpack_data.txt");
+        ModpackManager manager = open(storage, dataFile);
+        Fuzzer fuzzer = new Fuzzer(manager, new Random(SEED));
+        // The manager is confined to this thread, as it is to the FX thread in the application
+        ExecutorService owner = Executors.newSingleThreadExecutor();
+        PersistenceScheduler persistence = new PersistenceScheduler(manager::prepareSave, owner, 2);
+        AtomicBoolean editing = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+
+        // Saves replace the data file by renaming, so a reader must never see a partial file
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        Future<Integer> reads = reader.submit(() -> {
+            int count = 0;
+            while (editing.get() && storage == Storage.FILE) {
+                try {
+                    if (Files.exists(dataFile)) {
+                        ModpackFileLoader.load(dataFile);
+                        count++;
+                    }
+                } catch (IOException e) {
+                    failures.add(e.toString());
+                }
+            }
+            return count;
+        });
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(SOAK_SECONDS);
+        int batches = 0;
+        while (System.nanoTime() < end) {
+            owner.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    fuzzer.step();
+                }
+                persistence.markDirty();
+            }).get();
+            batches++;
+        }
+        owner.submit(persistence::close).get();
+        editing.set(false);
+        reads.get(1, TimeUnit.MINUTES);
+        reader.shutdown();
+
+        assertTrue(failures.isEmpty(), () -> "Reader saw a damaged data file: " + failures.peek());
+        assertTrue(batches > 0, "No edits were made");
+        owner.submit(() -> assertMatches(open(storage, dataFile), fuzzer.model, "after the soak")).get();
+        owner.shutdown();
+    }
+
+    /**
+     * Opens a manager on a data file in the given storage mode
+     */
+    private ModpackManager open(Storage storage, Path dataFile) {
+        ModpackManager manager = new ModpackManager();
+        manager.setDataFile(dataFile);
+        if (storage == Storage.JOURNAL) {
+            // Small enough that the fuzz runs compact many times
+            manager.enableJournal(8192);
+        } else if (storage == Storage.SHARDS) {
+            manager.enableShards();
+        }
+        if (storage == Storage.BINARY) {
+            Path binary = binaryFile(dataFile);
+            if (Files.exists(binary)) {
+                manager.loadFromBinary(binary);
+            }
+        } else {
+            manager.loadFromJson();
+        }
+        return manager;
+    }
+
+    private static Path binaryFile(Path dataFile) {
+        return dataFile.resolveSibling("modpack_data.bin");
+    }
+
+    /**
+     * Saves, reads the data back into a fresh manager and compares both with the model
+     */
+    private void assertRoundTrip(ModpackManager manager, Storage storage, Path dataFile,
+                                 Map<String, Set<String>> model, String when) {
+        if (storage == Storage.BINARY) {
+            manager.saveToBinary(binaryFile(dataFile));
+        } else {
+            manager.saveToJson();
+        }
+        if (storage == Storage.JOURNAL) {
+            // Let any compaction finish so two journals never share the files
+            manager.closeJournal();
+        }
+        assertMatches(manager, model, when);
+        ModpackManager reloaded = open(storage, dataFile);
+        assertMatches(reloaded, model, "reloaded " + when);
+        reloaded.closeJournal();
+        if (storage == Storage.JOURNAL) {
+            manager.enableJournal(8192);
+        }
+    }
+
+    private static void assertMatches(ModpackManager manager, Map<String, Set<String>> model, String when) {
+        assertEquals(new ArrayList<>(model.keySet()), manager.getModpacksSnapshot(), "Modpacks " + when);
+        for (Map.Entry<String, Set<String>> pack : model.entrySet()) {
+            assertEquals(new ArrayList<>(pack.getValue()), manager.getModpackModsSnapshot(pack.getKey()),
+                    "Mods of " + pack.getKey() + " " + when);
+        }
+        assertAggregates(manager, model, when);
+    }
+
+    private static void assertAggregates(ModpackManager manager, Map<String, Set<String>> model, String when) {
+        Set<String> distinct = new LinkedHashSet<>();
+        int total = 0;
+        StringBuilder summary = new StringBuilder("Modpack Summary:\nTotal modpacks: " + model.size() + "\n");
+        for (Map.Entry<String, Set<String>> pack : model.entrySet()) {
+            distinct.addAll(pack.getValue());
+            total += pack.getValue().size();
+            summary.append("- ").append(pack.getKey()).append(": ").append(pack.getValue().size()).append(" mods\n");
+        }
+        assertEquals(model.size(), manager.getModpackCount(), "Modpack count " + when);
+        assertEquals(total, manager.getTotalModCount(), "Total mod count " + when);
+        assertEquals(distinct.size(), manager.getDistinctModCount(), "Distinct mod count " + when);
+        assertEquals(summary.toString(), manager.getSummary(), "Summary " + when);
+    }
+
+    /**
+     * Mods of one pack of the large data set; neighbouring packs share half their mods
+     */
+    private static List<String> largePackMods(int pack) {
+        List<String> mods = new ArrayList<>(LARGE_PACK_SIZE);
+        for (int i = 0; i < LARGE_PACK_SIZE; i++) {
+            mods.add("Mod " + (pack * LARGE_PACK_SIZE / 2 + i));
+        }
+        return mods;
+    }
+
+    private static double perSecond(long count, long startNanos) {
+        return count / Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+    }
+
+    /**
+     * Returns the heap in use once garbage collection has settled
+     */
+    private static long usedHeapAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            long now = memory.getHeapMemoryUsage().getUsed();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+
+    /**
+     * Applies random mutations to a manager and, with the same meaning, to a plain model
+     */
+    private static final class Fuzzer {
+        private final ModpackManager manager;
+        private final Random random;
+        // Expected modpacks and mods, in order
+        private final Map<String, Set<String>> model = new LinkedHashMap<>();
+
+        private Fuzzer(ModpackManager manager, Random random) {
+            this.manager = manager;
+            this.random = random;
+        }
+
+        private String name(int range) {
+            return WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(range);
+        }
+
+        private String existingPack() {
+            if (model.isEmpty() || random.nextInt(20) == 0) {
+                return name(40);
+            }
+            int index = random.nextInt(model.size());
+            for (String modpack : model.keySet()) {
+                if (index-- == 0) {
+                    return modpack;
+                }
+            }
+            throw new IllegalStateException();
+        }
+
+        private List<String> mods(int count) {
+            List<String> mods = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                mods.add(name(300));
+            }
+            return mods;
+        }
+
+        private void step() {
+            int choice = random.nextInt(100);
+            if (choice < 93) {
+                apply(choice);
+            } else if (choice < 97) {
+                int count = 2 + random.nextInt(5);
+                manager.batch(() -> {
+                    for (int i = 0; i < count; i++) {
+                        apply(random.nextInt(93));
+                    }
+                });
+            } else {
+                String mod = name(300);
+                manager.removeModEverywhere(mod);
+                for (Set<String> mods : model.values()) {
+                    mods.remove(mod);
+                }
+            }
+        }
+
+        private void apply(int choice) {
+            if (choice < 10) {
+                String modpack = name(40);
+                manager.addModpack(modpack);
+                model.putIfAbsent(modpack, new LinkedHashSet<>());
+            } else if (choice < 15) {
+                String modpack = existingPack();
+                manager.removeModpack(modpack);
+                model.remove(modpack);
+            } else if (choice < 45) {
+                String modpack = existingPack();
+                String mod = name(300);
+                if (model.containsKey(modpack)) {
+                    manager.addModToModpack(modpack, mod);
+                    model.get(modpack).add(mod);
+                }
+            } else if (choice < 70) {
+                String modpack = existingPack();
+                Set<String> mods = model.get(modpack);
+                String mod = mods != null && !mods.isEmpty() && random.nextBoolean()
+                        ? mods.iterator().next() : name(300);
+                manager.removeModFromModpack(modpack, mod);
+                if (mods != null) {
+                    mods.remove(mod);
+                }
+            } else if (choice < 80) {
+                String modpack = existingPack();
+                List<String> mods = mods(1 + random.nextInt(20));
+                if (model.containsKey(modpack)) {
+                    manager.addModsToModpack(modpack, mods);
+                    model.get(modpack).addAll(mods);
+                }
+            } else if (choice < 88) {
+                String modpack = existingPack();
+                Set<String> current = model.get(modpack);
+                List<String> mods = mods(1 + random.nextInt(10));
+                if (current != null && !current.isEmpty()) {
+                    mods.add(current.iterator().next());
+                }
+                manager.removeModsFromModpack(modpack, mods);
+                if (current != null) {
+                    current.removeAll(mods);
+                }
+            } else {
+                String modpack = existingPack();
+                if (model.containsKey(modpack)) {
+                    List<String> mods = mods(random.nextInt(30));
+                    manager.setModpackMods(modpack, mods);
+                    model.put(modpack, new LinkedHashSet<>(mods));
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,42 @@
 package com.example;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
 /**
  * Simple and clean test runner for the Minecraft Modpack Manager
  * Tests all core functionality without dependencies on GUI components
@@ -8,10 +45,23 @@ public class SimpleTestRunner {
     
     private int totalTests = 0;
     private int passedTests = 0;
+    // Names of the checks that failed, in order
+    private final List<String> failedTests = new ArrayList<>();
     
     public static void main(String[] args) {
         SimpleTestRunner runner = new SimpleTestRunner();
         runner.runAllTests();
+        if (!runner.getFailedTests().isEmpty()) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Get the names of the checks that failed in the last run
+     * @return Failed check names, empty when everything passed
+     */
+    public List<String> getFailedTests() {
+        return Collections.unmodifiableList(failedTests);
     }
     
     public void runAllTests() {
@@ -21,6 +71,26 @@ public class SimpleTestRunner {
         
         testModpackUpdate();
         testModpackManager();
+        testModIndex();
+        testChangeEvents();
+        testSearchIndex();
+        testPersistence();
+        testJournal();
+        testFileLoader();
+        testBinaryFormat();
+        testJarScanner();
+        testHashService();
+        testBatchAndImport();
+        testDependencies();
+        testCli();
+        testMetrics();
+        testUndo();
+        testShards();
+        testComparison();
+        testExport();
+        testViews();
+        testInternedMods();
+        testWatcher();
         testIntegrationScenarios();
         
         displayResults();
@@ -49,17 +119,61 @@ public class SimpleTestRunner {
              update.hasChanges());
         
         // Test removing mods
-        update.removeMod("OptiFine");
+        update.removeMod("Sodium");
         test("Remove mods functionality", 
-             update.getRemovedMods().contains("OptiFine") && 
+             update.getRemovedMods().contains("Sodium") && 
              update.getAddedMods().contains("JEI"));
         
+        // Removing an added mod cancels the addition instead of recording both
+        update.removeMod("OptiFine");
+        test("Remove cancels earlier add", 
+             update.getAddedMods().equals(List.of("JEI")) && 
+             update.getRemovedMods().equals(List.of("Sodium")));
+        
         // Test clearing changes
         update.clearChanges();
         test("Clear changes functionality", 
              !update.hasChanges() && 
              update.getAddedMods().isEmpty() && 
              update.getRemovedMods().isEmpty());
+        
+        // Changes are tracked per modpack
+        update.addMod("Alpha", "JEI");
+        update.addMod("Beta", "Create");
+        update.removeMod("Beta", "JEI");
+        test("Per-modpack change tracking", 
+             update.getAddedMods("Alpha").equals(List.of("JEI")) && 
+             update.getAddedMods("Beta").equals(List.of("Create")) && 
+             update.getRemovedMods("Beta").equals(List.of("JEI")) && 
+             update.getRemovedMods("Alpha").isEmpty() && 
+             update.getChangedModpacks().equals(List.of("Alpha", "Beta")));
+        
+        update.addMod("Beta", "JEI");
+        update.removeMod("Beta", "Create");
+        update.clearChanges("Alpha");
+        test("Cancelled and cleared packs have no changes", 
+             !update.hasChanges("Alpha") && 
+             !update.hasChanges("Beta") && 
+             !update.hasChanges());
+        
+        // Listeners get one notification per batch
+        List<List<ModChange>> batches = new ArrayList<>();
+        update.addChangeListener(batches::add);
+        update.addMod("Alpha", "JEI");
+        update.beginChanges();
+        update.addMod("Alpha", "Create");
+        update.beginChanges();
+        update.removeMod("Alpha", "JEI");
+        update.endChanges();
+        boolean heldUntilOuterEnd = batches.size() == 1;
+        update.endChanges();
+        test("Listeners receive batched changes", 
+             heldUntilOuterEnd && 
+             batches.size() == 2 && 
+             batches.get(0).size() == 1 && 
+             batches.get(1).size() == 2 && 
+             batches.get(1).get(1).getMod().equals("JEI") && 
+             !batches.get(1).get(1).isAdded());
     }
     
     /**
@@ -112,6 +226,1761 @@ public class SimpleTestRunner {
              manager.getModpacks().size() == 1);
     }
     
+    /**
+     * Test the mod to modpack reverse index
+     */
+    private void testModIndex() {
+        section("MOD INDEX TESTS");
+        
+        ModpackManager manager = new ModpackManager();
+        manager.addModpack("Alpha");
+        manager.addModpack("Beta");
+        manager.addModToModpack("Alpha", "JEI");
+        manager.addModToModpack("Alpha", "Waystones");
+        manager.addModToModpack("Beta", "JEI");
+        manager.addModToModpack("Alpha", "JEI");
+        
+        test("Duplicate mods are ignored", 
+             manager.getModpackMods("Alpha").size() == 2);
+        
+        test("Find modpacks containing a mod", 
+             manager.getModpacksContaining("JEI").equals(List.of("Alpha", "Beta")) && 
+             manager.getModpacksContaining("Waystones").equals(List.of("Alpha")) && 
+             manager.getModpacksContaining("Missing").isEmpty());
+        
+        manager.removeModFromModpack("Beta", "JEI");
+        test("Index follows mod removal", 
+             manager.getModpacksContaining("JEI").equals(List.of("Alpha")));
+        
+        manager.addModToModpack("Beta", "JEI");
+        manager.removeModEverywhere("JEI");
+        test("Remove mod from every modpack", 
+             manager.getModpacksContaining("JEI").isEmpty() && 
+             !manager.getModpackMods("Alpha").contains("JEI") && 
+             manager.getModpackMods("Beta").isEmpty());
+        
+        manager.removeModpack("Alpha");
+        test("Index follows modpack removal", 
+             manager.getModpacksContaining("Waystones").isEmpty());
+        
+        manager.addModpack("Gamma");
+        manager.addModToModpack("Gamma", "C");
+        manager.addModToModpack("Gamma", "A");
+        manager.addModToModpack("Gamma", "B");
+        test("Mods keep insertion order", 
+             manager.getModpackMods("Gamma").equals(List.of("C", "A", "B")));
+    }
+    
+    /**
+     * Test change events published to listeners
+     */
+    private void testChangeEvents() {
+        section("CHANGE EVENT TESTS");
+        
+        ModpackManager manager = new ModpackManager();
+        List<String> events = new ArrayList<>();
+        ModpackListener listener = new ModpackListener() {
+            @Override
+            public void modpackAdded(String modpack) {
+                events.add("+P " + modpack);
+            }
+            
+            @Override
+            public void modpackRemoved(String modpack, Set<String> mods) {
+                events.add("-P " + modpack);
+            }
+            
+            @Override
+            public void modAdded(String modpack, String mod) {
+                events.add("+M " + modpack + " " + mod);
+            }
+            
+            @Override
+            public void modRemoved(String modpack, String mod) {
+                events.add("-M " + modpack + " " + mod);
+            }
+            
+            @Override
+            public void dataReplaced() {
+                events.add("replaced");
+            }
+        };
+        manager.addModpackListener(listener);
+        
+        manager.addModpack("Alpha");
+        manager.addModToModpack("Alpha", "JEI");
+        manager.addModToModpack("Alpha", "Create");
+        manager.removeModFromModpack("Alpha", "JEI");
+        manager.removeModpack("Alpha");
+        test("Mutations fire one event each, in order", 
+             events.equals(List.of("+P Alpha", "+M Alpha JEI", "+M Alpha Create", "-M Alpha JEI", "-P Alpha")));
+        
+        events.clear();
+        manager.addModpack("Beta");
+        manager.addModpack("Beta");
+        manager.addModToModpack("Beta", "JEI");
+        manager.addModToModpack("Beta", "JEI");
+        manager.removeModFromModpack("Beta", "Missing");
+        manager.removeModpack("Missing");
+        test("No-op mutations fire no events", 
+             events.equals(List.of("+P Beta", "+M Beta JEI")));
+        
+        events.clear();
+        manager.setModpackMods("Beta", List.of("A", "B"));
+        manager.setModpacks(List.of("Beta", "Gamma"));
+        test("Bulk changes fire data replaced", 
+             events.equals(List.of("replaced", "replaced")));
+        
+        events.clear();
+        manager.removeModpackListener(listener);
+        manager.addModpack("Delta");
+        test("Removed listener gets no events", events.isEmpty());
+        
+        ConcurrentModpackManager concurrent = new ConcurrentModpackManager();
+        concurrent.addModpackListener(listener);
+        concurrent.addModpack("Alpha");
+        concurrent.addModToModpack("Alpha", "JEI");
+        concurrent.addModToModpack("Alpha", "JEI");
+        concurrent.removeModpack("Alpha");
+        test("Concurrent manager fires the same events", 
+             events.equals(List.of("+P Alpha", "+M Alpha JEI", "-P Alpha")));
+    }
+    
+    /**
+     * Test the incremental name search index
+     */
+    private void testSearchIndex() {
+        section("SEARCH INDEX TESTS");
+        
+        ModpackManager manager = new ModpackManager();
+        manager.addModpack("Tech World");
+        manager.addModpack("Magic World");
+        manager.addModToModpack("Tech World", "Applied Energistics");
+        manager.addModToModpack("Tech World", "JEI");
+        manager.addModToModpack("Magic World", "JEI");
+        manager.addModToModpack("Magic World", "Botania");
+        ModpackSearchIndex index = new ModpackSearchIndex(manager);
+        
+        List<ModpackSearchIndex.SearchResult> jei = index.search("jei");
+        test("Search is case-insensitive and lists containing packs", 
+             jei.size() == 1 && 
+             jei.get(0).isMod() && 
+             jei.get(0).getModpacks().equals(List.of("Tech World", "Magic World")));
+        
+        List<ModpackSearchIndex.SearchResult> world = index.search("world");
+        test("Substring search finds modpacks", 
+             world.size() == 2 && world.get(0).isModpack() && !world.get(0).isMod());
+        
+        List<ModpackSearchIndex.SearchResult> ma = index.search("ma");
+        test("Short queries match and prefix matches come first", 
+             ma.size() == 1 && ma.get(0).getName().equals("Magic World"));
+        
+        manager.addModToModpack("Tech World", "Mekanism");
+        manager.removeModFromModpack("Magic World", "Botania");
+        test("Index follows adds and removes", 
+             index.search("mekan").size() == 1 && 
+             index.search("botania").isEmpty());
+        
+        manager.removeModpack("Tech World");
+        test("Removing a modpack releases names only it used", 
+             index.search("mekanism").isEmpty() && 
+             index.search("applied").isEmpty() && 
+             index.search("jei").get(0).getModpacks().equals(List.of("Magic World")) && 
+             index.size() == 2);
+        
+        manager.setModpacks(List.of("Magic World", "Replaced"));
+        test("Bulk changes rebuild the index", 
+             index.search("replaced").size() == 1);
+        
+        // Churn enough names to trigger compaction, then compare against a brute-force scan
+        for (int i = 0; i < 5000; i++) {
+            manager.addModToModpack("Replaced", "Churn Mod " + i);
+        }
+        for (int i = 0; i < 5000; i += 2) {
+            manager.removeModFromModpack("Replaced", "Churn Mod " + i);
+        }
+        for (int i = 0; i < 3000; i++) {
+            manager.removeModFromModpack("Replaced", "Churn Mod " + i);
+        }
+        int expected = 0;
+        for (String mod : manager.getModpackMods("Replaced")) {
+            if (mod.toLowerCase().contains("mod 41")) {
+                expected++;
+            }
+        }
+        test("Index matches a full scan after heavy churn", 
+             index.search("MOD 41", Integer.MAX_VALUE).size() == expected && 
+             index.search("churn", Integer.MAX_VALUE).size() == 1000 && 
+             index.search("churn", 10).size() == 10);
+        
+        index.dispose();
+        manager.addModpack("Unseen");
+        test("Disposed index stops following changes", index.search("unseen").isEmpty());
+    }
+    
+    /**
+     * Test saving and loading, including background saves
+     */
+    private void testPersistence() {
+        section("PERSISTENCE TESTS");
+        
+        try {
+            Path dir = Files.createTempDirectory("modpack-test");
+            Path dataFile = dir.resolve("modpack_data.txt");
+            
+            ModpackManager manager = new ModpackManager();
+            manager.setDataFile(dataFile);
+            manager.addModpack("Empty Pack");
+            manager.addModpack("Full Pack");
+            manager.addModToModpack("Full Pack", "JEI");
+            manager.addModToModpack("Full Pack", "Mekanism");
+            manager.saveToJson();
+            
+            ModpackManager loaded = new ModpackManager();
+            loaded.setDataFile(dataFile);
+            loaded.loadFromJson();
+            test("Save and load round trip", 
+                 loaded.getModpacks().equals(manager.getModpacks()) && 
+                 loaded.getModpackMods("Full Pack").equals(List.of("JEI", "Mekanism")) && 
+                 loaded.getModpackMods("Empty Pack").isEmpty() && 
+                 !Files.exists(dir.resolve("modpack_data.txt.tmp")));
+            
+            AtomicInteger saves = new AtomicInteger();
+            CountDownLatch saved = new CountDownLatch(1);
+            PersistenceScheduler scheduler = new PersistenceScheduler(manager::snapshot, Runnable::run, dataFile, 100);
+            scheduler.setOnSaved(time -> {
+                saves.incrementAndGet();
+                saved.countDown();
+            });
+            for (int i = 0; i < 50; i++) {
+                manager.addModToModpack("Full Pack", "Mod " + i);
+                scheduler.markDirty();
+            }
+            boolean finished = saved.await(5, TimeUnit.SECONDS);
+            Thread.sleep(200);
+            
+            loaded.loadFromJson();
+            test("Background saves are coalesced", 
+                 finished && saves.get() == 1 && 
+                 loaded.getModpackMods("Full Pack").size() == 52);
+            
+            manager.addModToModpack("Empty Pack", "Waystones");
+            scheduler.markDirty();
+            scheduler.close();
+            loaded.loadFromJson();
+            test("Close flushes pending saves", 
+                 loaded.getModpackMods("Empty Pack").equals(List.of("Waystones")));
+            
+            // Closing before anything was loaded or changed must not write the empty data
+            ModpackManager unloaded = new ModpackManager();
+            unloaded.setDataFile(dataFile);
+            AtomicInteger writes = new AtomicInteger();
+            PersistenceScheduler idle = new PersistenceScheduler(unloaded::snapshot, Runnable::run, dataFile, 100);
+            idle.setOnSaved(time -> writes.incrementAndGet());
+            idle.close();
+            PersistenceScheduler discarded = new PersistenceScheduler(unloaded::snapshot, Runnable::run, dataFile, 100);
+            discarded.setOnSaved(time -> writes.incrementAndGet());
+            discarded.markDirty();
+            discarded.discard();
+            Thread.sleep(200);
+            loaded.loadFromJson();
+            test("Close without changes and discard write nothing",
+                 writes.get() == 0 && !idle.isDirty() &&
+                 loaded.getModpackMods("Empty Pack").equals(List.of("Waystones")));
+
+            PersistenceScheduler written = new PersistenceScheduler(manager::snapshot, Runnable::run, dataFile, 100);
+            written.setOnSaved(time -> writes.incrementAndGet());
+            written.markDirty();
+            written.flush();
+            boolean cleanAfterFlush = !written.isDirty();
+            written.close();
+            test("Close skips changes an earlier write saved", cleanAfterFlush && writes.get() == 1);
+
+            // Parse on another thread, then install, as the GUI does at startup
+            ModpackManager deferred = new ModpackManager();
+            deferred.setDataFile(dataFile);
+            List<ModpackFileLoader.LoadResult> read = new ArrayList<>();
+            Thread reader = new Thread(() -> {
+                try {
+                    read.add(deferred.readData());
+                } catch (IOException e) {
+                    read.add(null);
+                }
+            });
+            reader.start();
+            reader.join();
+            boolean untouched = deferred.getModpacks().isEmpty();
+            deferred.installData(read.get(0));
+            test("Data read in the background installs like a load", 
+                 untouched && deferred.getModpacks().equals(loaded.getModpacks()) && 
+                 deferred.getModpackMods("Empty Pack").equals(List.of("Waystones")));
+            
+            // A data file that exists but cannot be read is not treated as empty
+            Path unreadable = Files.createDirectory(dataFile.resolveSibling("unreadable.txt"));
+            ModpackManager failed = new ModpackManager();
+            failed.setDataFile(unreadable);
+            failed.addModpack("Kept");
+            boolean readOk = failed.loadFromJson();
+            test("A failed read keeps the current data and reports it", 
+                 !readOk && failed.getModpacks().equals(List.of("Kept")) && 
+                 failed.getLastLoadReport().contains("will not be saved") && 
+                 !failed.installData(null) && failed.getModpacks().equals(List.of("Kept")));
+        } catch (Exception e) {
+            test("Persistence tests ran without errors: " + e.getMessage(), false);
+        }
+    }
+    
+    /**
+     * Test journal storage, replay and compaction
+     */
+    private void testJournal() {
+        section("JOURNAL TESTS");
+        
+        try {
+            Path dir = Files.createTempDirectory("modpack-journal-test");
+            Path dataFile = dir.resolve("modpack_data.txt");
+            Path journalFile = dir.resolve("modpack_data.txt.journal");
+            
+            ModpackManager manager = new ModpackManager();
+            manager.setDataFile(dataFile);
+            manager.enableJournal(1L << 20);
+            manager.loadFromJson();
+            manager.addModpack("Journaled");
+            manager.addModToModpack("Journaled", "JEI");
+            manager.addModToModpack("Journaled", "Create");
+            manager.removeModFromModpack("Journaled", "JEI");
+            manager.saveToJson();
+            
+            test("Changes are appended, not rewritten", 
+                 !Files.exists(dataFile) && Files.exists(journalFile));
+            
+            // Simulate a crash in the middle of writing a record
+            Files.write(journalFile, "1234abcd\t+M\tJourn".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            
+            ModpackManager replayed = new ModpackManager();
+            replayed.setDataFile(dataFile);
+            replayed.enableJournal(1L << 20);
+            replayed.loadFromJson();
+            test("Replay journal and skip torn record", 
+                 replayed.getModpacks().equals(List.of("Journaled")) && 
+                 replayed.getModpackMods("Journaled").equals(List.of("Create")) && 
+                 !replayed.hasChanges());
+            
+            replayed.addModToModpack("Journaled", "Waystones");
+            replayed.compactJournal();
+            replayed.closeJournal();
+            
+            ModpackManager compacted = new ModpackManager();
+            compacted.setDataFile(dataFile);
+            compacted.loadFromJson();
+            test("Compaction folds journal into data file", 
+                 compacted.getModpackMods("Journaled").equals(List.of("Create", "Waystones")) && 
+                 !Files.exists(dir.resolve("modpack_data.txt.journal.old")));
+            
+            ModpackManager small = new ModpackManager();
+            small.setDataFile(dataFile);
+            small.enableJournal(256);
+            small.loadFromJson();
+            for (int i = 0; i < 100; i++) {
+                small.addModToModpack("Journaled", "Mod " + i);
+            }
+            small.closeJournal();
+            
+            ModpackManager reloaded = new ModpackManager();
+            reloaded.setDataFile(dataFile);
+            reloaded.enableJournal(256);
+            reloaded.loadFromJson();
+            test("Threshold compaction keeps all changes", 
+                 reloaded.getModpackMods("Journaled").size() == 102 && 
+                 (!Files.exists(journalFile) || Files.size(journalFile) < 1024));
+            reloaded.closeJournal();
+        } catch (Exception e) {
+            test("Journal tests ran without errors: " + e.getMessage(), false);
+        }
+    }
+    
+    /**
+     * Test that the parallel loader matches the original line-by-line parser
+     */
+    private void testFileLoader() {
+        section("FILE LOADER TESTS");
+        
+        try {
+            Path dataFile = Files.createTempDirectory("modpack-loader-test").resolve("modpack_data.txt");
+            StringBuilder content = new StringBuilder("MODPACKS:\n");
+            for (int pack = 0; pack < 6000; pack++) {
+                content.append("Pack ").append(pack).append(pack % 7 == 0 ? "\r\n" : "\n");
+            }
+            content.append("Ünïcödé Pack\n\nMODPACK_MODS:\n");
+            for (int pack = 0; pack < 6000; pack++) {
+                content.append("Pack ").append(pack).append(":\n");
+                for (int mod = 0; mod < pack % 60; mod++) {
+                    content.append("  Mod ").append((pack * 31 + mod) % 500).append(mod % 9 == 0 ? "  \r\n" : "\n");
+                }
+                if (pack % 100 == 0) {
+                    content.append("   \n\tstray line\n");
+                }
+            }
+            content.append("Ünïcödé Pack:\n  Jäger Mod\nPack 5:\n  Replaced\n  Mod end");
+            Files.write(dataFile, content.toString().getBytes(StandardCharsets.UTF_8));
+            
+            Set<String> expectedPacks = new LinkedHashSet<>();
+            Map<String, Set<String>> expectedMods = new HashMap<>();
+            parseLikeOriginal(dataFile, expectedPacks, expectedMods);
+            
+            ModpackManager manager = new ModpackManager();
+            manager.setDataFile(dataFile);
+            manager.loadFromJson();
+            
+            boolean modsMatch = true;
+            for (Map.Entry<String, Set<String>> entry : expectedMods.entrySet()) {
+                modsMatch &= manager.getModpackMods(entry.getKey()).equals(List.copyOf(entry.getValue()));
+            }
+            test("Loader matches original parser", 
+                 manager.getModpacks().equals(List.copyOf(expectedPacks)) && 
+                 modsMatch && 
+                 manager.getModpackMods("Pack 5").equals(List.of("Replaced", "Mod end")) && 
+                 manager.getModpackMods("Pack 0").equals(List.of("")) && 
+                 manager.getModpackMods("Ünïcödé Pack").equals(List.of("Jäger Mod")));
+            test("Loader reports counts", 
+                 manager.getLastLoadReport().startsWith("Loaded 6001 modpacks") && 
+                 !manager.getLastLoadReport().contains(" 1 chunks"));
+            
+            // Older versions saved in the platform charset, so a file need not be UTF-8
+            Path legacyFile = dataFile.resolveSibling("legacy_data.txt");
+            byte[] legacy = "MODPACKS:\nCafé Pack\nMODPACK_MODS:\nCafé Pack:\n  Café Mod\n  JEI\n"
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            Files.write(legacyFile, legacy);
+            String pack = new String("Café Pack".getBytes(StandardCharsets.ISO_8859_1), Charset.defaultCharset());
+            String mod = new String("Café Mod".getBytes(StandardCharsets.ISO_8859_1), Charset.defaultCharset());
+            ModpackManager legacyManager = new ModpackManager();
+            legacyManager.setDataFile(legacyFile);
+            legacyManager.loadFromJson();
+            test("Legacy-encoded file loads as the platform charset reads it", 
+                 legacyManager.getModpacks().equals(List.of(pack)) && 
+                 legacyManager.getModpackMods(pack).equals(List.of(mod, "JEI")));
+        } catch (Exception e) {
+            test("File loader tests ran without errors: " + e.getMessage(), false);
+        }
+    }
+    
+    /**
+     * Test the dictionary-encoded binary snapshot format
+     */
+    private void testBinaryFormat() {
+        section("BINARY FORMAT TESTS");
+        
+        try {
+            Path dir = Files.createTempDirectory("modpack-binary-test");
+            Path textFile = dir.resolve("modpack_data.txt");
+            Path binaryFile = dir.resolve("modpack_data.bin");
+            
+            ModpackManager manager = new ModpackManager();
+            manager.setDataFile(textFile);
+            manager.addModpack("Empty");
+            for (int pack = 0; pack < 200; pack++) {
+                manager.addModpack("Pack " + pack);
+                for (int mod = 0; mod < 50; mod++) {
+                    manager.addModToModpack("Pack " + pack, "Popular Mod Number " + ((pack + mod) % 80));
+                }
+            }
+            manager.saveToJson();
+            manager.saveToBinary(binaryFile);
+            
+            ModpackManager loaded = new ModpackManager();
+            loaded.loadFromBinary(binaryFile);
+            boolean same = loaded.getModpacks().equals(manager.getModpacks());
+            for (String pack : manager.getModpacks()) {
+                same &= loaded.getModpackMods(pack).equals(manager.getModpackMods(pack));
+            }
+            test("Binary round trip", same && loaded.getModpackMods("Empty").isEmpty());
+            
+            test("Binary file is smaller than text", 
+                 Files.size(binaryFile) * 4 < Files.size(textFile));
+            
+            test("Names are shared after loading", 
+                 loaded.getModpackMods("Pack 0").get(5) == loaded.getModpackMods("Pack 1").get(4));
+            
+            Path convertedText = dir.resolve("converted.txt");
+            Path convertedBinary = dir.resolve("converted.bin");
+            ModpackBinaryFormat.binaryToText(binaryFile, convertedText);
+            ModpackBinaryFormat.textToBinary(convertedText, convertedBinary);
+            test("Converters round trip", 
+                 Files.readAllLines(convertedText).equals(Files.readAllLines(textFile)) && 
+                 Arrays.equals(Files.readAllBytes(convertedBinary), Files.readAllBytes(binaryFile)));
+            
+            byte[] corrupt = Files.readAllBytes(binaryFile);
+            corrupt[corrupt.length / 2] ^= 0x01;
+            Files.write(binaryFile, corrupt);
+            PrintStream err = System.err;
+            System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+            loaded.loadFromBinary(binaryFile);
+            System.setErr(err);
+            test("Corrupt snapshot is rejected", 
+                 loaded.getModpacks().size() == 201 && 
+                 loaded.getModpackMods("Pack 3").size() == 50);
+
+            // Magic, version 1 and a dictionary count near Integer.MAX_VALUE in a ten-byte file
+            Files.write(binaryFile, new byte[] {'M', 'P', 'K', 'B', 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+            boolean rejected;
+            try {
+                ModpackBinaryFormat.read(binaryFile);
+                rejected = false;
+            } catch (IOException e) {
+                rejected = e.getMessage().contains("out of range");
+            }
+            test("Oversized count is rejected before allocating", rejected);
+
+            Files.write(binaryFile, Arrays.copyOf(corrupt, corrupt.length / 3));
+            System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+            loaded.loadFromBinary(binaryFile);
+            System.setErr(err);
+            test("Truncated snapshot is rejected", loaded.getModpacks().size() == 201);
+        } catch (Exception e) {
+            test("Binary format tests ran without errors: " + e.getMessage(), false);
+        }
+    }
+    
+    /**
+     * Test the streaming JSON reader and the mods folder scanner
+     */
+    private void testJarScanner() {
+        section("JAR SCANNER TESTS");
+        
+        try {
+            JsonReader json = new JsonReader(new StringReader(
+                    "{\"a\": [1, {\"skip\": [true, null]}], \"b\": \"x\\\"y\\u0041\", \"c\": -2.5e3}"));
+            json.beginObject();
+            json.nextName();
+            json.skipValue();
+            boolean parsed = json.nextName().equals("b") && json.nextString().equals("x\"yA") && 
+                    json.nextName().equals("c") && json.nextString().equals("-2.5e3");
+            json.endObject();
+            test("JSON reader parses and skips values", 
+                 parsed && json.peek() == JsonReader.Token.END_DOCUMENT);
+            
+            Path mods = Files.createTempDirectory("modpack-scan-test");
+            writeJar(mods.resolve("sodium.jar"), "fabric.mod.json", 
+                     "{\"schemaVersion\": 1, \"id\": \"sodium\", \"version\": \"0.5.8\", " + 
+                     "\"name\": \"Sodium\", \"depends\": {\"minecraft\": \">=1.20\"}}");
+            writeJar(mods.resolve("create.jar"), "META-INF/mods.toml", 
+                     "modLoader=\"javafml\"\n[[mods]]\nmodId=\"create\"\nversion=\"${file.jarVersion}\"\n" + 
+                     "displayName=\"Create\" # the mod\n[[dependencies.create]]\nmodId=\"forge\"\n", 
+                     "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\nImplementation-Version: 0.5.1\n");
+            writeJar(mods.resolve("jei.jar"), "mcmod.info", 
+                     "{\"modListVersion\": 2, \"modList\": [{\"modid\": \"jei\", \"name\": \"Just Enough Items\", \"version\": \"4.16\"}]}");
+            writeJar(mods.resolve("library.jar"), "com/example/Lib.class", "");
+            Files.write(mods.resolve("broken.jar"), "not a zip".getBytes(StandardCharsets.UTF_8));
+            Files.write(mods.resolve("readme.txt"), "ignored".getBytes(StandardCharsets.UTF_8));
+            
+            Path cacheFile = mods.resolve("scan_cache.txt");
+            ModJarScanner scanner = new ModJarScanner(cacheFile, 4);
+            AtomicInteger lastDone = new AtomicInteger();
+            ModJarScanner.ScanResult first = scanner.scan(mods, (done, total) -> lastDone.set(done), () -> false);
+            List<String> names = new ArrayList<>();
+            for (ModInfo mod : first.getMods()) {
+                names.add(mod.getDisplayName() + " " + mod.getModId() + " " + mod.getVersion());
+            }
+            test("Scanner reads fabric, mods.toml and mcmod.info metadata", 
+                 names.equals(List.of("Create create 0.5.1", "Just Enough Items jei 4.16", "library  ", "Sodium sodium 0.5.8")));
+            test("Unreadable jars are reported, not thrown", 
+                 first.getFailures().size() == 1 && first.getFailures().get(0).startsWith("broken.jar") && 
+                 first.getReopened() == 5 && lastDone.get() == 5);
+            
+            ModJarScanner.ScanResult second = scanner.scan(mods, null, () -> false);
+            test("Rescan answers unchanged jars from the cache", 
+                 second.getReopened() == 1 && second.getCached() == 4 && second.getMods().size() == 4);
+            
+            writeJar(mods.resolve("sodium.jar"), "fabric.mod.json", 
+                     "{\"id\": \"sodium\", \"version\": \"0.6.0\", \"name\": \"Sodium\"}");
+            Files.setLastModifiedTime(mods.resolve("sodium.jar"), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+            Files.delete(mods.resolve("broken.jar"));
+            scanner.saveCache();
+            ModJarScanner reloaded = new ModJarScanner(cacheFile, 4);
+            ModJarScanner.ScanResult third = reloaded.scan(mods, null, () -> false);
+            test("Persisted cache only reopens changed jars", 
+                 third.getReopened() == 1 && 
+                 third.getMods().get(3).getVersion().equals("0.6.0") && 
+                 reloaded.getCacheSize() == 4);
+            
+            ModJarScanner.ScanResult cancelled = new ModJarScanner(null).scan(mods, null, () -> true);
+            test("Scan can be cancelled", cancelled.isCancelled() && cancelled.getMods().isEmpty());
+        } catch (Exception e) {
+            test("Jar scanner tests ran without errors: " + e.getMessage(), false);
+        }
+    }
+    
+    /**
+     * Test jar hashing, the hash cache and duplicate and change detection
+     */
+    private void testHashService() {
+        section("HASH SERVICE TESTS");
+        
+        try {
+            Path dir = Files.createTempDirectory("modpack-hash-test");
+            Path packA = Files.createDirectories(dir.resolve("a"));
+            Path packB = Files.createDirectories(dir.resolve("b"));
+            Files.write(packA.resolve("sodium.jar"), "sodium".getBytes(StandardCharsets.UTF_8));
+            Files.write(packA.resolve("jei.jar"), "jei".getBytes(StandardCharsets.UTF_8));
+            Files.write(packB.resolve("sodium-copy.jar"), "sodium".getBytes(StandardCharsets.UTF_8));
+            Files.write(packB.resolve("create.jar"), "create".getBytes(StandardCharsets.UTF_8));
+            
+            Path cacheFile = dir.resolve("hash_cache.txt");
+            ModHashService hashes = new ModHashService(cacheFile, 4);
+            ModHashService.FileHash hash = hashes.hash(packA.resolve("jei.jar"));
+            test("File hashes are computed in one streamed pass", 
+                 hash.getSha1().equals("ec194f3b8728998675612deb427f51ec95fd01c3") && 
+                 hash.getSha512().length() == 128 && hash.getSize() == 3);
+            
+            Map<String, Path> modsA = new LinkedHashMap<>();
+            modsA.put("Sodium", packA.resolve("sodium.jar"));
+            modsA.put("JEI", packA.resolve("jei.jar"));
+            Map<String, Path> modsB = new LinkedHashMap<>();
+            modsB.put("Sodium Copy", packB.resolve("sodium-copy.jar"));
+            modsB.put("Create", packB.resolve("create.jar"));
+            hashes.trackPack("A", modsA);
+            hashes.trackPack("B", modsB);
+            List<ModHashService.DuplicateGroup> duplicates = hashes.findDuplicates();
+            test("Identical jars across packs are grouped", 
+                 duplicates.size() == 1 && duplicates.get(0).getJars().size() == 2 && 
+                 duplicates.get(0).hasDifferentNames() && 
+                 duplicates.get(0).getJars().get(1).getModpack().equals("B"));
+            test("Unchanged pack reports no changed jars", hashes.findChanged("A").isEmpty());
+            
+            Files.write(packA.resolve("jei.jar"), "jei 2".getBytes(StandardCharsets.UTF_8));
+            Files.delete(packA.resolve("sodium.jar"));
+            List<ModHashService.JarRef> changed = hashes.findChanged("A");
+            test("Modified and missing jars are reported as changed", 
+                 changed.size() == 2 && hashes.findDuplicates().isEmpty());
+            hashes.acceptChanges("A");
+            test("Accepted changes become the new baseline", 
+                 hashes.findChanged("A").size() == 1 && hashes.findChanged("A").get(0).getMod().equals("Sodium"));
+            
+            hashes.modRemoved("A", "Sodium");
+            hashes.modpackRemoved("B", Collections.emptySet());
+            test("Removed mods and modpacks stop being tracked", 
+                 hashes.findChanged("A").isEmpty() && hashes.getTrackedModpacks().equals(List.of("A")));
+            hashes.close();
+            
+            // Same size and timestamp, different bytes: a cached hash means the file was not reread
+            Path create = packB.resolve("create.jar");
+            FileTime modified = Files.getLastModifiedTime(create);
+            String createHash = new ModHashService(null).hash(create).getSha512();
+            ModHashService reloaded = new ModHashService(cacheFile, 2);
+            Files.write(create, "CREATE".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(create, modified);
+            test("Persisted cache skips rehashing unchanged files", 
+                 reloaded.hash(create).getSha512().equals(createHash) && 
+                 reloaded.getTrackedModpacks().equals(List.of("A")) && 
+                 reloaded.findChanged("A").isEmpty());
+            reloaded.close();
+        } catch (Exception e) {
+            test("Hash service tests ran without errors: " + e.getMessage(), false);
+        }
+    }
+    
+    /**
+     * Test batch mutations and modpack manifest imports
+     */
+    private void testBatchAndImport() {
+        section("BATCH AND IMPORT TESTS");
+        
+        for (AbstractModpackManager manager : List.of(new ModpackManager(), new ConcurrentModpackManager())) {
+            String kind = manager.getClass().getSimpleName() + ": ";
+            List<String> events = new ArrayList<>();
+            List<Integer> batches = new ArrayList<>();
+            manager.addModpackListener(new ModpackListener() {
+                @Override
+                public void modAdded(String modpack, String mod) {
+                    events.add("+M " + mod);
+                }
+                
+                @Override
+                public void modsAdded(String modpack, List<String> mods) {
+                    events.add("+M* " + mods.size());
+                }
+                
+                @Override
+                public void modsRemoved(String modpack, List<String> mods) {
+                    events.add("-M* " + mods);
+                }
+            });
+            manager.addChangeListener(changes -> batches.add(changes.size()));
+            
+            manager.addModpack("Big");
+            manager.addModToModpack("Big", "Mod 0");
+            events.clear();
+            batches.clear();
+            List<String> mods = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                mods.add("Mod " + i);
+            }
+            int added = manager.addModsToModpack("Big", mods);
+            test(kind + "Adding many mods is one event and one batch", 
+                 added == 299 && events.equals(List.of("+M* 299")) && batches.equals(List.of(299)) && 
+                 manager.getModpackMods("Big").size() == 300 && 
+                 manager.getModpacksContaining("Mod 150").equals(List.of("Big")));
+            
+            events.clear();
+            batches.clear();
+            int removed = manager.removeModsFromModpack("Big", List.of("Mod 1", "Mod 2", "Missing"));
+            test(kind + "Removing many mods is one event and one batch", 
+                 removed == 2 && events.equals(List.of("-M* [Mod 1, Mod 2]")) && batches.equals(List.of(2)) && 
+                 !manager.getModpackMods("Big").contains("Mod 1"));
+            
+            batches.clear();
+            manager.batch(() -> {
+                manager.addModToModpack("Big", "Extra");
+                manager.removeModFromModpack("Big", "Mod 3");
+                manager.addModsToModpack("Big", List.of("Extra 2", "Extra 3"));
+            });
+            test(kind + "A batch delivers all its changes together", batches.equals(List.of(4)));
+        }
+        
+        try {
+            Path dir = Files.createTempDirectory("modpack-import-test");
+            Path curseForge = dir.resolve("All the Mods.zip");
+            writeJar(curseForge, "manifest.json", 
+                     "{\"minecraft\": {\"version\": \"1.20.1\", \"modLoaders\": [{\"id\": \"forge-47.2.0\", \"primary\": true}]}, " + 
+                     "\"manifestType\": \"minecraftModpack\", \"name\": \"ATM9\", \"version\": \"0.2.44\", " + 
+                     "\"files\": [{\"projectID\": 238222, \"fileID\": 4712866, \"required\": true}, " + 
+                     "{\"fileID\": 1}, {\"projectID\": 32274, \"fileID\": 5, \"required\": false}], \"overrides\": \"extras\"}", 
+                     "extras/mods/local-tweaks.jar", "", 
+                     "extras/config/ignored.jar", "");
+            ModpackImporter.Manifest manifest = ModpackImporter.read(curseForge);
+            test("CurseForge export lists project IDs and bundled jars", 
+                 manifest.getMods().equals(List.of("curseforge:238222", "curseforge:32274", "local-tweaks")) && 
+                 manifest.getSkipped() == 1 && manifest.getName().equals("ATM9") && 
+                 manifest.getLoader().equals("forge-47.2.0") && manifest.getMinecraftVersion().equals("1.20.1"));
+            
+            StringBuilder index = new StringBuilder("{\"formatVersion\": 1, \"game\": \"minecraft\", \"versionId\": \"1.0\", \"files\": [");
+            for (int i = 0; i < 5000; i++) {
+                index.append(i > 0 ? ", " : "").append("{\"path\": \"mods/mod-").append(i)
+                     .append(".jar\", \"hashes\": {\"sha1\": \"00\"}, \"env\": {\"client\": \"required\"}, ")
+                     .append("\"downloads\": [\"https://cdn.modrinth.com/data/x/mod.jar\"], \"fileSize\": 1}");
+            }
+            index.append(", {\"path\": \"resourcepacks/pack.zip\"}], ")
+                 .append("\"dependencies\": {\"minecraft\": \"1.20.1\", \"fabric-loader\": \"0.15.7\"}}");
+            Path modrinth = dir.resolve("Fabulously.mrpack");
+            writeJar(modrinth, "modrinth.index.json", index.toString(), "overrides/mods/bundled.jar", "");
+            ModpackImporter.Manifest mrpack = ModpackImporter.read(modrinth);
+            test("Modrinth pack lists mods folder files and bundled jars", 
+                 mrpack.getMods().size() == 5001 && mrpack.getMods().get(0).equals("mod-0") && 
+                 mrpack.getMods().get(5000).equals("bundled") && mrpack.getSkipped() == 1 && 
+                 mrpack.getName().equals("Fabulously") && mrpack.getLoader().equals("fabric-loader 0.15.7"));
+            
+            ModpackManager manager = new ModpackManager();
+            List<Integer> batches = new ArrayList<>();
+            manager.addChangeListener(changes -> batches.add(changes.size()));
+            int added = mrpack.addTo(manager, "Imported");
+            test("Import adds the pack in one batch", 
+                 added == 5001 && batches.equals(List.of(5001)) && 
+                 manager.getModpacks().equals(List.of("Imported")));
+            
+            Path notAPack = dir.resolve("empty.zip");
+            writeJar(notAPack, "readme.txt", "nothing here");
+            boolean rejected = false;
+            try {
+                ModpackImporter.read(notAPack);
+            } catch (IOException e) {
+                rejected = true;
+            }
+            test("Archive without a manifest is rejected", rejected);
+        } catch (Exception e) {
+            test("Import tests ran without errors: " + e.getMessage(), false);
+        }
+    }
+    
+    /**
+     * Test version ranges, dependency metadata and incremental resolution
+     */
+    private void testDependencies() {
+        section("DEPENDENCY TESTS");
+        
+        test("Maven-style ranges", 
+             VersionRange.parse("[47.1,)").contains("47.2.0") && !VersionRange.parse("[47.1,)").contains("46.0.1") && 
+             VersionRange.parse("[1.0,2.0),[3.0]").contains("3.0") && !VersionRange.parse("[1.0,2.0),[3.0]").contains("2.0"));
+        test("Fabric-style ranges", 
+             VersionRange.parse(">=0.5.0 <0.6").contains("0.5.8+mc1.20.1") && !VersionRange.parse(">=0.5.0 <0.6").contains("0.6.0") && 
+             VersionRange.parse("1.20.x").contains("1.20.4") && !VersionRange.parse("1.20.x").contains("1.21") && 
+             VersionRange.parse("~1.2").contains("1.2.9") && !VersionRange.parse("~1.2").contains("1.3") && 
+             VersionRange.parse("^2.1.0").contains("2.9") && !VersionRange.parse("^2.1.0").contains("3.0.0") && 
+             VersionRange.parse("<1 || >=2").contains("2.5") && VersionRange.parse("*").contains("anything"));
+        test("Versions compare numerically, pre-releases first", 
+             VersionRange.compare("1.10", "1.9") > 0 && VersionRange.compare("1.0.0-beta", "1.0.0") < 0 && 
+             VersionRange.compare("1.0", "1.0.0") == 0 && VersionRange.compare("1.0-alpha.2", "1.0-alpha.10") < 0);
+        
+        try {
+            Path mods = Files.createTempDirectory("modpack-deps-test");
+            writeJar(mods.resolve("addon.jar"), "fabric.mod.json", 
+                     "{\"id\": \"addon\", \"version\": \"1.0\", \"provides\": [\"addon_api\"], " + 
+                     "\"depends\": {\"fabricloader\": \">=0.14\", \"sodium\": [\">=0.5 <0.6\", \"0.4.x\"]}, " + 
+                     "\"breaks\": {\"optifabric\": \"*\"}}");
+            writeJar(mods.resolve("create.jar"), "META-INF/mods.toml", 
+                     "[[mods]]\nmodId=\"create\"\nversion=\"0.5.1\"\n" + 
+                     "[[dependencies.create]]\nmodId=\"flywheel\"\nmandatory=true\nversionRange=\"[0.6.10,0.6.11)\"\n" + 
+                     "[[dependencies.create]]\nmodId=\"jei\"\ntype=\"optional\"\nversionRange=\"[15,)\"\n" + 
+                     "[[dependencies.other]]\nmodId=\"ignored\"\nmandatory=true\n");
+            Path cacheFile = mods.resolve("scan_cache.txt");
+            ModJarScanner scanner = new ModJarScanner(cacheFile, 2);
+            List<ModInfo> scanned = scanner.scan(mods, null, () -> false).getMods();
+            scanner.saveCache();
+            List<ModInfo> cached = new ModJarScanner(cacheFile, 2).getCachedMods();
+            ModInfo addon = scanned.get(0);
+            ModInfo create = scanned.get(1);
+            test("Fabric and Forge dependencies are read", 
+                 addon.getProvides().equals(List.of("addon_api")) && addon.getDependencies().size() == 3 && 
+                 addon.getDependencies().get(1).getVersions().contains("0.4.2") && 
+                 addon.getDependencies().get(2).getKind() == ModDependency.Kind.INCOMPATIBLE && 
+                 create.getDependencies().size() == 2 && 
+                 create.getDependencies().get(1).getKind() == ModDependency.Kind.OPTIONAL);
+            boolean roundTrip = cached.size() == 2;
+            for (ModInfo info : cached) {
+                ModInfo original = info.getModId().equals("addon") ? addon : create;
+                roundTrip &= info.getDependencies().toString().equals(original.getDependencies().toString()) && 
+                             info.getProvides().equals(original.getProvides());
+            }
+            test("Dependencies survive the scan cache", roundTrip);
+        } catch (Exception e) {
+            test("Dependency metadata tests ran without errors: " + e.getMessage(), false);
+        }
+        
+        ModpackManager manager = new ModpackManager();
+        ModDependencyResolver resolver = manager.getDependencyResolver();
+        resolver.addModInfo(List.of(
+            modInfo("Addon", "addon", "1.0", "REQUIRED base >=2.0", "REQUIRED minecraft 1.20.1"), 
+            modInfo("Base", "base", "1.5"), 
+            modInfo("Shader", "shader", "1.0", "INCOMPATIBLE optifine *"), 
+            modInfo("OptiFine", "optifine", "HD_U_I6"), 
+            modInfo("Ping", "ping", "1.0", "REQUIRED pong *"), 
+            modInfo("Pong", "pong", "1.0", "REQUIRED ping *")));
+        manager.addModpack("Pack");
+        manager.addModsToModpack("Pack", List.of("Addon", "Base", "Shader", "OptiFine", "Untracked"));
+        DependencyReport report = manager.checkModpackMods("Pack");
+        List<String> order = report.getLoadOrder();
+        test("Wrong versions and conflicts are reported", 
+             report.getProblems(DependencyReport.Type.WRONG_VERSION).size() == 1 && 
+             report.getProblems(DependencyReport.Type.CONFLICT).get(0).getOthers().equals(List.of("OptiFine")) && 
+             report.getProblems().size() == 2);
+        test("Load order puts dependencies first", 
+             order.size() == 5 && order.indexOf("Base") < order.indexOf("Addon"));
+        
+        resolver.addModInfo(List.of(modInfo("Base", "base", "2.1")));
+        manager.removeModFromModpack("Pack", "OptiFine");
+        report = manager.checkModpackMods("Pack");
+        test("Changes are picked up incrementally", 
+             report.isSatisfied() && resolver.getLastEvaluated() == 1);
+        
+        manager.removeModFromModpack("Pack", "Base");
+        report = manager.checkModpackMods("Pack");
+        test("Removing a dependency reports it missing", 
+             report.getProblems(DependencyReport.Type.MISSING).size() == 1 && 
+             report.getProblems().get(0).getMod().equals("Addon"));
+        
+        manager.addModsToModpack("Pack", List.of("Ping", "Pong"));
+        report = manager.checkModpackMods("Pack");
+        boolean cycle = report.getProblems(DependencyReport.Type.CYCLE).size() == 1;
+        manager.removeModFromModpack("Pack", "Pong");
+        report = manager.checkModpackMods("Pack");
+        test("Cycles are reported and cleared when broken", 
+             cycle && report.getProblems(DependencyReport.Type.CYCLE).isEmpty() && 
+             report.getProblems(DependencyReport.Type.MISSING).size() == 2);
+        
+        // A chain where every mod requires the next one, added last-first
+        ModpackManager chain = new ModpackManager();
+        List<ModInfo> infos = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            infos.add(i < 1999 ? modInfo("Chain " + i, "chain" + i, "1.0", "REQUIRED chain" + (i + 1) + " *") 
+                               : modInfo("Chain " + i, "chain" + i, "1.0"));
+            names.add("Chain " + i);
+        }
+        chain.getDependencyResolver().addModInfo(infos);
+        chain.addModsToModpack("Chain", names);
+        report = chain.checkModpackMods("Chain");
+        boolean ordered = report.isSatisfied();
+        for (int i = 0; i < 1999; i++) {
+            ordered &= report.getLoadOrder().indexOf("Chain " + (i + 1)) < report.getLoadOrder().indexOf("Chain " + i);
+        }
+        chain.removeModFromModpack("Chain", "Chain 1000");
+        int evaluated = chain.getDependencyResolver().getLastEvaluated();
+        test("Chain of 2000 mods resolves and updates one neighbour at a time", 
+             ordered && evaluated == 1 && 
+             chain.checkModpackMods("Chain").getProblems(DependencyReport.Type.MISSING).size() == 1);
+        
+        test("Base class report is empty", 
+             new ModpackUpdate().checkModpackMods("Any").getLoadOrder().isEmpty());
+    }
+    
+    /**
+     * Builds mod metadata with dependencies written as "KIND id range"
+     */
+    private static ModInfo modInfo(String name, String id, String version, String... dependencies) {
+        List<ModDependency> parsed = new ArrayList<>();
+        for (String dependency : dependencies) {
+            String[] parts = dependency.split(" ", 3);
+            parsed.add(new ModDependency(parts[1], ModDependency.Kind.valueOf(parts[0]), VersionRange.parse(parts[2])));
+        }
+        return new ModInfo(id + ".jar", id, name, version, null, parsed);
+    }
+    
+    /**
+     * Writes a jar holding the given name and content pairs
+     */
+    private static void writeJar(Path jar, String... entries) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(entries[i]));
+                zip.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+    }
+    
+    /**
+     * Reference copy of the original BufferedReader-based parser
+     */
+    private static void parseLikeOriginal(Path file, Set<String> modpacks, Map<String, Set<String>> modpackMods) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            String currentSection = "";
+            String currentModpack = "";
+            
+            while ((line = reader.readLine()) != null) {
+                String trimmedLine = line.trim();
+                
+                if (trimmedLine.equals("MODPACKS:")) {
+                    currentSection = "MODPACKS";
+                } else if (trimmedLine.equals("MODPACK_MODS:")) {
+                    currentSection = "MODPACK_MODS";
+                } else if (currentSection.equals("MODPACKS") && !trimmedLine.isEmpty()) {
+                    modpacks.add(trimmedLine);
+                } else if (currentSection.equals("MODPACK_MODS")) {
+                    if (trimmedLine.endsWith(":")) {
+                        currentModpack = trimmedLine.substring(0, trimmedLine.length() - 1);
+                        modpackMods.put(currentModpack, new LinkedHashSet<>());
+                    } else if (line.startsWith("  ") && !currentModpack.isEmpty()) {
+                        modpackMods.get(currentModpack).add(line.substring(2).trim());
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Test the headless command-line front end
+     */
+    private void testCli() {
+        section("COMMAND LINE TESTS");
+        
+        try {
+            Path dir = Files.createTempDirectory("modpack-cli-test");
+            String data = dir.resolve("data.txt").toString();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            int status = cli(new String[] {"--data", data, "add", "Sky Block", "JEI", "Iron Chests"}, "", out, err);
+            test("Add creates a modpack and saves it", 
+                 status == 0 && out.toString(StandardCharsets.UTF_8).startsWith("Created Sky Block, added 2 mods") && 
+                 Files.readString(dir.resolve("data.txt")).contains("Iron Chests"));
+            
+            test("Words are split on spaces outside quotes", 
+                 ModpackCli.tokenize("add \"Sky Block\" Waystones Mouse\\ Tweaks").equals(
+                     List.of("add", "Sky Block", "Waystones", "Mouse Tweaks")));
+            
+            out.reset();
+            err.reset();
+            FileTime before = Files.getLastModifiedTime(dir.resolve("data.txt"));
+            status = cli(new String[] {"--data", data, "list", "Sky Block"}, "", out, err);
+            test("List prints the mods of a modpack without saving", 
+                 status == 0 && out.toString(StandardCharsets.UTF_8).equals("JEI" + System.lineSeparator() + 
+                 "Iron Chests" + System.lineSeparator()) && 
+                 Files.getLastModifiedTime(dir.resolve("data.txt")).equals(before));
+            
+            out.reset();
+            err.reset();
+            String commands = "# set up a second pack\n" + 
+                              "add Vanilla+ Sodium Lithium\n" + 
+                              "remove Missing Mod\n" + 
+                              "remove \"Sky Block\" JEI\n" + 
+                              "\n" + 
+                              "export " + dir.resolve("vanilla.txt") + " Vanilla+\n";
+            status = cli(new String[] {"--data", data, "batch"}, commands, out, err);
+            ModpackManager reloaded = new ModpackManager();
+            reloaded.setDataFile(dir.resolve("data.txt"));
+            reloaded.loadFromJson();
+            ModpackManager exported = new ModpackManager();
+            exported.setDataFile(dir.resolve("vanilla.txt"));
+            exported.loadFromJson();
+            test("Batch runs every command and reports failures by line", 
+                 status == 1 && err.toString(StandardCharsets.UTF_8).contains("at line 3") && 
+                 reloaded.getModpacks().equals(List.of("Sky Block", "Vanilla+")) && 
+                 reloaded.getModpackMods("Sky Block").equals(List.of("Iron Chests")) && 
+                 exported.getModpacks().equals(List.of("Vanilla+")));
+            
+            out.reset();
+            err.reset();
+            status = cli(new String[] {"--data", data, "frobnicate"}, "", out, err);
+            test("Unknown commands are usage errors", status == 2 && out.size() == 0);
+            
+            out.reset();
+            err.reset();
+            Path brokenData = dir.resolve("broken.txt");
+            Files.writeString(brokenData, "MODPACKS:\nOld\n");
+            Path brokenIndex = dir.resolve("broken.txt.shards").resolve("index.txt");
+            Files.createDirectories(brokenIndex.getParent());
+            Files.writeString(brokenIndex, "not an index\n");
+            status = cli(new String[] {"--data", brokenData.toString(), "add", "New", "JEI"}, "", out, err);
+            test("Unreadable data stops the command line before it saves", 
+                 status == 1 && out.size() == 0 && 
+                 Files.readString(brokenData).equals("MODPACKS:\nOld\n") && 
+                 Files.readString(brokenIndex).equals("not an index\n"));
+        } catch (Exception e) {
+            test("Command line tests ran without errors: " + e.getMessage(), false);
+        }
+    }
+    
+    private static int cli(String[] args, String input, ByteArrayOutputStream out, ByteArrayOutputStream err) {
+        return ModpackCli.run(args, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), 
+                              new PrintStream(out, true, StandardCharsets.UTF_8), 
+                              new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Test operation metrics, latency histograms and the MBean
+     */
+    private void testMetrics() {
+        section("METRICS TESTS");
+        
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        long p50 = histogram.getPercentileNanos(0.5);
+        long p99 = histogram.getPercentileNanos(0.99);
+        test("Histogram percentiles are within an eighth", 
+             histogram.getCount() == 1000 && histogram.getMaxNanos() == 1_000_000 && 
+             p50 >= 500_000 && p50 <= 562_500 && p99 >= 990_000 && p99 <= 1_000_000 && 
+             histogram.getMeanNanos() == 500_500);
+        
+        try {
+            Path dir = Files.createTempDirectory("modpack-metrics-test");
+            for (AbstractModpackManager manager : List.of(new ModpackManager(), new ConcurrentModpackManager())) {
+                String kind = manager.getClass().getSimpleName() + ": ";
+                manager.setDataFile(dir.resolve(kind.trim() + ".txt"));
+                ModpackMetrics metrics = manager.getMetrics();
+                manager.addModpack("Off");
+                test(kind + "Nothing is recorded while disabled", 
+                     metrics.getLatency(ModpackMetrics.Operation.ADD_MODPACK).getCount() == 0);
+                
+                metrics.setEnabled(true);
+                manager.addModpack("Tech");
+                manager.addModpack("Tech");
+                manager.addModToModpack("Tech", "Mekanism");
+                manager.addModsToModpack("Tech", List.of("Create", "Thermal", "Create"));
+                manager.addModsToModpack("Off", List.of("Create"));
+                manager.removeModFromModpack("Tech", "Thermal");
+                manager.saveToJson();
+                manager.loadFromJson();
+                test(kind + "Changes, saves and loads are counted", 
+                     metrics.getLatency(ModpackMetrics.Operation.ADD_MODPACK).getCount() == 1 && 
+                     metrics.getLatency(ModpackMetrics.Operation.ADD_MOD).getCount() == 1 && 
+                     metrics.getLatency(ModpackMetrics.Operation.ADD_MODS).getCount() == 2 && 
+                     metrics.getLatency(ModpackMetrics.Operation.REMOVE_MOD).getCount() == 1 && 
+                     metrics.getLatency(ModpackMetrics.Operation.SAVE).getCount() == 1 && 
+                     metrics.getLatency(ModpackMetrics.Operation.LOAD).getCount() == 1 && 
+                     metrics.getLatency(ModpackMetrics.Operation.SAVE).getLastNanos() > 0);
+                test(kind + "Gauges follow the data", 
+                     metrics.getModpackCount() == 2 && metrics.getModCount() == 3 && 
+                     metrics.getDataFileSize() == Files.size(manager.getDataFile()) && 
+                     metrics.getReport().contains("2 modpacks, 3 mods"));
+                manager.removeModpack("Tech");
+                test(kind + "Mod count drops with a removed modpack", manager.getTotalModCount() == 1);
+            }
+            
+            ModpackManager manager = new ModpackManager();
+            ModpackMetrics metrics = manager.getMetrics();
+            javax.management.MBeanServer server = java.lang.management.ManagementFactory.getPlatformMBeanServer();
+            javax.management.ObjectName threading = new javax.management.ObjectName("java.lang:type=Threading");
+            Object[] thread = {Thread.currentThread().getId()};
+            String[] signature = {"long"};
+            for (int round = 0; round < 2; round++) {
+                // The first round warms up; only the second is measured
+                long before = (Long) server.invoke(threading, "getThreadAllocatedBytes", thread, signature);
+                for (int i = 0; i < 100_000; i++) {
+                    metrics.record(ModpackMetrics.Operation.ADD_MOD, metrics.start());
+                }
+                long allocated = (Long) server.invoke(threading, "getThreadAllocatedBytes", thread, signature) - before;
+                if (round == 1) {
+                    // Less than a byte per call leaves only the measuring call itself
+                    test("Disabled metrics allocate nothing", allocated < 100_000);
+                }
+            }
+            
+            metrics.setEnabled(true);
+            manager.addModpack("Pack");
+            javax.management.ObjectName name = metrics.registerMBean();
+            Object count = server.getAttribute(name, "ModpackCount");
+            Object operations = server.getAttribute(name, "Operations");
+            metrics.close();
+            test("Metrics are published as an MXBean", 
+                 Integer.valueOf(1).equals(count) && operations instanceof javax.management.openmbean.CompositeData[] && 
+                 ((javax.management.openmbean.CompositeData[]) operations).length == ModpackMetrics.Operation.values().length && 
+                 !server.isRegistered(name));
+        } catch (Exception e) {
+            test("Metrics tests ran without errors: " + e.getMessage(), false);
+        }
+    }
+    
+    /**
+     * Test undo and redo
+     */
+    private void testUndo() {
+        section("UNDO TESTS");
+        
+        ModpackManager manager = new ModpackManager();
+        test("Undo does nothing until enabled", manager.undo() == null && manager.getHistory() == null);
+        manager.enableUndo(100);
+        ModpackHistory history = manager.getHistory();
+        manager.addModpack("Skyblock");
+        manager.addModsToModpack("Skyblock", List.of("JEI", "Iron Chests", "Waystones"));
+        manager.removeModFromModpack("Skyblock", "Iron Chests");
+        
+        String undone = manager.undo();
+        test("Undo restores a removed mod", 
+             "remove Iron Chests from Skyblock".equals(undone) && 
+             manager.getModpackMods("Skyblock").containsAll(List.of("JEI", "Iron Chests", "Waystones")) && 
+             history.canRedo());
+        
+        String redone = manager.redo();
+        test("Redo repeats the change", 
+             "remove Iron Chests from Skyblock".equals(redone) && 
+             !manager.getModpackMods("Skyblock").contains("Iron Chests") && !history.canRedo());
+        
+        manager.undo();
+        manager.undo();
+        test("A batch is undone as one step", 
+             manager.getModpackMods("Skyblock").isEmpty() && 
+             "add 3 mods to Skyblock".equals(history.getRedoDescription()));
+        
+        manager.addModToModpack("Skyblock", "Botania");
+        test("A new change clears redo", !history.canRedo() && history.getUndoCount() == 2);
+        
+        manager.batch(() -> {
+            manager.addModsToModpack("Skyblock", List.of("Create", "Quark"));
+            manager.removeModpack("Skyblock");
+        });
+        manager.addModpack("Other");
+        manager.undo();
+        manager.undo();
+        test("Undo restores a deleted modpack with its mods", 
+             manager.getModpacks().equals(List.of("Skyblock")) && 
+             manager.getModpackMods("Skyblock").equals(List.of("Botania")));
+        
+        manager.redo();
+        test("Redo deletes it again", manager.getModpacks().isEmpty());
+        
+        List<Integer> batches = new ArrayList<>();
+        manager.addChangeListener(batch -> batches.add(batch.size()));
+        manager.undo();
+        test("Undo reaches change listeners as one batch", 
+             batches.size() == 1 && manager.getModpackMods("Skyblock").equals(List.of("Botania")));
+        
+        for (int i = 0; i < 150; i++) {
+            manager.addModToModpack("Skyblock", "Mod " + i);
+        }
+        test("History is capped at its limit", history.getUndoCount() == 100);
+        
+        manager.setModpackMods("Skyblock", List.of("JEI"));
+        test("Bulk replacement clears the history", !history.canUndo() && !history.canRedo());
+        
+        manager.addModpack("Tech");
+        manager.addModpack("Magic");
+        manager.removeModpack("Tech");
+        manager.undo();
+        test("Undo puts a deleted modpack back in its place", 
+             manager.getModpacks().equals(List.of("Skyblock", "Tech", "Magic")));
+        manager.redo();
+        manager.undo();
+        test("Undo after redo keeps the place", 
+             manager.getModpacks().equals(List.of("Skyblock", "Tech", "Magic")));
+        
+        int steps = history.getUndoCount();
+        manager.withoutUndo(() -> manager.batch(() -> {
+            manager.addModToModpack("Magic", "Botania");
+            manager.removeModpack("Tech");
+        }));
+        test("Changes made without undo are not recorded", 
+             history.getUndoCount() == steps && 
+             manager.getModpacks().equals(List.of("Skyblock", "Magic")));
+        
+        try {
+            Path dir = Files.createTempDirectory("modpack-undo-test");
+            Path dataFile = dir.resolve("modpack_data.txt");
+            ModpackManager journaled = new ModpackManager();
+            journaled.setDataFile(dataFile);
+            journaled.enableJournal(1L << 20);
+            journaled.enableUndo(10);
+            journaled.loadFromJson();
+            journaled.addModpack("Skyblock");
+            journaled.addModpack("Tech");
+            journaled.addModToModpack("Skyblock", "JEI");
+            journaled.removeModpack("Skyblock");
+            journaled.undo();
+            journaled.closeJournal();
+            
+            ModpackManager replayed = new ModpackManager();
+            replayed.setDataFile(dataFile);
+            replayed.enableJournal(1L << 20);
+            replayed.loadFromJson();
+            replayed.closeJournal();
+            test("Journal replays a restored modpack in its place", 
+                 replayed.getModpacks().equals(List.of("Skyblock", "Tech")) && 
+                 replayed.getModpackMods("Skyblock").equals(List.of("JEI")));
+        } catch (IOException e) {
+            test("Journal replays a restored modpack in its place", false);
+        }
+        
+        // Undo, the journal and shards live on ModpackManager, which the concurrent manager is not
+        test("Concurrent mode cannot reach undo or other storage modes", 
+             !ModpackManager.class.isAssignableFrom(ConcurrentModpackManager.class));
+    }
+    
+    /**
+     * Test sharded storage
+     */
+    private void testShards() {
+        section("SHARD TESTS");
+        
+        try {
+            Path dir = Files.createTempDirectory("modpack-shard-test");
+            Path dataFile = dir.resolve("modpack_data.txt");
+            Path folder = dir.resolve("modpack_data.txt.shards");
+            
+            ModpackManager original = new ModpackManager();
+            original.setDataFile(dataFile);
+            original.addModpack("Skyblock");
+            original.addModsToModpack("Skyblock", List.of("JEI", "Botania"));
+            original.addModpack("Tech");
+            original.addModsToModpack("Tech", List.of("Mekanism", "Tab\tName"));
+            original.addModpack("Magic");
+            original.addModToModpack("Magic", "Ars Nouveau");
+            original.saveToJson();
+            
+            ModpackManager migrated = new ModpackManager();
+            migrated.setDataFile(dataFile);
+            migrated.enableShards();
+            migrated.loadFromJson();
+            test("Single data file is migrated once", 
+                 ModpackShardStore.exists(dataFile) && !Files.exists(dataFile) && 
+                 Files.exists(dir.resolve("modpack_data.txt.migrated")) && 
+                 migrated.getModpacks().equals(List.of("Skyblock", "Tech", "Magic")) && 
+                 migrated.getLastLoadReport().contains("moved into"));
+            
+            ModpackManager lazy = new ModpackManager();
+            lazy.setDataFile(dataFile);
+            lazy.enableShards();
+            lazy.loadFromJson();
+            ModpackSearchIndex index = new ModpackSearchIndex(lazy);
+            test("Loading reads only the modpack list", 
+                 lazy.getModpacks().equals(List.of("Skyblock", "Tech", "Magic")) && 
+                 lazy.getUnloadedModpacks().equals(List.of("Skyblock", "Tech", "Magic")) && 
+                 lazy.getTotalModCount() == 0 && index.search("ars").isEmpty());
+            test("A modpack is read on first use", 
+                 lazy.getModpackMods("Tech").equals(List.of("Mekanism", "Tab\tName")) && 
+                 lazy.getUnloadedModpacks().equals(List.of("Skyblock", "Magic")));
+            lazy.loadModpack("Magic");
+            test("Search picks up a modpack once it is read", index.search("ars").size() == 1);
+            
+            lazy.addModToModpack("Skyblock", "Waystones");
+            ModpackShardStore.ShardWrite write = (ModpackShardStore.ShardWrite) lazy.prepareSave();
+            // Overwritten by hand; a save that rewrote every shard would restore it
+            Files.write(folder.resolve("2.txt"), List.of("Edited"), StandardCharsets.UTF_8);
+            lazy.saveToJson();
+            ModpackManager reloaded = new ModpackManager();
+            reloaded.setDataFile(dataFile);
+            reloaded.enableShards();
+            reloaded.loadFromJson();
+            test("Saves rewrite only changed modpacks", 
+                 write.getShardCount() == 1 && 
+                 reloaded.getModpackMods("Skyblock").equals(List.of("JEI", "Botania", "Waystones")) && 
+                 reloaded.getModpackMods("Tech").equals(List.of("Edited")));
+            
+            reloaded.removeModpack("Tech");
+            reloaded.addModpack("Vanilla");
+            reloaded.saveToJson();
+            ModpackManager afterRemove = new ModpackManager();
+            afterRemove.setDataFile(dataFile);
+            afterRemove.enableShards();
+            afterRemove.loadFromJson();
+            test("Removing a modpack deletes its shard", 
+                 afterRemove.getModpacks().equals(List.of("Skyblock", "Magic", "Vanilla")) && 
+                 !Files.exists(folder.resolve("2.txt")) && 
+                 afterRemove.getModpackMods("Magic").equals(List.of("Ars Nouveau")));
+            
+            // Lookups answer from the modpacks read so far instead of reading every shard
+            test("Summary and lookups leave unread modpacks unread", 
+                 afterRemove.getSummary().contains("Skyblock: not loaded") && 
+                 afterRemove.getModpacksContaining("JEI").isEmpty() && 
+                 afterRemove.getUnloadedModpacks().equals(List.of("Skyblock", "Vanilla")));
+            afterRemove.enableUndo(10);
+            afterRemove.removeModEverywhere("JEI");
+            int steps = afterRemove.getHistory().getUndoCount();
+            test("Removing a mod everywhere reaches modpacks read later", 
+                 afterRemove.getUnloadedModpacks().equals(List.of("Skyblock", "Vanilla")) && 
+                 afterRemove.getModpackMods("Skyblock").equals(List.of("Botania", "Waystones")) && 
+                 afterRemove.getSummary().contains("Skyblock: 2 mods") && 
+                 afterRemove.getRemovedMods("Skyblock").equals(List.of("JEI")));
+            test("Finishing a deferred removal is not an undo step", 
+                 afterRemove.getHistory().getUndoCount() == steps);
+            afterRemove.saveToJson();
+            ModpackManager pruned = new ModpackManager();
+            pruned.setDataFile(dataFile);
+            pruned.enableShards();
+            pruned.loadFromJson();
+            test("The deferred removal is saved", 
+                 pruned.getModpackMods("Skyblock").equals(List.of("Botania", "Waystones")));
+            
+            Path retryFile = dir.resolve("retry.txt");
+            Path retryFolder = dir.resolve("retry.txt.shards");
+            ModpackManager retry = new ModpackManager();
+            retry.setDataFile(retryFile);
+            retry.enableShards();
+            retry.addModpack("Kept");
+            retry.addModpack("Dropped");
+            retry.addModToModpack("Dropped", "JEI");
+            retry.saveToJson();
+            retry.removeModpack("Dropped");
+            // A folder where the index's temporary file goes makes the next save fail
+            Path blocker = Files.createDirectory(retryFolder.resolve("index.txt.tmp"));
+            retry.saveToJson();
+            boolean keptAfterFailure = Files.exists(retryFolder.resolve("2.txt"));
+            Files.delete(blocker);
+            retry.saveToJson();
+            test("A failed save's shard deletions are retried", 
+                 keptAfterFailure && !Files.exists(retryFolder.resolve("2.txt")) && 
+                 Files.exists(retryFolder.resolve("1.txt")) && 
+                 !Files.readString(retryFolder.resolve("index.txt")).contains("Dropped"));
+            
+            boolean exclusive = false;
+            try {
+                afterRemove.enableJournal(1L << 20);
+            } catch (IllegalStateException e) {
+                exclusive = true;
+            }
+            test("Sharded storage excludes journal storage", exclusive);
+        } catch (Exception e) {
+            test("Shard tests ran without errors: " + e.getMessage(), false);
+        }
+    }
+    
+    /**
+     * Test modpack diffs and the overlap matrix
+     */
+    private void testComparison() {
+        section("COMPARISON TESTS");
+        
+        ModpackManager manager = new ModpackManager();
+        manager.addModpack("Skyblock");
+        manager.addModsToModpack("Skyblock", List.of("JEI", "Botania", "Waystones"));
+        manager.addModpack("Magic");
+        manager.addModsToModpack("Magic", List.of("Ars Nouveau", "Botania", "JEI"));
+        manager.addModpack("Empty");
+        ModpackComparison comparison = manager.compareModpacks();
+        
+        ModpackComparison.Diff diff = comparison.diff("Skyblock", "Magic");
+        test("Diff lists each side in modpack order", 
+             diff.getOnlyInFirst().equals(List.of("Waystones")) && 
+             diff.getOnlyInSecond().equals(List.of("Ars Nouveau")) && 
+             diff.getShared().equals(List.of("JEI", "Botania")) && 
+             diff.getJaccard() == 0.5);
+        
+        ModpackComparison.OverlapMatrix matrix = comparison.overlapMatrix();
+        test("Matrix counts shared mods and Jaccard similarity", 
+             matrix.getShared(0, 1) == 2 && matrix.getShared(1, 0) == 2 && matrix.getShared(0, 0) == 3 && 
+             matrix.getJaccard(0, 1) == 0.5 && matrix.getJaccard(0, 2) == 0 && 
+             matrix.topPairs(1).get(0).getFirst().equals("Skyblock") && 
+             matrix.mostSimilarTo(2, 5).size() == 2);
+        
+        boolean rejected = false;
+        try {
+            comparison.diff("Skyblock", "Missing");
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        test("Diff rejects unknown modpacks", rejected);
+        
+        // Large packs take the bitset kernel and small ones the per-mod kernel; both must agree with sets
+        Random random = new Random(7);
+        List<String> packs = new ArrayList<>();
+        Map<String, Set<String>> mods = new HashMap<>();
+        for (int p = 0; p < 60; p++) {
+            Set<String> packMods = new LinkedHashSet<>();
+            int size = p % 10 == 0 ? 1500 : random.nextInt(40);
+            while (packMods.size() < size) {
+                packMods.add("Mod " + random.nextInt(2000));
+            }
+            packs.add("Pack " + p);
+            mods.put("Pack " + p, packMods);
+        }
+        ModpackComparison.OverlapMatrix random60 = new ModpackComparison(packs, mods).overlapMatrix();
+        boolean matches = true;
+        for (int i = 0; i < packs.size(); i++) {
+            for (int j = 0; j < packs.size(); j++) {
+                Set<String> both = new HashSet<>(mods.get(packs.get(i)));
+                both.retainAll(mods.get(packs.get(j)));
+                matches &= random60.getShared(i, j) == both.size();
+            }
+        }
+        test("Overlap matrix matches set intersections", matches);
+        List<ModpackComparison.Overlap> top = random60.topPairs(10);
+        boolean ordered = top.size() == 10;
+        for (int i = 1; i < top.size(); i++) {
+            ordered &= top.get(i - 1).getJaccard() >= top.get(i).getJaccard();
+        }
+        test("Top pairs are ordered by similarity", ordered);
+    }
+    
+    /**
+     * Test modpack archive export
+     */
+    private void testExport() {
+        section("EXPORT TESTS");
+        
+        try {
+            Path instance = Files.createTempDirectory("modpack-export-test");
+            Path mods = Files.createDirectories(instance.resolve("mods"));
+            Path config = Files.createDirectories(instance.resolve("config").resolve("jei"));
+            byte[] jarBytes = new byte[300_000];
+            new Random(3).nextBytes(jarBytes);
+            Files.write(mods.resolve("jei-15.2.jar"), jarBytes);
+            Files.writeString(mods.resolve("waystones.jar"), "");
+            StringBuilder toml = new StringBuilder();
+            for (int i = 0; i < 100_000; i++) {
+                toml.append("option").append(i).append(" = true\n");
+            }
+            Files.writeString(config.resolve("big.toml"), toml);
+            Files.writeString(config.resolve("small.cfg"), "enabled=true\n");
+            List<Path> folders = ModpackExporter.findConfigFolders(mods);
+            test("Config folders are found next to the mods folder", 
+                 folders.equals(List.of(instance.resolve("config"))));
+            
+            Map<String, Path> jars = new LinkedHashMap<>();
+            jars.put("JEI", mods.resolve("jei-15.2.jar"));
+            jars.put("Waystones", mods.resolve("waystones.jar"));
+            List<String> packMods = List.of("JEI", "Waystones", "Botania");
+            ModpackExporter exporter = new ModpackExporter(2);
+            Path mrpack = instance.resolve("Skyblock.mrpack");
+            ModpackExporter.ExportResult result = exporter.export("Skyblock", packMods, jars, folders, mrpack);
+            test("Export reports files, compression and missing jars", 
+                 result.getFiles() == 5 && result.getStored() == 3 && result.getCompressed() == 2 && 
+                 result.getMissing().equals(List.of("Botania")) && 
+                 result.getOutputBytes() == Files.size(mrpack) && result.toString().contains("MB/s"));
+            
+            boolean intact;
+            try (ZipFile zip = new ZipFile(mrpack.toFile())) {
+                ZipEntry jar = zip.getEntry("overrides/mods/jei-15.2.jar");
+                ZipEntry big = zip.getEntry("overrides/config/jei/big.toml");
+                intact = jar.getMethod() == ZipEntry.STORED && big.getMethod() == ZipEntry.DEFLATED && 
+                         big.getCompressedSize() < big.getSize() / 4 && 
+                         Arrays.equals(zip.getInputStream(jar).readAllBytes(), jarBytes) && 
+                         new String(zip.getInputStream(big).readAllBytes(), StandardCharsets.UTF_8).equals(toml.toString()) && 
+                         zip.getEntry("overrides/config/jei/small.cfg") != null;
+            }
+            int streamed = 0;
+            try (ZipInputStream in = new ZipInputStream(Files.newInputStream(mrpack))) {
+                // Reading every entry in sequence checks local headers and checksums
+                while (in.getNextEntry() != null) {
+                    in.readAllBytes();
+                    streamed++;
+                }
+            }
+            test("Archive reads back with stored jars and deflated configs", intact && streamed == 5);
+            
+            ModpackImporter.Manifest manifest = ModpackImporter.read(mrpack);
+            test("Exported .mrpack imports again", 
+                 manifest.getName().equals("Skyblock") && 
+                 manifest.getMods().equals(List.of("jei-15.2", "waystones")));
+            
+            Path zipFile = instance.resolve("Skyblock.zip");
+            exporter.export("Skyblock", packMods, jars, folders, zipFile);
+            try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+                test("Plain zip uses the instance layout", 
+                     zip.size() == 4 && zip.getEntry("mods/jei-15.2.jar") != null && 
+                     zip.getEntry("config/jei/small.cfg") != null && zip.getEntry("modrinth.index.json") == null);
+            }
+        } catch (Exception e) {
+            test("Export tests ran without errors: " + e.getMessage(), false);
+        }
+    }
+    
+    /**
+     * Test read-only views, shared snapshots and cached aggregates
+     */
+    private void testViews() {
+        section("VIEW TESTS");
+        
+        for (AbstractModpackManager manager : List.of(new ModpackManager(), new ConcurrentModpackManager())) {
+            String kind = manager instanceof ConcurrentModpackManager ? "Concurrent: " : "";
+            manager.addModpack("Skyblock");
+            manager.addModsToModpack("Skyblock", List.of("JEI", "Botania", "Waystones"));
+            manager.addModpack("Magic");
+            manager.addModsToModpack("Magic", List.of("JEI", "Ars Nouveau"));
+            
+            test(kind + "Counts are kept per modpack, in total and distinct", 
+                 manager.getModCount("Skyblock") == 3 && manager.getModCount("Missing") == 0 && 
+                 manager.getTotalModCount() == 5 && manager.getDistinctModCount() == 4);
+            
+            Set<String> view = manager.getModpackModsView("Skyblock");
+            boolean readOnly = false;
+            try {
+                view.add("TNT");
+            } catch (UnsupportedOperationException e) {
+                readOnly = true;
+            }
+            test(kind + "Views are read-only", readOnly && manager.getModpackModsView("Missing").isEmpty());
+            
+            List<String> before = manager.getModpackModsSnapshot("Skyblock");
+            String summary = manager.getSummary();
+            ModpackSnapshot snapshot = manager.snapshot();
+            test(kind + "Unchanged data returns the same snapshot and summary", 
+                 manager.getModpackModsSnapshot("Skyblock") == before && manager.getSummary() == summary && 
+                 manager.snapshot() == snapshot && manager.getModpacksSnapshot() == manager.getModpacksSnapshot());
+            
+            manager.removeModFromModpack("Skyblock", "JEI");
+            manager.addModpack("Empty");
+            test(kind + "Snapshots keep their content after a change", 
+                 before.equals(List.of("JEI", "Botania", "Waystones")) && 
+                 manager.getModpackModsSnapshot("Skyblock").equals(List.of("Botania", "Waystones")) && 
+                 manager.getModpacksSnapshot().equals(List.of("Skyblock", "Magic", "Empty")) && 
+                 !manager.snapshot().getMods("Skyblock").contains("JEI"));
+            test(kind + "Aggregates and summary follow changes", 
+                 manager.getTotalModCount() == 4 && manager.getDistinctModCount() == 4 && 
+                 manager.getModCount("Skyblock") == 2 && 
+                 manager.getSummary().equals("Modpack Summary:\nTotal modpacks: 3\n" + 
+                         "- Skyblock: 2 mods\n- Magic: 2 mods\n- Empty: 0 mods\n"));
+            if (kind.isEmpty()) {
+                test("Views follow later changes", 
+                     !view.contains("JEI") && manager.getModpacksView().contains("Empty"));
+            }
+        }
+        
+        ModpackManager manager = new ModpackManager();
+        manager.addModpack("Pack");
+        Set<String> oldView = manager.getModpackModsView("Pack");
+        manager.setModpackMods("Pack", List.of("Create"));
+        manager.removeModpack("Pack");
+        manager.addModpack("Pack");
+        test("Views of a replaced modpack show its new mods", 
+             manager.getModpackModsView("Pack").isEmpty() && oldView != manager.getModpackModsView("Pack") && 
+             manager.getModpackModsSnapshot("Pack").isEmpty() && manager.getDistinctModCount() == 0);
+    }
+    
+    /**
+     * Test the mod registry and the int-based mod sets behind ModpackManager
+     */
+    private void testInternedMods() {
+        section("INTERNED MOD TESTS");
+        
+        ModRegistry registry = new ModRegistry();
+        int jei = registry.intern("JEI");
+        test("Registry hands out one dense ID per name", 
+             jei == 0 && registry.intern(new String("JEI")) == jei && registry.intern("Create") == 1 && 
+             registry.find("Missing") == -1 && registry.find(null) == -1 && registry.name(1).equals("Create"));
+        
+        ModIdSet set = new ModIdSet(registry, "Test");
+        for (int i = 0; i < 1000; i++) {
+            set.add("Mod " + i);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            set.remove("Mod " + i);
+        }
+        for (int i = 1000; i < 1500; i++) {
+            set.add("Mod " + i);
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i < 1000; i += 2) {
+            expected.add("Mod " + i);
+        }
+        for (int i = 1000; i < 1500; i++) {
+            expected.add("Mod " + i);
+        }
+        test("Sets keep insertion order through removals and compaction", 
+             new ArrayList<>(set).equals(expected) && set.size() == 1000 && 
+             set.contains("Mod 999") && !set.contains("Mod 998") && !set.add("Mod 1") && 
+             registry.size() == 1000);
+        
+        Iterator<String> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().endsWith("1")) {
+                iterator.remove();
+            }
+        }
+        int left = set.size();
+        boolean failFast = false;
+        try {
+            for (String mod : set) {
+                set.add(mod + "!");
+            }
+        } catch (ConcurrentModificationException e) {
+            failFast = true;
+        }
+        test("Iterators remove in place and fail fast", 
+             left == 850 && !set.contains("Mod 11") && set.contains("Mod 13") && failFast);
+        
+        ModIdSet first = new ModIdSet(registry, "First", List.of("JEI", "Create"));
+        ModIdSet second = new ModIdSet(registry, "Second", List.of("JEI"));
+        set.add("JEI");
+        second.remove("JEI");
+        second.add("JEI");
+        first.detach();
+        test("Registry lists the holders of each mod in order", 
+             registry.modpacks(jei).equals(List.of("Test", "Second")) && 
+             registry.modpacks(registry.find("Create")).isEmpty() && registry.modpacks(-1).isEmpty());
+        
+        ModpackManager manager = new ModpackManager();
+        manager.addModpack("A");
+        manager.addModpack("B");
+        manager.addModToModpack("A", new String("JEI"));
+        manager.addModToModpack("B", new String("JEI"));
+        manager.addModToModpack("B", "Create");
+        test("Manager keeps one instance of a name shared by packs", 
+             manager.getModpackModsSnapshot("A").get(0) == manager.getModpackModsSnapshot("B").get(0) && 
+             manager.getDistinctModCount() == 2 && manager.getTotalModCount() == 3);
+        
+        Set<String> removed = new HashSet<>();
+        manager.addModpackListener(new ModpackListener() {
+            @Override
+            public void modpackRemoved(String modpack, Set<String> mods) {
+                removed.addAll(mods);
+            }
+        });
+        Set<String> oldView = manager.getModpackModsView("B");
+        manager.removeModpack("B");
+        test("Removed modpacks keep their mods for listeners and views", 
+             removed.equals(Set.of("JEI", "Create")) && oldView.equals(Set.of("JEI", "Create")) && 
+             manager.getDistinctModCount() == 1 && manager.getTotalModCount() == 1 && 
+             manager.getModpacksContaining("JEI").equals(List.of("A")));
+    }
+    
+    /**
+     * Test applying outside edits of the data file and a mods folder
+     */
+    private void testWatcher() {
+        section("WATCHER TESTS");
+        
+        ExecutorService owner = Executors.newSingleThreadExecutor();
+        ModpackWatcher watcher = null;
+        try {
+            Path dir = Files.createTempDirectory("modpack-watch-test");
+            Path odd = dir.resolve("odd.txt");
+            Files.write(odd, ("MODPACKS:\r\n  Café \r\nBeta\n\nMODPACK_MODS:\n  Stray\nCafé:\r\n  JEI\r\n" + 
+                    "  x: y\n\tTabbed\nBeta:\n  Old\nBeta:\n  Create  \n  日本語\n").getBytes(StandardCharsets.UTF_8));
+            byte[] bytes = Files.readAllBytes(odd);
+            ModpackWatcher.Sections sections = ModpackWatcher.Sections.scan(bytes);
+            ModpackFileLoader.LoadResult loaded = ModpackFileLoader.load(odd);
+            boolean same = sections.modpacks.equals(loaded.getModpacks()) && 
+                    sections.packs.keySet().equals(loaded.getModpackMods().keySet());
+            for (String modpack : sections.packs.keySet()) {
+                same &= new ArrayList<>(loaded.getModpackMods().get(modpack))
+                        .equals(sections.packs.get(modpack).mods(bytes));
+            }
+            test("Data file sections split like the loader reads them", same);
+            
+            ModpackManager manager = new ModpackManager();
+            manager.setDataFile(dir.resolve("modpack_data.txt"));
+            manager.addModpack("Alpha");
+            manager.addModsToModpack("Alpha", List.of("JEI", "Create"));
+            manager.addModpack("Beta");
+            manager.addModToModpack("Beta", "Botania");
+            manager.saveToJson();
+            List<String> events = Collections.synchronizedList(new ArrayList<>());
+            manager.addModpackListener(new ModpackListener() {
+                @Override
+                public void modsAdded(String modpack, List<String> mods) {
+                    events.add(modpack + "+" + mods);
+                }
+                
+                @Override
+                public void modsRemoved(String modpack, List<String> mods) {
+                    events.add(modpack + "-" + mods);
+                }
+                
+                @Override
+                public void dataReplaced() {
+                    events.add("replaced");
+                }
+            });
+            List<String> reports = Collections.synchronizedList(new ArrayList<>());
+            watcher = new ModpackWatcher(manager, owner, 50);
+            watcher.setOnReload(reports::add);
+            ModpackWatcher started = watcher;
+            owner.submit(() -> {
+                started.watchDataFile();
+                return null;
+            }).get();
+            watcher.start();
+            
+            // Another program rewrites the file: Beta gains a mod and Gamma is new
+            ModpackManager other = new ModpackManager();
+            other.setDataFile(manager.getDataFile());
+            other.loadFromJson();
+            other.addModToModpack("Beta", "Mekanism");
+            other.addModpack("Gamma");
+            other.addModToModpack("Gamma", "Quark");
+            other.saveToJson();
+            boolean applied = waitFor(owner, () -> manager.getModpackMods("Gamma").equals(List.of("Quark")) && 
+                    manager.getModpackMods("Beta").equals(List.of("Botania", "Mekanism")));
+            test("Outside edits are applied as changes to the edited modpacks only", 
+                 applied && events.size() == 2 && events.containsAll(List.of("Beta+[Mekanism]", "Gamma+[Quark]")) && 
+                 reports.equals(List.of("Reloaded 2 modpacks changed on disk")));
+            
+            PersistenceScheduler.Write write = owner.submit(() -> {
+                manager.removeModFromModpack("Alpha", "Create");
+                return started.ownWrite(manager.prepareSave());
+            }).get();
+            write.write();
+            Thread.sleep(300);
+            test("Our own saves are not read back as outside edits", 
+                 reports.size() == 1 && events.size() == 2 && 
+                 owner.submit(() -> manager.getModpackMods("Alpha")).get().equals(List.of("JEI")));
+            
+            Path mods = Files.createDirectories(dir.resolve("mods"));
+            writeJar(mods.resolve("sodium.jar"), "fabric.mod.json", 
+                     "{\"schemaVersion\": 1, \"id\": \"sodium\", \"name\": \"Sodium\"}");
+            owner.submit(() -> {
+                manager.addModToModpack("Alpha", "Sodium");
+                started.watchModsFolder("Alpha", Map.of("Sodium", mods.resolve("sodium.jar")));
+                return null;
+            }).get();
+            writeJar(mods.resolve("jei.jar"), "mcmod.info", 
+                     "[{\"modid\": \"jei\", \"name\": \"Just Enough Items\", \"version\": \"4.16\"}]");
+            Files.delete(mods.resolve("sodium.jar"));
+            test("Jars added to and deleted from a watched mods folder follow into the modpack", 
+                 waitFor(owner, () -> manager.getModpackMods("Alpha").equals(List.of("JEI", "Just Enough Items"))));
+        } catch (Exception e) {
+            test("Watcher tests ran without errors: " + e.getMessage(), false);
+        } finally {
+            if (watcher != null) {
+                watcher.close();
+            }
+            owner.shutdown();
+        }
+    }
+    
+    /**
+     * Polls a condition on the owning thread until it holds or five seconds pass
+     */
+    private static boolean waitFor(ExecutorService owner, Callable<Boolean> condition) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (owner.submit(condition).get()) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+    
     /**
      * Test realistic usage scenarios
      */
@@ -168,6 +2037,8 @@ public class SimpleTestRunner {
         
         if (condition) {
             passedTests++;
+        } else {
+            failedTests.add(testName);
         }
     }
     
@@ -0,0 +1,20 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the SimpleTestRunner checks as part of the build
+ */
+public class SimpleTestRunnerTest {
+
+    @Test
+    public void allChecksPass() {
+        SimpleTestRunner runner = new SimpleTestRunner();
+        runner.runAllTests();
+        assertEquals(List.of(), runner.getFailedTests(), "Failed checks");
+    }
+}